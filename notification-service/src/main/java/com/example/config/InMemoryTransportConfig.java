@@ -0,0 +1,52 @@
+package com.example.config;
+
+import com.example.model.OrderEvent;
+import com.example.processing.Backpressure;
+import com.example.processing.BatchSender;
+import com.example.processing.EventDeduplicator;
+import com.example.processing.InMemoryBackpressure;
+import com.example.processing.RetryTopicRouter;
+import com.example.service.NotificationService;
+import com.example.snapshot.OrderSnapshotCache;
+import com.example.transport.InMemoryListeners;
+import com.example.transport.InMemoryTransport;
+import com.example.transport.InMemoryTransportConfigSupport;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.util.List;
+
+@Configuration
+@Profile("in-memory")
+public class InMemoryTransportConfig extends InMemoryTransportConfigSupport {
+
+    private static final String GROUP = "notification-group";
+
+    @Value("${kafka.topics.sent-orders}")
+    private String sentOrdersTopic;
+
+    @Value("${kafka.topics.order-snapshots}")
+    private String orderSnapshotsTopic;
+
+    @Bean
+    public Backpressure notificationBackpressure() {
+        return new InMemoryBackpressure(inMemoryTransport(), GROUP);
+    }
+
+    @Bean
+    public InMemoryListeners notificationInMemoryListeners(NotificationService notificationService,
+                                                           RetryTopicRouter retryTopicRouter,
+                                                           BatchSender batchSender,
+                                                           EventDeduplicator eventDeduplicator,
+                                                           OrderSnapshotCache orderSnapshotCache) {
+        InMemoryTransport.Listener<OrderEvent> listener = (records, delivery) ->
+                notificationService.processBatch(records, delivery, delivery::rewind);
+        return listeners()
+                .listen(GROUP, List.of(sentOrdersTopic), listener)
+                .listenRetries(retryTopicRouter, sentOrdersTopic, GROUP + "-retry", batchSender,
+                        eventDeduplicator, OrderEvent::getEventId, notificationService::handleRecord)
+                .<OrderEvent>listen("notification-snapshots", List.of(orderSnapshotsTopic), orderSnapshotCache::onMessage);
+    }
+}
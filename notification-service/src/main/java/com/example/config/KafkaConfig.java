@@ -1,17 +1,33 @@
 package com.example.config;
 
+import com.example.codec.OrderEventDeserializer;
 import com.example.model.OrderEvent;
+import com.example.processing.BatchSender;
+import com.example.processing.BatchTimings;
+import com.example.processing.BoundedExecutor;
+import com.example.processing.EventDeduplicator;
+import com.example.processing.KeyOrderedBatchExecutor;
+import com.example.service.NotificationService;
+import com.example.tracing.LatencyMetrics;
+import com.example.tracing.StageTracer;
+import com.example.transport.EventTransport;
+import com.example.transport.KafkaEventTransport;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
 import org.springframework.kafka.listener.ContainerProperties;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -24,30 +40,109 @@ public class KafkaConfig {
     @Value("${kafka.consumer.concurrency:3}")
     private int concurrency;
 
+    // Стартовое значение; дальше его подстраивает AdaptiveConsumerController
+    @Value("${kafka.consumer.max-poll-records:10}")
+    private int maxPollRecords;
+
+    @Value("${kafka.consumer.parallel.enabled:true}")
+    private boolean parallelEnabled;
+
+    @Value("${kafka.consumer.parallel.max-in-flight-per-partition:4}")
+    private int maxInFlightPerPartition;
+
+    @Value("${kafka.dedup.capacity:1048576}")
+    private int dedupCapacity;
+
+    @Value("${kafka.dedup.window:10m}")
+    private Duration dedupWindow;
+
+    @Value("${kafka.producer.send-attempts:3}")
+    private int sendAttempts;
+
+    @Value("${kafka.producer.send-timeout-ms:30000}")
+    private long sendTimeoutMs;
+
+    // false в профиле in-memory: записи доставляет InMemoryTransport
+    @Value("${kafka.listeners.auto-startup:true}")
+    private boolean autoStartup;
+
     @Bean
     public ConsumerFactory<String, OrderEvent> consumerFactory() {
         Map<String, Object> configProps = new HashMap<>();
         configProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         configProps.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        configProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
+        configProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, OrderEventDeserializer.class);
         configProps.put(ConsumerConfig.GROUP_ID_CONFIG, "notification-group");
         configProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
         configProps.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
-        configProps.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 10);
+        configProps.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+        // Записи из транзакций payment/shipping видны только после коммита
+        configProps.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
         configProps.put(JsonDeserializer.TRUSTED_PACKAGES, "com.example.model");
 
         return new DefaultKafkaConsumerFactory<>(configProps);
     }
 
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, OrderEvent> kafkaListenerContainerFactory() {
+    public ConcurrentKafkaListenerContainerFactory<String, OrderEvent> kafkaListenerContainerFactory(
+            ConsumerAwareRebalanceListener notificationRebalanceListener) {
         ConcurrentKafkaListenerContainerFactory<String, OrderEvent> factory =
                 new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
         factory.setConcurrency(concurrency);
         factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL_IMMEDIATE);
         factory.setBatchListener(true);
+        factory.setBatchInterceptor(batchTimings());
+        factory.setAutoStartup(autoStartup);
+
+        // Основной листенер при отзыве партиций и остановке контейнера отправляет их открытые
+        // окна склейки; повторы идут в обход склейки
+        factory.setContainerCustomizer(container -> {
+            if (NotificationService.LISTENER_ID.equals(container.getListenerId())) {
+                container.getContainerProperties().setConsumerRebalanceListener(notificationRebalanceListener);
+            }
+        });
 
         return factory;
     }
+
+    // В профиле in-memory транспорт даёт InMemoryTransportConfig
+    @Bean
+    @Profile("!in-memory")
+    public EventTransport eventTransport(KafkaTemplate<String, Object> kafkaTemplate) {
+        return new KafkaEventTransport(kafkaTemplate);
+    }
+
+    @Bean
+    public BatchSender batchSender(EventTransport eventTransport) {
+        return new BatchSender(eventTransport, sendAttempts, Duration.ofMillis(sendTimeoutMs));
+    }
+
+    @Bean(destroyMethod = "close")
+    public KeyOrderedBatchExecutor batchExecutor(@Qualifier("listenerExecutor") BoundedExecutor listenerExecutor) {
+        if (!parallelEnabled) {
+            return KeyOrderedBatchExecutor.sequential();
+        }
+        return new KeyOrderedBatchExecutor(maxInFlightPerPartition, listenerExecutor);
+    }
+
+    @Bean
+    public EventDeduplicator eventDeduplicator() {
+        return new EventDeduplicator(dedupCapacity, dedupWindow);
+    }
+
+    @Bean
+    public BatchTimings<String, OrderEvent> batchTimings() {
+        return new BatchTimings<>();
+    }
+
+    @Bean
+    public LatencyMetrics latencyMetrics() {
+        return new LatencyMetrics();
+    }
+
+    @Bean
+    public StageTracer stageTracer() {
+        return new StageTracer("notification", "shipping", latencyMetrics());
+    }
 }
@@ -0,0 +1,139 @@
+package com.example.config;
+
+import com.example.notification.ChannelWorkers;
+import com.example.processing.DeliveryTracker;
+import com.example.notification.LoggingSmsSender;
+import com.example.notification.MailChannelSender;
+import com.example.notification.NotificationCoalescer;
+import com.example.notification.NotificationDispatcher;
+import com.example.notification.SmtpSessionPool;
+import com.example.processing.Backpressure;
+import com.example.processing.ContainerBackpressure;
+import com.example.processing.TimerWheel;
+import com.example.service.NotificationService;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+@Configuration
+public class NotificationConfig {
+
+    @Value("${notification.mail.from:${spring.mail.username:noreply@example.com}}")
+    private String from;
+
+    @Value("${notification.coalescing.window:1m}")
+    private Duration window;
+
+    @Value("${notification.coalescing.max-events:20}")
+    private int maxEvents;
+
+    @Value("${notification.coalescing.max-customers:100000}")
+    private int maxCustomers;
+
+    @Value("${notification.coalescing.tick:100ms}")
+    private Duration tick;
+
+    @Value("${notification.coalescing.wheel-size:1024}")
+    private int wheelSize;
+
+    @Value("${notification.dispatch.email.workers:4}")
+    private int emailWorkers;
+
+    @Value("${notification.dispatch.email.queue-capacity:1000}")
+    private int emailQueueCapacity;
+
+    @Value("${notification.dispatch.email.batch-size:20}")
+    private int emailBatchSize;
+
+    @Value("${notification.dispatch.sms.enabled:false}")
+    private boolean smsEnabled;
+
+    @Value("${notification.dispatch.sms.workers:2}")
+    private int smsWorkers;
+
+    @Value("${notification.dispatch.sms.queue-capacity:1000}")
+    private int smsQueueCapacity;
+
+    @Value("${notification.dispatch.sms.batch-size:20}")
+    private int smsBatchSize;
+
+    @Value("${notification.dispatch.drain-timeout:30s}")
+    private Duration drainTimeout;
+
+    @Value("${notification.smtp.pool-size:4}")
+    private int smtpPoolSize;
+
+    @Value("${notification.smtp.max-messages-per-connection:100}")
+    private int smtpMaxMessagesPerConnection;
+
+    @Value("${notification.smtp.max-idle:30s}")
+    private Duration smtpMaxIdle;
+
+    @Bean(destroyMethod = "close")
+    public SmtpSessionPool smtpSessionPool(JavaMailSenderImpl mailSender) {
+        return new SmtpSessionPool(mailSender, smtpPoolSize, smtpMaxMessagesPerConnection, smtpMaxIdle);
+    }
+
+    // В профиле in-memory - InMemoryBackpressure из InMemoryTransportConfig
+    @Bean
+    @Profile("!in-memory")
+    public Backpressure notificationBackpressure(KafkaListenerEndpointRegistry registry) {
+        return new ContainerBackpressure(registry, NotificationService.LISTENER_ID);
+    }
+
+    // Воркеры каналов закрывает диспетчер
+    @Bean(destroyMethod = "close")
+    public NotificationDispatcher notificationDispatcher(SmtpSessionPool smtpSessionPool,
+                                                         Backpressure notificationBackpressure) {
+        ChannelWorkers email = new ChannelWorkers("notification-email",
+                new MailChannelSender(smtpSessionPool, from),
+                emailWorkers, emailQueueCapacity, emailBatchSize, notificationBackpressure);
+        ChannelWorkers sms = smsEnabled
+                ? new ChannelWorkers("notification-sms", new LoggingSmsSender(),
+                        smsWorkers, smsQueueCapacity, smsBatchSize, notificationBackpressure)
+                : null;
+        return new NotificationDispatcher(email, sms, notificationBackpressure, drainTimeout);
+    }
+
+    @Bean(destroyMethod = "close")
+    public TimerWheel notificationTimerWheel() {
+        return new TimerWheel("notification-timer", tick, wheelSize);
+    }
+
+    // Останавливается раньше диспетчера и контейнеров: открытые окна успевают уйти
+    @Bean(destroyMethod = "close")
+    public NotificationCoalescer notificationCoalescer(NotificationDispatcher notificationDispatcher) {
+        return new NotificationCoalescer(notificationDispatcher, notificationTimerWheel(), window, maxEvents,
+                maxCustomers);
+    }
+
+    // Пачки потока подтверждаются по порядку и несут смещения всех его партиций, поэтому при
+    // отзыве отправляются окна всех партиций консьюмера, а не только отозванных
+    @Bean
+    public ConsumerAwareRebalanceListener notificationRebalanceListener(NotificationCoalescer notificationCoalescer) {
+        return new ConsumerAwareRebalanceListener() {
+            @Override
+            public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+                Set<TopicPartition> owned = new HashSet<>(consumer.assignment());
+                owned.addAll(partitions);
+                notificationCoalescer.flush(owned, drainTimeout);
+            }
+        };
+    }
+
+    @Bean
+    public DeliveryTracker deliveryTracker() {
+        return new DeliveryTracker();
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.config;
+
+import com.example.model.OrderEvent;
+import com.example.processing.BatchSender;
+import com.example.processing.EventDeduplicator;
+import com.example.processing.RetryConfigSupport;
+import com.example.processing.RetryListenerContainers;
+import com.example.service.NotificationService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+
+@Configuration
+public class RetryConfig extends RetryConfigSupport {
+
+    public RetryConfig(@Value("${kafka.topics.sent-orders}") String sentOrdersTopic) {
+        super("notification", sentOrdersTopic);
+    }
+
+    @Bean
+    public RetryListenerContainers<OrderEvent> notificationRetryContainers(
+            ConcurrentKafkaListenerContainerFactory<String, OrderEvent> kafkaListenerContainerFactory,
+            BatchSender batchSender,
+            EventDeduplicator eventDeduplicator,
+            NotificationService notificationService) {
+        return retryContainers(kafkaListenerContainerFactory, batchSender, eventDeduplicator,
+                notificationService::handleRecord);
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.controller;
+
+import com.example.notification.NotificationCoalescer;
+import com.example.notification.NotificationDispatcher;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+// Статистика склейки и доставки уведомлений
+@RestController
+@RequestMapping("/api/notifications")
+@RequiredArgsConstructor
+public class NotificationController {
+
+    private final NotificationCoalescer notificationCoalescer;
+    private final NotificationDispatcher notificationDispatcher;
+
+    @GetMapping("/coalescing")
+    public ResponseEntity<Map<String, Object>> getStats() {
+        return ResponseEntity.ok(notificationCoalescer.stats());
+    }
+
+    @GetMapping("/dispatch")
+    public ResponseEntity<Map<String, Object>> getDispatchStats() {
+        return ResponseEntity.ok(notificationDispatcher.stats());
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.notification;
+
+import java.util.List;
+
+/**
+ * Отправитель одного канала. Получает пачку из очереди, чтобы отправить её за одно
+ * соединение, и завершает каждый {@link Dispatch} сам.
+ */
+public interface ChannelSender {
+
+    void send(List<Dispatch> batch);
+}
@@ -0,0 +1,199 @@
+package com.example.notification;
+
+import com.example.processing.Backpressure;
+import com.example.processing.ListenerExecutors;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ограниченная очередь и собственные воркеры одного канала: медленный канал не занимает
+ * потоки другого. Воркер забирает из очереди до {@code batchSize} дайджестов за раз.
+ * <p>
+ * Когда очередь заполнена, вызывается {@link Backpressure#pause()}, а отправитель ждёт
+ * места; приём возобновляется, когда очередь освободится наполовину.
+ */
+@Slf4j
+public class ChannelWorkers implements AutoCloseable {
+
+    private final String name;
+    private final ChannelSender sender;
+    private final BlockingQueue<Dispatch> queue;
+    private final int batchSize;
+    private final int resumeBelow;
+    private final Backpressure backpressure;
+    private final List<Thread> workers = new ArrayList<>();
+
+    private final AtomicBoolean full = new AtomicBoolean();
+    private final AtomicInteger active = new AtomicInteger();
+    private volatile boolean running = true;
+
+    private final LongAdder delivered = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder pauses = new LongAdder();
+
+    public ChannelWorkers(String name, ChannelSender sender, int workerCount, int capacity, int batchSize,
+                          Backpressure backpressure) {
+        this.name = name;
+        this.sender = sender;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = Math.max(1, batchSize);
+        this.resumeBelow = capacity / 2;
+        this.backpressure = backpressure;
+        ThreadFactory threads = ListenerExecutors.namedDaemonThreads(name);
+        for (int i = 0; i < workerCount; i++) {
+            Thread worker = threads.newThread(this::run);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    public void submit(Dispatch dispatch) {
+        if (!running) {
+            throw new RejectedExecutionException("Channel " + name + " is closed");
+        }
+        if (queue.offer(dispatch)) {
+            return;
+        }
+        if (full.compareAndSet(false, true)) {
+            pauses.increment();
+            log.warn("Notification queue '{}' is full, pausing intake", name);
+            backpressure.pause();
+        }
+        try {
+            queue.put(dispatch);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for channel " + name, e);
+        }
+    }
+
+    public int queued() {
+        return queue.size();
+    }
+
+    /**
+     * Ждёт, пока очередь опустеет и воркеры закончат текущие пачки.
+     *
+     * @return {@code true}, если канал успел освободиться
+     */
+    public boolean awaitIdle(Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (!queue.isEmpty() || active.get() > 0) {
+            if (System.nanoTime() >= deadline) {
+                return false;
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void stats(String prefix, Map<String, Object> stats) {
+        stats.put(prefix + ".queued", queue.size());
+        stats.put(prefix + ".delivered", delivered.sum());
+        stats.put(prefix + ".failed", failed.sum());
+        stats.put(prefix + ".pauses", pauses.sum());
+    }
+
+    /**
+     * Останавливает воркеры; то, что осталось в очереди, завершается ошибкой.
+     */
+    @Override
+    public void close() {
+        running = false;
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        for (Thread worker : workers) {
+            try {
+                worker.join(5_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        List<Dispatch> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        IllegalStateException closed = new IllegalStateException("Channel " + name + " closed before delivery");
+        for (Dispatch dispatch : rest) {
+            complete(dispatch, closed);
+        }
+        if (!rest.isEmpty()) {
+            log.warn("Channel '{}' closed with {} undelivered notification(s)", name, rest.size());
+        }
+    }
+
+    private void run() {
+        List<Dispatch> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                Dispatch first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                active.incrementAndGet();
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+            } catch (InterruptedException e) {
+                break;
+            }
+            try {
+                resumeIfDrained();
+                deliver(batch);
+            } finally {
+                batch.clear();
+                active.decrementAndGet();
+            }
+        }
+    }
+
+    private void deliver(List<Dispatch> batch) {
+        try {
+            sender.send(batch);
+        } catch (RuntimeException e) {
+            log.error("Channel '{}' sender failed: {}", name, e.getMessage(), e);
+        }
+        // Всё, что отправитель не подтвердил, считается недоставленным
+        IllegalStateException unconfirmed = new IllegalStateException("Delivery not confirmed by channel " + name);
+        for (Dispatch dispatch : batch) {
+            if (dispatch.isDelivered()) {
+                delivered.increment();
+            } else if (dispatch.isCompleted()) {
+                failed.increment();
+            } else {
+                complete(dispatch, unconfirmed);
+            }
+        }
+    }
+
+    private void complete(Dispatch dispatch, Exception error) {
+        failed.increment();
+        try {
+            dispatch.failed(error);
+        } catch (RuntimeException e) {
+            log.error("Delivery callback failed on channel '{}': {}", name, e.getMessage(), e);
+        }
+    }
+
+    private void resumeIfDrained() {
+        if (full.get() && queue.size() <= resumeBelow && full.compareAndSet(true, false)) {
+            log.info("Notification queue '{}' drained, resuming intake", name);
+            backpressure.resume();
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.notification;
+
+import com.example.processing.DeliveryCallback;
+
+/**
+ * Канал доставки дайджеста. Реализация может доставлять асинхронно и сообщает результат через callback.
+ */
+public interface DigestSender {
+
+    void send(NotificationDigest digest, DeliveryCallback callback);
+}
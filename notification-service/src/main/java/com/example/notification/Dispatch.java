@@ -0,0 +1,47 @@
+package com.example.notification;
+
+import com.example.processing.DeliveryCallback;
+
+/**
+ * Дайджест в очереди канала. Результат фиксируется один раз: повторный вызов игнорируется,
+ * поэтому воркер может безопасно завершить ошибкой всё, что отправитель не успел подтвердить.
+ */
+public final class Dispatch {
+
+    private final NotificationDigest digest;
+    private final DeliveryCallback callback;
+    private boolean completed;
+    private boolean success;
+
+    public Dispatch(NotificationDigest digest, DeliveryCallback callback) {
+        this.digest = digest;
+        this.callback = callback;
+    }
+
+    public NotificationDigest getDigest() {
+        return digest;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public boolean isDelivered() {
+        return success;
+    }
+
+    public void delivered() {
+        if (!completed) {
+            completed = true;
+            success = true;
+            callback.delivered();
+        }
+    }
+
+    public void failed(Exception error) {
+        if (!completed) {
+            completed = true;
+            callback.failed(error);
+        }
+    }
+}
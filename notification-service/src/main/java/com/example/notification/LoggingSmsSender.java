@@ -0,0 +1,22 @@
+package com.example.notification;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+
+/**
+ * SMS-канал без шлюза: телефона в заказе нет, поэтому отправка только логируется.
+ * Здесь будет интеграция с SMS-шлюзом.
+ */
+@Slf4j
+public class LoggingSmsSender implements ChannelSender {
+
+    @Override
+    public void send(List<Dispatch> batch) {
+        for (Dispatch dispatch : batch) {
+            log.info("SMS notification would be sent for {} order update(s) of {}",
+                    dispatch.getDigest().getLines().size(), dispatch.getDigest().getCustomerEmail());
+            dispatch.delivered();
+        }
+    }
+}
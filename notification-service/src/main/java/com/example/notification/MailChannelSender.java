@@ -0,0 +1,108 @@
+package com.example.notification;
+
+import com.example.model.Money;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.internet.MimeMessage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.mail.javamail.MimeMessageHelper;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Email-канал: вся пачка воркера уходит по одному соединению из {@link SmtpSessionPool}.
+ * Отказ адресата завершает только своё письмо; обрыв соединения - одна повторная попытка
+ * письма по новому соединению.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class MailChannelSender implements ChannelSender {
+
+    private static final int ATTEMPTS = 2;
+
+    private final SmtpSessionPool pool;
+    private final String from;
+
+    @Override
+    public void send(List<Dispatch> batch) {
+        SmtpSessionPool.Connection connection = null;
+        try {
+            for (Dispatch dispatch : batch) {
+                MimeMessage message;
+                try {
+                    message = message(dispatch.getDigest());
+                } catch (MessagingException e) {
+                    dispatch.failed(e);
+                    continue;
+                }
+                for (int attempt = 1; !dispatch.isCompleted(); attempt++) {
+                    try {
+                        if (connection == null) {
+                            connection = pool.borrow();
+                        }
+                        connection.send(message);
+                        log.info("Notification digest with {} update(s) sent to: {}",
+                                dispatch.getDigest().getLines().size(), dispatch.getDigest().getCustomerEmail());
+                        dispatch.delivered();
+                    } catch (SendFailedException e) {
+                        log.error("SMTP server rejected digest to {}: {}",
+                                dispatch.getDigest().getCustomerEmail(), e.getMessage());
+                        dispatch.failed(e);
+                    } catch (MessagingException e) {
+                        if (connection != null) {
+                            pool.release(connection, true);
+                            connection = null;
+                        }
+                        if (attempt >= ATTEMPTS) {
+                            log.error("Failed to send notification digest to {}: {}",
+                                    dispatch.getDigest().getCustomerEmail(), e.getMessage());
+                            dispatch.failed(e);
+                        }
+                    }
+                }
+            }
+        } finally {
+            if (connection != null) {
+                pool.release(connection, false);
+            }
+        }
+    }
+
+    private MimeMessage message(NotificationDigest digest) throws MessagingException {
+        MimeMessage message = new MimeMessage(pool.session());
+        MimeMessageHelper helper = new MimeMessageHelper(message, StandardCharsets.UTF_8.name());
+        helper.setFrom(from);
+        helper.setTo(digest.getCustomerEmail());
+        helper.setSubject(subject(digest));
+        helper.setText(body(digest));
+        message.saveChanges();
+        return message;
+    }
+
+    private static String subject(NotificationDigest digest) {
+        int count = digest.getLines().size();
+        if (count == 1) {
+            NotificationDigest.Line line = digest.getLines().get(0);
+            return "Order " + line.getOrderId() + ": " + line.getStatus();
+        }
+        return "Updates on " + count + " of your orders";
+    }
+
+    private static String body(NotificationDigest digest) {
+        StringBuilder body = new StringBuilder();
+        for (NotificationDigest.Line line : digest.getLines()) {
+            body.append("Order ").append(line.getOrderId())
+                    .append(": ").append(line.getStatus());
+            if (line.getTotalAmount() != null) {
+                body.append(", total ").append(String.format(Locale.ROOT, "%." + Money.fractionDigits(line.getCurrency()) + "f",
+                                line.getTotalAmount()))
+                        .append(' ').append(line.getCurrency());
+            }
+            body.append('\n');
+        }
+        return body.toString();
+    }
+}
@@ -0,0 +1,303 @@
+package com.example.notification;
+
+import com.example.model.Order;
+import com.example.processing.DeliveryCallback;
+import com.example.processing.TimerWheel;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.context.SmartLifecycle;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Склейка уведомлений по customerEmail: события клиента копятся в окне и уходят одним
+ * дайджестом по истечении {@code window} или при наборе {@code maxEvents}.
+ * <p>
+ * Память ограничена: не больше {@code maxCustomers} открытых окон по {@code maxEvents} строк.
+ * Если лимит окон исчерпан, событие отправляется сразу, без склейки. Истечение окон
+ * обслуживает одно колесо таймеров, а не задача в планировщике на каждого клиента.
+ * <p>
+ * Каждое событие несёт {@link DeliveryCallback}: он получает результат доставки дайджеста,
+ * в который попало событие. Окно помнит партиции своих записей: {@link #flush} при отзыве
+ * партиций отправляет их окна и ждёт доставки, чтобы смещения подтвердились до перехода
+ * партиций к другому консьюмеру. Остановка (раньше диспетчера и контейнеров Kafka) так же
+ * отправляет все открытые окна.
+ */
+@Slf4j
+public class NotificationCoalescer implements SmartLifecycle, AutoCloseable {
+
+    // Раньше диспетчера, а он - раньше контейнеров: подтверждения уходят с последним poll
+    public static final int PHASE = NotificationDispatcher.PHASE + 1;
+
+    private final DigestSender sender;
+    private final TimerWheel timerWheel;
+    private final Duration window;
+    private final int maxEvents;
+    private final int maxCustomers;
+
+    private final Map<String, Window> windows = new ConcurrentHashMap<>();
+    private final Set<Sending> sending = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger openWindows = new AtomicInteger();
+    private volatile boolean closed;
+    private volatile boolean running;
+
+    private final LongAdder events = new LongAdder();
+    private final LongAdder digests = new LongAdder();
+    private final LongAdder overflowed = new LongAdder();
+    private final LongAdder flushedOnRevoke = new LongAdder();
+
+    public NotificationCoalescer(DigestSender sender, TimerWheel timerWheel,
+                                 Duration window, int maxEvents, int maxCustomers) {
+        if (maxEvents <= 0 || maxCustomers <= 0) {
+            throw new IllegalArgumentException("Invalid coalescing limits: max-events " + maxEvents
+                    + ", max-customers " + maxCustomers);
+        }
+        this.sender = sender;
+        this.timerWheel = timerWheel;
+        this.window = window;
+        this.maxEvents = maxEvents;
+        this.maxCustomers = maxCustomers;
+    }
+
+    public void add(TopicPartition partition, Order order, DeliveryCallback callback) {
+        events.increment();
+        String email = order.getCustomerEmail();
+        NotificationDigest.Line line = NotificationDigest.Line.of(order);
+        if (email == null) {
+            log.warn("No customer email for order {}, notification skipped", order.getId());
+            callback.delivered();
+            return;
+        }
+        if (closed) {
+            send(email, Set.of(partition), List.of(line), List.of(callback));
+            return;
+        }
+
+        // Окно, которое нужно отправить после выхода из compute: заполненное или не открытое из-за лимита
+        Window[] ready = new Window[1];
+        windows.compute(email, (key, current) -> {
+            if (current == null) {
+                if (openWindows.incrementAndGet() > maxCustomers) {
+                    openWindows.decrementAndGet();
+                    overflowed.increment();
+                    ready[0] = new Window(key);
+                    ready[0].add(partition, line, callback);
+                    return null;
+                }
+                current = new Window(key);
+                Window opened = current;
+                current.timeout = timerWheel.schedule(() -> expire(opened), window);
+            }
+            current.add(partition, line, callback);
+            if (current.lines.size() >= maxEvents) {
+                current.timeout.cancel();
+                openWindows.decrementAndGet();
+                ready[0] = current;
+                return null;
+            }
+            return current;
+        });
+        if (ready[0] != null) {
+            send(email, ready[0].partitions, ready[0].lines, ready[0].callbacks);
+        }
+    }
+
+    /**
+     * Отправляет окна, в которых есть события перечисленных партиций, и ждёт доставки их
+     * дайджестов, включая отправленные раньше.
+     */
+    public boolean flush(Collection<TopicPartition> partitions, Duration timeout) {
+        int flushed = 0;
+        for (Window open : new ArrayList<>(windows.values())) {
+            if (open.holdsAny(partitions) && expire(open)) {
+                flushed++;
+            }
+        }
+        flushedOnRevoke.add(flushed);
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        for (Sending digest : sending) {
+            if (!Collections.disjoint(digest.partitions, partitions)) {
+                pending.add(digest.done);
+            }
+        }
+        log.info("Flushed {} open notification window(s), waiting for {} digest(s) of {} partition(s)",
+                flushed, pending.size(), partitions.size());
+        return await(pending, timeout);
+    }
+
+    public int openWindows() {
+        return openWindows.get();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("events", events.sum());
+        stats.put("digests", digests.sum());
+        stats.put("overflowed", overflowed.sum());
+        stats.put("flushedOnRevoke", flushedOnRevoke.sum());
+        stats.put("openWindows", openWindows.get());
+        stats.put("sending", sending.size());
+        return stats;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    /**
+     * Отправляет все открытые окна; события, пришедшие после остановки, уходят без склейки.
+     */
+    @Override
+    public void stop() {
+        running = false;
+        closed = true;
+        int flushed = 0;
+        for (Window open : new ArrayList<>(windows.values())) {
+            if (expire(open)) {
+                flushed++;
+            }
+        }
+        log.info("Notification coalescer stopped, {} open window(s) flushed", flushed);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            stop();
+        }
+    }
+
+    private boolean expire(Window open) {
+        if (!windows.remove(open.email, open)) {
+            // Окно уже отправлено по размеру или при остановке
+            return false;
+        }
+        open.timeout.cancel();
+        openWindows.decrementAndGet();
+        send(open.email, open.partitions, open.lines, open.callbacks);
+        return true;
+    }
+
+    private void send(String email, Set<TopicPartition> partitions, List<NotificationDigest.Line> lines,
+                      List<DeliveryCallback> callbacks) {
+        digests.increment();
+        Sending callback = new Sending(partitions, DeliveryCallback.all(callbacks));
+        sending.add(callback);
+        try {
+            sender.send(new NotificationDigest(email, List.copyOf(lines)), callback);
+        } catch (RuntimeException e) {
+            log.error("Failed to queue notification digest to {}: {}", email, e.getMessage());
+            callback.failed(e);
+        }
+    }
+
+    private static boolean await(List<CompletableFuture<Void>> pending, Duration timeout) {
+        try {
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture[0]))
+                    .get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            log.warn("Notification digests not delivered within {}", timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // Callback'и сами не бросают, ждать больше нечего
+        }
+        return false;
+    }
+
+    private static final class Window {
+
+        final String email;
+        // Партиции читает и поток ребаланса, пока окно открыто; почти всегда это одна партиция
+        final Set<TopicPartition> partitions = new CopyOnWriteArraySet<>();
+        // Меняются только внутри compute, после удаления из map - только читаются
+        final List<NotificationDigest.Line> lines = new ArrayList<>();
+        final List<DeliveryCallback> callbacks = new ArrayList<>();
+        TimerWheel.Timeout timeout;
+
+        Window(String email) {
+            this.email = email;
+        }
+
+        void add(TopicPartition partition, NotificationDigest.Line line, DeliveryCallback callback) {
+            partitions.add(partition);
+            lines.add(line);
+            callbacks.add(callback);
+        }
+
+        boolean holdsAny(Collection<TopicPartition> revoked) {
+            for (TopicPartition partition : revoked) {
+                if (partitions.contains(partition)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Дайджест в очереди диспетчера: {@link #flush} ждёт его доставки, если в нём есть
+     * события отзываемых партиций.
+     */
+    private final class Sending implements DeliveryCallback {
+
+        final Set<TopicPartition> partitions;
+        final DeliveryCallback callback;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Sending(Set<TopicPartition> partitions, DeliveryCallback callback) {
+            this.partitions = partitions;
+            this.callback = callback;
+        }
+
+        @Override
+        public void delivered() {
+            try {
+                callback.delivered();
+            } finally {
+                finish();
+            }
+        }
+
+        @Override
+        public void failed(Exception error) {
+            try {
+                callback.failed(error);
+            } finally {
+                finish();
+            }
+        }
+
+        private void finish() {
+            sending.remove(this);
+            done.complete(null);
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.notification;
+
+import com.example.model.Order;
+import com.example.model.OrderStatus;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Одно письмо клиенту со всеми событиями его заказов за окно.
+ */
+@Value
+public class NotificationDigest {
+
+    String customerEmail;
+    List<Line> lines;
+
+    public static NotificationDigest of(Order order) {
+        return new NotificationDigest(order.getCustomerEmail(), List.of(Line.of(order)));
+    }
+
+    @Value
+    public static class Line {
+        String orderId;
+        OrderStatus status;
+        Double totalAmount;
+        String currency;
+
+        public static Line of(Order order) {
+            return new Line(order.getId(), order.getStatus(), order.getTotalAmount(), order.getCurrency());
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.notification;
+
+import com.example.processing.Backpressure;
+import com.example.processing.DeliveryCallback;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.listener.AbstractMessageListenerContainer;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Развязывает приём событий и доставку: дайджесты ставятся в очереди каналов, а потоки
+ * листенера и колеса таймеров не ждут SMTP. Email - основной канал, его результат получает
+ * callback; SMS отправляется по возможности, его ошибки только логируются.
+ * <p>
+ * При остановке приложения (раньше контейнеров Kafka) приостанавливает приём и дожидается
+ * доставки очереди, чтобы подтверждения успели уйти вместе с последним poll.
+ */
+@Slf4j
+public class NotificationDispatcher implements DigestSender, SmartLifecycle, AutoCloseable {
+
+    // Останавливается после NotificationCoalescer и сразу перед контейнерами листенеров
+    public static final int PHASE = AbstractMessageListenerContainer.DEFAULT_PHASE + 1;
+
+    private final ChannelWorkers email;
+    private final ChannelWorkers sms;
+    private final Backpressure backpressure;
+    private final Duration drainTimeout;
+    private volatile boolean running;
+
+    /**
+     * @param sms воркеры SMS-канала или {@code null}, если канал выключен
+     */
+    public NotificationDispatcher(ChannelWorkers email, ChannelWorkers sms, Backpressure backpressure,
+                                  Duration drainTimeout) {
+        this.email = email;
+        this.sms = sms;
+        this.backpressure = backpressure;
+        this.drainTimeout = drainTimeout;
+    }
+
+    @Override
+    public void send(NotificationDigest digest, DeliveryCallback callback) {
+        email.submit(new Dispatch(digest, callback));
+        if (sms != null) {
+            sms.submit(new Dispatch(digest, DeliveryCallback.NONE));
+        }
+    }
+
+    /**
+     * Синхронная доставка в обход склейки - для повторов, где запись подтверждается сразу после обработки.
+     */
+    public void sendAndWait(NotificationDigest digest, Duration timeout) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        send(digest, new DeliveryCallback() {
+            @Override
+            public void delivered() {
+                result.complete(null);
+            }
+
+            @Override
+            public void failed(Exception error) {
+                result.completeExceptionally(error);
+            }
+        });
+        try {
+            result.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Notification to " + digest.getCustomerEmail() + " not delivered: "
+                    + e.getCause().getMessage(), e.getCause());
+        } catch (TimeoutException e) {
+            throw new IllegalStateException("Notification to " + digest.getCustomerEmail()
+                    + " not delivered within " + timeout, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while delivering notification", e);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        email.stats("email", stats);
+        if (sms != null) {
+            sms.stats("sms", stats);
+        }
+        return stats;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        backpressure.pause();
+        boolean drained = email.awaitIdle(drainTimeout);
+        if (sms != null) {
+            drained &= sms.awaitIdle(drainTimeout);
+        }
+        if (!drained) {
+            log.warn("Notification queues not drained within {}", drainTimeout);
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return PHASE;
+    }
+
+    @Override
+    public void close() {
+        email.close();
+        if (sms != null) {
+            sms.close();
+        }
+    }
+}
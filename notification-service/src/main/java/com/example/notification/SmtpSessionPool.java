@@ -0,0 +1,130 @@
+package com.example.notification;
+
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Пул открытых SMTP-соединений. Вместо connect/QUIT на каждое письмо соединение
+ * переиспользуется, пока не отправит {@code maxMessagesPerConnection} писем или не
+ * пролежит без дела дольше {@code maxIdle}. Число одновременных соединений ограничено {@code size}.
+ */
+@Slf4j
+public class SmtpSessionPool implements AutoCloseable {
+
+    private final JavaMailSenderImpl mailSender;
+    private final int maxMessagesPerConnection;
+    private final long maxIdleNanos;
+    private final Semaphore permits;
+    private final BlockingQueue<Connection> idle;
+
+    private final LongAdder opened = new LongAdder();
+
+    public SmtpSessionPool(JavaMailSenderImpl mailSender, int size, int maxMessagesPerConnection, Duration maxIdle) {
+        this.mailSender = mailSender;
+        this.maxMessagesPerConnection = Math.max(1, maxMessagesPerConnection);
+        this.maxIdleNanos = maxIdle.toNanos();
+        this.permits = new Semaphore(size);
+        this.idle = new ArrayBlockingQueue<>(size);
+    }
+
+    public Session session() {
+        return mailSender.getSession();
+    }
+
+    public Connection borrow() throws MessagingException {
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MessagingException("Interrupted while waiting for SMTP connection");
+        }
+        try {
+            Connection connection;
+            while ((connection = idle.poll()) != null) {
+                if (System.nanoTime() - connection.releasedAt < maxIdleNanos && connection.transport.isConnected()) {
+                    return connection;
+                }
+                connection.close();
+            }
+            return connect();
+        } catch (MessagingException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Возвращает соединение в пул; после ошибки соединения его нужно вернуть с {@code broken = true}.
+     */
+    public void release(Connection connection, boolean broken) {
+        try {
+            if (broken || connection.sent >= maxMessagesPerConnection || !idle.offer(connection)) {
+                connection.close();
+            } else {
+                connection.releasedAt = System.nanoTime();
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    public long openedConnections() {
+        return opened.sum();
+    }
+
+    @Override
+    public void close() {
+        Connection connection;
+        while ((connection = idle.poll()) != null) {
+            connection.close();
+        }
+    }
+
+    private Connection connect() throws MessagingException {
+        String protocol = mailSender.getProtocol() != null ? mailSender.getProtocol() : JavaMailSenderImpl.DEFAULT_PROTOCOL;
+        Transport transport = mailSender.getSession().getTransport(protocol);
+        transport.connect(mailSender.getHost(), mailSender.getPort(),
+                emptyToNull(mailSender.getUsername()), emptyToNull(mailSender.getPassword()));
+        opened.increment();
+        log.debug("Opened SMTP connection to {}:{}", mailSender.getHost(), mailSender.getPort());
+        return new Connection(transport);
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    public static final class Connection {
+
+        private final Transport transport;
+        private int sent;
+        private volatile long releasedAt;
+
+        Connection(Transport transport) {
+            this.transport = transport;
+        }
+
+        public void send(Message message) throws MessagingException {
+            transport.sendMessage(message, message.getAllRecipients());
+            sent++;
+        }
+
+        void close() {
+            try {
+                transport.close();
+            } catch (MessagingException e) {
+                log.debug("Failed to close SMTP connection: {}", e.getMessage());
+            }
+        }
+    }
+}
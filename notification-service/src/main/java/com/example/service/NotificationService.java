@@ -3,15 +3,29 @@ package com.example.service;
 
 import com.example.model.Order;
 import com.example.model.OrderEvent;
+import com.example.processing.DeliveryCallback;
+import com.example.processing.DeliveryTracker;
+import com.example.notification.NotificationCoalescer;
+import com.example.notification.NotificationDigest;
+import com.example.notification.NotificationDispatcher;
+import com.example.processing.BatchSendException;
+import com.example.processing.BatchSender;
+import com.example.processing.EventDeduplicator;
+import com.example.processing.KeyOrderedBatchExecutor;
+import com.example.processing.RetryTopicRouter;
+import com.example.snapshot.OrderSnapshotResolver;
+import com.example.tracing.StageTracer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
 import org.springframework.kafka.support.Acknowledgment;
-import org.springframework.messaging.handler.annotation.Payload;
-import org.springframework.retry.annotation.Backoff;
-import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
 import java.util.List;
 
 @Service
@@ -19,52 +33,117 @@ import java.util.List;
 @Slf4j
 public class NotificationService {
 
+    public static final String LISTENER_ID = "notification-listener";
+
+    private final BatchSender batchSender;
+    private final KeyOrderedBatchExecutor batchExecutor;
+    private final StageTracer stageTracer;
+    private final RetryTopicRouter retryRouter;
+    private final EventDeduplicator deduplicator;
+    private final OrderSnapshotResolver snapshotResolver;
+    private final NotificationCoalescer coalescer;
+    private final NotificationDispatcher dispatcher;
+    private final DeliveryTracker deliveryTracker;
+
+    @Value("${notification.dispatch.retry-timeout:30s}")
+    private Duration retryTimeout;
+
     @KafkaListener(
+            id = LISTENER_ID,
             topics = "${kafka.topics.sent-orders}",
             groupId = "notification-group",
             containerFactory = "kafkaListenerContainerFactory"
     )
-    public void processShippedOrders(@Payload List<OrderEvent> events, Acknowledgment ack) {
+    public void processShippedOrders(List<ConsumerRecord<String, OrderEvent>> records, Acknowledgment ack,
+                                     Consumer<?, ?> consumer) {
+        processBatch(records, ack, DeliveryTracker.seekToCommitted(consumer));
+    }
+
+    /**
+     * Обработка пачки независимо от транспорта: {@code rewind} возвращает к чтению
+     * с первой неподтверждённой пачки этого потока.
+     */
+    public void processBatch(List<ConsumerRecord<String, OrderEvent>> records, Acknowledgment ack, Runnable rewind) {
+        if (deliveryTracker.rewindIfFailed(rewind)) {
+            // Эта пачка будет перечитана после перемотки вместе с недоставленными
+            return;
+        }
+        // Пачка подтверждается, когда доставлены все её уведомления и подтверждены предыдущие пачки
+        DeliveryTracker.Batch delivery = deliveryTracker.begin(ack);
+        BatchSender.Batch sends = batchSender.newBatch();
         try {
-            for (OrderEvent event : events) {
-                sendNotification(event);
-            }
-            ack.acknowledge();
+            batchExecutor.execute(records, record -> {
+                // Повторно доставленное событие уже обработано - пропускаем
+                if (deduplicator.isDuplicate(record.value().getEventId())) {
+                    return;
+                }
+                DeliveryCallback callback = delivery.track();
+                if (!retryRouter.process(record, sends, (r, s) -> enqueue(r, callback))) {
+                    // Запись передана в топик повтора - дальше она не ждёт доставки
+                    callback.delivered();
+                }
+            });
+            sends.complete();
+            delivery.seal();
+        } catch (BatchSendException e) {
+            delivery.fail();
+            log.error("Notification retries not confirmed by Kafka, batch will be redelivered: {}", e.getMessage());
+            throw e;
         } catch (Exception e) {
-            log.error("Error processing shipped orders batch: {}", e.getMessage());
+            delivery.fail();
+            log.error("Error processing shipped orders batch, rewinding to committed offsets: {}", e.getMessage());
+            deliveryTracker.rewind(rewind);
         }
     }
 
-    @Retryable(
-            value = {Exception.class},
-            maxAttempts = 3,
-            backoff = @Backoff(delay = 1000, multiplier = 2)
-    )
-    public void sendNotification(OrderEvent event) {
-        log.info("Sending notification for order: {}", event.getOrderId());
+    // Повторы идут в обход склейки: запись подтверждается сразу после доставки
+    public void handleRecord(ConsumerRecord<String, OrderEvent> record, BatchSender.Batch sends) {
+        StageTracer.Trace trace = stageTracer.begin(record);
+        Order order = snapshotResolver.resolve(record.value());
+        dispatcher.sendAndWait(NotificationDigest.of(order), retryTimeout);
+        trace.end();
+    }
 
-        Order order = event.getPayload();
+    private void enqueue(ConsumerRecord<String, OrderEvent> record, DeliveryCallback delivery) {
+        StageTracer.Trace trace = stageTracer.begin(record);
+        log.debug("Queueing notification for order: {}", record.value().getOrderId());
 
-        try {
+        Order order = snapshotResolver.resolve(record.value());
+        // Письмо уйдёт дайджестом при закрытии окна клиента
+        coalescer.add(new TopicPartition(record.topic(), record.partition()), order,
+                new RecordDelivery(record, delivery));
+        trace.end();
+    }
 
-            log.info("Notification sent successfully for order: {}", order.getId());
-            log.info("сервис нотификации оповестил :{},{},{}", order.getCustomerEmail(),order.getStatus(),order.getTotalAmount());
+    private final class RecordDelivery implements DeliveryCallback {
 
-        } catch (Exception e) {
-            log.error("Failed to send notification for order {}: {}",
-                    order.getId(), e.getMessage());
-            throw e;
-        }
-    }
+        private final ConsumerRecord<String, OrderEvent> record;
+        private final DeliveryCallback delivery;
 
-    private void sendEmailNotification(Order order) {
+        RecordDelivery(ConsumerRecord<String, OrderEvent> record, DeliveryCallback delivery) {
+            this.record = record;
+            this.delivery = delivery;
+        }
 
-        log.info("Email notification sent to: {}", order.getCustomerEmail());
-    }
+        @Override
+        public void delivered() {
+            deduplicator.markProcessed(record.value().getEventId());
+            delivery.delivered();
+        }
 
-    private void sendSmsNotification(Order order) {
-        // Имитация отправки SMS
-        log.info("SMS notification would be sent for order: {}", order.getId());
-        // В реальном приложении здесь будет интеграция с SMS-шлюзом
+        // Недоставленное уведомление уходит в топик повтора, как ошибка обработки в листенере
+        @Override
+        public void failed(Exception error) {
+            BatchSender.Batch sends = batchSender.newBatch();
+            try {
+                retryRouter.route(record, error, sends);
+                sends.complete();
+                delivery.delivered();
+            } catch (RuntimeException e) {
+                log.error("Failed to route undelivered notification for order {}: {}",
+                        record.value().getOrderId(), e.getMessage());
+                delivery.failed(e);
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,187 @@
+package com.example.notification;
+
+import com.example.model.Order;
+import com.example.model.OrderStatus;
+import com.example.processing.DeliveryCallback;
+import com.example.processing.TimerWheel;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NotificationCoalescerTest {
+
+    private static final TopicPartition P0 = new TopicPartition("sent_orders", 0);
+    private static final TopicPartition P1 = new TopicPartition("sent_orders", 1);
+    private static final Duration LONG_WINDOW = Duration.ofHours(1);
+
+    private final TimerWheel timerWheel = new TimerWheel("test-notification-windows", Duration.ofMillis(5), 64);
+    private final RecordingSender sender = new RecordingSender();
+    private final AtomicInteger delivered = new AtomicInteger();
+
+    @AfterEach
+    void close() {
+        timerWheel.close();
+    }
+
+    @Test
+    void sendsDigestWhenMaxEventsReached() throws Exception {
+        NotificationCoalescer coalescer = coalescer(LONG_WINDOW, 3, 100);
+        coalescer.add(P0, order("alice@example.com"), callback());
+        coalescer.add(P0, order("alice@example.com"), callback());
+        assertThat(coalescer.openWindows()).isEqualTo(1);
+        coalescer.add(P0, order("alice@example.com"), callback());
+
+        assertThat(coalescer.openWindows()).isZero();
+        Sent digest = sender.next();
+        assertThat(digest.digest.getLines()).hasSize(3);
+
+        // Результат доставки дайджеста получает каждое событие в нём
+        digest.callback.delivered();
+        assertThat(delivered).hasValue(3);
+    }
+
+    @Test
+    void sendsDigestWhenWindowExpires() throws Exception {
+        NotificationCoalescer coalescer = coalescer(Duration.ofMillis(20), 10, 100);
+        coalescer.add(P0, order("alice@example.com"), callback());
+        coalescer.add(P0, order("alice@example.com"), callback());
+
+        Sent digest = sender.next();
+        assertThat(digest.digest.getCustomerEmail()).isEqualTo("alice@example.com");
+        assertThat(digest.digest.getLines()).hasSize(2);
+        assertThat(coalescer.openWindows()).isZero();
+    }
+
+    @Test
+    void customersOverLimitAreNotifiedImmediately() throws Exception {
+        NotificationCoalescer coalescer = coalescer(LONG_WINDOW, 10, 1);
+        coalescer.add(P0, order("alice@example.com"), callback());
+        coalescer.add(P0, order("bob@example.com"), callback());
+
+        assertThat(sender.next().digest.getCustomerEmail()).isEqualTo("bob@example.com");
+        assertThat(coalescer.openWindows()).isEqualTo(1);
+        assertThat(coalescer.stats()).containsEntry("overflowed", 1L);
+    }
+
+    @Test
+    void eventWithoutEmailIsAcknowledgedWithoutDigest() {
+        NotificationCoalescer coalescer = coalescer(LONG_WINDOW, 10, 100);
+        coalescer.add(P0, order(null), callback());
+
+        assertThat(delivered).hasValue(1);
+        assertThat(sender.sent).isEmpty();
+    }
+
+    @Test
+    void flushSendsWindowsOfRevokedPartitionsAndWaitsForDelivery() throws Exception {
+        NotificationCoalescer coalescer = coalescer(LONG_WINDOW, 10, 100);
+        coalescer.add(P0, order("alice@example.com"), callback());
+        coalescer.add(P1, order("bob@example.com"), callback());
+
+        CompletableFuture<Boolean> flushed = CompletableFuture.supplyAsync(
+                () -> coalescer.flush(List.of(P0), Duration.ofSeconds(5)));
+        Sent digest = sender.next();
+        assertThat(digest.digest.getCustomerEmail()).isEqualTo("alice@example.com");
+        // Окно чужой партиции остаётся открытым, отзыв ждёт доставки своего дайджеста
+        assertThat(coalescer.openWindows()).isEqualTo(1);
+        assertThat(flushed).isNotDone();
+
+        digest.callback.delivered();
+        assertThat(flushed.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(coalescer.stats()).containsEntry("flushedOnRevoke", 1L).containsEntry("sending", 0);
+    }
+
+    @Test
+    void flushGivesUpAfterTimeout() {
+        NotificationCoalescer coalescer = coalescer(LONG_WINDOW, 10, 100);
+        coalescer.add(P0, order("alice@example.com"), callback());
+
+        assertThat(coalescer.flush(List.of(P0), Duration.ofMillis(20))).isFalse();
+        assertThat(sender.sent).hasSize(1);
+    }
+
+    @Test
+    void stopSendsAllOpenWindowsAndLaterEventsGoAlone() throws Exception {
+        NotificationCoalescer coalescer = coalescer(LONG_WINDOW, 10, 100);
+        coalescer.start();
+        coalescer.add(P0, order("alice@example.com"), callback());
+        coalescer.add(P1, order("bob@example.com"), callback());
+
+        coalescer.stop();
+        assertThat(coalescer.isRunning()).isFalse();
+        assertThat(List.of(sender.next(), sender.next()))
+                .extracting(sent -> sent.digest.getCustomerEmail())
+                .containsExactlyInAnyOrder("alice@example.com", "bob@example.com");
+
+        coalescer.add(P0, order("alice@example.com"), callback());
+        assertThat(sender.next().digest.getLines()).hasSize(1);
+        assertThat(coalescer.openWindows()).isZero();
+    }
+
+    private NotificationCoalescer coalescer(Duration window, int maxEvents, int maxCustomers) {
+        return new NotificationCoalescer(sender, timerWheel, window, maxEvents, maxCustomers);
+    }
+
+    private DeliveryCallback callback() {
+        return new DeliveryCallback() {
+            @Override
+            public void delivered() {
+                delivered.incrementAndGet();
+            }
+
+            @Override
+            public void failed(Exception error) {
+            }
+        };
+    }
+
+    private static Order order(String email) {
+        Order order = new Order();
+        order.setId(UUID.randomUUID().toString());
+        order.setCustomerEmail(email);
+        order.setStatus(OrderStatus.SHIPPED);
+        return order;
+    }
+
+    private static final class Sent {
+
+        final NotificationDigest digest;
+        final DeliveryCallback callback;
+
+        Sent(NotificationDigest digest, DeliveryCallback callback) {
+            this.digest = digest;
+            this.callback = callback;
+        }
+    }
+
+    // Дайджесты копятся, доставку подтверждает тест
+    private static final class RecordingSender implements DigestSender {
+
+        final List<Sent> sent = new CopyOnWriteArrayList<>();
+        private final LinkedBlockingQueue<Sent> queue = new LinkedBlockingQueue<>();
+
+        @Override
+        public void send(NotificationDigest digest, DeliveryCallback callback) {
+            Sent recorded = new Sent(digest, callback);
+            sent.add(recorded);
+            queue.add(recorded);
+        }
+
+        Sent next() throws InterruptedException {
+            Sent recorded = queue.poll(5, TimeUnit.SECONDS);
+            assertThat(recorded).as("digest sent").isNotNull();
+            return recorded;
+        }
+    }
+}
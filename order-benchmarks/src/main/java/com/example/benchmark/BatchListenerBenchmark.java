@@ -0,0 +1,177 @@
+package com.example.benchmark;
+
+import com.example.model.EventType;
+import com.example.model.OrderEvent;
+import com.example.notification.ChannelWorkers;
+import com.example.notification.Dispatch;
+import com.example.notification.NotificationCoalescer;
+import com.example.notification.NotificationDispatcher;
+import com.example.payment.AuthorizationResult;
+import com.example.processing.Backpressure;
+import com.example.processing.BatchSender;
+import com.example.processing.DeliveryTracker;
+import com.example.processing.EventDeduplicator;
+import com.example.processing.KeyOrderedBatchExecutor;
+import com.example.processing.ListenerExecutors;
+import com.example.processing.RetryTopicRouter;
+import com.example.processing.TimerWheel;
+import com.example.service.NotificationService;
+import com.example.service.PaymentService;
+import com.example.service.ShippingService;
+import com.example.shipping.ShipmentConsolidator;
+import com.example.shipping.ShipmentPacker;
+import com.example.snapshot.OrderSnapshotCache;
+import com.example.snapshot.OrderSnapshotResolver;
+import com.example.tracing.LatencyMetrics;
+import com.example.tracing.StageTracer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Один вызов бенчмарка - одна poll-пачка в @KafkaListener-методе сервиса.
+ * ShippingService упирается в имитацию упаковки (500 мс на заказ), поэтому у него
+ * отдельные, более короткие настройки прогрева и замера.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchListenerBenchmark {
+
+    // Пул больше окна дедупликации: каждая пачка выглядит как новые события
+    private static final int EVENT_ID_POOL = 1 << 18;
+    private static final int DEDUP_CAPACITY = 1 << 14;
+
+    @Param({"10"})
+    private int batchSize;
+
+    @Param({"3"})
+    private int itemCount;
+
+    @Param({"false", "true"})
+    private boolean parallel;
+
+    private KeyOrderedBatchExecutor batchExecutor;
+
+    private StubKafkaTemplate kafkaTemplate;
+    private PaymentService paymentService;
+    private ShippingService shippingService;
+    private NotificationService notificationService;
+    private TimerWheel timerWheel;
+    private NotificationDispatcher dispatcher;
+
+    private List<ConsumerRecord<String, OrderEvent>> newOrders;
+    private List<ConsumerRecord<String, OrderEvent>> paidOrders;
+    private List<ConsumerRecord<String, OrderEvent>> shippedOrders;
+
+    private Acknowledgment ack;
+
+    private String[] eventIds;
+    private int nextEventId;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        kafkaTemplate = new StubKafkaTemplate();
+        batchExecutor = parallel
+                ? new KeyOrderedBatchExecutor(batchSize, ListenerExecutors.newTaskExecutor("benchmark-worker", batchSize))
+                : KeyOrderedBatchExecutor.sequential();
+        BatchSender batchSender = new BatchSender(kafkaTemplate, 3, Duration.ofSeconds(30));
+        LatencyMetrics latencyMetrics = new LatencyMetrics();
+        RetryTopicRouter retryRouter = new RetryTopicRouter(List.of(Duration.ofSeconds(1)), 2);
+        EventDeduplicator deduplicator = new EventDeduplicator(DEDUP_CAPACITY, Duration.ofMinutes(10));
+        OrderSnapshotResolver snapshotResolver = new OrderSnapshotResolver(new OrderSnapshotCache(), null, false);
+        eventIds = new String[EVENT_ID_POOL];
+        for (int i = 0; i < EVENT_ID_POOL; i++) {
+            eventIds[i] = UUID.randomUUID().toString();
+        }
+
+        paymentService = new PaymentService(batchSender, batchExecutor,
+                new StageTracer("payment", StageTracer.INTAKE, latencyMetrics), retryRouter, deduplicator,
+                snapshotResolver, requests -> requests.stream()
+                        .map(request -> new AuthorizationResult(request.getOrderId(), true, null))
+                        .collect(Collectors.toList()));
+        OrderFixtures.setField(paymentService, "payedOrdersTopic", "payed_orders");
+
+        // Консолидация выключена (shipping.consolidation.enabled не задан): упаковка идёт в слушателе
+        timerWheel = new TimerWheel("benchmark-timer", Duration.ofMillis(100), 64);
+        ShipmentPacker packer = new ShipmentPacker(batchSender, snapshotResolver, "sent_orders",
+                Duration.ofMillis(500), Duration.ofMillis(50));
+        shippingService = new ShippingService(batchSender, batchExecutor,
+                new StageTracer("shipping", "payment", latencyMetrics), retryRouter, deduplicator,
+                snapshotResolver, new ShipmentConsolidator(packer, Runnable::run, timerWheel, Duration.ofSeconds(1),
+                        10, 1024, 1024, Duration.ofSeconds(1)), packer, new DeliveryTracker());
+
+        // Письма не отправляются: замеряется слушатель со склейкой, а не SMTP
+        NotificationCoalescer coalescer = new NotificationCoalescer((digest, callback) -> {
+            blackhole.consume(digest);
+            callback.delivered();
+        }, timerWheel, Duration.ofSeconds(1), 20, 1024);
+        dispatcher = new NotificationDispatcher(new ChannelWorkers("benchmark-email",
+                batch -> batch.forEach(Dispatch::delivered), 1, 16, 16, Backpressure.NONE),
+                null, Backpressure.NONE, Duration.ofSeconds(1));
+        notificationService = new NotificationService(batchSender, batchExecutor,
+                new StageTracer("notification", "shipping", latencyMetrics), retryRouter, deduplicator,
+                snapshotResolver, coalescer, dispatcher, new DeliveryTracker());
+
+        newOrders = OrderFixtures.records("new_orders", 3,
+                OrderFixtures.batch(batchSize, itemCount, EventType.ORDER_CREATED));
+        paidOrders = OrderFixtures.records("payed_orders", 3,
+                OrderFixtures.batch(batchSize, itemCount, EventType.PAYMENT_SUCCESS));
+        shippedOrders = OrderFixtures.records("sent_orders", 3,
+                OrderFixtures.batch(batchSize, itemCount, EventType.SHIPMENT_SUCCESS));
+
+        ack = () -> blackhole.consume(kafkaTemplate.getSent());
+    }
+
+    @TearDown
+    public void tearDown() {
+        batchExecutor.close();
+        timerWheel.close();
+        dispatcher.close();
+    }
+
+    @Benchmark
+    public void paymentProcessOrders() {
+        paymentService.processOrders(renumber(newOrders), ack, null);
+    }
+
+    @Benchmark
+    @Warmup(iterations = 1, time = 10)
+    @Measurement(iterations = 3, time = 10)
+    public void shippingProcessPaidOrders() {
+        shippingService.processPaidOrders(renumber(paidOrders), ack, null);
+    }
+
+    @Benchmark
+    public void notificationProcessShippedOrders() {
+        notificationService.processShippedOrders(renumber(shippedOrders), ack, null);
+    }
+
+    private List<ConsumerRecord<String, OrderEvent>> renumber(List<ConsumerRecord<String, OrderEvent>> records) {
+        for (ConsumerRecord<String, OrderEvent> record : records) {
+            record.value().setEventId(eventIds[nextEventId++ & (EVENT_ID_POOL - 1)]);
+        }
+        return records;
+    }
+}
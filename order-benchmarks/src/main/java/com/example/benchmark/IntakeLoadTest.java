@@ -0,0 +1,181 @@
+package com.example.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Нагрузочное сравнение приёма заказов: сервлетный режим против профиля reactive.
+ * <p>
+ * Замкнутая модель: {@code --concurrency} клиентов, каждый шлёт POST /api/orders сразу после
+ * ответа на предыдущий. После прогрева печатаются пропускная способность, перцентили задержки
+ * и распределение кодов ответа. Сервис в обоих режимах запускается с одинаковыми кучей и числом
+ * ядер, а дросселирование приёма поднимается выше ожидаемой нагрузки:
+ * <pre>
+ * java -Xms512m -Xmx512m -XX:ActiveProcessorCount=2 -jar order-service.jar \
+ *     --order.admission.global.rate=1000000 --order.admission.global.burst=1000000 [--spring.profiles.active=reactive]
+ * java -cp order-benchmarks/target/benchmarks.jar com.example.benchmark.IntakeLoadTest \
+ *     --url=http://localhost:8080/api/orders --concurrency=256 --warmup=15s --duration=60s
+ * </pre>
+ * Клиент лучше запускать на отдельных ядрах, иначе он сам ограничивает результат.
+ */
+public class IntakeLoadTest {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+    private final HttpClient client;
+    private final URI uri;
+    private final String[] bodies;
+    private final Duration timeout;
+
+    private volatile Phase phase;
+    private volatile boolean stopped;
+
+    IntakeLoadTest(URI uri, String[] bodies, Duration timeout) {
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+        this.uri = uri;
+        this.bodies = bodies;
+        this.timeout = timeout;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        URI uri = URI.create(options.getOrDefault("url", "http://localhost:8080/api/orders"));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "256"));
+        Duration warmup = Duration.parse("PT" + options.getOrDefault("warmup", "15s"));
+        Duration duration = Duration.parse("PT" + options.getOrDefault("duration", "60s"));
+        int customers = Integer.parseInt(options.getOrDefault("customers", "100000"));
+        int items = Integer.parseInt(options.getOrDefault("items", "3"));
+
+        IntakeLoadTest test = new IntakeLoadTest(uri, bodies(customers, items), Duration.ofSeconds(30));
+        System.out.printf("Intake load: %s, concurrency %d, warmup %s, duration %s%n",
+                uri, concurrency, warmup.toSeconds() + "s", duration.toSeconds() + "s");
+
+        CountDownLatch finished = test.start(concurrency);
+        TimeUnit.MILLISECONDS.sleep(warmup.toMillis());
+        Phase measured = test.measure();
+        TimeUnit.MILLISECONDS.sleep(duration.toMillis());
+        test.stop(measured);
+        finished.await(60, TimeUnit.SECONDS);
+
+        measured.print();
+    }
+
+    CountDownLatch start(int concurrency) {
+        phase = new Phase();
+        CountDownLatch finished = new CountDownLatch(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            next(finished);
+        }
+        return finished;
+    }
+
+    Phase measure() {
+        Phase measured = new Phase();
+        phase = measured;
+        return measured;
+    }
+
+    void stop(Phase measured) {
+        measured.endNanos = System.nanoTime();
+        stopped = true;
+    }
+
+    private void next(CountDownLatch finished) {
+        if (stopped) {
+            finished.countDown();
+            return;
+        }
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(bodies[ThreadLocalRandom.current().nextInt(bodies.length)]))
+                .build();
+        long started = System.nanoTime();
+        Phase current = phase;
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, ex) -> {
+                    long micros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - started);
+                    // Ответ, пришедший после остановки замера, в него не входит
+                    if (!stopped) {
+                        current.record(micros, response == null ? -1 : response.statusCode());
+                    }
+                    next(finished);
+                });
+    }
+
+    private static String[] bodies(int customers, int items) throws JsonProcessingException {
+        ObjectMapper mapper = new ObjectMapper();
+        String[] bodies = new String[Math.min(customers, 10_000)];
+        for (int i = 0; i < bodies.length; i++) {
+            int customer = ThreadLocalRandom.current().nextInt(customers);
+            bodies[i] = mapper.writeValueAsString(OrderFixtures.order(customer, items));
+        }
+        return bodies;
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            int eq = arg.indexOf('=');
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        return options;
+    }
+
+    static final class Phase {
+
+        private final long startNanos = System.nanoTime();
+        private final Recorder latency = new Recorder(HIGHEST_TRACKABLE_MICROS, 2);
+        private final ConcurrentMap<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+        private volatile long endNanos;
+
+        void record(long micros, int status) {
+            // Задержка - только по 2xx: быстрые 429 и ошибки подключения не должны её улучшать
+            if (status >= 200 && status < 300) {
+                latency.recordValue(Math.min(micros, HIGHEST_TRACKABLE_MICROS));
+            }
+            statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+        }
+
+        void print() {
+            Histogram histogram = latency.getIntervalHistogram();
+            double seconds = (endNanos - startNanos) / 1e9;
+            Map<Integer, Long> codes = new TreeMap<>();
+            statuses.forEach((status, count) -> codes.put(status, count.sum()));
+
+            long requests = codes.values().stream().mapToLong(Long::longValue).sum();
+
+            System.out.printf("requests    %d %s (-1 - transport error)%n", requests, codes);
+            System.out.printf("throughput  %.1f ok/s, %.1f req/s%n", histogram.getTotalCount() / seconds, requests / seconds);
+            System.out.printf("latency ms  p50 %.2f  p90 %.2f  p99 %.2f  p99.9 %.2f  max %.2f%n",
+                    histogram.getValueAtPercentile(50) / 1000.0,
+                    histogram.getValueAtPercentile(90) / 1000.0,
+                    histogram.getValueAtPercentile(99) / 1000.0,
+                    histogram.getValueAtPercentile(99.9) / 1000.0,
+                    histogram.getMaxValue() / 1000.0);
+        }
+    }
+}
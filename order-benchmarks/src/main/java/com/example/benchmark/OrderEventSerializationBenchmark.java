@@ -0,0 +1,116 @@
+package com.example.benchmark;
+
+import com.example.codec.OrderEventBinaryCodec;
+import com.example.model.EventType;
+import com.example.model.OrderEvent;
+import com.example.model.OrderStatus;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderEventSerializationBenchmark {
+
+    private static final String TOPIC = "new_orders";
+
+    @Param({"1", "10", "100"})
+    private int itemCount;
+
+    private JsonSerializer<Object> jsonSerializer;
+    private JsonDeserializer<OrderEvent> jsonDeserializer;
+
+    private OrderEvent event;
+    private byte[] jsonBytes;
+    private RecordHeaders jsonHeaders;
+    private byte[] binaryBytes;
+
+    // Тонкое событие того же заказа: без тела, со ссылкой на order_snapshots
+    private OrderEvent slimEvent;
+    private byte[] slimJsonBytes;
+    private byte[] slimBinaryBytes;
+
+    @Setup
+    public void setUp() {
+        // Та же конфигурация, что у продюсеров и консьюмеров сервисов
+        jsonSerializer = new JsonSerializer<>();
+        jsonSerializer.configure(Map.of(), false);
+        jsonDeserializer = new JsonDeserializer<>();
+        jsonDeserializer.configure(Map.of(JsonDeserializer.TRUSTED_PACKAGES, "com.example.model"), false);
+
+        event = OrderFixtures.event(42, itemCount, EventType.ORDER_CREATED);
+        jsonHeaders = new RecordHeaders();
+        jsonBytes = jsonSerializer.serialize(TOPIC, jsonHeaders, event);
+        binaryBytes = OrderEventBinaryCodec.encode(event);
+
+        slimEvent = OrderEvent.slim(event.getOrderId(), EventType.PAYMENT_SUCCESS,
+                OrderStatus.PAYMENT_COMPLETED, OrderEventBinaryCodec.contentHash(event.getPayload()));
+        slimJsonBytes = jsonSerializer.serialize(TOPIC, new RecordHeaders(), slimEvent);
+        slimBinaryBytes = OrderEventBinaryCodec.encode(slimEvent);
+    }
+
+    @TearDown
+    public void tearDown() {
+        jsonSerializer.close();
+        jsonDeserializer.close();
+    }
+
+    @Benchmark
+    public byte[] jsonSerialize() {
+        return jsonSerializer.serialize(TOPIC, new RecordHeaders(), event);
+    }
+
+    @Benchmark
+    public OrderEvent jsonDeserialize() {
+        return jsonDeserializer.deserialize(TOPIC, jsonHeaders, jsonBytes);
+    }
+
+    @Benchmark
+    public byte[] binarySerialize() {
+        return OrderEventBinaryCodec.encode(event);
+    }
+
+    @Benchmark
+    public OrderEvent binaryDeserialize() {
+        return OrderEventBinaryCodec.decode(binaryBytes);
+    }
+
+    @Benchmark
+    public byte[] slimJsonSerialize() {
+        return jsonSerializer.serialize(TOPIC, new RecordHeaders(), slimEvent);
+    }
+
+    @Benchmark
+    public OrderEvent slimJsonDeserialize() {
+        return jsonDeserializer.deserialize(TOPIC, jsonHeaders, slimJsonBytes);
+    }
+
+    @Benchmark
+    public byte[] slimBinarySerialize() {
+        return OrderEventBinaryCodec.encode(slimEvent);
+    }
+
+    @Benchmark
+    public OrderEvent slimBinaryDeserialize() {
+        return OrderEventBinaryCodec.decode(slimBinaryBytes);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.benchmark;
+
+import com.example.model.EventType;
+import com.example.model.Order;
+import com.example.model.OrderEvent;
+import com.example.model.OrderItem;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+
+final class OrderFixtures {
+
+    private OrderFixtures() {
+    }
+
+    static Order order(int customer, int itemCount) {
+        Order order = new Order();
+        order.setCustomerId("customer-" + customer);
+        order.setCustomerEmail("customer-" + customer + "@example.com");
+
+        List<OrderItem> items = new ArrayList<>(itemCount);
+        double total = 0;
+        for (int i = 0; i < itemCount; i++) {
+            double price = 9.99 + i;
+            items.add(new OrderItem("product-" + i, 1 + i % 3, price));
+            total += price * (1 + i % 3);
+        }
+        order.setItems(items);
+        order.setTotalAmount(total);
+        return order;
+    }
+
+    static OrderEvent event(int customer, int itemCount, EventType type) {
+        Order order = order(customer, itemCount);
+        return new OrderEvent(order.getId(), type, order);
+    }
+
+    static List<OrderEvent> batch(int size, int itemCount, EventType type) {
+        List<OrderEvent> events = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            events.add(event(i, itemCount, type));
+        }
+        return events;
+    }
+
+    // Ключ - customerId, как у продюсеров сервисов
+    static List<ConsumerRecord<String, OrderEvent>> records(String topic, int partitions, List<OrderEvent> events) {
+        List<ConsumerRecord<String, OrderEvent>> records = new ArrayList<>(events.size());
+        long offset = 0;
+        for (OrderEvent event : events) {
+            String key = event.getPayload().getCustomerId();
+            int partition = (key.hashCode() & Integer.MAX_VALUE) % partitions;
+            records.add(new ConsumerRecord<>(topic, partition, offset++, key, event));
+        }
+        return records;
+    }
+
+    // Замена @Value-полей сервисов без поднятия Spring-контекста
+    static void setField(Object target, String name, Object value) {
+        Field field = ReflectionUtils.findField(target.getClass(), name);
+        if (field == null) {
+            throw new IllegalArgumentException("No field " + name + " in " + target.getClass());
+        }
+        ReflectionUtils.makeAccessible(field);
+        ReflectionUtils.setField(field, target, value);
+    }
+}
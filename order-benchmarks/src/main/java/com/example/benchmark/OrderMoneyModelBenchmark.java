@@ -0,0 +1,153 @@
+package com.example.benchmark;
+
+import com.example.model.Order;
+import com.example.model.OrderItem;
+import com.example.model.OrderStatus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Примитивная модель сумм ({@link com.example.model.OrderLines}, long в минимальных единицах)
+ * против прежней упакованной (List&lt;OrderItem&gt; с Integer/Double): разбор JSON заказа и подсчёт суммы.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderMoneyModelBenchmark {
+
+    @Param({"1", "10", "100"})
+    private int itemCount;
+
+    private ObjectReader primitiveReader;
+    private ObjectReader boxedReader;
+    private byte[] json;
+
+    private Order primitiveOrder;
+    private BoxedOrder boxedOrder;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper();
+        primitiveReader = objectMapper.readerFor(Order.class);
+        boxedReader = objectMapper.readerFor(BoxedOrder.class);
+
+        json = objectMapper.writeValueAsBytes(OrderFixtures.order(42, itemCount));
+        primitiveOrder = primitiveReader.readValue(json);
+        boxedOrder = boxedReader.readValue(json);
+    }
+
+    @Benchmark
+    public Order primitiveJsonRead() throws IOException {
+        return primitiveReader.readValue(json);
+    }
+
+    @Benchmark
+    public BoxedOrder boxedJsonRead() throws IOException {
+        return boxedReader.readValue(json);
+    }
+
+    @Benchmark
+    public long primitiveTotal() {
+        return primitiveOrder.getLines().totalMinor();
+    }
+
+    @Benchmark
+    public double boxedTotal() {
+        double total = 0;
+        for (OrderItem item : boxedOrder.getItems()) {
+            total += item.getPrice() * item.getQuantity();
+        }
+        return total;
+    }
+
+    // Прежняя модель Order: позиции объектами, суммы в Double
+    public static class BoxedOrder {
+        private String id;
+        private String customerId;
+        private String customerEmail;
+        private OrderStatus status;
+        private String currency;
+        private List<OrderItem> items;
+        private Double totalAmount;
+
+        public BoxedOrder() {
+            this.id = UUID.randomUUID().toString();
+            this.status = OrderStatus.CREATED;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public String getCustomerId() {
+            return customerId;
+        }
+
+        public void setCustomerId(String customerId) {
+            this.customerId = customerId;
+        }
+
+        public String getCustomerEmail() {
+            return customerEmail;
+        }
+
+        public void setCustomerEmail(String customerEmail) {
+            this.customerEmail = customerEmail;
+        }
+
+        public OrderStatus getStatus() {
+            return status;
+        }
+
+        public void setStatus(OrderStatus status) {
+            this.status = status;
+        }
+
+        public String getCurrency() {
+            return currency;
+        }
+
+        public void setCurrency(String currency) {
+            this.currency = currency;
+        }
+
+        public List<OrderItem> getItems() {
+            return items;
+        }
+
+        public void setItems(List<OrderItem> items) {
+            this.items = items;
+        }
+
+        public Double getTotalAmount() {
+            return totalAmount;
+        }
+
+        public void setTotalAmount(Double totalAmount) {
+            this.totalAmount = totalAmount;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.benchmark;
+
+import com.example.model.EventType;
+import com.example.model.OrderEvent;
+import com.example.service.OrderPartitioner;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderPartitionerBenchmark {
+
+    private static final String TOPIC = "new_orders";
+    private static final int KEY_COUNT = 1024;
+    // Каждая четвёртая запись - от одного крупного клиента
+    private static final int HOT_KEY_EVERY = 4;
+
+    @Param({"3", "48"})
+    private int partitionCount;
+
+    private static final byte[] VALUE_BYTES = new byte[400];
+
+    private OrderPartitioner partitioner;
+    private Cluster cluster;
+    private String[] keys;
+    private byte[][] keyBytes;
+    private OrderEvent[] events;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        partitioner = new OrderPartitioner();
+        partitioner.configure(Map.of());
+
+        Node node = new Node(0, "localhost", 9092);
+        Node[] replicas = {node};
+        List<PartitionInfo> partitions = new ArrayList<>(partitionCount);
+        for (int i = 0; i < partitionCount; i++) {
+            partitions.add(new PartitionInfo(TOPIC, i, node, replicas, replicas));
+        }
+        cluster = new Cluster("benchmark", List.of(node), partitions, Collections.emptySet(), Collections.emptySet());
+
+        keys = new String[KEY_COUNT];
+        keyBytes = new byte[KEY_COUNT][];
+        events = new OrderEvent[KEY_COUNT];
+        for (int i = 0; i < KEY_COUNT; i++) {
+            keys[i] = "customer-" + i;
+            keyBytes[i] = keys[i].getBytes(StandardCharsets.UTF_8);
+            events[i] = OrderFixtures.event(i, 1, EventType.ORDER_CREATED);
+        }
+    }
+
+    @Benchmark
+    public int keyed() {
+        int i = next++ & (KEY_COUNT - 1);
+        return partitioner.partition(TOPIC, keys[i], keyBytes[i], events[i], null, cluster);
+    }
+
+    @Benchmark
+    public int skewedKeyed() {
+        int i = next++ & (KEY_COUNT - 1);
+        int k = i % HOT_KEY_EVERY == 0 ? 0 : i;
+        return partitioner.partition(TOPIC, keys[k], keyBytes[k], events[i], null, cluster);
+    }
+
+    @Benchmark
+    public int nullKey() {
+        return partitioner.partition(TOPIC, null, null, null, VALUE_BYTES, cluster);
+    }
+}
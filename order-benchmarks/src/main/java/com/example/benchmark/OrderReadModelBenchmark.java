@@ -0,0 +1,131 @@
+package com.example.benchmark;
+
+import com.example.model.EventType;
+import com.example.model.Order;
+import com.example.model.OrderEvent;
+import com.example.model.OrderStatus;
+import com.example.query.OrderPage;
+import com.example.query.OrderQuery;
+import com.example.query.OrderReadModel;
+import com.example.query.OrderView;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Запросы к модели чтения order-query. Модель заполняется событиями создания и итогового
+ * статуса заказов: заказ каждые 10 мс, 5% оплат отклонено, 1% отгрузок отменено.
+ * 10 млн заказов: {@code -p orders=10000000} (нужно около 1 ГБ кучи).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class OrderReadModelBenchmark {
+
+    private static final int SAMPLES = 4096;
+    private static final int BATCH = 500;
+    private static final int LIMIT = 50;
+    private static final Instant START = Instant.parse("2024-01-01T00:00:00Z");
+    private static final Duration ORDER_EVERY = Duration.ofMillis(10);
+    private static final Acknowledgment NO_ACK = () -> {
+    };
+
+    @Param({"1000000"})
+    private int orders;
+
+    @Param({"100000"})
+    private int customers;
+
+    private OrderReadModel model;
+    private final String[] orderIds = new String[SAMPLES];
+    private final String[] customerIds = new String[SAMPLES];
+    private final int[] cursors = new int[SAMPLES];
+    private final Instant[] hours = new Instant[SAMPLES];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        model = new OrderReadModel(orders, 50_000);
+        SplittableRandom random = new SplittableRandom(42);
+        List<ConsumerRecord<String, OrderEvent>> records = new ArrayList<>(BATCH * 2);
+        for (int i = 0; i < orders; i++) {
+            Order order = OrderFixtures.order(random.nextInt(customers), 1);
+            OrderEvent created = new OrderEvent(order.getId(), EventType.ORDER_CREATED, order);
+            created.setTimestamp(START.plus(ORDER_EVERY.multipliedBy(i)));
+            records.add(new ConsumerRecord<>("new_orders", 0, i, order.getCustomerId(), created));
+
+            int outcome = random.nextInt(100);
+            EventType type = outcome < 5 ? EventType.PAYMENT_FAILED
+                    : outcome < 6 ? EventType.SHIPMENT_FAILED : EventType.SHIPMENT_SUCCESS;
+            OrderEvent result = OrderEvent.slim(order.getId(), type, null, 0);
+            result.setTimestamp(created.getTimestamp().plusSeconds(30));
+            records.add(new ConsumerRecord<>("sent_orders", 0, i, order.getCustomerId(), result));
+
+            if (i % (orders / SAMPLES) == 0 && i / (orders / SAMPLES) < SAMPLES) {
+                int sample = i / (orders / SAMPLES);
+                orderIds[sample] = order.getId();
+                customerIds[sample] = order.getCustomerId();
+            }
+            if (records.size() >= BATCH * 2) {
+                model.onMessage(records, NO_ACK);
+                records.clear();
+            }
+        }
+        model.onMessage(records, NO_ACK);
+
+        Duration span = ORDER_EVERY.multipliedBy(orders);
+        for (int i = 0; i < SAMPLES; i++) {
+            cursors[i] = 1 + random.nextInt(orders);
+            hours[i] = START.plusMillis(random.nextLong(Math.max(1, span.toMillis() - 3_600_000)));
+        }
+    }
+
+    @Benchmark
+    public OrderView byId() {
+        return model.get(orderIds[next++ & (SAMPLES - 1)]);
+    }
+
+    @Benchmark
+    public OrderPage byCustomer() {
+        return model.query(new OrderQuery(customerIds[next++ & (SAMPLES - 1)], null, null, null, null, LIMIT));
+    }
+
+    // 1% заказов, страница с произвольного места
+    @Benchmark
+    public OrderPage byRareStatus() {
+        return model.query(new OrderQuery(null, OrderStatus.CANCELLED, null, null,
+                cursors[next++ & (SAMPLES - 1)], LIMIT));
+    }
+
+    @Benchmark
+    public OrderPage byStatusInHour() {
+        Instant from = hours[next++ & (SAMPLES - 1)];
+        return model.query(new OrderQuery(null, OrderStatus.PAYMENT_FAILED, from, from.plusSeconds(3600),
+                null, LIMIT));
+    }
+
+    @Benchmark
+    public OrderPage deepPage() {
+        return model.query(new OrderQuery(null, null, null, null, cursors[next++ & (SAMPLES - 1)], LIMIT));
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.benchmark;
+
+import com.example.codec.OrderEventDeserializer;
+import com.example.codec.OrderEventSerializer;
+import com.example.model.EventType;
+import com.example.model.OrderEvent;
+import org.HdrHistogram.Histogram;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность одного звена конвейера через Kafka: обычный режим против
+ * {@code kafka.transactions.enabled=true}.
+ * <p>
+ * В {@code --input} отправляется {@code --orders} событий ORDER_CREATED, из {@code --outputs}
+ * результаты читаются с read_committed - так, как их видит следующий сервис. Печатаются
+ * пропускная способность по уникальным заказам, задержка от отправки до видимости результата
+ * и число повторных результатов. Сервис запускается заранее и должен простаивать:
+ * <pre>
+ * java -jar payment-service.jar [--kafka.transactions.enabled=true]
+ * java -cp order-benchmarks/target/benchmarks.jar com.example.benchmark.PipelineThroughputTest \
+ *     --bootstrap=localhost:9092 --orders=100000 --input=new_orders --outputs=payed_orders,failed_payments
+ * </pre>
+ * Для shipping-service: {@code --input=payed_orders --outputs=sent_orders,failed_shipments}
+ * (упаковка занимает ~500 мс на заказ, поэтому заказов нужно меньше).
+ */
+public class PipelineThroughputTest {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(30);
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parseOptions(args);
+        String bootstrap = options.getOrDefault("bootstrap", "localhost:9092");
+        int orders = Integer.parseInt(options.getOrDefault("orders", "100000"));
+        int customers = Integer.parseInt(options.getOrDefault("customers", "10000"));
+        int items = Integer.parseInt(options.getOrDefault("items", "3"));
+        String input = options.getOrDefault("input", "new_orders");
+        List<String> outputs = Arrays.asList(options.getOrDefault("outputs", "payed_orders,failed_payments").split(","));
+        Duration timeout = Duration.parse("PT" + options.getOrDefault("timeout", "10m"));
+
+        System.out.printf("Pipeline throughput: %d orders %s -> %s via %s%n", orders, input, outputs, bootstrap);
+
+        try (KafkaConsumer<String, OrderEvent> consumer = consumer(bootstrap);
+             KafkaProducer<String, Object> producer = producer(bootstrap)) {
+            // Читаем только то, что появится после начала замера
+            List<TopicPartition> partitions = new ArrayList<>();
+            for (String topic : outputs) {
+                List<PartitionInfo> infos = consumer.partitionsFor(topic);
+                if (infos.isEmpty()) {
+                    throw new IllegalStateException("Topic " + topic + " not found, start order-service to create topics");
+                }
+                for (PartitionInfo info : infos) {
+                    partitions.add(new TopicPartition(topic, info.partition()));
+                }
+            }
+            consumer.assign(partitions);
+            consumer.seekToEnd(partitions);
+            partitions.forEach(consumer::position);
+
+            Set<String> expected = new HashSet<>(orders * 2);
+            long startNanos = System.nanoTime();
+            for (int i = 0; i < orders; i++) {
+                OrderEvent event = OrderFixtures.event(i % customers, items, EventType.ORDER_CREATED);
+                expected.add(event.getOrderId());
+                producer.send(new ProducerRecord<>(input, event.getPayload().getCustomerId(), event));
+            }
+            producer.flush();
+            long producedNanos = System.nanoTime();
+
+            Histogram latency = new Histogram(HIGHEST_TRACKABLE_MICROS, 2);
+            Set<String> seen = new HashSet<>(orders * 2);
+            long duplicates = 0;
+            long lastNanos = producedNanos;
+            long deadline = System.nanoTime() + timeout.toNanos();
+            while (seen.size() < orders && System.nanoTime() < deadline) {
+                for (ConsumerRecord<String, OrderEvent> record : consumer.poll(Duration.ofMillis(200))) {
+                    OrderEvent event = record.value();
+                    if (event == null || !expected.contains(event.getOrderId())) {
+                        continue;
+                    }
+                    if (!seen.add(event.getOrderId())) {
+                        duplicates++;
+                        continue;
+                    }
+                    lastNanos = System.nanoTime();
+                    // От начала отправки: в транзакционном режиме сюда входит ожидание коммита пачки
+                    latency.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(lastNanos - startNanos),
+                            HIGHEST_TRACKABLE_MICROS));
+                }
+            }
+
+            double seconds = (lastNanos - startNanos) / 1e9;
+            System.out.printf("produced    %d in %.1f s%n", orders, (producedNanos - startNanos) / 1e9);
+            System.out.printf("committed   %d unique, %d duplicate, %d missing%n",
+                    seen.size(), duplicates, orders - seen.size());
+            System.out.printf("throughput  %.1f orders/s%n", seen.size() / seconds);
+            System.out.printf("visible ms  p50 %.0f  p90 %.0f  p99 %.0f  max %.0f (from start of sending)%n",
+                    latency.getValueAtPercentile(50) / 1000.0,
+                    latency.getValueAtPercentile(90) / 1000.0,
+                    latency.getValueAtPercentile(99) / 1000.0,
+                    latency.getMaxValue() / 1000.0);
+        }
+    }
+
+    private static KafkaConsumer<String, OrderEvent> consumer(String bootstrap) {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrap);
+        props.put(ConsumerConfig.GROUP_ID_CONFIG, "pipeline-throughput-" + UUID.randomUUID());
+        props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        props.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+        props.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 5000);
+        return new KafkaConsumer<>(props, new StringDeserializer(), deserializer());
+    }
+
+    private static OrderEventDeserializer deserializer() {
+        OrderEventDeserializer deserializer = new OrderEventDeserializer();
+        deserializer.configure(Map.of(), false);
+        return deserializer;
+    }
+
+    private static KafkaProducer<String, Object> producer(String bootstrap) {
+        Map<String, Object> props = new HashMap<>();
+        props.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrap);
+        props.put(ProducerConfig.ACKS_CONFIG, "all");
+        props.put(ProducerConfig.LINGER_MS_CONFIG, 20);
+        props.put(ProducerConfig.BATCH_SIZE_CONFIG, 65536);
+        OrderEventSerializer serializer = new OrderEventSerializer();
+        serializer.configure(Map.of(), false);
+        return new KafkaProducer<>(props, new StringSerializer(), serializer);
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            int eq = arg.indexOf('=');
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        return options;
+    }
+}
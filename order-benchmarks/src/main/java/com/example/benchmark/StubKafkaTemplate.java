@@ -0,0 +1,41 @@
+package com.example.benchmark;
+
+import io.micrometer.observation.Observation;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * KafkaTemplate без брокера: каждая отправка сразу завершается успешно.
+ */
+public class StubKafkaTemplate extends KafkaTemplate<String, Object> {
+
+    private final AtomicLong sent = new AtomicLong();
+
+    public StubKafkaTemplate() {
+        super(MockProducer::new);
+    }
+
+    @Override
+    protected CompletableFuture<SendResult<String, Object>> doSend(ProducerRecord<String, Object> record,
+                                                                  Observation observation) {
+        long offset = sent.getAndIncrement();
+        RecordMetadata metadata = new RecordMetadata(
+                new TopicPartition(record.topic(), 0), offset, 0, System.currentTimeMillis(), -1, -1);
+        return CompletableFuture.completedFuture(new SendResult<>(record, metadata));
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    public long getSent() {
+        return sent.get();
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.loadtest;
+
+import com.example.pipeline.Pipeline;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Сквозной нагрузочный замер конвейера: брокер (EmbeddedKafkaKraftBroker) и все четыре сервиса
+ * поднимаются в этом процессе, POST /api/orders идёт по открытой модели ступенями частоты.
+ * <p>
+ * Для каждой ступени пишутся: принятые заказы в секунду, заказы, дошедшие до конца конвейера
+ * (sent_orders, failed_payments, failed_shipments), lag каждой группы в начале, в конце и
+ * наибольший, перцентили задержки с поправкой на coordinated omission и без неё. Ступень
+ * считается выдержанной, если принято не меньше 95% целевой частоты, а lag групп
+ * {@code --sustain-groups} за ступень вырос не больше чем на 5% принятых заказов. Итог -
+ * JSON в {@code --output} для сравнения между сборками:
+ * <pre>
+ * java -Xmx2g -jar order-loadtest/target/order-loadtest.jar --rates=50,100,200,400 --step=60s \
+ *     --label=$(git rev-parse --short HEAD) -- --order.admission.customer.rate=1000
+ * </pre>
+ * Аргументы после {@code --} передаются всем сервисам и перекрывают настройки замера.
+ * С {@code --bootstrap} используется внешний брокер.
+ */
+public class LoadTest {
+
+    private static final List<String> TOPICS = List.of(
+            "new_orders", "payed_orders", "sent_orders", "failed_payments", "failed_shipments");
+    private static final List<String> COMPLETED_TOPICS = List.of("sent_orders", "failed_payments", "failed_shipments");
+
+    public static void main(String[] args) {
+        int status = 0;
+        try {
+            run(args);
+        } catch (Exception e) {
+            e.printStackTrace();
+            status = 1;
+        }
+        // Потоки клиентов Kafka и HTTP не всегда демоны
+        System.exit(status);
+    }
+
+    private static void run(String[] args) throws Exception {
+        int separator = Arrays.asList(args).indexOf("--");
+        Map<String, String> options = parseOptions(separator < 0 ? args : Arrays.copyOfRange(args, 0, separator));
+        String[] serviceArgs = separator < 0 ? new String[0] : Arrays.copyOfRange(args, separator + 1, args.length);
+
+        int partitions = Integer.parseInt(options.getOrDefault("partitions", "3"));
+        Path output = Paths.get(options.getOrDefault("output", "loadtest-result.json"));
+        OrderMix mix = new OrderMix(
+                Integer.parseInt(options.getOrDefault("customers", "100000")),
+                Double.parseDouble(options.getOrDefault("skew", "1.0")),
+                Double.parseDouble(options.getOrDefault("mean-items", "2.5")),
+                Integer.parseInt(options.getOrDefault("max-items", "20")),
+                Integer.parseInt(options.getOrDefault("pool", "20000")),
+                Long.parseLong(options.getOrDefault("seed", "42")));
+
+        SmtpSink smtp = new SmtpSink();
+        EmbeddedKafkaKraftBroker broker = null;
+        Pipeline pipeline = null;
+        Map<String, Object> result = new LinkedHashMap<>();
+        try {
+            String bootstrap = options.get("bootstrap");
+            if (bootstrap == null) {
+                broker = new EmbeddedKafkaKraftBroker(1, partitions, TOPICS.toArray(new String[0]));
+                broker.brokerProperty("transaction.state.log.replication.factor", "1");
+                broker.brokerProperty("transaction.state.log.min.isr", "1");
+                broker.afterPropertiesSet();
+                bootstrap = broker.getBrokersAsString();
+            }
+            pipeline = Pipeline.start(Pipeline.stagesDir(LoadTest.class), List.of(),
+                    stageArgs(bootstrap, smtp.port(), partitions, serviceArgs));
+            measure(options, serviceArgs, bootstrap, mix, smtp, result);
+        } finally {
+            if (pipeline != null) {
+                pipeline.close();
+            }
+            smtp.close();
+            if (broker != null) {
+                broker.destroy();
+            }
+        }
+
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(output.toFile(), result);
+        print(result);
+        System.out.println("Result written to " + output.toAbsolutePath());
+    }
+
+    private static void measure(Map<String, String> options, String[] serviceArgs, String bootstrap, OrderMix mix,
+                                SmtpSink smtp, Map<String, Object> result) throws Exception {
+        List<Double> rates = rates(options);
+        Duration warmup = duration(options.getOrDefault("warmup", "15s"));
+        Duration step = duration(options.getOrDefault("step", "60s"));
+        Duration drain = duration(options.getOrDefault("drain", "2m"));
+        int maxInFlight = Integer.parseInt(options.getOrDefault("max-in-flight", "2000"));
+        List<String> sustainGroups = Arrays.asList(options.getOrDefault("sustain-groups", "payment-group,shipping-group").split(","));
+        try (PipelineMonitor monitor = new PipelineMonitor(bootstrap, groupTopics(), COMPLETED_TOPICS,
+                Duration.ofSeconds(1))) {
+            OpenLoopDriver driver = new OpenLoopDriver(
+                    URI.create(options.getOrDefault("url", "http://localhost:8080/api/orders")),
+                    mix, Duration.ofSeconds(30), maxInFlight);
+
+            System.out.printf("Load test: rates %s orders/s, step %ds, warmup %ds, broker %s%n",
+                    rates, step.toSeconds(), warmup.toSeconds(), bootstrap);
+            driver.run(rates.get(0), warmup, new OpenLoopDriver.Phase());
+
+            List<OpenLoopDriver.Phase> phases = new ArrayList<>();
+            List<PipelineMonitor.Window> windows = new ArrayList<>();
+            monitor.roll();
+            for (double rate : rates) {
+                OpenLoopDriver.Phase phase = new OpenLoopDriver.Phase();
+                driver.run(rate, step, phase);
+                phases.add(phase);
+                windows.add(monitor.roll());
+                System.out.printf("step %.0f orders/s done%n", rate);
+            }
+
+            // Хвост: ответы на последние запросы и разбор накопленного lag
+            long drainStart = System.nanoTime();
+            driver.awaitInFlight(maxInFlight, drain);
+            boolean drained = false;
+            while (!drained && System.nanoTime() - drainStart < drain.toNanos()) {
+                TimeUnit.SECONDS.sleep(1);
+                PipelineMonitor.Window window = monitor.roll();
+                drained = sustainGroups.stream().allMatch(group -> window.lags().get(group).get("end") == 0);
+            }
+
+            List<Map<String, Object>> steps = new ArrayList<>();
+            double sustainedRate = 0;
+            for (int i = 0; i < rates.size(); i++) {
+                Map<String, Object> stepResult = stepResult(rates.get(i), phases.get(i), windows.get(i), sustainGroups);
+                steps.add(stepResult);
+                if ((Boolean) stepResult.get("sustained")) {
+                    sustainedRate = Math.max(sustainedRate, rates.get(i));
+                }
+            }
+
+            result.put("label", options.getOrDefault("label", ""));
+            result.put("startedAt", Instant.now().toString());
+            result.put("options", options);
+            result.put("serviceArgs", Arrays.asList(serviceArgs));
+            result.put("jvm", jvm());
+            result.put("steps", steps);
+            result.put("sustainedRate", sustainedRate);
+            result.put("drainSeconds", drained ? (System.nanoTime() - drainStart) / 1e9 : -1);
+            result.put("emailsDelivered", smtp.messages());
+        }
+    }
+
+    private static Map<String, Object> stepResult(double rate, OpenLoopDriver.Phase phase,
+                                                  PipelineMonitor.Window window, List<String> sustainGroups) {
+        Histogram latency = phase.latency();
+        double seconds = phase.seconds();
+        double okPerSecond = latency.getTotalCount() / seconds;
+
+        boolean sustained = okPerSecond >= rate * 0.95;
+        long allowedGrowth = Math.max(100, latency.getTotalCount() / 20);
+        for (String group : sustainGroups) {
+            sustained &= window.lagGrowth(group) <= allowedGrowth;
+        }
+
+        Map<String, Object> step = new LinkedHashMap<>();
+        step.put("targetRate", rate);
+        step.put("seconds", seconds);
+        step.put("sent", phase.sent());
+        step.put("statuses", phase.statuses());
+        step.put("okPerSecond", okPerSecond);
+        step.put("completedPerSecond", window.completedPerSecond());
+        step.put("latencyMs", percentiles(latency));
+        step.put("serviceTimeMs", percentiles(phase.serviceTime()));
+        step.put("lag", window.lags());
+        step.put("sustained", sustained);
+        return step;
+    }
+
+    private static Map<String, Double> percentiles(Histogram histogram) {
+        Map<String, Double> result = new LinkedHashMap<>();
+        result.put("mean", histogram.getMean() / 1000.0);
+        for (double percentile : new double[]{50, 90, 99, 99.9}) {
+            result.put("p" + (percentile == (long) percentile ? String.valueOf((long) percentile) : String.valueOf(percentile)),
+                    histogram.getValueAtPercentile(percentile) / 1000.0);
+        }
+        result.put("max", histogram.getMaxValue() / 1000.0);
+        return result;
+    }
+
+    // Входные топики групп; order-status-group читает все итоговые события
+    private static Map<String, List<String>> groupTopics() {
+        Map<String, List<String>> groups = new LinkedHashMap<>();
+        groups.put("payment-group", List.of("new_orders"));
+        groups.put("shipping-group", List.of("payed_orders"));
+        groups.put("notification-group", List.of("sent_orders"));
+        groups.put("order-status-group", List.of("payed_orders", "sent_orders", "failed_payments", "failed_shipments"));
+        return groups;
+    }
+
+    private static String[] stageArgs(String bootstrap, int smtpPort, int partitions, String[] overrides) {
+        Map<String, String> stageArgs = new LinkedHashMap<>();
+        stageArgs.put("spring.kafka.bootstrap-servers", bootstrap);
+        stageArgs.put("kafka.partitions.count", String.valueOf(partitions));
+        stageArgs.put("spring.mail.host", "localhost");
+        stageArgs.put("spring.mail.port", String.valueOf(smtpPort));
+        stageArgs.put("spring.mail.properties.mail.smtp.auth", "false");
+        stageArgs.put("spring.mail.properties.mail.smtp.starttls.enable", "false");
+        // Журнал на каждый заказ сам по себе ограничивает пропускную способность
+        stageArgs.put("logging.level.com.example", "WARN");
+        stageArgs.put("logging.level.org.apache.kafka", "WARN");
+        // Повторяющийся аргумент Spring склеивает через запятую, поэтому перекрытия сливаются по имени
+        stageArgs.putAll(parseOptions(overrides));
+        return stageArgs.entrySet().stream()
+                .map(entry -> "--" + entry.getKey() + "=" + entry.getValue())
+                .toArray(String[]::new);
+    }
+
+    private static Map<String, Object> jvm() {
+        Map<String, Object> jvm = new LinkedHashMap<>();
+        jvm.put("version", System.getProperty("java.version"));
+        jvm.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+        jvm.put("maxHeapMb", Runtime.getRuntime().maxMemory() / (1024 * 1024));
+        return jvm;
+    }
+
+    private static void print(Map<String, Object> result) {
+        @SuppressWarnings("unchecked")
+        List<Map<String, Object>> steps = (List<Map<String, Object>>) result.get("steps");
+        for (Map<String, Object> step : steps) {
+            @SuppressWarnings("unchecked")
+            Map<String, Double> latency = (Map<String, Double>) step.get("latencyMs");
+            System.out.printf("rate %6.0f  ok/s %8.1f  completed/s %8.1f  p50 %8.1f ms  p99 %8.1f ms  %s  lag %s%n",
+                    step.get("targetRate"), step.get("okPerSecond"), step.get("completedPerSecond"),
+                    latency.get("p50"), latency.get("p99"),
+                    (Boolean) step.get("sustained") ? "sustained" : "NOT sustained", step.get("lag"));
+        }
+        System.out.printf("sustained rate %.0f orders/s, drain %.1f s%n",
+                result.get("sustainedRate"), result.get("drainSeconds"));
+    }
+
+    private static List<Double> rates(Map<String, String> options) {
+        return Arrays.stream(options.getOrDefault("rates", "50,100,200").split(","))
+                .map(Double::parseDouble)
+                .collect(Collectors.toList());
+    }
+
+    private static Duration duration(String value) {
+        return Duration.parse("PT" + value);
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new LinkedHashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            int eq = arg.indexOf('=');
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        return options;
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Открытая модель нагрузки: запросы уходят по расписанию с заданной частотой, не дожидаясь
+ * ответов на предыдущие, - как заказы от независимых клиентов.
+ * <p>
+ * Задержка считается от запланированного момента отправки, а не от фактического: если генератор
+ * или сервис отстали, ожидание в очереди входит в результат (поправка на coordinated omission).
+ * Отдельно пишется время обслуживания - от фактической отправки до ответа.
+ */
+final class OpenLoopDriver {
+
+    static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(5);
+
+    private final HttpClient client;
+    private final URI uri;
+    private final OrderMix mix;
+    private final Duration timeout;
+    // Предел одновременных запросов: дальше отставание копится в расписании, а не в памяти клиента
+    private final Semaphore inFlight;
+
+    private volatile Phase phase;
+
+    OpenLoopDriver(URI uri, OrderMix mix, Duration timeout, int maxInFlight) {
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+        this.uri = uri;
+        this.mix = mix;
+        this.timeout = timeout;
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    /**
+     * Шлёт запросы с частотой {@code rate} в течение {@code duration}; результаты пишутся в {@code phase}.
+     */
+    void run(double rate, Duration duration, Phase phase) throws InterruptedException {
+        this.phase = phase;
+        Random random = new Random();
+        long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        long startNanos = System.nanoTime();
+        long endNanos = startNanos + duration.toNanos();
+        for (long i = 0; ; i++) {
+            long intendedNanos = startNanos + i * intervalNanos;
+            if (intendedNanos >= endNanos) {
+                break;
+            }
+            long wait;
+            while ((wait = intendedNanos - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            inFlight.acquire();
+            send(intendedNanos, random);
+        }
+        phase.endNanos = System.nanoTime();
+    }
+
+    /**
+     * Ждёт ответов на отправленные запросы; они засчитываются в фазу, в которой были отправлены.
+     */
+    boolean awaitInFlight(int maxInFlight, Duration wait) throws InterruptedException {
+        if (!inFlight.tryAcquire(maxInFlight, wait.toMillis(), TimeUnit.MILLISECONDS)) {
+            return false;
+        }
+        inFlight.release(maxInFlight);
+        return true;
+    }
+
+    private void send(long intendedNanos, Random random) {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(mix.next(random)))
+                .build();
+        Phase current = phase;
+        long sentNanos = System.nanoTime();
+        current.sent.increment();
+        client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, ex) -> {
+                    long now = System.nanoTime();
+                    current.record(now - intendedNanos, now - sentNanos, response == null ? -1 : response.statusCode());
+                    inFlight.release();
+                });
+    }
+
+    static final class Phase {
+
+        final long startNanos = System.nanoTime();
+        volatile long endNanos;
+
+        private final LongAdder sent = new LongAdder();
+        private final Recorder latency = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+        private final Recorder serviceTime = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+        private final ConcurrentMap<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+
+        void record(long latencyNanos, long serviceNanos, int status) {
+            // Задержка - только по 2xx: быстрые 429 и ошибки подключения не должны её улучшать
+            if (status >= 200 && status < 300) {
+                latency.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(latencyNanos), HIGHEST_TRACKABLE_MICROS));
+                serviceTime.recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(serviceNanos), HIGHEST_TRACKABLE_MICROS));
+            }
+            statuses.computeIfAbsent(status, s -> new LongAdder()).increment();
+        }
+
+        long sent() {
+            return sent.sum();
+        }
+
+        double seconds() {
+            return (endNanos - startNanos) / 1e9;
+        }
+
+        Histogram latency() {
+            return latency.getIntervalHistogram();
+        }
+
+        Histogram serviceTime() {
+            return serviceTime.getIntervalHistogram();
+        }
+
+        // -1 - ошибка транспорта или таймаут
+        Map<Integer, Long> statuses() {
+            Map<Integer, Long> codes = new TreeMap<>();
+            statuses.forEach((status, count) -> codes.put(status, count.sum()));
+            return codes;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Тела POST /api/orders с распределениями, похожими на реальный поток:
+ * <ul>
+ *     <li>клиенты - Zipf с показателем {@code skew}: немногие частые покупатели дают большую долю
+ *     заказов (горячие ключи партиций и лимиты на клиента срабатывают как в жизни);</li>
+ *     <li>число позиций - геометрическое со средним {@code meanItems}, не больше {@code maxItems};</li>
+ *     <li>товары - тоже Zipf по каталогу, количество чаще 1, цена - логнормальная (медиана ~20).</li>
+ * </ul>
+ * Тела генерируются заранее пулом, чтобы генератор не ограничивал нагрузку; id заказа в теле нет -
+ * его присваивает сервис.
+ */
+final class OrderMix {
+
+    private static final int CATALOG_SIZE = 5_000;
+    private static final int[] QUANTITIES = {1, 1, 1, 1, 1, 1, 2, 2, 3, 5};
+
+    private final String[] bodies;
+
+    OrderMix(int customers, double skew, double meanItems, int maxItems, int poolSize, long seed)
+            throws JsonProcessingException {
+        Random random = new Random(seed);
+        double[] customerCdf = zipfCdf(customers, skew);
+        double[] productCdf = zipfCdf(CATALOG_SIZE, 1.0);
+        ObjectMapper mapper = new ObjectMapper();
+
+        bodies = new String[poolSize];
+        for (int i = 0; i < poolSize; i++) {
+            int customer = sample(customerCdf, random);
+            int itemCount = Math.min(maxItems, geometric(meanItems, random));
+
+            List<Map<String, Object>> items = new ArrayList<>(itemCount);
+            for (int j = 0; j < itemCount; j++) {
+                int product = sample(productCdf, random);
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("productId", "product-" + product);
+                item.put("quantity", QUANTITIES[random.nextInt(QUANTITIES.length)]);
+                item.put("price", price(product));
+                items.add(item);
+            }
+
+            Map<String, Object> order = new LinkedHashMap<>();
+            order.put("customerId", "customer-" + customer);
+            order.put("customerEmail", "customer-" + customer + "@example.com");
+            order.put("items", items);
+            bodies[i] = mapper.writeValueAsString(order);
+        }
+    }
+
+    String next(Random random) {
+        return bodies[random.nextInt(bodies.length)];
+    }
+
+    // Цена зависит только от товара, как в каталоге
+    private static double price(int product) {
+        Random random = new Random(product);
+        double price = Math.exp(Math.log(20) + random.nextGaussian());
+        return Math.max(0.5, Math.round(price * 100) / 100.0);
+    }
+
+    private static int geometric(double mean, Random random) {
+        if (mean <= 1) {
+            return 1;
+        }
+        double p = 1 / mean;
+        return 1 + (int) (Math.log(1 - random.nextDouble()) / Math.log(1 - p));
+    }
+
+    private static double[] zipfCdf(int n, double skew) {
+        double[] cdf = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += 1 / Math.pow(i + 1, skew);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cdf[i] /= sum;
+        }
+        return cdf;
+    }
+
+    private static int sample(double[] cdf, Random random) {
+        int index = Arrays.binarySearch(cdf, random.nextDouble());
+        return Math.min(cdf.length - 1, index >= 0 ? index : -index - 1);
+    }
+}
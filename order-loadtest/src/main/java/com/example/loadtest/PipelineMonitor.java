@@ -0,0 +1,200 @@
+package com.example.loadtest;
+
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.AdminClientConfig;
+import org.apache.kafka.clients.admin.ListOffsetsResult;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.admin.TopicDescription;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.TopicPartitionInfo;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Состояние конвейера по данным брокера: lag каждой группы на её входных топиках
+ * (конец партиций минус закоммиченный offset) и число записей в итоговых топиках -
+ * заказы, дошедшие до конца конвейера.
+ * <p>
+ * Опрашивается раз в {@code interval}; за фазу нагрузки запоминаются lag в начале, в конце
+ * и наибольший.
+ */
+final class PipelineMonitor implements AutoCloseable {
+
+    private static final long TIMEOUT_MS = 10_000;
+
+    private final Admin admin;
+    private final Map<String, List<String>> groupTopics;
+    private final List<String> completedTopics;
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, List<TopicPartition>> partitions = new HashMap<>();
+
+    private volatile Window window;
+
+    PipelineMonitor(String bootstrap, Map<String, List<String>> groupTopics, List<String> completedTopics,
+                    Duration interval) {
+        this.admin = Admin.create(Map.of(AdminClientConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrap));
+        this.groupTopics = groupTopics;
+        this.completedTopics = completedTopics;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "pipeline-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::sample, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Начинает новое окно замера и возвращает предыдущее, закрытое текущим состоянием.
+     */
+    synchronized Window roll() throws Exception {
+        Snapshot snapshot = snapshot();
+        Window previous = window;
+        if (previous != null) {
+            previous.close(snapshot);
+        }
+        window = new Window(snapshot);
+        return previous;
+    }
+
+    private synchronized void sample() {
+        Window current = window;
+        if (current == null) {
+            return;
+        }
+        try {
+            current.sample(snapshot());
+        } catch (Exception e) {
+            // Пропущенный замер не портит окно: начало и конец снимаются всегда
+        }
+    }
+
+    private Snapshot snapshot() throws ExecutionException, InterruptedException, TimeoutException {
+        Set<String> topics = new HashSet<>(completedTopics);
+        groupTopics.values().forEach(topics::addAll);
+        Map<TopicPartition, OffsetSpec> request = new HashMap<>();
+        for (String topic : topics) {
+            for (TopicPartition partition : partitions(topic)) {
+                request.put(partition, OffsetSpec.latest());
+            }
+        }
+        Map<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> ends = admin.listOffsets(request).all()
+                .get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+
+        Map<String, Long> lags = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> group : groupTopics.entrySet()) {
+            Map<TopicPartition, OffsetAndMetadata> committed = admin.listConsumerGroupOffsets(group.getKey())
+                    .partitionsToOffsetAndMetadata().get(TIMEOUT_MS, TimeUnit.MILLISECONDS);
+            long lag = 0;
+            for (String topic : group.getValue()) {
+                for (TopicPartition partition : partitions(topic)) {
+                    OffsetAndMetadata offset = committed.get(partition);
+                    // Группа ещё ничего не закоммитила - всё записанное считается отставанием
+                    lag += Math.max(0, ends.get(partition).offset() - (offset != null ? offset.offset() : 0));
+                }
+            }
+            lags.put(group.getKey(), lag);
+        }
+
+        long completed = 0;
+        for (String topic : completedTopics) {
+            for (TopicPartition partition : partitions(topic)) {
+                completed += ends.get(partition).offset();
+            }
+        }
+        return new Snapshot(System.nanoTime(), lags, completed);
+    }
+
+    private List<TopicPartition> partitions(String topic)
+            throws ExecutionException, InterruptedException, TimeoutException {
+        List<TopicPartition> known = partitions.get(topic);
+        if (known != null) {
+            return known;
+        }
+        TopicDescription description = admin.describeTopics(List.of(topic)).allTopicNames()
+                .get(TIMEOUT_MS, TimeUnit.MILLISECONDS).get(topic);
+        List<TopicPartition> result = new ArrayList<>();
+        for (TopicPartitionInfo info : description.partitions()) {
+            result.add(new TopicPartition(topic, info.partition()));
+        }
+        partitions.put(topic, result);
+        return result;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+        admin.close(Duration.ofSeconds(5));
+    }
+
+    static final class Snapshot {
+
+        final long nanos;
+        final Map<String, Long> lags;
+        final long completed;
+
+        Snapshot(long nanos, Map<String, Long> lags, long completed) {
+            this.nanos = nanos;
+            this.lags = lags;
+            this.completed = completed;
+        }
+    }
+
+    static final class Window {
+
+        private final Snapshot start;
+        private final Map<String, Long> maxLags;
+        private Snapshot end;
+
+        Window(Snapshot start) {
+            this.start = start;
+            this.maxLags = new LinkedHashMap<>(start.lags);
+        }
+
+        void sample(Snapshot snapshot) {
+            snapshot.lags.forEach((group, lag) -> maxLags.merge(group, lag, Math::max));
+        }
+
+        void close(Snapshot snapshot) {
+            sample(snapshot);
+            end = snapshot;
+        }
+
+        double completedPerSecond() {
+            return (end.completed - start.completed) / ((end.nanos - start.nanos) / 1e9);
+        }
+
+        long lagGrowth(String group) {
+            return end.lags.getOrDefault(group, 0L) - start.lags.getOrDefault(group, 0L);
+        }
+
+        Map<String, Map<String, Long>> lags() {
+            Map<String, Map<String, Long>> result = new LinkedHashMap<>();
+            for (String group : start.lags.keySet()) {
+                Map<String, Long> lag = new LinkedHashMap<>();
+                lag.put("start", start.lags.get(group));
+                lag.put("end", end.lags.get(group));
+                lag.put("max", maxLags.get(group));
+                result.put(group, lag);
+            }
+            return result;
+        }
+
+        Collection<String> groups() {
+            return start.lags.keySet();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.accesslog;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Журнал доступа HTTP: поток запроса только решает, писать ли запись, и кладёт её в кольцо
+ * ({@link AccessLogRing}); в сегменты на диске ({@link AccessLogFile}) их переносит отдельный
+ * поток. Ответы со статусом от {@code errorStatus} и запросы дольше {@code slowThreshold} пишутся
+ * всегда, остальные - с вероятностью {@code sampleRate}. При переполненном кольце запись
+ * отбрасывается и считается в {@code dropped}.
+ * <p>
+ * Файлы читает {@link AccessLogDecoder}.
+ */
+@Slf4j
+public class AccessLog implements AutoCloseable {
+
+    private static final int DRAIN_BATCH = 1024;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final long FAILURE_BACKOFF_MS = 1000;
+
+    @Value
+    public static class Settings {
+        boolean enabled;
+        Path dir;
+        double sampleRate;
+        Duration slowThreshold;
+        int errorStatus;
+        int ringCapacity;
+        long segmentBytes;
+        int maxSegments;
+    }
+
+    private final Settings settings;
+    private final long slowNanos;
+    private final AccessLogRing ring;
+    private final AccessLogFile file;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    private final LongAdder sampledOut = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder writeFailures = new LongAdder();
+
+    public AccessLog(Settings settings) {
+        if (settings.getSampleRate() < 0 || settings.getSampleRate() > 1) {
+            throw new IllegalArgumentException("Access log sample rate must be within [0, 1]: " + settings);
+        }
+        this.settings = settings;
+        this.slowNanos = settings.getSlowThreshold().toNanos();
+        if (!settings.isEnabled()) {
+            this.ring = null;
+            this.file = null;
+            this.writer = null;
+            return;
+        }
+        this.ring = new AccessLogRing(settings.getRingCapacity());
+        this.file = new AccessLogFile(settings.getDir(), settings.getSegmentBytes(), settings.getMaxSegments());
+        this.writer = new Thread(this::writeLoop, "access-log-writer");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("Access log enabled: {}", settings);
+    }
+
+    /**
+     * Учитывает завершённый запрос; не блокируется и не создаёт объектов.
+     */
+    public void record(long startMillis, long durationNanos, String method, CharSequence path, int status,
+                       CharSequence client, long requestBytes) {
+        if (ring == null) {
+            return;
+        }
+        int flags = 0;
+        if (status >= settings.getErrorStatus()) {
+            flags |= AccessLogRecord.ERROR;
+        }
+        if (durationNanos >= slowNanos) {
+            flags |= AccessLogRecord.SLOW;
+        }
+        if (flags == 0) {
+            if (ThreadLocalRandom.current().nextDouble() >= settings.getSampleRate()) {
+                sampledOut.increment();
+                return;
+            }
+            flags = AccessLogRecord.SAMPLED;
+        }
+        if (!ring.offer(startMillis, durationNanos, method, path, status, client, requestBytes, flags)) {
+            dropped.increment();
+        }
+    }
+
+    public void stats(String prefix, Map<String, Object> stats) {
+        stats.put(prefix + ".enabled", settings.isEnabled());
+        stats.put(prefix + ".sampleRate", settings.getSampleRate());
+        stats.put(prefix + ".sampledOut", sampledOut.sum());
+        stats.put(prefix + ".dropped", dropped.sum());
+        stats.put(prefix + ".written", written.sum());
+        stats.put(prefix + ".writeFailures", writeFailures.sum());
+        if (ring != null) {
+            stats.put(prefix + ".ringSize", ring.size());
+            stats.put(prefix + ".ringCapacity", ring.capacity());
+            stats.put(prefix + ".segment", String.valueOf(file.currentSegment()));
+        }
+    }
+
+    private void writeLoop() {
+        AccessLogRing.Sink sink = record -> {
+            try {
+                file.append(record);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+        while (running || ring.size() > 0) {
+            try {
+                int drained = ring.drainTo(sink, DRAIN_BATCH);
+                written.add(drained);
+                if (drained == 0) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            } catch (UncheckedIOException e) {
+                // Запись, на которой сломался файл, остаётся в кольце; новые пока отбрасываются
+                writeFailures.increment();
+                log.warn("Access log write failed: {}", e.getCause().getMessage());
+                if (!running) {
+                    return;
+                }
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(FAILURE_BACKOFF_MS));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        if (writer == null) {
+            return;
+        }
+        running = false;
+        writer.join(TimeUnit.SECONDS.toMillis(10));
+        file.close();
+    }
+}
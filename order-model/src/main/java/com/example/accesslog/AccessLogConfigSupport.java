@@ -0,0 +1,56 @@
+package com.example.accesslog;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.Ordered;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Paths;
+import java.time.Duration;
+
+/**
+ * Журнал доступа вместо логирования каждого запроса: выборка {@code access-log.*}, сегменты
+ * в {@code access-log.dir}. Сервис включает его, наследуя класс в своей {@code @Configuration}.
+ * Статистика - GET /api/access-log, чтение файлов - {@link AccessLogDecoder}.
+ */
+public abstract class AccessLogConfigSupport {
+
+    @Value("${access-log.enabled:true}")
+    private boolean enabled;
+
+    @Value("${access-log.dir:logs/access/${spring.application.name}}")
+    private String dir;
+
+    @Value("${access-log.sample-rate:0.01}")
+    private double sampleRate;
+
+    @Value("${access-log.slow-threshold:500ms}")
+    private Duration slowThreshold;
+
+    @Value("${access-log.error-status:500}")
+    private int errorStatus;
+
+    @Value("${access-log.ring-capacity:65536}")
+    private int ringCapacity;
+
+    @Value("${access-log.segment-size:64MB}")
+    private DataSize segmentSize;
+
+    @Value("${access-log.max-segments:16}")
+    private int maxSegments;
+
+    @Bean(destroyMethod = "close")
+    public AccessLog accessLog() {
+        return new AccessLog(new AccessLog.Settings(enabled, Paths.get(dir), sampleRate, slowThreshold, errorStatus,
+                ringCapacity, segmentSize.toBytes(), maxSegments));
+    }
+
+    // Первым в цепочке: длительность включает остальные фильтры
+    @Bean
+    public FilterRegistrationBean<AccessLogFilter> accessLogFilter(AccessLog accessLog) {
+        FilterRegistrationBean<AccessLogFilter> registration = new FilterRegistrationBean<>(new AccessLogFilter(accessLog));
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+}
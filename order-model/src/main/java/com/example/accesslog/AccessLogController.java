@@ -0,0 +1,31 @@
+package com.example.accesslog;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Выборка, отброшенные и записанные на диск записи журнала доступа; без журнала в сервисе - 404
+@RestController
+@RequestMapping("/api/access-log")
+@RequiredArgsConstructor
+public class AccessLogController {
+
+    private final ObjectProvider<AccessLog> accessLog;
+
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getStats() {
+        AccessLog log = accessLog.getIfAvailable();
+        if (log == null) {
+            return ResponseEntity.notFound().build();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        log.stats("accessLog", stats);
+        return ResponseEntity.ok(stats);
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.accesslog;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Печатает сегменты журнала доступа строками с табуляцией: время, метод, путь, статус,
+ * длительность в мс, размер тела, клиент, флаги (s - выборка, e - ошибка, l - медленный,
+ * t - путь обрезан).
+ * <pre>
+ * java -cp order-model.jar com.example.accesslog.AccessLogDecoder [--errors] [--min-ms=N] файл|каталог...
+ * </pre>
+ * Каталог читается целиком, от старых сегментов к новым.
+ */
+public class AccessLogDecoder {
+
+    public static void main(String[] args) throws IOException {
+        boolean errorsOnly = false;
+        double minMillis = 0;
+        List<Path> files = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.equals("--errors")) {
+                errorsOnly = true;
+            } else if (arg.startsWith("--min-ms=")) {
+                minMillis = Double.parseDouble(arg.substring("--min-ms=".length()));
+            } else if (Files.isDirectory(Paths.get(arg))) {
+                files.addAll(AccessLogFile.segments(Paths.get(arg)));
+            } else {
+                files.add(Paths.get(arg));
+            }
+        }
+        if (files.isEmpty()) {
+            System.err.println("Usage: AccessLogDecoder [--errors] [--min-ms=N] <segment or directory>...");
+            System.exit(2);
+        }
+
+        PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8)));
+        for (Path file : files) {
+            ByteBuffer buffer = map(file);
+            for (int offset = AccessLogFile.HEADER_SIZE; offset + AccessLogRecord.SIZE <= buffer.limit();
+                 offset += AccessLogRecord.SIZE) {
+                AccessLogRecord.Entry entry = AccessLogRecord.decode(buffer, offset);
+                if (entry == null) {
+                    break;
+                }
+                if (errorsOnly && !entry.has(AccessLogRecord.ERROR)
+                        || entry.getDurationMicros() / 1000.0 < minMillis) {
+                    continue;
+                }
+                out.println(format(entry));
+            }
+        }
+        out.flush();
+    }
+
+    static String format(AccessLogRecord.Entry entry) {
+        StringBuilder flags = new StringBuilder();
+        if (entry.has(AccessLogRecord.SAMPLED)) {
+            flags.append('s');
+        }
+        if (entry.has(AccessLogRecord.ERROR)) {
+            flags.append('e');
+        }
+        if (entry.has(AccessLogRecord.SLOW)) {
+            flags.append('l');
+        }
+        if (entry.has(AccessLogRecord.TRUNCATED)) {
+            flags.append('t');
+        }
+        return String.join("\t",
+                Instant.ofEpochMilli(entry.getStartMillis()).toString(),
+                entry.getMethod(),
+                entry.getPath(),
+                String.valueOf(entry.getStatus()),
+                String.format(Locale.ROOT, "%.3f", entry.getDurationMicros() / 1000.0),
+                String.valueOf(entry.getRequestBytes()),
+                entry.getClient(),
+                flags.toString());
+    }
+
+    private static ByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.limit() < AccessLogFile.HEADER_SIZE || buffer.getInt(0) != AccessLogFile.MAGIC) {
+                throw new IOException("Not an access log segment: " + file);
+            }
+            short version = buffer.getShort(4);
+            short recordSize = buffer.getShort(6);
+            if (version != AccessLogFile.VERSION || recordSize != AccessLogRecord.SIZE) {
+                throw new IOException("Unsupported access log segment " + file + ": version " + version
+                        + ", record size " + recordSize);
+            }
+            return buffer;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.accesslog;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Сегменты журнала доступа {@code access-<epoch ms>.alog}, отображённые в память: запись -
+ * копирование в страницы файла, без системных вызовов. Сегмент создаётся сразу полного размера
+ * (на Linux разреженным, место занимают только записанные страницы), заполненный сменяется
+ * новым, сверх {@code maxSegments} старые удаляются.
+ * <p>
+ * Заголовок {@link #HEADER_SIZE} байт: magic, версия, размер записи, время создания. Дальше
+ * записи {@link AccessLogRecord}; незаписанный хвост - нули. Пишет один поток.
+ */
+final class AccessLogFile implements Closeable {
+
+    static final int MAGIC = 0x414C4F47; // "ALOG"
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 64;
+    static final Pattern SEGMENT_NAME = Pattern.compile("access-(\\d{13})\\.alog");
+
+    private final Path dir;
+    private final int segmentRecords;
+    private final int maxSegments;
+
+    private MappedByteBuffer segment;
+    private Path segmentPath;
+
+    AccessLogFile(Path dir, long segmentBytes, int maxSegments) {
+        this.dir = dir;
+        this.segmentRecords = (int) Math.min(Integer.MAX_VALUE / AccessLogRecord.SIZE,
+                (segmentBytes - HEADER_SIZE) / AccessLogRecord.SIZE);
+        if (segmentRecords <= 0) {
+            throw new IllegalArgumentException("Access log segment is too small: " + segmentBytes + " bytes");
+        }
+        this.maxSegments = Math.max(1, maxSegments);
+    }
+
+    void append(ByteBuffer record) throws IOException {
+        if (segment == null || !segment.hasRemaining()) {
+            roll();
+        }
+        segment.put(record);
+    }
+
+    Path currentSegment() {
+        return segmentPath;
+    }
+
+    private void roll() throws IOException {
+        if (segment != null) {
+            // Отображение освободит GC: явного unmap в Java 11 нет
+            segment.force();
+            segment = null;
+        }
+        Files.createDirectories(dir);
+        long created = System.currentTimeMillis();
+        Path path = dir.resolve(segmentName(created));
+        while (Files.exists(path)) {
+            path = dir.resolve(segmentName(++created));
+        }
+
+        long size = HEADER_SIZE + (long) segmentRecords * AccessLogRecord.SIZE;
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        segment.putInt(MAGIC).putShort(VERSION).putShort((short) AccessLogRecord.SIZE).putLong(created);
+        segment.position(HEADER_SIZE);
+        segmentPath = path;
+
+        List<Path> segments = segments(dir);
+        for (int i = 0; i < segments.size() - maxSegments; i++) {
+            Files.deleteIfExists(segments.get(i));
+        }
+    }
+
+    @Override
+    public void close() {
+        if (segment != null) {
+            segment.force();
+            segment = null;
+        }
+    }
+
+    /**
+     * Сегменты каталога от старых к новым.
+     */
+    static List<Path> segments(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> SEGMENT_NAME.matcher(file.getFileName().toString()).matches())
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static String segmentName(long created) {
+        return String.format("access-%013d.alog", created);
+    }
+}
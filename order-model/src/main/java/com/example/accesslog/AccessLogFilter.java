@@ -0,0 +1,69 @@
+package com.example.accesslog;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.Filter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+
+import java.io.IOException;
+
+/**
+ * Передаёт каждый запрос в {@link AccessLog}; асинхронный - по завершении ответа, когда статус известен.
+ */
+@RequiredArgsConstructor
+public class AccessLogFilter implements Filter {
+
+    private final AccessLog accessLog;
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain)
+            throws IOException, ServletException {
+        HttpServletRequest httpRequest = (HttpServletRequest) request;
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+        long startMillis = System.currentTimeMillis();
+        long startNanos = System.nanoTime();
+
+        boolean failed = true;
+        try {
+            chain.doFilter(request, response);
+            failed = false;
+        } finally {
+            if (!failed && httpRequest.isAsyncStarted()) {
+                httpRequest.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        record(httpRequest, httpResponse.getStatus(), startMillis, startNanos);
+                    }
+
+                    // После таймаута и ошибки контейнер всё равно вызывает onComplete
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                // Исключение дойдёт до контейнера, клиент получит 500
+                record(httpRequest, failed ? HttpServletResponse.SC_INTERNAL_SERVER_ERROR : httpResponse.getStatus(),
+                        startMillis, startNanos);
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, int status, long startMillis, long startNanos) {
+        accessLog.record(startMillis, System.nanoTime() - startNanos, request.getMethod(), request.getRequestURI(),
+                status, request.getRemoteAddr(), request.getContentLengthLong());
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.accesslog;
+
+import lombok.Value;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Запись журнала доступа фиксированного размера {@link #SIZE} байт:
+ * <pre>
+ *   0  long   начало запроса, epoch ms
+ *   8  int    длительность, мкс
+ *  12  short  HTTP-статус
+ *  14  byte   метод ({@link #METHODS})
+ *  15  byte   флаги ({@link #SAMPLED}, {@link #ERROR}, {@link #SLOW}, {@link #TRUNCATED})
+ *  16  int    длина тела запроса, -1 - неизвестна
+ *  20  byte   длина адреса клиента, дальше 39 байт ASCII
+ *  60  short  полная длина пути, дальше 66 байт ASCII (длиннее - обрезается)
+ * </pre>
+ * Нулевое время начала означает конец записанной части сегмента.
+ */
+public final class AccessLogRecord {
+
+    public static final int SIZE = 128;
+
+    public static final int SAMPLED = 1;
+    public static final int ERROR = 1 << 1;
+    public static final int SLOW = 1 << 2;
+    public static final int TRUNCATED = 1 << 3;
+
+    static final String[] METHODS = {"OTHER", "GET", "POST", "PUT", "PATCH", "DELETE", "HEAD", "OPTIONS"};
+
+    private static final int START = 0;
+    private static final int DURATION = 8;
+    private static final int STATUS = 12;
+    private static final int METHOD = 14;
+    private static final int FLAGS = 15;
+    private static final int REQUEST_BYTES = 16;
+    private static final int CLIENT_LENGTH = 20;
+    private static final int CLIENT = 21;
+    private static final int CLIENT_BYTES = 39;
+    private static final int PATH_LENGTH = 60;
+    private static final int PATH = 62;
+    private static final int PATH_BYTES = SIZE - PATH;
+
+    private AccessLogRecord() {
+    }
+
+    /**
+     * Пишет запись в {@code buffer} с позиции {@code offset} абсолютными put: позиция буфера
+     * не меняется, поэтому разные потоки могут писать в разные ячейки одного буфера.
+     */
+    static void encode(ByteBuffer buffer, int offset, long startMillis, long durationNanos, String method,
+                       CharSequence path, int status, CharSequence client, long requestBytes, int flags) {
+        int pathLength = path.length();
+        if (pathLength > PATH_BYTES) {
+            flags |= TRUNCATED;
+        }
+        buffer.putLong(offset + START, startMillis);
+        buffer.putInt(offset + DURATION, (int) Math.min(Integer.MAX_VALUE, durationNanos / 1000));
+        buffer.putShort(offset + STATUS, (short) status);
+        buffer.put(offset + METHOD, method(method));
+        buffer.put(offset + FLAGS, (byte) flags);
+        buffer.putInt(offset + REQUEST_BYTES, (int) Math.max(-1, Math.min(Integer.MAX_VALUE, requestBytes)));
+        int clientLength = ascii(buffer, offset + CLIENT, client, CLIENT_BYTES);
+        buffer.put(offset + CLIENT_LENGTH, (byte) clientLength);
+        buffer.putShort(offset + PATH_LENGTH, (short) Math.min(Short.MAX_VALUE, pathLength));
+        ascii(buffer, offset + PATH, path, PATH_BYTES);
+    }
+
+    /**
+     * Читает запись с позиции {@code offset}; null - на этом месте записей больше нет.
+     */
+    static Entry decode(ByteBuffer buffer, int offset) {
+        long startMillis = buffer.getLong(offset + START);
+        if (startMillis == 0) {
+            return null;
+        }
+        int method = buffer.get(offset + METHOD);
+        int clientLength = buffer.get(offset + CLIENT_LENGTH);
+        int pathLength = Math.min(PATH_BYTES, buffer.getShort(offset + PATH_LENGTH));
+        return new Entry(
+                startMillis,
+                buffer.getInt(offset + DURATION),
+                METHODS[method >= 0 && method < METHODS.length ? method : 0],
+                string(buffer, offset + PATH, pathLength),
+                buffer.getShort(offset + STATUS) & 0xFFFF,
+                string(buffer, offset + CLIENT, clientLength),
+                buffer.getInt(offset + REQUEST_BYTES),
+                buffer.get(offset + FLAGS));
+    }
+
+    private static byte method(String method) {
+        for (int i = 1; i < METHODS.length; i++) {
+            if (METHODS[i].equals(method)) {
+                return (byte) i;
+            }
+        }
+        return 0;
+    }
+
+    // Без промежуточных byte[]: путь и адрес после кодирования URL и так ASCII
+    private static int ascii(ByteBuffer buffer, int offset, CharSequence value, int max) {
+        int length = value == null ? 0 : Math.min(max, value.length());
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            buffer.put(offset + i, (byte) (c < 0x80 ? c : '?'));
+        }
+        return length;
+    }
+
+    private static String string(ByteBuffer buffer, int offset, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = buffer.get(offset + i);
+        }
+        return new String(bytes, StandardCharsets.US_ASCII);
+    }
+
+    @Value
+    public static class Entry {
+        long startMillis;
+        int durationMicros;
+        String method;
+        String path;
+        int status;
+        String client;
+        int requestBytes;
+        int flags;
+
+        public boolean has(int flag) {
+            return (flags & flag) != 0;
+        }
+    }
+}
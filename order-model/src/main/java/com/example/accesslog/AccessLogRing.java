@@ -0,0 +1,90 @@
+package com.example.accesslog;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Кольцо записей журнала доступа без блокировок (как {@code PartitionQueue}, кольцо Вьюкова),
+ * но ячейки - участки одного direct-буфера по {@link AccessLogRecord#SIZE} байт: запись запроса
+ * не создаёт объектов. Производителей много, потребитель - один поток записи в файл.
+ * Переполненное кольцо запись не принимает: поток запроса журнал не ждёт.
+ */
+final class AccessLogRing {
+
+    private final ByteBuffer slots;
+    // Только для потребителя: окно на ячейку для копирования в файл
+    private final ByteBuffer view;
+    private final AtomicLongArray sequences;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    AccessLogRing(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring capacity must be a power of two, got " + capacity);
+        }
+        this.slots = ByteBuffer.allocateDirect(capacity * AccessLogRecord.SIZE);
+        this.view = slots.duplicate();
+        this.sequences = new AtomicLongArray(capacity);
+        this.mask = capacity - 1;
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    boolean offer(long startMillis, long durationNanos, String method, CharSequence path, int status,
+                  CharSequence client, long requestBytes, int flags) {
+        long position = tail.get();
+        while (true) {
+            int index = (int) position & mask;
+            long delta = sequences.get(index) - position;
+            if (delta == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    AccessLogRecord.encode(slots, index * AccessLogRecord.SIZE, startMillis, durationNanos,
+                            method, path, status, client, requestBytes, flags);
+                    // Публикация: после этой записи ячейку видит потребитель
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (delta < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Передаёт в {@code sink} до {@code max} опубликованных записей по порядку; вызывается из одного потока.
+     */
+    int drainTo(Sink sink, int max) {
+        int drained = 0;
+        while (drained < max) {
+            int index = (int) head & mask;
+            if (sequences.get(index) != head + 1) {
+                break;
+            }
+            int offset = index * AccessLogRecord.SIZE;
+            view.limit(offset + AccessLogRecord.SIZE).position(offset);
+            sink.accept(view);
+            sequences.set(index, head + mask + 1);
+            head++;
+            drained++;
+        }
+        return drained;
+    }
+
+    int size() {
+        return (int) Math.max(0, tail.get() - head);
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    interface Sink {
+        void accept(ByteBuffer record);
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.codec;
+
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Чтение бинарного формата, записанного {@link BinaryOutput}.
+ */
+final class BinaryInput {
+
+    private final byte[] buf;
+    private int pos;
+
+    BinaryInput(byte[] buf, int offset) {
+        this.buf = buf;
+        this.pos = offset;
+    }
+
+    int readByte() {
+        require(1);
+        return buf[pos++] & 0xFF;
+    }
+
+    long readVarLong() {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new SerializationException("Malformed varint at offset " + pos);
+    }
+
+    int readVarInt() {
+        long value = readVarLong();
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new SerializationException("Varint out of int range: " + value);
+        }
+        return (int) value;
+    }
+
+    long readZigZagLong() {
+        long raw = readVarLong();
+        return (raw >>> 1) ^ -(raw & 1);
+    }
+
+    long readLong() {
+        require(8);
+        long value = 0;
+        for (int i = 0; i < 8; i++) {
+            value = (value << 8) | (buf[pos++] & 0xFF);
+        }
+        return value;
+    }
+
+    double readDouble() {
+        return Double.longBitsToDouble(readLong());
+    }
+
+    String readUtf8() {
+        int length = readVarInt();
+        require(length);
+        String value = new String(buf, pos, length, StandardCharsets.UTF_8);
+        pos += length;
+        return value;
+    }
+
+    boolean hasRemaining() {
+        return pos < buf.length;
+    }
+
+    int remaining() {
+        return buf.length - pos;
+    }
+
+    private void require(int n) {
+        if (pos + n > buf.length) {
+            throw new SerializationException("Unexpected end of binary OrderEvent at offset " + pos);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.codec;
+
+import java.util.UUID;
+
+/**
+ * Разбор идентификаторов в канонической записи UUID (36 символов, нижний регистр) без
+ * промежуточных объектов. Только такая запись восстанавливается из двух long байт в байт.
+ */
+public final class CanonicalUuid {
+
+    private CanonicalUuid() {
+    }
+
+    public static boolean matches(String value) {
+        if (value == null || value.length() != 36) {
+            return false;
+        }
+        for (int i = 0; i < 36; i++) {
+            char c = value.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return false;
+                }
+            } else if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f'))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static long mostSignificantBits(String value) {
+        return parseHex(value, 0, 8) << 32 | parseHex(value, 9, 13) << 16 | parseHex(value, 14, 18);
+    }
+
+    public static long leastSignificantBits(String value) {
+        return parseHex(value, 19, 23) << 48 | parseHex(value, 24, 36);
+    }
+
+    public static String toString(long msb, long lsb) {
+        return new UUID(msb, lsb).toString();
+    }
+
+    private static long parseHex(String value, int from, int to) {
+        long result = 0;
+        for (int i = from; i < to; i++) {
+            char c = value.charAt(i);
+            result = (result << 4) | (c <= '9' ? c - '0' : c - 'a' + 10);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,299 @@
+package com.example.codec;
+
+import com.example.model.EventType;
+import com.example.model.Order;
+import com.example.model.OrderEvent;
+import com.example.model.Money;
+import com.example.model.OrderLines;
+import com.example.model.OrderStatus;
+import org.apache.kafka.common.errors.SerializationException;
+
+import java.time.Instant;
+
+/**
+ * Компактный бинарный формат {@link OrderEvent}.
+ * <p>
+ * Заголовок: магический байт {@link #MAGIC} и версия схемы. Версия 2 добавила статус и хеш
+ * содержимого "тонких" событий, версия 3 - суммы в минимальных единицах ({@link OrderLines}).
+ * Пишется только текущая версия, читаются все. Перечисления пишутся как ordinal + 1
+ * (0 - null), идентификаторы в каноническом виде UUID - 16 байтами, целые - varint/zigzag.
+ * JSON никогда не начинается с {@link #MAGIC}, поэтому десериализатор различает форматы по первому байту.
+ */
+public final class OrderEventBinaryCodec {
+
+    public static final byte MAGIC = 0x00;
+    public static final int SCHEMA_VERSION = 3;
+    private static final int SCHEMA_VERSION_SLIM = 2;
+
+    private static final int ID_NULL = 0;
+    private static final int ID_UUID = 1;
+    private static final int ID_STRING = 2;
+
+    // Позиция занимает не меньше трёх байт: тег идентификатора, количество и цена
+    private static final int MIN_LINE_BYTES = 3;
+
+    private static final EventType[] EVENT_TYPES = EventType.values();
+    private static final OrderStatus[] ORDER_STATUSES = OrderStatus.values();
+
+    private OrderEventBinaryCodec() {
+    }
+
+    public static boolean isBinary(byte[] data) {
+        return data != null && data.length > 1 && data[0] == MAGIC;
+    }
+
+    public static byte[] encode(OrderEvent event) {
+        Order order = event.getPayload();
+        int itemCount = order == null || order.getLines() == null ? 0 : order.getLines().size();
+        BinaryOutput out = new BinaryOutput(96 + itemCount * 32);
+
+        out.writeByte(MAGIC);
+        out.writeByte(SCHEMA_VERSION);
+        writeId(out, event.getEventId());
+        writeId(out, event.getOrderId());
+        writeEnum(out, event.getEventType());
+        writeInstant(out, event.getTimestamp());
+        writeEnum(out, event.getStatus());
+        writeNullableLong(out, event.getContentHash());
+
+        if (order == null) {
+            out.writeByte(0);
+        } else {
+            out.writeByte(1);
+            writeOrder(out, order);
+        }
+        return out.toByteArray();
+    }
+
+    public static OrderEvent decode(byte[] data) {
+        if (!isBinary(data)) {
+            throw new SerializationException("Not a binary OrderEvent");
+        }
+        int version = data[1] & 0xFF;
+        if (version < 1 || version > SCHEMA_VERSION) {
+            throw new SerializationException("Unsupported OrderEvent schema version: " + version);
+        }
+
+        BinaryInput in = new BinaryInput(data, 2);
+        OrderEvent event = new OrderEvent();
+        event.setEventId(readId(in));
+        event.setOrderId(readId(in));
+        event.setEventType(readEnum(in, EVENT_TYPES));
+        event.setTimestamp(readInstant(in));
+        if (version >= SCHEMA_VERSION_SLIM) {
+            event.setStatus(readEnum(in, ORDER_STATUSES));
+            event.setContentHash(readNullableLong(in));
+        }
+        if (in.readByte() != 0) {
+            event.setPayload(version >= SCHEMA_VERSION ? readOrder(in) : readLegacyOrder(in));
+        }
+        return event;
+    }
+
+    /**
+     * Хеш неизменяемой части заказа (всё, кроме статуса): по нему событие находит
+     * в кеше именно ту версию тела, с которой было создано.
+     */
+    public static long contentHash(Order order) {
+        BinaryOutput out = new BinaryOutput(64);
+        writeOrderBody(out, order);
+        return out.hash64();
+    }
+
+    private static void writeOrder(BinaryOutput out, Order order) {
+        writeId(out, order.getId());
+        writeId(out, order.getCustomerId());
+        writeId(out, order.getCustomerEmail());
+        writeEnum(out, order.getStatus());
+        writeLinesAndTotal(out, order);
+    }
+
+    private static void writeOrderBody(BinaryOutput out, Order order) {
+        writeId(out, order.getId());
+        writeId(out, order.getCustomerId());
+        writeId(out, order.getCustomerEmail());
+        writeLinesAndTotal(out, order);
+    }
+
+    private static void writeLinesAndTotal(BinaryOutput out, Order order) {
+        writeId(out, order.getCurrency());
+        OrderLines lines = order.getLines();
+        if (lines == null) {
+            out.writeVarLong(0);
+        } else {
+            out.writeVarLong(lines.size() + 1L);
+            for (int i = 0; i < lines.size(); i++) {
+                writeId(out, lines.productId(i));
+                out.writeZigZagLong(lines.quantity(i));
+                out.writeZigZagLong(lines.unitPrice(i));
+            }
+        }
+        out.writeZigZagLong(order.getTotalMinor());
+    }
+
+    private static Order readOrder(BinaryInput in) {
+        Order order = new Order();
+        order.setId(readId(in));
+        order.setCustomerId(readId(in));
+        order.setCustomerEmail(readId(in));
+        order.setStatus(readEnum(in, ORDER_STATUSES));
+        String currency = readId(in);
+        int fractionDigits;
+        try {
+            fractionDigits = Money.fractionDigits(currency);
+        } catch (IllegalArgumentException e) {
+            throw new SerializationException(e.getMessage());
+        }
+        order.setCurrency(currency);
+
+        int lineCount = in.readVarInt();
+        if (lineCount > 0) {
+            // Цены записаны в минимальных единицах валюты заказа
+            OrderLines lines = new OrderLines(checkLineCount(in, lineCount - 1), fractionDigits);
+            for (int i = 1; i < lineCount; i++) {
+                String productId = readId(in);
+                int quantity = checkQuantity(in.readZigZagLong());
+                long price = in.readZigZagLong();
+                if (price < 0) {
+                    throw new SerializationException("Negative line price: " + price);
+                }
+                lines.add(productId, quantity, price);
+            }
+            order.setLines(lines);
+        }
+        order.setTotalMinor(in.readZigZagLong());
+        return order;
+    }
+
+    // Версии 1-2: количества и цены как nullable int/double
+    private static Order readLegacyOrder(BinaryInput in) {
+        Order order = new Order();
+        order.setId(readId(in));
+        order.setCustomerId(readId(in));
+        order.setCustomerEmail(readId(in));
+        order.setStatus(readEnum(in, ORDER_STATUSES));
+
+        int itemCount = in.readVarInt();
+        if (itemCount > 0) {
+            OrderLines lines = new OrderLines(checkLineCount(in, itemCount - 1));
+            for (int i = 1; i < itemCount; i++) {
+                String productId = readId(in);
+                Integer quantity = readNullableInt(in);
+                Double price = readNullableDouble(in);
+                lines.add(productId, quantity == null ? 0 : quantity, price == null ? 0 : toMinor(price));
+            }
+            order.setLines(lines);
+        }
+        Double totalAmount = readNullableDouble(in);
+        order.setTotalMinor(totalAmount == null ? 0 : toMinor(totalAmount));
+        return order;
+    }
+
+    // Счётчик из повреждённой записи не должен выделять память сверх того, что есть во входе
+    private static int checkLineCount(BinaryInput in, int count) {
+        if (count > in.remaining() / MIN_LINE_BYTES) {
+            throw new SerializationException("Line count " + count + " exceeds the remaining "
+                    + in.remaining() + " bytes");
+        }
+        return count;
+    }
+
+    private static int checkQuantity(long quantity) {
+        if (quantity < 0 || quantity > Integer.MAX_VALUE) {
+            throw new SerializationException("Invalid line quantity: " + quantity);
+        }
+        return (int) quantity;
+    }
+
+    // В версиях 1-2 валюты не было: все суммы в валюте по умолчанию
+    private static long toMinor(double amount) {
+        try {
+            return Money.toMinor(amount, Money.DEFAULT_CURRENCY);
+        } catch (IllegalArgumentException e) {
+            throw new SerializationException(e.getMessage());
+        }
+    }
+
+    private static void writeId(BinaryOutput out, String value) {
+        if (value == null) {
+            out.writeByte(ID_NULL);
+        } else if (CanonicalUuid.matches(value)) {
+            out.writeByte(ID_UUID);
+            out.writeLong(CanonicalUuid.mostSignificantBits(value));
+            out.writeLong(CanonicalUuid.leastSignificantBits(value));
+        } else {
+            out.writeByte(ID_STRING);
+            out.writeUtf8(value);
+        }
+    }
+
+    private static String readId(BinaryInput in) {
+        int tag = in.readByte();
+        switch (tag) {
+            case ID_NULL:
+                return null;
+            case ID_UUID:
+                return CanonicalUuid.toString(in.readLong(), in.readLong());
+            case ID_STRING:
+                return in.readUtf8();
+            default:
+                throw new SerializationException("Unknown identifier tag: " + tag);
+        }
+    }
+
+    private static void writeEnum(BinaryOutput out, Enum<?> value) {
+        out.writeVarLong(value == null ? 0 : value.ordinal() + 1L);
+    }
+
+    private static <E extends Enum<E>> E readEnum(BinaryInput in, E[] values) {
+        int code = in.readVarInt();
+        if (code == 0) {
+            return null;
+        }
+        // Отрицательный код readVarInt сейчас не пропускает, но индекс в массив проверяется здесь целиком
+        if (code < 0 || code > values.length) {
+            throw new SerializationException("Unknown " + values[0].getDeclaringClass().getSimpleName()
+                    + " ordinal: " + (code - 1));
+        }
+        return values[code - 1];
+    }
+
+    private static void writeInstant(BinaryOutput out, Instant value) {
+        if (value == null) {
+            out.writeByte(0);
+        } else {
+            out.writeByte(1);
+            out.writeZigZagLong(value.getEpochSecond());
+            out.writeVarLong(value.getNano());
+        }
+    }
+
+    private static Instant readInstant(BinaryInput in) {
+        if (in.readByte() == 0) {
+            return null;
+        }
+        long seconds = in.readZigZagLong();
+        return Instant.ofEpochSecond(seconds, in.readVarInt());
+    }
+
+    private static Integer readNullableInt(BinaryInput in) {
+        return in.readByte() == 0 ? null : checkQuantity(in.readZigZagLong());
+    }
+
+    private static void writeNullableLong(BinaryOutput out, Long value) {
+        if (value == null) {
+            out.writeByte(0);
+        } else {
+            out.writeByte(1);
+            out.writeLong(value);
+        }
+    }
+
+    private static Long readNullableLong(BinaryInput in) {
+        return in.readByte() == 0 ? null : in.readLong();
+    }
+
+    private static Double readNullableDouble(BinaryInput in) {
+        return in.readByte() == 0 ? null : in.readDouble();
+    }
+}
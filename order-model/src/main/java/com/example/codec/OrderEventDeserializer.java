@@ -0,0 +1,49 @@
+package com.example.codec;
+
+import com.example.model.OrderEvent;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Десериализатор {@link OrderEvent}, понимающий оба формата.
+ * <p>
+ * Бинарные сообщения распознаются по магическому байту, остальные отдаются {@link JsonDeserializer}.
+ * Это позволяет сначала раскатить консьюмеры, а затем переключать продюсеры на {@code binary}.
+ */
+public class OrderEventDeserializer implements Deserializer<OrderEvent> {
+
+    private final JsonDeserializer<OrderEvent> jsonDeserializer = new JsonDeserializer<>();
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        Map<String, Object> jsonConfigs = new HashMap<>(configs);
+        jsonConfigs.putIfAbsent(JsonDeserializer.TRUSTED_PACKAGES, "com.example.model");
+        jsonConfigs.putIfAbsent(JsonDeserializer.VALUE_DEFAULT_TYPE, OrderEvent.class);
+        jsonDeserializer.configure(jsonConfigs, isKey);
+    }
+
+    @Override
+    public OrderEvent deserialize(String topic, byte[] data) {
+        if (OrderEventBinaryCodec.isBinary(data)) {
+            return OrderEventBinaryCodec.decode(data);
+        }
+        return jsonDeserializer.deserialize(topic, data);
+    }
+
+    @Override
+    public OrderEvent deserialize(String topic, Headers headers, byte[] data) {
+        if (OrderEventBinaryCodec.isBinary(data)) {
+            return OrderEventBinaryCodec.decode(data);
+        }
+        return jsonDeserializer.deserialize(topic, headers, data);
+    }
+
+    @Override
+    public void close() {
+        jsonDeserializer.close();
+    }
+}
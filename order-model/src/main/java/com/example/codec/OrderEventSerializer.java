@@ -0,0 +1,51 @@
+package com.example.codec;
+
+import com.example.model.OrderEvent;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.util.Map;
+
+/**
+ * Сериализатор значений для топиков заказов.
+ * <p>
+ * Формат выбирается свойством {@link #WIRE_FORMAT_CONFIG} ({@code json} или {@code binary}).
+ * В режиме {@code binary} {@link OrderEvent} пишется через {@link OrderEventBinaryCodec},
+ * всё остальное (и весь трафик в режиме {@code json}) - через Spring {@link JsonSerializer}.
+ */
+public class OrderEventSerializer implements Serializer<Object> {
+
+    public static final String WIRE_FORMAT_CONFIG = "order.event.wire-format";
+
+    private final JsonSerializer<Object> jsonSerializer = new JsonSerializer<>();
+
+    private WireFormat wireFormat = WireFormat.JSON;
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        this.wireFormat = WireFormat.from(configs.get(WIRE_FORMAT_CONFIG));
+        jsonSerializer.configure(configs, isKey);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Object data) {
+        if (data instanceof OrderEvent && wireFormat == WireFormat.BINARY) {
+            return OrderEventBinaryCodec.encode((OrderEvent) data);
+        }
+        return jsonSerializer.serialize(topic, data);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, Object data) {
+        if (data instanceof OrderEvent && wireFormat == WireFormat.BINARY) {
+            return OrderEventBinaryCodec.encode((OrderEvent) data);
+        }
+        return jsonSerializer.serialize(topic, headers, data);
+    }
+
+    @Override
+    public void close() {
+        jsonSerializer.close();
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.codec;
+
+import java.util.Locale;
+
+public enum WireFormat {
+    JSON, BINARY;
+
+    public static WireFormat from(Object value) {
+        if (value == null) {
+            return JSON;
+        }
+        if (value instanceof WireFormat) {
+            return (WireFormat) value;
+        }
+        return WireFormat.valueOf(value.toString().trim().toUpperCase(Locale.ROOT));
+    }
+}
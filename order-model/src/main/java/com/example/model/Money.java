@@ -0,0 +1,89 @@
+package com.example.model;
+
+import java.util.Currency;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Денежные суммы в целых минимальных единицах валюты: число знаков после запятой берётся из
+ * ISO 4217 ({@link Currency#getDefaultFractionDigits()}): у RUB два, у JPY ноль, у KWD три.
+ * Дробные значения из JSON переводятся сюда один раз на входе, дальше вся арифметика - в long.
+ */
+public final class Money {
+
+    public static final String DEFAULT_CURRENCY = "RUB";
+
+    // Больше всего знаков у расчётных единиц вроде CLF и UYW; с такой точностью суммы
+    // читаются, пока валюта заказа ещё не известна
+    public static final int MAX_FRACTION_DIGITS = 4;
+
+    private static final long[] POWERS_OF_TEN = {1, 10, 100, 1_000, 10_000};
+
+    // 2^63: первое double, которое Math.round уже обрезал бы до Long.MAX_VALUE
+    private static final double MAX_MINOR_EXCLUSIVE = 0x1p63;
+
+    private static final Map<String, Integer> FRACTION_DIGITS = new ConcurrentHashMap<>();
+
+    private Money() {
+    }
+
+    /**
+     * Знаков после запятой у валюты; {@code null} - валюта по умолчанию. Неизвестный код -
+     * ошибка, а не молча выбранный масштаб.
+     */
+    public static int fractionDigits(String currency) {
+        String code = currency == null ? DEFAULT_CURRENCY : currency;
+        Integer digits = FRACTION_DIGITS.get(code);
+        if (digits == null) {
+            digits = FRACTION_DIGITS.computeIfAbsent(code, Money::lookupFractionDigits);
+        }
+        return digits;
+    }
+
+    /**
+     * Суммы заказов не бывают отрицательными; значение, не помещающееся в long, - ошибка,
+     * а не молча обрезанная сумма.
+     */
+    public static long toMinor(double amount, int fractionDigits) {
+        double scaled = amount * POWERS_OF_TEN[fractionDigits];
+        if (!(scaled >= 0) || scaled >= MAX_MINOR_EXCLUSIVE) {
+            throw new IllegalArgumentException("Invalid amount: " + amount);
+        }
+        return Math.round(scaled);
+    }
+
+    public static long toMinor(double amount, String currency) {
+        return toMinor(amount, fractionDigits(currency));
+    }
+
+    public static double toMajor(long minor, int fractionDigits) {
+        return (double) minor / POWERS_OF_TEN[fractionDigits];
+    }
+
+    public static double toMajor(long minor, String currency) {
+        return toMajor(minor, fractionDigits(currency));
+    }
+
+    /**
+     * Перевод суммы между масштабами; лишние знаки округляются половиной вверх, как в
+     * {@link #toMinor}, переполнение - {@link ArithmeticException}.
+     */
+    public static long rescale(long minor, int fromDigits, int toDigits) {
+        if (toDigits >= fromDigits) {
+            return Math.multiplyExact(minor, POWERS_OF_TEN[toDigits - fromDigits]);
+        }
+        long divisor = POWERS_OF_TEN[fromDigits - toDigits];
+        return minor / divisor + (minor % divisor * 2 >= divisor ? 1 : 0);
+    }
+
+    private static int lookupFractionDigits(String code) {
+        int digits;
+        try {
+            digits = Currency.getInstance(code).getDefaultFractionDigits();
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown currency: " + code);
+        }
+        // -1 у единиц без дробной части (XAU, XDR) - считаем целыми
+        return Math.max(0, Math.min(digits, MAX_FRACTION_DIGITS));
+    }
+}
@@ -1,5 +1,10 @@
 package com.example.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
 import java.util.List;
 import java.util.UUID;
 
@@ -8,8 +13,14 @@ public class Order {
     private String customerId;
     private String customerEmail;
     private OrderStatus status;
-    private List<OrderItem> items;
-    private Double totalAmount;
+    // Позиции и суммы хранятся в примитивах; items/totalAmount - прежнее представление для API.
+    // В JSON суммы могут прийти раньше валюты, поэтому они хранятся в своём масштабе и
+    // приводятся к масштабу валюты при чтении
+    private OrderLines lines;
+    private volatile OrderLines scaledLines;
+    private String currency = Money.DEFAULT_CURRENCY;
+    private long totalMinor;
+    private int totalDigits = Money.fractionDigits(Money.DEFAULT_CURRENCY);
 
     public Order() {
         this.id = UUID.randomUUID().toString();
@@ -49,19 +60,67 @@ public class Order {
         this.status = status;
     }
 
+    @JsonProperty("items")
+    @JsonSerialize(using = OrderLinesJson.Serializer.class)
+    public OrderLines getLines() {
+        OrderLines scaled = scaledLines;
+        if (scaled == null && lines != null) {
+            scaled = lines.rescaled(Money.fractionDigits(currency));
+            scaledLines = scaled;
+        }
+        return scaled;
+    }
+
+    @JsonProperty("items")
+    @JsonDeserialize(using = OrderLinesJson.Deserializer.class)
+    public void setLines(OrderLines lines) {
+        this.lines = lines;
+        this.scaledLines = null;
+    }
+
+    // Копия позиций в виде объектов; в горячем коде использовать getLines()
+    @JsonIgnore
     public List<OrderItem> getItems() {
-        return items;
+        OrderLines scaled = getLines();
+        return scaled == null ? null : scaled.toItems();
     }
 
+    @JsonIgnore
     public void setItems(List<OrderItem> items) {
-        this.items = items;
+        setLines(items == null ? null : OrderLines.fromItems(items));
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    // Неизвестный код отклоняется сразу: масштаб сумм заказа зависит от валюты
+    public void setCurrency(String currency) {
+        Money.fractionDigits(currency);
+        this.currency = currency;
+        this.scaledLines = null;
+    }
+
+    /**
+     * Сумма в минимальных единицах валюты заказа.
+     */
+    @JsonIgnore
+    public long getTotalMinor() {
+        return Money.rescale(totalMinor, totalDigits, Money.fractionDigits(currency));
+    }
+
+    @JsonIgnore
+    public void setTotalMinor(long totalMinor) {
+        this.totalMinor = totalMinor;
+        this.totalDigits = Money.fractionDigits(currency);
     }
 
     public Double getTotalAmount() {
-        return totalAmount;
+        return Money.toMajor(getTotalMinor(), currency);
     }
 
     public void setTotalAmount(Double totalAmount) {
-        this.totalAmount = totalAmount;
+        this.totalMinor = totalAmount == null ? 0 : Money.toMinor(totalAmount, Money.MAX_FRACTION_DIGITS);
+        this.totalDigits = Money.MAX_FRACTION_DIGITS;
     }
 }
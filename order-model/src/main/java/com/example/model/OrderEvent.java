@@ -1,5 +1,6 @@
 package com.example.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 
 import java.time.Instant;
@@ -9,8 +10,14 @@ public class OrderEvent {
     private String eventId;
     private String orderId;
     private EventType eventType;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
     private Order payload;
     private Instant timestamp;
+    // Заполняются только в "тонких" событиях без payload: тело заказа берётся из order_snapshots
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private OrderStatus status;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long contentHash;
 
     public OrderEvent() {
         this.eventId = UUID.randomUUID().toString();
@@ -23,4 +30,11 @@ public class OrderEvent {
         this.eventType = eventType;
         this.payload = payload;
     }
+
+    public static OrderEvent slim(String orderId, EventType eventType, OrderStatus status, long contentHash) {
+        OrderEvent event = new OrderEvent(orderId, eventType, null);
+        event.setStatus(status);
+        event.setContentHash(contentHash);
+        return event;
+    }
 }
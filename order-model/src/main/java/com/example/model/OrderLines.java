@@ -0,0 +1,126 @@
+package com.example.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Позиции заказа в параллельных массивах примитивов: без объекта на позицию и без
+ * упакованных количеств и цен. Цены - в минимальных единицах ({@link Money}) с
+ * {@link #fractionDigits()} знаками; {@link Order} приводит их к масштабу своей валюты.
+ */
+public final class OrderLines {
+
+    static final int DEFAULT_CAPACITY = 4;
+
+    private String[] productIds;
+    private int[] quantities;
+    private long[] unitPrices;
+    private int size;
+    private int fractionDigits;
+
+    public OrderLines() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public OrderLines(int capacity) {
+        this(capacity, Money.fractionDigits(Money.DEFAULT_CURRENCY));
+    }
+
+    public OrderLines(int capacity, int fractionDigits) {
+        this.fractionDigits = fractionDigits;
+        int initial = Math.max(1, capacity);
+        productIds = new String[initial];
+        quantities = new int[initial];
+        unitPrices = new long[initial];
+    }
+
+    public void add(String productId, int quantity, long unitPriceMinor) {
+        if (quantity < 0 || unitPriceMinor < 0) {
+            throw new IllegalArgumentException("Negative quantity or price in line " + productId
+                    + ": " + quantity + " x " + unitPriceMinor);
+        }
+        if (size == productIds.length) {
+            int grown = size << 1;
+            productIds = Arrays.copyOf(productIds, grown);
+            quantities = Arrays.copyOf(quantities, grown);
+            unitPrices = Arrays.copyOf(unitPrices, grown);
+        }
+        productIds[size] = productId;
+        quantities[size] = quantity;
+        unitPrices[size] = unitPriceMinor;
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public String productId(int index) {
+        return productIds[checkIndex(index)];
+    }
+
+    public int quantity(int index) {
+        return quantities[checkIndex(index)];
+    }
+
+    public long unitPrice(int index) {
+        return unitPrices[checkIndex(index)];
+    }
+
+    public int fractionDigits() {
+        return fractionDigits;
+    }
+
+    /**
+     * Те же позиции с ценами в другом масштабе; исходные не меняются, поэтому их можно
+     * читать из разных потоков. При совпадении масштаба возвращается этот же объект.
+     */
+    public OrderLines rescaled(int toDigits) {
+        if (toDigits == fractionDigits) {
+            return this;
+        }
+        OrderLines rescaled = new OrderLines(size, toDigits);
+        for (int i = 0; i < size; i++) {
+            rescaled.add(productIds[i], quantities[i], Money.rescale(unitPrices[i], fractionDigits, toDigits));
+        }
+        return rescaled;
+    }
+
+    /**
+     * Сумма позиций в минимальных единицах; переполнение - ошибка, а не неверная сумма.
+     */
+    public long totalMinor() {
+        long total = 0;
+        for (int i = 0; i < size; i++) {
+            total = Math.addExact(total, Math.multiplyExact(unitPrices[i], (long) quantities[i]));
+        }
+        return total;
+    }
+
+    // Отсутствующие количество и цена старой модели становятся нулями; валюта ещё не известна
+    public static OrderLines fromItems(List<OrderItem> items) {
+        OrderLines lines = new OrderLines(items.size(), Money.MAX_FRACTION_DIGITS);
+        for (OrderItem item : items) {
+            lines.add(item.getProductId(),
+                    item.getQuantity() == null ? 0 : item.getQuantity(),
+                    item.getPrice() == null ? 0 : Money.toMinor(item.getPrice(), Money.MAX_FRACTION_DIGITS));
+        }
+        return lines;
+    }
+
+    public List<OrderItem> toItems() {
+        List<OrderItem> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            items.add(new OrderItem(productIds[i], quantities[i], Money.toMajor(unitPrices[i], fractionDigits)));
+        }
+        return items;
+    }
+
+    private int checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Line " + index + " of " + size);
+        }
+        return index;
+    }
+}
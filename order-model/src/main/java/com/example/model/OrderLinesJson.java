@@ -0,0 +1,105 @@
+package com.example.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+import java.io.IOException;
+
+/**
+ * JSON-представление {@link OrderLines} в прежнем формате
+ * {@code [{"productId": "...", "quantity": 2, "price": 9.99}]} без промежуточных {@link OrderItem}.
+ */
+public final class OrderLinesJson {
+
+    private OrderLinesJson() {
+    }
+
+    public static class Serializer extends JsonSerializer<OrderLines> {
+
+        @Override
+        public void serialize(OrderLines lines, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartArray();
+            for (int i = 0; i < lines.size(); i++) {
+                gen.writeStartObject();
+                gen.writeStringField("productId", lines.productId(i));
+                gen.writeNumberField("quantity", lines.quantity(i));
+                gen.writeNumberField("price", Money.toMajor(lines.unitPrice(i), lines.fractionDigits()));
+                gen.writeEndObject();
+            }
+            gen.writeEndArray();
+        }
+    }
+
+    public static class Deserializer extends JsonDeserializer<OrderLines> {
+
+        @Override
+        public OrderLines deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (!p.isExpectedStartArrayToken()) {
+                return (OrderLines) ctxt.handleUnexpectedToken(OrderLines.class, p);
+            }
+            // Валюта заказа может идти в JSON после позиций: цены читаются с наибольшей
+            // точностью, к масштабу валюты их приводит Order
+            OrderLines lines = new OrderLines(OrderLines.DEFAULT_CAPACITY, Money.MAX_FRACTION_DIGITS);
+            JsonToken token;
+            while ((token = p.nextToken()) != JsonToken.END_ARRAY) {
+                if (token != JsonToken.START_OBJECT) {
+                    return (OrderLines) ctxt.handleUnexpectedToken(OrderLines.class, p);
+                }
+                String productId = null;
+                int quantity = 0;
+                long price = 0;
+                String field;
+                while ((field = p.nextFieldName()) != null) {
+                    JsonToken value = p.nextToken();
+                    if (value == JsonToken.VALUE_NULL) {
+                        continue;
+                    }
+                    switch (field) {
+                        case "productId":
+                            productId = p.getValueAsString();
+                            break;
+                        case "quantity":
+                            quantity = quantity(p);
+                            break;
+                        case "price":
+                            price = toMinor(p);
+                            break;
+                        default:
+                            p.skipChildren();
+                            break;
+                    }
+                }
+                if (quantity < 0) {
+                    throw JsonMappingException.from(p, "Negative quantity in line " + productId + ": " + quantity);
+                }
+                lines.add(productId, quantity, price);
+            }
+            return lines;
+        }
+
+        // getValueAsInt молча обрезал бы количество, не помещающееся в int
+        private static int quantity(JsonParser p) throws IOException {
+            if (p.currentToken() != JsonToken.VALUE_NUMBER_INT) {
+                throw JsonMappingException.from(p, "Quantity must be an integer: " + p.getText());
+            }
+            if (p.getNumberType() != JsonParser.NumberType.INT) {
+                throw JsonMappingException.from(p, "Quantity out of range: " + p.getText());
+            }
+            return p.getIntValue();
+        }
+
+        private static long toMinor(JsonParser p) throws IOException {
+            try {
+                return Money.toMinor(p.getValueAsDouble(), Money.MAX_FRACTION_DIGITS);
+            } catch (IllegalArgumentException e) {
+                throw JsonMappingException.from(p, e.getMessage(), e);
+            }
+        }
+    }
+}
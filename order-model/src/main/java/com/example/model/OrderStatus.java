@@ -2,6 +2,49 @@ package com.example.model;
 
 public enum OrderStatus {
     CREATED, PAYMENT_PENDING, PAYMENT_COMPLETED,
-    PAYMENT_FAILED, SHIPPED, DELIVERED, CANCELLED
+    PAYMENT_FAILED, SHIPPED, DELIVERED, CANCELLED;
 
+    private static final OrderStatus[] VALUES = values();
+
+    // ALLOWED[from][to]: переход разрешён. События приходят из разных топиков в любом порядке,
+    // поэтому промежуточные шаги можно пропускать - таблица замкнута по транзитивности
+    private static final boolean[][] ALLOWED = new boolean[VALUES.length][VALUES.length];
+
+    static {
+        allow(CREATED, PAYMENT_PENDING, PAYMENT_COMPLETED, PAYMENT_FAILED, CANCELLED);
+        allow(PAYMENT_PENDING, PAYMENT_COMPLETED, PAYMENT_FAILED, CANCELLED);
+        allow(PAYMENT_COMPLETED, SHIPPED, CANCELLED);
+        allow(SHIPPED, DELIVERED);
+        for (int via = 0; via < VALUES.length; via++) {
+            for (int from = 0; from < VALUES.length; from++) {
+                if (ALLOWED[from][via]) {
+                    for (int to = 0; to < VALUES.length; to++) {
+                        ALLOWED[from][to] |= ALLOWED[via][to];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Пайплайн по заказу закончен: новых событий, которым нужно тело заказа, не будет.
+     */
+    public boolean isTerminal() {
+        return this == PAYMENT_FAILED || this == SHIPPED || this == DELIVERED || this == CANCELLED;
+    }
+
+    /**
+     * Может ли заказ перейти из этого статуса в {@code next} по жизненному циклу. Порядок
+     * объявления тут ни при чём: после PAYMENT_COMPLETED не бывает PAYMENT_FAILED, а после
+     * отмены - вообще ничего.
+     */
+    public boolean canAdvanceTo(OrderStatus next) {
+        return ALLOWED[ordinal()][next.ordinal()];
+    }
+
+    private static void allow(OrderStatus from, OrderStatus... to) {
+        for (OrderStatus status : to) {
+            ALLOWED[from.ordinal()][status.ordinal()] = true;
+        }
+    }
 }
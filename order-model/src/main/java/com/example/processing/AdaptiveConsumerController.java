@@ -0,0 +1,262 @@
+package com.example.processing;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.Metric;
+import org.apache.kafka.common.MetricName;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Подстройка max.poll.records и числа потоков листенера под нагрузку.
+ * <p>
+ * Раз в {@code interval} controller берёт из {@link BatchTimings} время обработки записи
+ * и загрузку потоков, а из метрик консьюмеров - суммарный lag группы:
+ * <ul>
+ *     <li>max.poll.records - сколько записей обрабатывается за {@code targetBatchTime};
+ *     меняется, только если расходится с текущим больше чем вдвое;</li>
+ *     <li>потоков становится больше, если lag выше {@code targetLag}, не уменьшается и потоки
+ *     заняты, и меньше - если lag ниже четверти цели, а потоки простаивают.</li>
+ * </ul>
+ * Оба параметра читаются консьюмером только при создании, поэтому изменение применяется
+ * перезапуском контейнера (с ребалансом) и не чаще раза в {@code cooldown}. Состояние паузы
+ * контейнера при перезапуске сохраняется.
+ */
+@Slf4j
+public class AdaptiveConsumerController implements SmartLifecycle {
+
+    private static final int DECISION_HISTORY = 32;
+    private static final double BUSY_UTILIZATION = 0.7;
+    private static final double IDLE_UTILIZATION = 0.3;
+
+    private final KafkaListenerEndpointRegistry registry;
+    private final String listenerId;
+    private final BatchTimings<?, ?> timings;
+    private final boolean enabled;
+    private final Limits limits;
+
+    private final Deque<Decision> decisions = new ArrayDeque<>();
+    private ScheduledExecutorService scheduler;
+    private volatile boolean running;
+
+    private double recordNanos = Double.NaN;
+    private long previousLag = -1;
+    private long lastChangeNanos = System.nanoTime();
+    private long lastTickNanos = System.nanoTime();
+
+    public AdaptiveConsumerController(KafkaListenerEndpointRegistry registry, String listenerId,
+                                      BatchTimings<?, ?> timings, boolean enabled, Limits limits) {
+        this.registry = registry;
+        this.listenerId = listenerId;
+        this.timings = timings;
+        this.enabled = enabled;
+        this.limits = limits;
+    }
+
+    // Выключенный controller не запускается, но текущие параметры листенера по-прежнему отдаёт
+    @Override
+    public boolean isAutoStartup() {
+        return enabled;
+    }
+
+    @Override
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(
+                ListenerExecutors.namedDaemonThreads("consumer-tuning-" + listenerId));
+        long interval = limits.getInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::tickSafely, interval, interval, TimeUnit.MILLISECONDS);
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    public synchronized Map<String, Object> state() {
+        Map<String, Object> state = new LinkedHashMap<>();
+        ConcurrentMessageListenerContainer<?, ?> container = container();
+        if (container != null) {
+            state.put("maxPollRecords", maxPollRecords(container));
+            state.put("concurrency", container.getConcurrency());
+        }
+        state.put("enabled", enabled);
+        state.put("lag", previousLag);
+        state.put("recordMillis", Double.isNaN(recordNanos) ? null : recordNanos / 1_000_000);
+        state.put("limits", limits);
+        state.put("decisions", new ArrayList<>(decisions));
+        return state;
+    }
+
+    private void tickSafely() {
+        try {
+            tick();
+        } catch (RuntimeException e) {
+            log.error("Consumer tuning for '{}' failed: {}", listenerId, e.getMessage(), e);
+        }
+    }
+
+    synchronized void tick() {
+        ConcurrentMessageListenerContainer<?, ?> container = container();
+        if (container == null || !container.isRunning()) {
+            return;
+        }
+        long now = System.nanoTime();
+        long elapsed = now - lastTickNanos;
+        lastTickNanos = now;
+
+        BatchTimings.Sample sample = timings.drain(container.getGroupId());
+        if (sample.getRecords() > 0) {
+            double observed = (double) sample.getBusyNanos() / sample.getRecords();
+            recordNanos = Double.isNaN(recordNanos) ? observed : 0.5 * recordNanos + 0.5 * observed;
+        }
+        int concurrency = container.getConcurrency();
+        double utilization = (double) sample.getBusyNanos() / Math.max(1, elapsed * concurrency);
+        long lag = lag(container);
+        long lagBefore = previousLag;
+        previousLag = lag;
+
+        int pollRecords = maxPollRecords(container);
+        int targetRecords = pollRecords;
+        if (!Double.isNaN(recordNanos)) {
+            long fit = (long) (limits.getTargetBatchTime().toNanos() / Math.max(1.0, recordNanos));
+            int bounded = (int) Math.max(limits.getMinPollRecords(), Math.min(limits.getMaxPollRecords(), fit));
+            // Гистерезис: мелкие колебания не стоят ребаланса
+            if (bounded >= pollRecords * 2 || bounded * 2 <= pollRecords) {
+                targetRecords = bounded;
+            }
+        }
+
+        int targetConcurrency = concurrency;
+        String reason = "within target";
+        if (lag > limits.getTargetLag() && lag >= lagBefore && utilization >= BUSY_UTILIZATION) {
+            targetConcurrency = Math.min(limits.getMaxConcurrency(), concurrency + 1);
+            reason = "lag above target and growing";
+        } else if (lag >= 0 && lag < limits.getTargetLag() / 4 && utilization < IDLE_UTILIZATION) {
+            targetConcurrency = Math.max(limits.getMinConcurrency(), concurrency - 1);
+            reason = "lag well below target, threads idle";
+        } else if (lag > limits.getTargetLag()) {
+            reason = "lag above target, threads not saturated";
+        }
+        if (targetRecords != pollRecords) {
+            reason += "; batch time off target";
+        }
+
+        String action = "hold";
+        if (targetRecords != pollRecords || targetConcurrency != concurrency) {
+            if (now - lastChangeNanos < limits.getCooldown().toNanos()) {
+                action = "cooldown";
+            } else {
+                apply(container, targetRecords, targetConcurrency);
+                lastChangeNanos = now;
+                action = "applied";
+            }
+        }
+        remember(new Decision(Instant.now(), action, reason, lag, utilization,
+                Double.isNaN(recordNanos) ? 0 : recordNanos / 1_000_000,
+                pollRecords, targetRecords, concurrency, targetConcurrency));
+    }
+
+    private void apply(ConcurrentMessageListenerContainer<?, ?> container, int pollRecords, int concurrency) {
+        log.info("Retuning listener '{}': max.poll.records {} -> {}, concurrency {} -> {}", listenerId,
+                maxPollRecords(container), pollRecords, container.getConcurrency(), concurrency);
+        boolean paused = container.isPauseRequested();
+        container.stop();
+        container.setConcurrency(concurrency);
+        Properties overrides = container.getContainerProperties().getKafkaConsumerProperties();
+        overrides.setProperty(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, Integer.toString(pollRecords));
+        container.start();
+        if (paused) {
+            container.pause();
+        }
+    }
+
+    private int maxPollRecords(ConcurrentMessageListenerContainer<?, ?> container) {
+        String override = container.getContainerProperties().getKafkaConsumerProperties()
+                .getProperty(ConsumerConfig.MAX_POLL_RECORDS_CONFIG);
+        return override != null ? Integer.parseInt(override) : limits.getInitialPollRecords();
+    }
+
+    // Сумма records-lag по партициям всех потоков; -1, пока консьюмеры не получили данных
+    private static long lag(ConcurrentMessageListenerContainer<?, ?> container) {
+        double total = 0;
+        boolean seen = false;
+        for (Map<MetricName, ? extends Metric> metrics : container.metrics().values()) {
+            for (Map.Entry<MetricName, ? extends Metric> metric : metrics.entrySet()) {
+                MetricName name = metric.getKey();
+                if ("records-lag".equals(name.name()) && name.tags().containsKey("partition")) {
+                    Object value = metric.getValue().metricValue();
+                    if (value instanceof Double && !((Double) value).isNaN()) {
+                        total += (Double) value;
+                        seen = true;
+                    }
+                }
+            }
+        }
+        return seen ? (long) total : -1;
+    }
+
+    private ConcurrentMessageListenerContainer<?, ?> container() {
+        MessageListenerContainer container = registry.getListenerContainer(listenerId);
+        return container instanceof ConcurrentMessageListenerContainer
+                ? (ConcurrentMessageListenerContainer<?, ?>) container : null;
+    }
+
+    private void remember(Decision decision) {
+        decisions.addLast(decision);
+        while (decisions.size() > DECISION_HISTORY) {
+            decisions.pollFirst();
+        }
+        log.debug("Consumer tuning '{}': {}", listenerId, decision);
+    }
+
+    @Value
+    public static class Limits {
+        int initialPollRecords;
+        int minPollRecords;
+        int maxPollRecords;
+        int minConcurrency;
+        int maxConcurrency;
+        long targetLag;
+        Duration targetBatchTime;
+        Duration interval;
+        Duration cooldown;
+    }
+
+    @Value
+    public static class Decision {
+        Instant at;
+        String action;
+        String reason;
+        long lag;
+        double utilization;
+        double recordMillis;
+        int pollRecords;
+        int targetPollRecords;
+        int concurrency;
+        int targetConcurrency;
+    }
+}
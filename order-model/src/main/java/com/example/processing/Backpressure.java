@@ -0,0 +1,22 @@
+package com.example.processing;
+
+/**
+ * Приостановка и возобновление приёма событий листенером: при переполненной очереди каналов
+ * уведомлений, при разомкнутой цепи платёжного шлюза.
+ */
+public interface Backpressure {
+
+    Backpressure NONE = new Backpressure() {
+        @Override
+        public void pause() {
+        }
+
+        @Override
+        public void resume() {
+        }
+    };
+
+    void pause();
+
+    void resume();
+}
@@ -0,0 +1,18 @@
+package com.example.processing;
+
+/**
+ * Часть записей пачки не обработана; пачку нельзя подтверждать.
+ */
+public class BatchProcessingException extends RuntimeException {
+
+    private final int failedRecords;
+
+    public BatchProcessingException(int failedRecords, Throwable cause) {
+        super(failedRecords + " record(s) failed: " + cause.getMessage(), cause);
+        this.failedRecords = failedRecords;
+    }
+
+    public int getFailedRecords() {
+        return failedRecords;
+    }
+}
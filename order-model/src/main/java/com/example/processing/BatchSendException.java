@@ -0,0 +1,19 @@
+package com.example.processing;
+
+/**
+ * Не все исходящие записи пачки подтверждены брокером - пачку нельзя подтверждать,
+ * её нужно перечитать.
+ */
+public class BatchSendException extends RuntimeException {
+
+    private final int failedSends;
+
+    public BatchSendException(int failedSends, Throwable cause) {
+        super(failedSends + " send(s) not confirmed: " + (cause != null ? cause.getMessage() : "timeout"), cause);
+        this.failedSends = failedSends;
+    }
+
+    public int getFailedSends() {
+        return failedSends;
+    }
+}
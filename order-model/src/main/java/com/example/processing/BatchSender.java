@@ -0,0 +1,214 @@
+package com.example.processing;
+
+import com.example.transport.EventTransport;
+import com.example.transport.KafkaEventTransport;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.springframework.kafka.core.KafkaOperations;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Отправка исходящих событий в рамках одной poll-пачки.
+ * <p>
+ * Записи пачки копятся в продюсере (linger/batch.size), {@link Batch#complete()} один раз
+ * делает flush и ждёт подтверждения всех отправок. Неподтверждённые записи переотправляются
+ * до {@code maxAttempts} раз, после чего бросается {@link BatchSendException} - пачку
+ * нельзя подтверждать.
+ * <p>
+ * С транзакционным продюсером записи копятся в пачке и уходят в {@code complete()} из потока
+ * листенера: транзакция контейнера привязана к нему, а не к воркерам. Внутри неё повторов нет -
+ * ошибка откатывает транзакцию вместе со смещениями, и пачка перечитывается. Вне транзакции
+ * контейнера (листенеры повторов) пачка отправляется в собственной транзакции.
+ */
+@Slf4j
+public class BatchSender {
+
+    private final EventTransport transport;
+    // Только для транзакций; у транспорта в памяти их нет
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+    private final int maxAttempts;
+    private final Duration timeout;
+    private final boolean transactional;
+
+    public BatchSender(KafkaTemplate<String, Object> kafkaTemplate, int maxAttempts, Duration timeout) {
+        this(new KafkaEventTransport(kafkaTemplate), maxAttempts, timeout);
+    }
+
+    public BatchSender(EventTransport transport, int maxAttempts, Duration timeout) {
+        this.transport = transport;
+        this.kafkaTemplate = transport instanceof KafkaEventTransport
+                ? ((KafkaEventTransport) transport).getKafkaTemplate()
+                : null;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.timeout = timeout;
+        this.transactional = kafkaTemplate != null && kafkaTemplate.isTransactional();
+    }
+
+    public Batch newBatch() {
+        return new Batch();
+    }
+
+    public final class Batch {
+
+        // Пополняется из нескольких воркеров KeyOrderedBatchExecutor
+        private final Queue<PendingSend> pending = new ConcurrentLinkedQueue<>();
+
+        private Batch() {
+        }
+
+        public void send(String topic, String key, Object value) {
+            send(topic, key, value, null);
+        }
+
+        public void send(String topic, String key, Object value, Headers headers) {
+            PendingSend send = new PendingSend(topic, key, value, headers);
+            if (!transactional) {
+                send.future = send.sendVia(transport);
+            }
+            pending.add(send);
+        }
+
+        public int size() {
+            return pending.size();
+        }
+
+        public void complete() {
+            List<PendingSend> outstanding = new ArrayList<>(pending);
+            pending.clear();
+
+            if (transactional) {
+                completeInTransaction(outstanding);
+                return;
+            }
+
+            for (int attempt = 1; !outstanding.isEmpty(); attempt++) {
+                transport.flush();
+
+                long deadline = System.nanoTime() + timeout.toNanos();
+                List<PendingSend> failed = new ArrayList<>();
+                Throwable lastError = null;
+                for (PendingSend send : outstanding) {
+                    try {
+                        send.future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    } catch (ExecutionException e) {
+                        failed.add(send);
+                        lastError = e.getCause();
+                    } catch (TimeoutException e) {
+                        failed.add(send);
+                        lastError = e;
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new BatchSendException(outstanding.size(), e);
+                    }
+                }
+
+                if (failed.isEmpty()) {
+                    return;
+                }
+                if (attempt >= maxAttempts) {
+                    throw new BatchSendException(failed.size(), lastError);
+                }
+
+                log.warn("{} send(s) failed on attempt {}, resending: {}",
+                        failed.size(), attempt, lastError != null ? lastError.getMessage() : "timeout");
+                for (PendingSend send : failed) {
+                    send.future = send.sendVia(transport);
+                }
+                outstanding = failed;
+            }
+        }
+
+        private void completeInTransaction(List<PendingSend> outstanding) {
+            if (outstanding.isEmpty()) {
+                return;
+            }
+            if (kafkaTemplate.inTransaction()) {
+                sendAndAwait(kafkaTemplate, outstanding);
+                return;
+            }
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    kafkaTemplate.executeInTransaction(operations -> {
+                        sendAndAwait(operations, outstanding);
+                        return null;
+                    });
+                    return;
+                } catch (RuntimeException e) {
+                    if (attempt >= maxAttempts) {
+                        throw e instanceof BatchSendException ? e : new BatchSendException(outstanding.size(), e);
+                    }
+                    log.warn("Transaction with {} send(s) aborted on attempt {}, retrying: {}",
+                            outstanding.size(), attempt, e.getMessage());
+                }
+            }
+        }
+
+        private void sendAndAwait(KafkaOperations<String, Object> operations, List<PendingSend> outstanding) {
+            for (PendingSend send : outstanding) {
+                send.future = operations.send(send.toRecord());
+            }
+            operations.flush();
+
+            long deadline = System.nanoTime() + timeout.toNanos();
+            int failed = 0;
+            Throwable lastError = null;
+            for (PendingSend send : outstanding) {
+                try {
+                    send.future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                } catch (ExecutionException e) {
+                    failed++;
+                    lastError = e.getCause();
+                } catch (TimeoutException e) {
+                    failed++;
+                    lastError = e;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new BatchSendException(outstanding.size(), e);
+                }
+            }
+            if (failed > 0) {
+                throw new BatchSendException(failed, lastError);
+            }
+        }
+    }
+
+    private static final class PendingSend {
+        final String topic;
+        final String key;
+        final Object value;
+        final Headers headers;
+        CompletableFuture<?> future;
+
+        PendingSend(String topic, String key, Object value, Headers headers) {
+            this.topic = topic;
+            this.key = key;
+            this.value = value;
+            this.headers = headers;
+        }
+
+        CompletableFuture<?> sendVia(EventTransport transport) {
+            return transport.send(topic, key, value, headersCopy());
+        }
+
+        ProducerRecord<String, Object> toRecord() {
+            return new ProducerRecord<>(topic, null, key, value, headersCopy());
+        }
+
+        // Продюсер делает заголовки отправленной записи read-only, для повтора нужна новая копия
+        private Headers headersCopy() {
+            return headers != null ? new RecordHeaders(headers.toArray()) : new RecordHeaders();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.processing;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.springframework.kafka.listener.BatchInterceptor;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Время обработки poll-пачек по группам консьюмеров - входной сигнал для
+ * {@link AdaptiveConsumerController}. Ставится на фабрику контейнеров как {@link BatchInterceptor}.
+ */
+public class BatchTimings<K, V> implements BatchInterceptor<K, V> {
+
+    private final Map<String, Counters> groups = new ConcurrentHashMap<>();
+    private final ThreadLocal<long[]> startedAt = ThreadLocal.withInitial(() -> new long[1]);
+
+    @Override
+    public ConsumerRecords<K, V> intercept(ConsumerRecords<K, V> records, Consumer<K, V> consumer) {
+        startedAt.get()[0] = System.nanoTime();
+        return records;
+    }
+
+    @Override
+    public void success(ConsumerRecords<K, V> records, Consumer<K, V> consumer) {
+        record(records, consumer);
+    }
+
+    @Override
+    public void failure(ConsumerRecords<K, V> records, Exception exception, Consumer<K, V> consumer) {
+        record(records, consumer);
+    }
+
+    /**
+     * Накопленное с прошлого вызова; счётчики группы при этом обнуляются.
+     */
+    public Sample drain(String groupId) {
+        Counters counters = groups.get(groupId);
+        if (counters == null) {
+            return new Sample(0, 0, 0);
+        }
+        return new Sample(counters.batches.sumThenReset(), counters.records.sumThenReset(),
+                counters.busyNanos.sumThenReset());
+    }
+
+    private void record(ConsumerRecords<K, V> records, Consumer<K, V> consumer) {
+        long elapsed = System.nanoTime() - startedAt.get()[0];
+        Counters counters = groups.computeIfAbsent(consumer.groupMetadata().groupId(), group -> new Counters());
+        counters.batches.increment();
+        counters.records.add(records.count());
+        counters.busyNanos.add(elapsed);
+    }
+
+    private static final class Counters {
+        final LongAdder batches = new LongAdder();
+        final LongAdder records = new LongAdder();
+        final LongAdder busyNanos = new LongAdder();
+    }
+
+    public static final class Sample {
+
+        private final long batches;
+        private final long records;
+        private final long busyNanos;
+
+        Sample(long batches, long records, long busyNanos) {
+            this.batches = batches;
+            this.records = records;
+            this.busyNanos = busyNanos;
+        }
+
+        public long getBatches() {
+            return batches;
+        }
+
+        public long getRecords() {
+            return records;
+        }
+
+        public long getBusyNanos() {
+            return busyNanos;
+        }
+    }
+}
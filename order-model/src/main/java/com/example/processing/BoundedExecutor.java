@@ -0,0 +1,197 @@
+package com.example.processing;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Исполнитель с явными лимитами поверх {@link ListenerExecutors#newTaskExecutor}: не больше
+ * {@code maxConcurrency} задач выполняется и не больше {@code maxQueued} ждёт своей очереди.
+ * <p>
+ * На виртуальных потоках сами потоки ничего не стоят, и ограничивать приходится нагрузку на то,
+ * что за ними (соединения, память, внешние сервисы) - это делают семафоры. Задача сверх обоих
+ * лимитов обрабатывается по {@link Rejection}: отказ, выполнение в вызывающем потоке или ожидание
+ * места не дольше {@code blockTimeout}.
+ */
+@Slf4j
+public class BoundedExecutor implements Executor, AutoCloseable {
+
+    public enum Rejection {
+        ABORT, CALLER_RUNS, BLOCK;
+
+        public static Rejection parse(String value) {
+            return valueOf(value.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+        }
+    }
+
+    @Value
+    public static class Limits {
+        int maxConcurrency;
+        int maxQueued;
+        Rejection rejection;
+        Duration blockTimeout;
+    }
+
+    private final String name;
+    private final ExecutorService delegate;
+    private final Limits limits;
+
+    // Место в исполнителе: выполняемые плюс ожидающие задачи
+    private final Semaphore admitted;
+    private final Semaphore running;
+    private final Queue<Runnable> queue = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder callerRuns = new LongAdder();
+    private final LongAdder blocked = new LongAdder();
+
+    private volatile boolean closed;
+
+    public BoundedExecutor(String name, ExecutorService delegate, Limits limits) {
+        if (limits.getMaxConcurrency() <= 0 || limits.getMaxQueued() < 0) {
+            throw new IllegalArgumentException("Invalid limits for executor " + name + ": " + limits);
+        }
+        this.name = name;
+        this.delegate = delegate;
+        this.limits = limits;
+        this.admitted = new Semaphore(limits.getMaxConcurrency() + limits.getMaxQueued());
+        this.running = new Semaphore(limits.getMaxConcurrency());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (closed) {
+            rejected.increment();
+            throw new RejectedExecutionException("Executor " + name + " is closed");
+        }
+        if (!admitted.tryAcquire() && !admitOnOverflow(task)) {
+            return;
+        }
+        queued.incrementAndGet();
+        queue.add(task);
+        dispatch();
+    }
+
+    /**
+     * Ждёт, пока все принятые задачи завершатся.
+     */
+    public boolean awaitIdle(Duration timeout) throws InterruptedException {
+        int total = limits.getMaxConcurrency() + limits.getMaxQueued();
+        if (!admitted.tryAcquire(total, timeout.toNanos(), TimeUnit.NANOSECONDS)) {
+            return false;
+        }
+        admitted.release(total);
+        return true;
+    }
+
+    public void stats(String prefix, Map<String, Object> stats) {
+        stats.put(prefix + ".threads", ListenerExecutors.virtualThreadsAvailable() ? "virtual" : "platform");
+        stats.put(prefix + ".maxConcurrency", limits.getMaxConcurrency());
+        stats.put(prefix + ".maxQueued", limits.getMaxQueued());
+        stats.put(prefix + ".rejection", limits.getRejection());
+        stats.put(prefix + ".active", active.get());
+        stats.put(prefix + ".queued", queued.get());
+        stats.put(prefix + ".completed", completed.sum());
+        stats.put(prefix + ".failed", failed.sum());
+        stats.put(prefix + ".rejected", rejected.sum());
+        stats.put(prefix + ".callerRuns", callerRuns.sum());
+        stats.put(prefix + ".blocked", blocked.sum());
+    }
+
+    /**
+     * Перестаёт принимать задачи и даёт принятым до 30 секунд на завершение.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            if (!awaitIdle(Duration.ofSeconds(30))) {
+                log.warn("Executor '{}' closed with {} active and {} queued tasks", name, active.get(), queued.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        delegate.shutdownNow();
+    }
+
+    // true - место получено и задачу надо поставить в очередь
+    private boolean admitOnOverflow(Runnable task) {
+        switch (limits.getRejection()) {
+            case CALLER_RUNS:
+                callerRuns.increment();
+                task.run();
+                return false;
+            case BLOCK:
+                blocked.increment();
+                try {
+                    if (admitted.tryAcquire(limits.getBlockTimeout().toNanos(), TimeUnit.NANOSECONDS)) {
+                        return true;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                rejected.increment();
+                throw new RejectedExecutionException("Executor " + name + " saturated for " + limits.getBlockTimeout());
+            default:
+                rejected.increment();
+                throw new RejectedExecutionException("Executor " + name + " saturated: "
+                        + limits.getMaxConcurrency() + " active, " + limits.getMaxQueued() + " queued");
+        }
+    }
+
+    private void dispatch() {
+        while (!queue.isEmpty() && running.tryAcquire()) {
+            Runnable task = queue.poll();
+            if (task == null) {
+                running.release();
+                continue;
+            }
+            queued.decrementAndGet();
+            try {
+                delegate.execute(() -> run(task));
+            } catch (RejectedExecutionException e) {
+                // Делегат уже остановлен при закрытии
+                running.release();
+                admitted.release();
+                rejected.increment();
+                log.warn("Executor '{}' dropped a task: {}", name, e.getMessage());
+            }
+        }
+    }
+
+    private void run(Runnable task) {
+        active.incrementAndGet();
+        try {
+            task.run();
+            completed.increment();
+        } catch (RuntimeException | Error e) {
+            failed.increment();
+            throw e;
+        } finally {
+            active.decrementAndGet();
+            running.release();
+            admitted.release();
+            dispatch();
+        }
+    }
+}
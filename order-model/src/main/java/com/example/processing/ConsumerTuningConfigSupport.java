@@ -0,0 +1,60 @@
+package com.example.processing;
+
+import com.example.model.OrderEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+
+import java.time.Duration;
+
+/**
+ * Подстройка max.poll.records и числа потоков листенера по {@code kafka.consumer.adaptive.*}.
+ * Сервис наследует класс в своей {@code @Configuration} и передаёт id подстраиваемого листенера.
+ */
+public abstract class ConsumerTuningConfigSupport {
+
+    private final String listenerId;
+
+    @Value("${kafka.consumer.adaptive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${kafka.consumer.max-poll-records:10}")
+    private int initialPollRecords;
+
+    @Value("${kafka.consumer.adaptive.min-poll-records:1}")
+    private int minPollRecords;
+
+    @Value("${kafka.consumer.adaptive.max-poll-records:500}")
+    private int maxPollRecords;
+
+    @Value("${kafka.consumer.adaptive.min-concurrency:1}")
+    private int minConcurrency;
+
+    // Больше числа партиций смысла нет: лишние потоки останутся без назначения
+    @Value("${kafka.consumer.adaptive.max-concurrency:3}")
+    private int maxConcurrency;
+
+    @Value("${kafka.consumer.adaptive.target-lag:1000}")
+    private long targetLag;
+
+    @Value("${kafka.consumer.adaptive.target-batch-time:1s}")
+    private Duration targetBatchTime;
+
+    @Value("${kafka.consumer.adaptive.interval:15s}")
+    private Duration interval;
+
+    @Value("${kafka.consumer.adaptive.cooldown:2m}")
+    private Duration cooldown;
+
+    protected ConsumerTuningConfigSupport(String listenerId) {
+        this.listenerId = listenerId;
+    }
+
+    @Bean
+    public AdaptiveConsumerController adaptiveConsumerController(KafkaListenerEndpointRegistry registry,
+                                                                 BatchTimings<String, OrderEvent> batchTimings) {
+        return new AdaptiveConsumerController(registry, listenerId, batchTimings, enabled,
+                new AdaptiveConsumerController.Limits(initialPollRecords, minPollRecords, maxPollRecords,
+                        minConcurrency, maxConcurrency, targetLag, targetBatchTime, interval, cooldown));
+    }
+}
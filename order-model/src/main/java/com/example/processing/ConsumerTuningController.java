@@ -0,0 +1,25 @@
+package com.example.processing;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+// Текущие max.poll.records и число потоков листенера и последние решения по ним; без подстройки - 404
+@RestController
+@RequestMapping("/api/consumer/tuning")
+@RequiredArgsConstructor
+public class ConsumerTuningController {
+
+    private final ObjectProvider<AdaptiveConsumerController> adaptiveConsumerController;
+
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getState() {
+        AdaptiveConsumerController controller = adaptiveConsumerController.getIfAvailable();
+        return controller == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(controller.state());
+    }
+}
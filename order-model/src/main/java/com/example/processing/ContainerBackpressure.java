@@ -0,0 +1,43 @@
+package com.example.processing;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Приостанавливает контейнер листенера, пока есть хотя бы одна непарная {@link #pause()}.
+ * Уже полученные записи дообрабатываются, новые poll возвращают пустые пачки.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class ContainerBackpressure implements Backpressure {
+
+    private final KafkaListenerEndpointRegistry registry;
+    private final String listenerId;
+    private final AtomicInteger pressure = new AtomicInteger();
+
+    @Override
+    public void pause() {
+        if (pressure.incrementAndGet() == 1) {
+            MessageListenerContainer container = registry.getListenerContainer(listenerId);
+            if (container != null) {
+                container.pause();
+                log.info("Listener '{}' paused by backpressure", listenerId);
+            }
+        }
+    }
+
+    @Override
+    public void resume() {
+        if (pressure.decrementAndGet() == 0) {
+            MessageListenerContainer container = registry.getListenerContainer(listenerId);
+            if (container != null) {
+                container.resume();
+                log.info("Listener '{}' resumed", listenerId);
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.processing;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+// Статистика отсечения повторно доставленных событий; без EventDeduplicator в сервисе - 404
+@RestController
+@RequestMapping("/api/dedup")
+@RequiredArgsConstructor
+public class DedupController {
+
+    private final ObjectProvider<EventDeduplicator> eventDeduplicator;
+
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getStats() {
+        EventDeduplicator deduplicator = eventDeduplicator.getIfAvailable();
+        return deduplicator == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(deduplicator.stats());
+    }
+}
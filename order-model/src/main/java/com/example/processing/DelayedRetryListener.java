@@ -0,0 +1,77 @@
+package com.example.processing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.listener.BatchAcknowledgingMessageListener;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Листенер топика задержки: обрабатывает записи, срок которых наступил, а на первой
+ * "ранней" записи делает {@code nack} - контейнер ставит консьюмер на паузу (продолжая poll)
+ * и перечитывает хвост пачки позже. В топике одного уровня записи идут в порядке срока,
+ * поэтому ожидание в голове очереди не задерживает более ранние повторы.
+ * <p>
+ * Так же - {@code nack} с паузой на уровень задержки - обрабатывается
+ * {@link DependencyUnavailableException}: запись остаётся на своём уровне, попытка не расходуется.
+ */
+@Slf4j
+public class DelayedRetryListener<V> implements BatchAcknowledgingMessageListener<String, V> {
+
+    private final RecordHandler<V> handler;
+    private final RetryTopicRouter router;
+    private final BatchSender batchSender;
+    private final EventDeduplicator deduplicator;
+    private final Function<V, String> eventIdOf;
+    private final Duration maxPause;
+
+    public DelayedRetryListener(RecordHandler<V> handler, RetryTopicRouter router, BatchSender batchSender,
+                                EventDeduplicator deduplicator, Function<V, String> eventIdOf, Duration maxPause) {
+        this.handler = handler;
+        this.router = router;
+        this.batchSender = batchSender;
+        this.deduplicator = deduplicator;
+        this.eventIdOf = eventIdOf;
+        this.maxPause = maxPause;
+    }
+
+    @Override
+    public void onMessage(List<ConsumerRecord<String, V>> records, Acknowledgment ack) {
+        BatchSender.Batch sends = batchSender.newBatch();
+        EventDeduplicator.Batch seen = deduplicator.newBatch();
+        long now = System.currentTimeMillis();
+
+        int processed = 0;
+        long waitMillis = 0;
+        for (ConsumerRecord<String, V> record : records) {
+            long dueAt = RetryTopicRouter.dueAt(record.headers());
+            if (dueAt > now) {
+                waitMillis = dueAt - now;
+                break;
+            }
+            String eventId = record.value() == null ? null : eventIdOf.apply(record.value());
+            try {
+                if (!seen.isDuplicate(eventId) && router.process(record, sends, handler)) {
+                    seen.processed(eventId);
+                }
+            } catch (DependencyUnavailableException e) {
+                log.warn("Dependency unavailable, {} record(s) of {} wait for {}: {}",
+                        records.size() - processed, record.topic(), maxPause, e.getMessage());
+                waitMillis = maxPause.toMillis();
+                break;
+            }
+            processed++;
+        }
+
+        sends.complete();
+        seen.commit();
+        if (processed == records.size()) {
+            ack.acknowledge();
+        } else {
+            ack.nack(processed, Duration.ofMillis(Math.min(waitMillis, maxPause.toMillis())));
+        }
+    }
+}
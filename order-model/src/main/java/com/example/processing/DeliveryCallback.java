@@ -0,0 +1,46 @@
+package com.example.processing;
+
+import java.util.List;
+
+/**
+ * Результат асинхронной обработки записи (доставки уведомления, отгрузки посылки);
+ * вызывается ровно один раз из потока, который её завершил.
+ */
+public interface DeliveryCallback {
+
+    DeliveryCallback NONE = new DeliveryCallback() {
+        @Override
+        public void delivered() {
+        }
+
+        @Override
+        public void failed(Exception error) {
+        }
+    };
+
+    void delivered();
+
+    void failed(Exception error);
+
+    // Один дайджест или посылка несёт события нескольких записей - результат получает каждая
+    static DeliveryCallback all(List<DeliveryCallback> callbacks) {
+        if (callbacks.size() == 1) {
+            return callbacks.get(0);
+        }
+        return new DeliveryCallback() {
+            @Override
+            public void delivered() {
+                for (DeliveryCallback callback : callbacks) {
+                    callback.delivered();
+                }
+            }
+
+            @Override
+            public void failed(Exception error) {
+                for (DeliveryCallback callback : callbacks) {
+                    callback.failed(error);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.processing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Подтверждение пачек листенера только после завершения асинхронной обработки их записей
+ * (доставки уведомлений, отгрузки консолидированных посылок).
+ * <p>
+ * Записи завершаются вразнобой, а коммит пачки сдвигает offset всех её партиций, поэтому
+ * пачки одного потока-консьюмера подтверждаются строго по порядку: пачка ждёт и свои
+ * записи, и все предыдущие пачки. Подтверждение из чужого потока
+ * контейнер выполняет на следующем poll.
+ * <p>
+ * Если запись пачки не обработана и не передана на повтор, подтверждения останавливаются, а
+ * {@link #rewindIfFailed} на следующем вызове листенера перематывает партиции к последнему
+ * коммиту; уже обработанные события отсекает дедупликатор.
+ */
+@Slf4j
+public class DeliveryTracker {
+
+    private final ThreadLocal<Sequence> sequences = ThreadLocal.withInitial(Sequence::new);
+
+    public Batch begin(Acknowledgment ack) {
+        return new Batch(sequences.get(), ack);
+    }
+
+    /**
+     * Если предыдущая пачка потока не обработана, сбрасывает очередь подтверждений и вызывает
+     * {@code rewind}: перемотку консьюмера ({@link #seekToCommitted}) или транспорта.
+     */
+    public boolean rewindIfFailed(Runnable rewind) {
+        Sequence sequence = sequences.get();
+        if (!sequence.isFailed()) {
+            return false;
+        }
+        rewind(rewind);
+        return true;
+    }
+
+    /**
+     * Перематывает сразу, не дожидаясь, пока неудачная пачка дойдёт до головы очереди
+     * подтверждений: пачка упала целиком, и следующего вызова листенера может не быть.
+     * Предыдущие пачки, чьи записи ещё в работе, перечитываются вместе с ней.
+     */
+    public void rewind(Runnable rewind) {
+        sequences.set(new Sequence());
+        rewind.run();
+    }
+
+    public static Runnable seekToCommitted(Consumer<?, ?> consumer) {
+        return () -> {
+            Set<TopicPartition> assigned = consumer.assignment();
+            Map<TopicPartition, OffsetAndMetadata> committed = consumer.committed(assigned);
+            for (TopicPartition partition : assigned) {
+                OffsetAndMetadata offset = committed.get(partition);
+                if (offset != null) {
+                    consumer.seek(partition, offset);
+                } else {
+                    consumer.seekToBeginning(Collections.singletonList(partition));
+                }
+            }
+            log.warn("Unfinished batches, rewound {} partition(s) to committed offsets", assigned.size());
+        };
+    }
+
+    public int pendingBatches() {
+        return sequences.get().size();
+    }
+
+    public static final class Batch {
+
+        private final Sequence sequence;
+        private final Acknowledgment ack;
+        // Единица за саму пачку снимается в seal(), чтобы пачка не подтвердилась до конца обработки
+        private final AtomicInteger outstanding = new AtomicInteger(1);
+        private volatile boolean failed;
+
+        Batch(Sequence sequence, Acknowledgment ack) {
+            this.sequence = sequence;
+            this.ack = ack;
+            sequence.add(this);
+        }
+
+        public DeliveryCallback track() {
+            outstanding.incrementAndGet();
+            return new DeliveryCallback() {
+                @Override
+                public void delivered() {
+                    done();
+                }
+
+                @Override
+                public void failed(Exception error) {
+                    failed = true;
+                    done();
+                }
+            };
+        }
+
+        public void seal() {
+            done();
+        }
+
+        // Пачка не обработана целиком: подтверждения остановятся на ней до перемотки
+        public void fail() {
+            failed = true;
+            done();
+        }
+
+        private void done() {
+            if (outstanding.decrementAndGet() == 0) {
+                sequence.drain();
+            }
+        }
+
+        boolean isDone() {
+            return outstanding.get() == 0;
+        }
+    }
+
+    private static final class Sequence {
+
+        private final Deque<Batch> pending = new ArrayDeque<>();
+        private boolean failed;
+
+        synchronized void add(Batch batch) {
+            pending.addLast(batch);
+        }
+
+        synchronized boolean isFailed() {
+            return failed;
+        }
+
+        synchronized int size() {
+            return pending.size();
+        }
+
+        synchronized void drain() {
+            while (!failed && !pending.isEmpty() && pending.peekFirst().isDone()) {
+                Batch batch = pending.pollFirst();
+                if (batch.failed) {
+                    failed = true;
+                    pending.clear();
+                    log.error("Batch not completed, acknowledgments stopped until rewind");
+                    return;
+                }
+                batch.ack.acknowledge();
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.processing;
+
+/**
+ * Внешняя зависимость обработки недоступна (сеть, таймаут, разомкнутая цепь). Запись не
+ * виновата, поэтому {@link RetryTopicRouter} её не перекладывает: попытка не расходуется,
+ * а листенер перечитывает запись позже.
+ */
+public class DependencyUnavailableException extends RuntimeException {
+
+    public DependencyUnavailableException(String message) {
+        super(message);
+    }
+
+    public DependencyUnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
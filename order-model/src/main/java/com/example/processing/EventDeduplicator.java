@@ -0,0 +1,357 @@
+package com.example.processing;
+
+import com.example.codec.CanonicalUuid;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ограниченное по памяти множество уже обработанных eventId для идемпотентных консьюмеров.
+ * <p>
+ * Точная часть - кольцо последних {@code capacity} идентификаторов (два long на UUID) с индексом
+ * открытой адресации; только её попадание считается дубликатом. Поверх неё - две ротируемые по
+ * времени генерации фильтра Блума на окно {@code window}: промах в нём отсекает новые события без
+ * похода в индекс, а попадание мимо кольца учитывается как "поздний" дубликат и обрабатывается,
+ * потому что ложное срабатывание фильтра не должно терять платёж. Итого дубликат распознаётся,
+ * если повтор пришёл в пределах последних {@code capacity} событий и не позже {@code window}.
+ * <p>
+ * Память выделяется один раз в конструкторе, горячий путь не аллоцирует.
+ */
+public class EventDeduplicator {
+
+    private static final int STRIPES = 16;
+    private static final int BLOOM_BITS_PER_ID = 10;
+    private static final int BLOOM_HASHES = 5;
+    // Генерация фильтра рассчитана на столько окон точной части
+    private static final int BLOOM_CAPACITY_FACTOR = 4;
+
+    private static final long SEED_MSB = 0x9E3779B97F4A7C15L;
+    private static final long SEED_LSB = 0xC2B2AE3D27D4EB4FL;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final long halfWindowNanos;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder lateHits = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public EventDeduplicator(int capacity, Duration window) {
+        if (capacity < STRIPES) {
+            throw new IllegalArgumentException("Dedup capacity must be at least " + STRIPES + ": " + capacity);
+        }
+        int perStripe = (capacity + STRIPES - 1) / STRIPES;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(perStripe);
+        }
+        this.halfWindowNanos = Math.max(1, window.toNanos() / 2);
+    }
+
+    public Batch newBatch() {
+        return new Batch();
+    }
+
+    public boolean isDuplicate(String eventId) {
+        if (eventId == null) {
+            misses.increment();
+            return false;
+        }
+        long msb = msb(eventId);
+        long lsb = lsb(eventId);
+        long hash = mix(msb, lsb);
+        switch (stripe(hash).lookup(msb, lsb, hash)) {
+            case Stripe.EXACT:
+                hits.increment();
+                return true;
+            case Stripe.BLOOM_ONLY:
+                lateHits.increment();
+                return false;
+            default:
+                misses.increment();
+                return false;
+        }
+    }
+
+    public void markProcessed(String eventId) {
+        if (eventId != null) {
+            add(msb(eventId), lsb(eventId), System.nanoTime());
+        }
+    }
+
+    public long size() {
+        long size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    public Map<String, Object> stats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long lateCount = lateHits.sum();
+        long lookups = hitCount + missCount + lateCount;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("lateHits", lateCount);
+        stats.put("hitRate", lookups == 0 ? 0.0 : (double) hitCount / lookups);
+        stats.put("evictions", evictions.sum());
+        stats.put("size", size());
+        stats.put("memoryBytes", memoryBytes());
+        return stats;
+    }
+
+    private void add(long msb, long lsb, long now) {
+        long hash = mix(msb, lsb);
+        if (stripe(hash).add(msb, lsb, hash, now, halfWindowNanos)) {
+            evictions.increment();
+        }
+    }
+
+    private long memoryBytes() {
+        long bytes = 0;
+        for (Stripe stripe : stripes) {
+            bytes += stripe.memoryBytes();
+        }
+        return bytes;
+    }
+
+    private Stripe stripe(long hash) {
+        return stripes[stripeIndex(hash)];
+    }
+
+    // Номер сегмента идентификатора; тестам нужен, чтобы набрать события одного сегмента
+    static int stripeOf(String eventId) {
+        return stripeIndex(mix(msb(eventId), lsb(eventId)));
+    }
+
+    private static int stripeIndex(long hash) {
+        return (int) (hash >>> 60);
+    }
+
+    private static long msb(String eventId) {
+        return CanonicalUuid.matches(eventId) ? CanonicalUuid.mostSignificantBits(eventId) : hash64(eventId, SEED_MSB);
+    }
+
+    private static long lsb(String eventId) {
+        return CanonicalUuid.matches(eventId) ? CanonicalUuid.leastSignificantBits(eventId) : hash64(eventId, SEED_LSB);
+    }
+
+    // Для идентификаторов не в формате UUID - два независимых 64-битных хеша вместо 128 бит UUID
+    private static long hash64(String value, long seed) {
+        long h = seed;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h = (h ^ (b & 0xFF)) * 0x100000001B3L;
+        }
+        return fmix64(h ^ value.length());
+    }
+
+    private static long mix(long msb, long lsb) {
+        return fmix64(msb ^ Long.rotateLeft(lsb, 32) ^ SEED_LSB);
+    }
+
+    private static long fmix64(long h) {
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * Идентификаторы, обработанные в текущей пачке. Помечаются в множестве только после
+     * подтверждения отправок: если пачка будет перечитана, эти записи нужно обработать заново.
+     * В транзакции Kafka - только после её коммита, откаченная пачка тоже будет перечитана.
+     */
+    public final class Batch {
+
+        private long[] pending = new long[32];
+        private int count;
+
+        public boolean isDuplicate(String eventId) {
+            return EventDeduplicator.this.isDuplicate(eventId);
+        }
+
+        public synchronized void processed(String eventId) {
+            if (eventId == null) {
+                return;
+            }
+            if (count + 2 > pending.length) {
+                pending = Arrays.copyOf(pending, pending.length << 1);
+            }
+            pending[count++] = msb(eventId);
+            pending[count++] = lsb(eventId);
+        }
+
+        public void commit() {
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        apply();
+                    }
+                });
+            } else {
+                apply();
+            }
+        }
+
+        private synchronized void apply() {
+            long now = System.nanoTime();
+            for (int i = 0; i < count; i += 2) {
+                add(pending[i], pending[i + 1], now);
+            }
+            count = 0;
+        }
+    }
+
+    private static final class Stripe {
+
+        static final int MISS = 0;
+        static final int BLOOM_ONLY = 1;
+        static final int EXACT = 2;
+
+        // Кольцо последних идентификаторов, вытеснение в порядке добавления
+        private final long[] ringMsb;
+        private final long[] ringLsb;
+        private int head;
+        private int size;
+
+        // Позиция в кольце + 1, 0 - пустой слот; линейное пробирование
+        private final int[] index;
+        private final int indexMask;
+
+        private long[] currentBloom;
+        private long[] previousBloom;
+        private final int bloomMask;
+        private final int bloomCapacity;
+        private int bloomCount;
+        private long bloomStartedAt = System.nanoTime();
+
+        Stripe(int capacity) {
+            ringMsb = new long[capacity];
+            ringLsb = new long[capacity];
+            index = new int[Integer.highestOneBit(capacity * 2 - 1) << 1];
+            indexMask = index.length - 1;
+
+            bloomCapacity = capacity * BLOOM_CAPACITY_FACTOR;
+            int bloomBits = Integer.highestOneBit(bloomCapacity * BLOOM_BITS_PER_ID - 1) << 1;
+            currentBloom = new long[Math.max(1, bloomBits >>> 6)];
+            previousBloom = new long[currentBloom.length];
+            bloomMask = bloomBits - 1;
+        }
+
+        synchronized int lookup(long msb, long lsb, long hash) {
+            long bloomHash = fmix64(hash);
+            if (!mightContain(currentBloom, bloomHash) && !mightContain(previousBloom, bloomHash)) {
+                return MISS;
+            }
+            return find(msb, lsb, hash) >= 0 ? EXACT : BLOOM_ONLY;
+        }
+
+        synchronized boolean add(long msb, long lsb, long hash, long now, long halfWindowNanos) {
+            if (bloomCount >= bloomCapacity || now - bloomStartedAt >= halfWindowNanos) {
+                long[] cleared = previousBloom;
+                Arrays.fill(cleared, 0L);
+                previousBloom = currentBloom;
+                currentBloom = cleared;
+                bloomCount = 0;
+                bloomStartedAt = now;
+            }
+            long bloomHash = fmix64(hash);
+            if (!mightContain(currentBloom, bloomHash)) {
+                put(currentBloom, bloomHash);
+                bloomCount++;
+            }
+            if (find(msb, lsb, hash) >= 0) {
+                return false;
+            }
+
+            boolean evicted = false;
+            if (size == ringMsb.length) {
+                remove(find(ringMsb[head], ringLsb[head], mix(ringMsb[head], ringLsb[head])));
+                size--;
+                evicted = true;
+            }
+            ringMsb[head] = msb;
+            ringLsb[head] = lsb;
+            int slot = (int) hash & indexMask;
+            while (index[slot] != 0) {
+                slot = (slot + 1) & indexMask;
+            }
+            index[slot] = head + 1;
+            head = head + 1 == ringMsb.length ? 0 : head + 1;
+            size++;
+            return evicted;
+        }
+
+        synchronized int size() {
+            return size;
+        }
+
+        long memoryBytes() {
+            return (ringMsb.length + ringLsb.length + currentBloom.length + previousBloom.length) * (long) Long.BYTES
+                    + index.length * (long) Integer.BYTES;
+        }
+
+        private int find(long msb, long lsb, long hash) {
+            int slot = (int) hash & indexMask;
+            int position;
+            while ((position = index[slot]) != 0) {
+                if (ringMsb[position - 1] == msb && ringLsb[position - 1] == lsb) {
+                    return slot;
+                }
+                slot = (slot + 1) & indexMask;
+            }
+            return -1;
+        }
+
+        // Удаление со сдвигом назад, чтобы не копить надгробия
+        private void remove(int slot) {
+            int hole = slot;
+            int next = slot;
+            while (true) {
+                next = (next + 1) & indexMask;
+                int position = index[next];
+                if (position == 0) {
+                    break;
+                }
+                int ideal = (int) mix(ringMsb[position - 1], ringLsb[position - 1]) & indexMask;
+                if (((next - ideal) & indexMask) >= ((next - hole) & indexMask)) {
+                    index[hole] = position;
+                    hole = next;
+                }
+            }
+            index[hole] = 0;
+        }
+
+        private boolean mightContain(long[] bloom, long bloomHash) {
+            int h1 = (int) bloomHash;
+            int h2 = (int) (bloomHash >>> 32) | 1;
+            for (int i = 0; i < BLOOM_HASHES; i++) {
+                int bit = (h1 + i * h2) & bloomMask;
+                if ((bloom[bit >>> 6] & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void put(long[] bloom, long bloomHash) {
+            int h1 = (int) bloomHash;
+            int h2 = (int) (bloomHash >>> 32) | 1;
+            for (int i = 0; i < BLOOM_HASHES; i++) {
+                int bit = (h1 + i * h2) & bloomMask;
+                bloom[bit >>> 6] |= 1L << bit;
+            }
+        }
+    }
+}
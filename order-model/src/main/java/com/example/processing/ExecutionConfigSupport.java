@@ -0,0 +1,66 @@
+package com.example.processing;
+
+import org.apache.coyote.ProtocolHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.EnvironmentAware;
+import org.springframework.context.annotation.Bean;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+
+/**
+ * Общая часть конфигурации исполнителей сервисов: исполнитель запросов Tomcat и учёт закреплений
+ * виртуальных потоков. Сервис наследует класс в своей {@code @Configuration} и объявляет свои
+ * исполнители через {@link #boundedExecutor}; лимиты берутся из {@code execution.<key>.*}.
+ * Статистика - GET /api/execution.
+ */
+public abstract class ExecutionConfigSupport implements EnvironmentAware {
+
+    private Environment environment;
+
+    @Value("${execution.pinning.enabled:true}")
+    private boolean pinningEnabled;
+
+    @Value("${execution.pinning.threshold:20ms}")
+    private Duration pinningThreshold;
+
+    @Override
+    public void setEnvironment(Environment environment) {
+        this.environment = environment;
+    }
+
+    // Только для Tomcat: в профиле reactive запросы обслуживает Netty
+    @Bean(destroyMethod = "close")
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public BoundedExecutor httpExecutor() {
+        return boundedExecutor("http", "http", new BoundedExecutor.Limits(200, 1000,
+                BoundedExecutor.Rejection.ABORT, Duration.ofSeconds(1)));
+    }
+
+    // Отказ исполнителя Tomcat обрабатывает сам: соединение закрывается без ответа
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> httpExecutorCustomizer(BoundedExecutor httpExecutor) {
+        return protocolHandler -> protocolHandler.setExecutor(httpExecutor);
+    }
+
+    @Bean(destroyMethod = "close")
+    public VirtualThreadPinning virtualThreadPinning() {
+        return new VirtualThreadPinning(pinningEnabled, pinningThreshold);
+    }
+
+    /**
+     * Исполнитель {@code name} с лимитами из {@code execution.<key>.*}; незаданные берутся из {@code defaults}.
+     */
+    protected BoundedExecutor boundedExecutor(String name, String key, BoundedExecutor.Limits defaults) {
+        String prefix = "execution." + key + ".";
+        String rejection = environment.getProperty(prefix + "rejection");
+        return ListenerExecutors.newBoundedExecutor(name, new BoundedExecutor.Limits(
+                environment.getProperty(prefix + "max-concurrency", Integer.class, defaults.getMaxConcurrency()),
+                environment.getProperty(prefix + "max-queued", Integer.class, defaults.getMaxQueued()),
+                rejection != null ? BoundedExecutor.Rejection.parse(rejection) : defaults.getRejection(),
+                environment.getProperty(prefix + "block-timeout", Duration.class, defaults.getBlockTimeout())));
+    }
+}
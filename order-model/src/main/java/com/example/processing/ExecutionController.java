@@ -0,0 +1,29 @@
+package com.example.processing;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+// Лимиты и загрузка исполнителей, отказы и закрепления виртуальных потоков
+@RestController
+@RequestMapping("/api/execution")
+@RequiredArgsConstructor
+public class ExecutionController {
+
+    private final ObjectProvider<BoundedExecutor> executors;
+    private final ObjectProvider<VirtualThreadPinning> virtualThreadPinning;
+
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getStats() {
+        Map<String, Object> stats = new TreeMap<>();
+        executors.orderedStream().forEach(executor -> executor.stats(executor.getName(), stats));
+        virtualThreadPinning.ifAvailable(pinning -> pinning.stats("pinning", stats));
+        return ResponseEntity.ok(stats);
+    }
+}
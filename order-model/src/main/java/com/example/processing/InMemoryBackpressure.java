@@ -0,0 +1,25 @@
+package com.example.processing;
+
+import com.example.transport.InMemoryTransport;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Backpressure профиля in-memory: приостанавливает выборку группы из {@link InMemoryTransport}.
+ * Счётчик вызовов ведёт сам транспорт, как {@link ContainerBackpressure} для контейнера.
+ */
+@RequiredArgsConstructor
+public class InMemoryBackpressure implements Backpressure {
+
+    private final InMemoryTransport transport;
+    private final String group;
+
+    @Override
+    public void pause() {
+        transport.pause(group);
+    }
+
+    @Override
+    public void resume() {
+        transport.resume(group);
+    }
+}
@@ -0,0 +1,130 @@
+package com.example.processing;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Параллельная обработка poll-пачки с сохранением порядка внутри ключа.
+ * <p>
+ * Записи раскладываются по партициям, внутри партиции - по ключу в "дорожки". Дорожки одной
+ * партиции разбирают не более {@code maxInFlightPerPartition} воркеров, записи одной дорожки
+ * идут строго последовательно. {@link #execute} возвращается только когда обработана вся
+ * пачка, поэтому подтверждать её можно сразу после вызова.
+ * <p>
+ * Если запись падает, остальные записи её дорожки пропускаются (чтобы не нарушить порядок),
+ * прочие дорожки дорабатывают, после чего бросается {@link BatchProcessingException}.
+ * Если исполнитель отклоняет задачу, оставшиеся дорожки обрабатываются в вызывающем потоке:
+ * пачка всё равно доводится до конца, прежде чем {@link #execute} вернётся.
+ */
+public class KeyOrderedBatchExecutor implements AutoCloseable {
+
+    private final int maxInFlightPerPartition;
+    private final Executor executor;
+
+    /**
+     * {@link ExecutorService} принадлежит этому объекту и останавливается в {@link #close()};
+     * прочие исполнители (например, общий {@link BoundedExecutor}) закрывает их владелец.
+     */
+    public KeyOrderedBatchExecutor(int maxInFlightPerPartition, Executor executor) {
+        this.maxInFlightPerPartition = maxInFlightPerPartition;
+        this.executor = executor;
+    }
+
+    /**
+     * Последовательная обработка в потоке листенера - прежнее поведение.
+     */
+    public static KeyOrderedBatchExecutor sequential() {
+        return new KeyOrderedBatchExecutor(1, null);
+    }
+
+    public <K, V> void execute(List<ConsumerRecord<K, V>> records, Consumer<ConsumerRecord<K, V>> handler) {
+        if (executor == null || records.size() <= 1) {
+            executeSequentially(records, handler);
+            return;
+        }
+
+        Map<Integer, Map<Object, List<ConsumerRecord<K, V>>>> partitions = new HashMap<>();
+        for (ConsumerRecord<K, V> record : records) {
+            Map<Object, List<ConsumerRecord<K, V>>> lanes =
+                    partitions.computeIfAbsent(record.partition(), p -> new LinkedHashMap<>());
+            // Записи без ключа не упорядочены между собой - каждая в своей дорожке
+            Object laneKey = record.key() != null ? record.key() : new Object();
+            lanes.computeIfAbsent(laneKey, k -> new ArrayList<>()).add(record);
+        }
+
+        AtomicInteger failed = new AtomicInteger();
+        AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+        List<CompletableFuture<Void>> workers = new ArrayList<>();
+        boolean rejected = false;
+
+        for (Map<Object, List<ConsumerRecord<K, V>>> lanes : partitions.values()) {
+            Queue<List<ConsumerRecord<K, V>>> pending = new ConcurrentLinkedQueue<>(lanes.values());
+            int workerCount = Math.min(maxInFlightPerPartition, lanes.size());
+            for (int i = 0; i < workerCount && !rejected; i++) {
+                try {
+                    workers.add(CompletableFuture.runAsync(
+                            () -> drainLanes(pending, handler, failed, firstFailure), executor));
+                } catch (RejectedExecutionException e) {
+                    rejected = true;
+                }
+            }
+            if (rejected) {
+                // Исполнитель отказал (block по таймауту, abort): дорожки, которым не досталось
+                // воркера, разбирает поток листенера, уже отправленные дорабатывают как обычно
+                drainLanes(pending, handler, failed, firstFailure);
+            }
+        }
+
+        CompletableFuture.allOf(workers.toArray(new CompletableFuture[0])).join();
+
+        if (failed.get() > 0) {
+            throw new BatchProcessingException(failed.get(), firstFailure.get());
+        }
+    }
+
+    @Override
+    public void close() {
+        if (executor instanceof ExecutorService) {
+            ((ExecutorService) executor).shutdown();
+        }
+    }
+
+    private static <K, V> void drainLanes(Queue<List<ConsumerRecord<K, V>>> pending,
+                                          Consumer<ConsumerRecord<K, V>> handler,
+                                          AtomicInteger failed,
+                                          AtomicReference<Throwable> firstFailure) {
+        List<ConsumerRecord<K, V>> lane;
+        while ((lane = pending.poll()) != null) {
+            for (int i = 0; i < lane.size(); i++) {
+                try {
+                    handler.accept(lane.get(i));
+                } catch (RuntimeException e) {
+                    failed.addAndGet(lane.size() - i);
+                    firstFailure.compareAndSet(null, e);
+                    break;
+                }
+            }
+        }
+    }
+
+    private static <K, V> void executeSequentially(List<ConsumerRecord<K, V>> records,
+                                                   Consumer<ConsumerRecord<K, V>> handler) {
+        for (ConsumerRecord<K, V> record : records) {
+            handler.accept(record);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.processing;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Исполнители для обработки записей вне потока листенера, {@code @Async} и запросов Tomcat.
+ * <p>
+ * Сборка нацелена на Java 11, поэтому виртуальные потоки подключаются через reflection:
+ * на JDK 21+ используется {@code Executors.newThreadPerTaskExecutor()} с именованными
+ * виртуальными потоками, на более старых JVM - фиксированный пул платформенных daemon-потоков.
+ */
+@Slf4j
+public final class ListenerExecutors {
+
+    private static final VirtualThreads VIRTUAL_THREADS = VirtualThreads.lookup();
+
+    private ListenerExecutors() {
+    }
+
+    public static boolean virtualThreadsAvailable() {
+        return VIRTUAL_THREADS != null;
+    }
+
+    public static ExecutorService newTaskExecutor(String name, int platformThreads) {
+        if (VIRTUAL_THREADS != null) {
+            try {
+                ExecutorService executor = VIRTUAL_THREADS.newExecutor(name);
+                log.info("Executor '{}' runs on virtual threads", name);
+                return executor;
+            } catch (ReflectiveOperationException e) {
+                log.warn("Virtual threads unavailable for '{}': {}", name, e.getMessage());
+            }
+        }
+        log.info("Executor '{}' runs on {} platform threads", name, platformThreads);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(platformThreads, platformThreads,
+                30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), namedDaemonThreads(name));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Исполнитель с лимитами; без виртуальных потоков пул платформенных равен {@code maxConcurrency}.
+     */
+    public static BoundedExecutor newBoundedExecutor(String name, BoundedExecutor.Limits limits) {
+        return new BoundedExecutor(name, newTaskExecutor(name, limits.getMaxConcurrency()), limits);
+    }
+
+    public static ThreadFactory namedDaemonThreads(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // Потоки получают имена "<исполнитель>-N", по ним VirtualThreadPinning относит события к исполнителю
+    private static final class VirtualThreads {
+
+        private final Method ofVirtual;
+        private final Method name;
+        private final Method factory;
+        private final Method newThreadPerTaskExecutor;
+
+        VirtualThreads() throws ReflectiveOperationException {
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            ofVirtual = Thread.class.getMethod("ofVirtual");
+            name = builder.getMethod("name", String.class, long.class);
+            factory = builder.getMethod("factory");
+            newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+        }
+
+        ExecutorService newExecutor(String prefix) throws ReflectiveOperationException {
+            Object builder = name.invoke(ofVirtual.invoke(null), prefix + "-", 1L);
+            return (ExecutorService) newThreadPerTaskExecutor.invoke(null, factory.invoke(builder));
+        }
+
+        static VirtualThreads lookup() {
+            try {
+                return new VirtualThreads();
+            } catch (ReflectiveOperationException e) {
+                return null;
+            }
+        }
+    }
+}
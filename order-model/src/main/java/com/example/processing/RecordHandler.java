@@ -0,0 +1,12 @@
+package com.example.processing;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+
+/**
+ * Обработка одной записи пачки; исходящие события отправляются через {@code sends}.
+ */
+@FunctionalInterface
+public interface RecordHandler<V> {
+
+    void handle(ConsumerRecord<String, V> record, BatchSender.Batch sends);
+}
@@ -0,0 +1,62 @@
+package com.example.processing;
+
+import com.example.model.OrderEvent;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.KafkaAdmin;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Топики повторов основного топика сервиса и их листенеры. Сервис наследует класс в своей
+ * {@code @Configuration}, передаёт имя и основной топик и объявляет контейнеры повторов через
+ * {@link #retryContainers} со своим обработчиком записи. Группа повторов - {@code <service>-group-retry}.
+ */
+public abstract class RetryConfigSupport {
+
+    private final String service;
+    private final String baseTopic;
+
+    @Value("${kafka.retry.delays:1s,10s,1m}")
+    private List<Duration> delays;
+
+    // По умолчанию: основная попытка + по одной на каждый уровень задержки
+    @Value("${kafka.retry.max-attempts:0}")
+    private int maxAttempts;
+
+    @Value("${kafka.retry.partitions:3}")
+    private int partitions;
+
+    @Value("${kafka.retry.replication-factor:1}")
+    private short replicationFactor;
+
+    protected RetryConfigSupport(String service, String baseTopic) {
+        this.service = service;
+        this.baseTopic = baseTopic;
+    }
+
+    @Bean
+    public RetryTopicRouter retryTopicRouter() {
+        return new RetryTopicRouter(delays, maxAttempts > 0 ? maxAttempts : delays.size() + 1);
+    }
+
+    @Bean
+    public KafkaAdmin.NewTopics retryTopics() {
+        return new KafkaAdmin.NewTopics(retryTopicRouter().topicsFor(baseTopic).stream()
+                .map(topic -> TopicBuilder.name(topic).partitions(partitions).replicas(replicationFactor).build())
+                .toArray(NewTopic[]::new));
+    }
+
+    protected RetryListenerContainers<OrderEvent> retryContainers(
+            ConcurrentKafkaListenerContainerFactory<String, OrderEvent> kafkaListenerContainerFactory,
+            BatchSender batchSender,
+            EventDeduplicator eventDeduplicator,
+            RecordHandler<OrderEvent> handler) {
+        return new RetryListenerContainers<>(kafkaListenerContainerFactory, retryTopicRouter(), batchSender,
+                baseTopic, service + "-group-retry", eventDeduplicator, OrderEvent::getEventId, handler);
+    }
+}
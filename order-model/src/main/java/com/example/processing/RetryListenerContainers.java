@@ -0,0 +1,69 @@
+package com.example.processing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.config.AbstractKafkaListenerContainerFactory;
+import org.springframework.kafka.listener.AbstractMessageListenerContainer;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * По одному контейнеру на каждый топик задержки, чтобы ожидание на уровне 1m не
+ * задерживало записи уровня 1s. Количество уровней задаётся конфигурацией, поэтому
+ * контейнеры создаются программно из фабрики сервиса.
+ */
+@Slf4j
+public class RetryListenerContainers<V> implements SmartLifecycle {
+
+    private final List<AbstractMessageListenerContainer<String, V>> containers = new ArrayList<>();
+    private volatile boolean running;
+
+    public RetryListenerContainers(AbstractKafkaListenerContainerFactory<? extends AbstractMessageListenerContainer<String, V>, String, V> factory,
+                                   RetryTopicRouter router,
+                                   BatchSender batchSender,
+                                   String baseTopic,
+                                   String groupId,
+                                   EventDeduplicator deduplicator,
+                                   Function<V, String> eventIdOf,
+                                   RecordHandler<V> handler) {
+        for (Duration delay : router.getDelays()) {
+            String topic = router.retryTopic(baseTopic, delay);
+            AbstractMessageListenerContainer<String, V> container = factory.createContainer(topic);
+            container.getContainerProperties().setGroupId(groupId);
+            container.setBeanName(topic + "-listener");
+            // Пауза не дольше уровня задержки и заведомо меньше max.poll.interval.ms
+            container.setupMessageListener(new DelayedRetryListener<>(handler, router, batchSender,
+                    deduplicator, eventIdOf, delay));
+            containers.add(container);
+        }
+    }
+
+    @Override
+    public void start() {
+        for (AbstractMessageListenerContainer<String, V> container : containers) {
+            // autoStartup фабрики: в профиле in-memory контейнеры Kafka не запускаются
+            if (!container.isAutoStartup()) {
+                continue;
+            }
+            container.start();
+            log.info("Started retry listener for {}", (Object) container.getContainerProperties().getTopics());
+        }
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        for (AbstractMessageListenerContainer<String, V> container : containers) {
+            container.stop();
+        }
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+}
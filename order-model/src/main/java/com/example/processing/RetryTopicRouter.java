@@ -0,0 +1,175 @@
+package com.example.processing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.springframework.kafka.support.KafkaHeaders;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Неблокирующие повторы через топики задержки.
+ * <p>
+ * Упавшая запись уходит в {@code <topic>.retry-<delay>} следующего уровня (например
+ * {@code new_orders.retry-1s}, {@code .retry-10s}, {@code .retry-1m}), а после
+ * {@code maxAttempts} попыток - в {@code <topic>.dlt}. Основные партиции при этом не стоят.
+ * Метаданные ошибки пишутся в стандартные заголовки Spring ({@link KafkaHeaders#DLT_ORIGINAL_TOPIC} и т.д.),
+ * номер попытки и момент, раньше которого повтор не выполняется - в {@link #ATTEMPT_HEADER} и {@link #DUE_AT_HEADER}.
+ * <p>
+ * Порядок внутри ключа для повторяемых записей не сохраняется.
+ */
+@Slf4j
+public class RetryTopicRouter {
+
+    public static final String ATTEMPT_HEADER = "retry.attempt";
+    public static final String DUE_AT_HEADER = "retry.due-at";
+    public static final String DLT_SUFFIX = ".dlt";
+
+    private static final int MAX_MESSAGE_LENGTH = 1024;
+
+    private final List<Duration> delays;
+    private final int maxAttempts;
+
+    public RetryTopicRouter(List<Duration> delays, int maxAttempts) {
+        if (delays.isEmpty()) {
+            throw new IllegalArgumentException("At least one retry delay is required");
+        }
+        this.delays = List.copyOf(delays);
+        this.maxAttempts = Math.max(1, maxAttempts);
+    }
+
+    public List<Duration> getDelays() {
+        return delays;
+    }
+
+    public String retryTopic(String baseTopic, Duration delay) {
+        return baseTopic + ".retry-" + label(delay);
+    }
+
+    public String dltTopic(String baseTopic) {
+        return baseTopic + DLT_SUFFIX;
+    }
+
+    public List<String> topicsFor(String baseTopic) {
+        List<String> topics = new ArrayList<>();
+        for (Duration delay : delays) {
+            topics.add(retryTopic(baseTopic, delay));
+        }
+        topics.add(dltTopic(baseTopic));
+        return topics;
+    }
+
+    /**
+     * Обрабатывает запись, а при ошибке отправляет её на повтор или в DLT вместо того,
+     * чтобы ронять всю пачку. {@link DependencyUnavailableException} пробрасывается:
+     * пока зависимость недоступна, повторы сгорали бы один за другим.
+     *
+     * @return {@code true}, если запись обработана без ошибки
+     */
+    public <V> boolean process(ConsumerRecord<String, V> record, BatchSender.Batch sends, RecordHandler<V> handler) {
+        try {
+            handler.handle(record, sends);
+            return true;
+        } catch (DependencyUnavailableException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            route(record, e, sends);
+            return false;
+        }
+    }
+
+    public void route(ConsumerRecord<String, ?> record, Exception error, BatchSender.Batch sends) {
+        Headers incoming = record.headers();
+        int attempt = attempt(incoming) + 1;
+        String baseTopic = stringHeader(incoming, KafkaHeaders.DLT_ORIGINAL_TOPIC);
+        if (baseTopic == null) {
+            baseTopic = record.topic();
+        }
+
+        Headers headers = new RecordHeaders();
+        for (Header header : incoming) {
+            if (!header.key().startsWith("retry.") && !isFailureHeader(header.key())) {
+                headers.add(header);
+            }
+        }
+        // Исходные координаты записи сохраняются с первой ошибки
+        copyOrSet(incoming, headers, KafkaHeaders.DLT_ORIGINAL_TOPIC, baseTopic.getBytes(StandardCharsets.UTF_8));
+        copyOrSet(incoming, headers, KafkaHeaders.DLT_ORIGINAL_PARTITION,
+                ByteBuffer.allocate(Integer.BYTES).putInt(record.partition()).array());
+        copyOrSet(incoming, headers, KafkaHeaders.DLT_ORIGINAL_OFFSET,
+                ByteBuffer.allocate(Long.BYTES).putLong(record.offset()).array());
+        headers.add(KafkaHeaders.DLT_EXCEPTION_FQCN, error.getClass().getName().getBytes(StandardCharsets.UTF_8));
+        headers.add(KafkaHeaders.DLT_EXCEPTION_MESSAGE, truncate(error.getMessage()).getBytes(StandardCharsets.UTF_8));
+        headers.add(ATTEMPT_HEADER, ByteBuffer.allocate(Integer.BYTES).putInt(attempt).array());
+
+        String target;
+        if (attempt >= maxAttempts) {
+            target = dltTopic(baseTopic);
+            log.error("Record {}-{}@{} failed {} time(s), sending to {}: {}",
+                    record.topic(), record.partition(), record.offset(), attempt, target, error.getMessage());
+        } else {
+            Duration delay = delays.get(Math.min(attempt, delays.size()) - 1);
+            target = retryTopic(baseTopic, delay);
+            headers.add(DUE_AT_HEADER, ByteBuffer.allocate(Long.BYTES)
+                    .putLong(System.currentTimeMillis() + delay.toMillis()).array());
+            log.warn("Record {}-{}@{} failed (attempt {}), retrying via {}: {}",
+                    record.topic(), record.partition(), record.offset(), attempt, target, error.getMessage());
+        }
+        sends.send(target, record.key(), record.value(), headers);
+    }
+
+    public static int attempt(Headers headers) {
+        Header header = headers.lastHeader(ATTEMPT_HEADER);
+        return header == null || header.value().length != Integer.BYTES ? 0 : ByteBuffer.wrap(header.value()).getInt();
+    }
+
+    public static long dueAt(Headers headers) {
+        Header header = headers.lastHeader(DUE_AT_HEADER);
+        return header == null || header.value().length != Long.BYTES ? 0 : ByteBuffer.wrap(header.value()).getLong();
+    }
+
+    private static boolean isFailureHeader(String key) {
+        return key.equals(KafkaHeaders.DLT_ORIGINAL_TOPIC)
+                || key.equals(KafkaHeaders.DLT_ORIGINAL_PARTITION)
+                || key.equals(KafkaHeaders.DLT_ORIGINAL_OFFSET)
+                || key.equals(KafkaHeaders.DLT_EXCEPTION_FQCN)
+                || key.equals(KafkaHeaders.DLT_EXCEPTION_MESSAGE);
+    }
+
+    private static void copyOrSet(Headers incoming, Headers outgoing, String key, byte[] value) {
+        Header existing = incoming.lastHeader(key);
+        outgoing.add(key, existing != null ? existing.value() : value);
+    }
+
+    private static String stringHeader(Headers headers, String key) {
+        Header header = headers.lastHeader(key);
+        return header == null ? null : new String(header.value(), StandardCharsets.UTF_8);
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return "";
+        }
+        return message.length() > MAX_MESSAGE_LENGTH ? message.substring(0, MAX_MESSAGE_LENGTH) : message;
+    }
+
+    static String label(Duration delay) {
+        long millis = delay.toMillis();
+        if (millis % 3_600_000 == 0) {
+            return millis / 3_600_000 + "h";
+        }
+        if (millis % 60_000 == 0) {
+            return millis / 60_000 + "m";
+        }
+        if (millis % 1_000 == 0) {
+            return millis / 1_000 + "s";
+        }
+        return millis + "ms";
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.processing;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Хешированное колесо таймеров: один поток на все отложенные задачи вместо задачи
+ * в планировщике на каждое окно. Точность - один тик; задачи дальше одного оборота
+ * колеса ждут нужное число оборотов в своей ячейке.
+ * <p>
+ * Задачи выполняются в потоке колеса и должны быть короткими.
+ */
+@Slf4j
+public class TimerWheel implements AutoCloseable {
+
+    private final long tickNanos;
+    private final List<Timeout>[] buckets;
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    private final Thread worker;
+    private final long startNanos;
+
+    private volatile boolean running = true;
+    private long tick;
+
+    @SuppressWarnings("unchecked")
+    public TimerWheel(String name, Duration tickDuration, int wheelSize) {
+        if (wheelSize <= 0 || tickDuration.isNegative() || tickDuration.isZero()) {
+            throw new IllegalArgumentException("Invalid timer wheel: tick " + tickDuration + ", size " + wheelSize);
+        }
+        this.tickNanos = tickDuration.toNanos();
+        this.buckets = new List[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            buckets[i] = new ArrayList<>();
+        }
+        this.startNanos = System.nanoTime();
+        this.worker = new Thread(this::run, name);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    public Timeout schedule(Runnable task, Duration delay) {
+        Timeout timeout = new Timeout(task, System.nanoTime() + Math.max(0, delay.toNanos()));
+        pending.add(timeout);
+        return timeout;
+    }
+
+    public int pendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Останавливает колесо; невыполненные задачи отбрасываются - владелец сбрасывает своё состояние сам.
+     */
+    @Override
+    public void close() {
+        running = false;
+        worker.interrupt();
+        try {
+            worker.join(TimeUnit.NANOSECONDS.toMillis(tickNanos) + 1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            long deadline = startNanos + (tick + 1) * tickNanos;
+            long sleep = deadline - System.nanoTime();
+            if (sleep > 0) {
+                LockSupport.parkNanos(this, sleep);
+                if (System.nanoTime() < deadline) {
+                    continue;
+                }
+            }
+            transferPending();
+            expire(buckets[(int) (tick % buckets.length)], deadline);
+            tick++;
+        }
+    }
+
+    private void transferPending() {
+        Timeout timeout;
+        while ((timeout = pending.poll()) != null) {
+            if (timeout.cancelled) {
+                continue;
+            }
+            long ticks = Math.max(tick, (timeout.deadlineNanos - startNanos + tickNanos - 1) / tickNanos - 1);
+            timeout.remainingRounds = (ticks - tick) / buckets.length;
+            buckets[(int) (ticks % buckets.length)].add(timeout);
+        }
+    }
+
+    private void expire(List<Timeout> bucket, long now) {
+        int kept = 0;
+        for (int i = 0; i < bucket.size(); i++) {
+            Timeout timeout = bucket.get(i);
+            if (timeout.cancelled) {
+                continue;
+            }
+            if (timeout.remainingRounds > 0 || timeout.deadlineNanos > now) {
+                if (timeout.remainingRounds > 0) {
+                    timeout.remainingRounds--;
+                }
+                bucket.set(kept++, timeout);
+                continue;
+            }
+            try {
+                timeout.task.run();
+            } catch (RuntimeException e) {
+                log.error("Timer task failed: {}", e.getMessage(), e);
+            }
+        }
+        bucket.subList(kept, bucket.size()).clear();
+    }
+
+    public static final class Timeout {
+
+        private final Runnable task;
+        private final long deadlineNanos;
+        private volatile boolean cancelled;
+        private long remainingRounds;
+
+        Timeout(Runnable task, long deadlineNanos) {
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.processing;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedThread;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Учёт закреплений виртуальных потоков за несущими (synchronized, native-вызовы): событие JFR
+ * {@code jdk.VirtualThreadPinned} длиннее {@code threshold} относится к исполнителю по имени
+ * потока. Закрепление блокирует несущий поток целиком, и при их росте виртуальные потоки
+ * перестают масштабироваться.
+ * <p>
+ * Без виртуальных потоков (JDK ниже 21) монитор не запускается и всегда показывает нули.
+ */
+@Slf4j
+public class VirtualThreadPinning implements AutoCloseable {
+
+    private static final String EVENT = "jdk.VirtualThreadPinned";
+
+    private final ConcurrentMap<String, LongAdder> eventsByExecutor = new ConcurrentHashMap<>();
+    private final LongAdder events = new LongAdder();
+    private final LongAdder pinnedMicros = new LongAdder();
+    private final Duration threshold;
+    private final AutoCloseable stream;
+
+    public VirtualThreadPinning(boolean enabled, Duration threshold) {
+        this.threshold = threshold;
+        this.stream = enabled && ListenerExecutors.virtualThreadsAvailable() ? Jfr.start(this, threshold) : null;
+    }
+
+    public void stats(String prefix, Map<String, Object> stats) {
+        stats.put(prefix + ".monitored", stream != null);
+        stats.put(prefix + ".threshold", threshold.toString());
+        stats.put(prefix + ".events", events.sum());
+        stats.put(prefix + ".pinnedMs", pinnedMicros.sum() / 1000.0);
+        Map<String, Long> byExecutor = new TreeMap<>();
+        eventsByExecutor.forEach((name, count) -> byExecutor.put(name, count.sum()));
+        stats.put(prefix + ".byExecutor", byExecutor);
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    void record(String threadName, Duration duration) {
+        events.increment();
+        pinnedMicros.add(duration.toNanos() / 1000);
+        eventsByExecutor.computeIfAbsent(executorName(threadName), n -> new LongAdder()).increment();
+    }
+
+    // "payment-worker-17" -> "payment-worker"
+    static String executorName(String threadName) {
+        if (threadName == null || threadName.isEmpty()) {
+            return "unnamed";
+        }
+        int end = threadName.length();
+        while (end > 0 && Character.isDigit(threadName.charAt(end - 1))) {
+            end--;
+        }
+        if (end < threadName.length() && end > 1 && threadName.charAt(end - 1) == '-') {
+            return threadName.substring(0, end - 1);
+        }
+        return threadName;
+    }
+
+    // Стриминг JFR (RecordingStream) появился в JDK 14, сборка на Java 11 - поэтому через reflection
+    private static final class Jfr {
+
+        static AutoCloseable start(VirtualThreadPinning target, Duration threshold) {
+            try {
+                Class<?> streamClass = Class.forName("jdk.jfr.consumer.RecordingStream");
+                Object stream = streamClass.getConstructor().newInstance();
+                Object settings = streamClass.getMethod("enable", String.class).invoke(stream, EVENT);
+                Class.forName("jdk.jfr.EventSettings").getMethod("withThreshold", Duration.class)
+                        .invoke(settings, threshold);
+                Consumer<RecordedEvent> handler = event -> target.record(threadName(event), event.getDuration());
+                streamClass.getMethod("onEvent", String.class, Consumer.class).invoke(stream, EVENT, handler);
+                streamClass.getMethod("setReuse", boolean.class).invoke(stream, true);
+                streamClass.getMethod("startAsync").invoke(stream);
+                log.info("Monitoring virtual thread pinning longer than {}", threshold);
+                return (AutoCloseable) stream;
+            } catch (ReflectiveOperationException e) {
+                log.warn("Virtual thread pinning is not monitored: {}", e.getMessage());
+                return null;
+            }
+        }
+
+        private static String threadName(RecordedEvent event) {
+            RecordedThread thread = event.getThread();
+            return thread == null ? null : thread.getJavaName();
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.snapshot;
+
+import com.example.model.Order;
+import com.example.model.OrderEvent;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.listener.BatchAcknowledgingMessageListener;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Локальный кеш тел заказов из компактного топика order_snapshots. Сам является листенером
+ * этого топика.
+ * <p>
+ * Вытеснения по размеру нет: снимок уходит из кеша по tombstone, который сервис заказов пишет,
+ * когда заказ дошёл до конечного статуса, то есть когда пайплайн по нему прошёл. В кеше
+ * остаются только заказы в работе, и консьюмер, отставший от реплея, не теряет их тела.
+ */
+public class OrderSnapshotCache implements BatchAcknowledgingMessageListener<String, OrderEvent> {
+
+    private static final int STRIPES = 16;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder removals = new LongAdder();
+
+    public OrderSnapshotCache() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    @Override
+    public void onMessage(List<ConsumerRecord<String, OrderEvent>> records, Acknowledgment ack) {
+        for (ConsumerRecord<String, OrderEvent> record : records) {
+            OrderEvent snapshot = record.value();
+            if (snapshot == null) {
+                // Tombstone компактного топика: заказ дошёл до конечного статуса
+                if (stripe(record.key()).remove(record.key())) {
+                    removals.increment();
+                }
+            } else if (snapshot.getPayload() != null && snapshot.getContentHash() != null) {
+                put(snapshot.getPayload(), snapshot.getContentHash());
+            }
+        }
+        ack.acknowledge();
+    }
+
+    public void put(Order order, long contentHash) {
+        stripe(order.getId()).put(order.getId(), new Snapshot(contentHash, order));
+    }
+
+    /**
+     * Тело заказа нужной версии или {@code null}, если его нет в кеше.
+     */
+    public Order get(String orderId, long contentHash) {
+        Snapshot entry = orderId == null ? null : stripe(orderId).get(orderId);
+        if (entry == null || entry.contentHash != contentHash) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.order;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("removals", removals.sum());
+        stats.put("size", size());
+        return stats;
+    }
+
+    private Stripe stripe(String orderId) {
+        int h = orderId.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (STRIPES - 1)];
+    }
+
+    private static final class Snapshot {
+
+        final long contentHash;
+        final Order order;
+
+        Snapshot(long contentHash, Order order) {
+            this.contentHash = contentHash;
+            this.order = order;
+        }
+    }
+
+    private final class Stripe {
+
+        private final HashMap<String, Snapshot> entries = new HashMap<>();
+
+        synchronized Snapshot get(String orderId) {
+            return entries.get(orderId);
+        }
+
+        synchronized void put(String orderId, Snapshot entry) {
+            entries.put(orderId, entry);
+        }
+
+        synchronized boolean remove(String orderId) {
+            return entries.remove(orderId) != null;
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+    }
+}
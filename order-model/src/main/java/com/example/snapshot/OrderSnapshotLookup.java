@@ -0,0 +1,131 @@
+package com.example.snapshot;
+
+import com.example.model.Order;
+import com.example.model.OrderEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.RecordDeserializationException;
+import org.apache.kafka.common.utils.Utils;
+import org.springframework.kafka.core.ConsumerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Перечитывание одного снимка из order_snapshots, когда его нет в кеше: тонкое событие
+ * обогнало реплей или снимок уже удалён tombstone, а консьюмер ещё не дошёл до события.
+ * <p>
+ * Ключ снимка - orderId, он уникален и горячим для партиционера не становится, поэтому
+ * раздел вычисляется так же, как у продюсера по умолчанию. Раздел читается с начала до конца,
+ * снятого при запросе: в компактном топике с tombstone это живые заказы и ещё не
+ * вычищенный хвост. Перечитывания идут по одному, один консьюмер на экземпляр.
+ */
+@Slf4j
+public class OrderSnapshotLookup implements AutoCloseable {
+
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(200);
+
+    private final String topic;
+    private final Map<String, Object> consumerProperties;
+    private final ConsumerFactory<String, OrderEvent> consumerFactory;
+    private final Duration timeout;
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder found = new LongAdder();
+
+    private KafkaConsumer<String, OrderEvent> consumer;
+
+    public OrderSnapshotLookup(String name, String topic, ConsumerFactory<String, OrderEvent> consumerFactory,
+                               Duration timeout) {
+        this.topic = topic;
+        this.consumerFactory = consumerFactory;
+        this.timeout = timeout;
+
+        Map<String, Object> properties = new HashMap<>(consumerFactory.getConfigurationProperties());
+        properties.remove(ConsumerConfig.GROUP_ID_CONFIG);
+        properties.remove(ConsumerConfig.GROUP_INSTANCE_ID_CONFIG);
+        properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        properties.put(ConsumerConfig.ALLOW_AUTO_CREATE_TOPICS_CONFIG, false);
+        properties.put(ConsumerConfig.CLIENT_ID_CONFIG, name);
+        this.consumerProperties = properties;
+    }
+
+    /**
+     * Последний снимок заказа с нужным хешем содержимого или {@code null}, если его нет
+     * в разделе или раздел не дочитан за {@code timeout}.
+     */
+    public synchronized Order find(String orderId, long contentHash) {
+        lookups.increment();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        try {
+            KafkaConsumer<String, OrderEvent> kafkaConsumer = consumer();
+            List<PartitionInfo> partitions = kafkaConsumer.partitionsFor(topic, timeout);
+            if (partitions == null || partitions.isEmpty()) {
+                return null;
+            }
+            byte[] keyBytes = orderId.getBytes(StandardCharsets.UTF_8);
+            TopicPartition partition = new TopicPartition(topic,
+                    Utils.toPositive(Utils.murmur2(keyBytes)) % partitions.size());
+            kafkaConsumer.assign(List.of(partition));
+            kafkaConsumer.seekToBeginning(List.of(partition));
+            long end = kafkaConsumer.endOffsets(List.of(partition), timeout).get(partition);
+
+            Order order = null;
+            while (kafkaConsumer.position(partition) < end) {
+                if (System.nanoTime() - deadline >= 0) {
+                    log.warn("Snapshot lookup of order {} in {} timed out after {}", orderId, partition, timeout);
+                    return null;
+                }
+                try {
+                    for (ConsumerRecord<String, OrderEvent> record : kafkaConsumer.poll(POLL_TIMEOUT)) {
+                        OrderEvent snapshot = record.value();
+                        // Tombstone пропускается: важен снимок до него, если он ещё не вычищен
+                        if (orderId.equals(record.key()) && snapshot != null && snapshot.getPayload() != null
+                                && snapshot.getContentHash() != null && snapshot.getContentHash() == contentHash) {
+                            order = snapshot.getPayload();
+                        }
+                    }
+                } catch (RecordDeserializationException e) {
+                    kafkaConsumer.seek(e.topicPartition(), e.offset() + 1);
+                }
+            }
+            if (order != null) {
+                found.increment();
+            }
+            return order;
+        } catch (RuntimeException e) {
+            // Консьюмер в неизвестном состоянии: следующий поиск создаст новый
+            log.warn("Snapshot lookup of order {} failed: {}", orderId, e.getMessage());
+            close();
+            return null;
+        }
+    }
+
+    public Map<String, Object> stats() {
+        return Map.of("lookups", lookups.sum(), "found", found.sum());
+    }
+
+    @Override
+    public synchronized void close() {
+        if (consumer != null) {
+            consumer.close(Duration.ZERO);
+            consumer = null;
+        }
+    }
+
+    private KafkaConsumer<String, OrderEvent> consumer() {
+        if (consumer == null) {
+            consumer = new KafkaConsumer<>(consumerProperties,
+                    consumerFactory.getKeyDeserializer(), consumerFactory.getValueDeserializer());
+        }
+        return consumer;
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.snapshot;
+
+/**
+ * Тело заказа для "тонкого" события ещё не пришло из order_snapshots или вытеснено из кеша.
+ * Запись уходит в топик повторов и обрабатывается, когда снимок будет прочитан.
+ */
+public class OrderSnapshotMissingException extends RuntimeException {
+
+    public OrderSnapshotMissingException(String orderId, Long contentHash) {
+        super("No snapshot for order " + orderId + " with content hash " + contentHash);
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.snapshot;
+
+import com.example.codec.OrderEventBinaryCodec;
+import com.example.model.EventType;
+import com.example.model.Order;
+import com.example.model.OrderEvent;
+
+/**
+ * Переход между "толстыми" событиями (полный {@link Order} в payload) и "тонкими"
+ * (orderId, статус, тип и хеш содержимого; тело - в order_snapshots).
+ * Читаются оба вида всегда, тонкие пишутся только при включённом {@code slim}.
+ */
+public class OrderSnapshotResolver {
+
+    private final OrderSnapshotCache cache;
+    private final OrderSnapshotLookup lookup;
+    private final boolean slim;
+
+    /**
+     * @param lookup перечитывание снимка из топика при промахе кеша; {@code null} - без него
+     */
+    public OrderSnapshotResolver(OrderSnapshotCache cache, OrderSnapshotLookup lookup, boolean slim) {
+        this.cache = cache;
+        this.lookup = lookup;
+        this.slim = slim;
+    }
+
+    public boolean isSlim() {
+        return slim;
+    }
+
+    /**
+     * Заказ события. Для тонкого события возвращается копия закешированного тела со статусом
+     * из события, чтобы обработчики могли менять статус, не трогая общий кеш. При промахе снимок
+     * перечитывается из топика по ключу и только если его нет и там, запись уходит в повторы.
+     */
+    public Order resolve(OrderEvent event) {
+        if (event.getPayload() != null) {
+            return event.getPayload();
+        }
+        Long contentHash = event.getContentHash();
+        if (contentHash == null) {
+            throw new OrderSnapshotMissingException(event.getOrderId(), null);
+        }
+        Order cached = cache.get(event.getOrderId(), contentHash);
+        if (cached == null && lookup != null) {
+            cached = lookup.find(event.getOrderId(), contentHash);
+        }
+        if (cached == null) {
+            throw new OrderSnapshotMissingException(event.getOrderId(), contentHash);
+        }
+        Order order = new Order();
+        order.setId(cached.getId());
+        order.setCustomerId(cached.getCustomerId());
+        order.setCustomerEmail(cached.getCustomerEmail());
+        order.setLines(cached.getLines());
+        order.setCurrency(cached.getCurrency());
+        order.setTotalMinor(cached.getTotalMinor());
+        order.setStatus(event.getStatus());
+        return order;
+    }
+
+    /**
+     * Следующее событие пайплайна по заказу. Тонким оно бывает, только если тонким было входящее:
+     * снимок в order_snapshots публикует сервис заказов, и хеш переносится из входящего события.
+     * Событие с конечным статусом всегда полное: по нему сервис заказов удаляет снимок, и его
+     * читатели не должны от снимка зависеть.
+     */
+    public OrderEvent next(OrderEvent source, Order order, EventType eventType) {
+        if (!slim || source.getContentHash() == null
+                || (order.getStatus() != null && order.getStatus().isTerminal())) {
+            return new OrderEvent(order.getId(), eventType, order);
+        }
+        return OrderEvent.slim(order.getId(), eventType, order.getStatus(), source.getContentHash());
+    }
+
+    public static long contentHash(Order order) {
+        return OrderEventBinaryCodec.contentHash(order);
+    }
+
+    /**
+     * Запись для order_snapshots: тело заказа с его хешем, ключ - orderId.
+     */
+    public static OrderEvent snapshot(Order order, long contentHash) {
+        OrderEvent snapshot = new OrderEvent(order.getId(), EventType.ORDER_CREATED, order);
+        snapshot.setContentHash(contentHash);
+        return snapshot;
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.snapshot;
+
+import com.example.model.OrderEvent;
+import com.example.transport.TopicReplayer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.kafka.core.ConsumerFactory;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Кеш снимков заказов и его наполнение из {@code kafka.topics.order-snapshots}.
+ * Сервис наследует класс в своей {@code @Configuration} и передаёт префикс client.id.
+ */
+public abstract class SnapshotConfigSupport {
+
+    private final String service;
+
+    @Value("${kafka.topics.order-snapshots}")
+    private String orderSnapshotsTopic;
+
+    @Value("${kafka.events.slim:false}")
+    private boolean slim;
+
+    // Промах кеша: сколько ждать перечитывания раздела order_snapshots, прежде чем уйти в повторы
+    @Value("${kafka.snapshots.lookup-timeout:5s}")
+    private Duration lookupTimeout;
+
+    // Пока кеш не дочитан, тонкие события не разрешаются и уходят в топики повторов
+    @Value("${kafka.snapshots.warmup-timeout:2m}")
+    private Duration warmupTimeout;
+
+    // false в профиле in-memory: снимки доставляет InMemoryTransport
+    @Value("${kafka.listeners.auto-startup:true}")
+    private boolean autoStartup;
+
+    protected SnapshotConfigSupport(String service) {
+        this.service = service;
+    }
+
+    @Bean
+    public OrderSnapshotCache orderSnapshotCache() {
+        return new OrderSnapshotCache();
+    }
+
+    @Bean
+    public OrderSnapshotLookup orderSnapshotLookup(ConsumerFactory<String, OrderEvent> consumerFactory) {
+        return new OrderSnapshotLookup(service + "-snapshot-lookup", orderSnapshotsTopic, consumerFactory,
+                lookupTimeout);
+    }
+
+    // В профиле in-memory перечитывать неоткуда: снимки живут только в очередях InMemoryTransport
+    @Bean
+    public OrderSnapshotResolver orderSnapshotResolver(OrderSnapshotLookup orderSnapshotLookup) {
+        return new OrderSnapshotResolver(orderSnapshotCache(), autoStartup ? orderSnapshotLookup : null, slim);
+    }
+
+    // Каждый экземпляр читает все снимки: разделы назначаются вручную, без группы
+    @Bean
+    public TopicReplayer<OrderEvent> orderSnapshotReplayer(ConsumerFactory<String, OrderEvent> consumerFactory) {
+        return new TopicReplayer<>(service + "-snapshots", List.of(orderSnapshotsTopic), consumerFactory,
+                orderSnapshotCache(), warmupTimeout, autoStartup);
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.tracing;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+// Задержки этапов пайплайна: ожидание в очереди, обработка, полная задержка от приёма заказа.
+// Общий для всех сервисов; где LatencyMetrics не объявлен (order-query), отвечает 404
+@RestController
+@RequestMapping("/api/latency")
+@RequiredArgsConstructor
+public class LatencyController {
+
+    private final ObjectProvider<LatencyMetrics> latencyMetrics;
+
+    @GetMapping
+    public ResponseEntity<Map<String, Map<String, Object>>> getLatency() {
+        LatencyMetrics metrics = latencyMetrics.getIfAvailable();
+        return metrics == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(metrics.snapshot());
+    }
+
+    @DeleteMapping
+    public ResponseEntity<Void> resetLatency() {
+        LatencyMetrics metrics = latencyMetrics.getIfAvailable();
+        if (metrics == null) {
+            return ResponseEntity.notFound().build();
+        }
+        metrics.reset();
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.tracing;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Распределения задержек по этапам на HdrHistogram.
+ * <p>
+ * Запись идёт в {@link Recorder} без блокировок; при чтении интервальные гистограммы
+ * сливаются в накопительную, которую можно сбросить через {@link #reset()}.
+ */
+public class LatencyMetrics {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.HOURS.toMicros(6);
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    private final ConcurrentMap<String, Metric> metrics = new ConcurrentHashMap<>();
+
+    public void record(String name, long micros) {
+        metrics.computeIfAbsent(name, n -> new Metric())
+                .recorder.recordValue(Math.min(Math.max(0, micros), HIGHEST_TRACKABLE_MICROS));
+    }
+
+    /**
+     * Перцентили в миллисекундах по каждой метрике.
+     */
+    public Map<String, Map<String, Object>> snapshot() {
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        metrics.forEach((name, metric) -> {
+            Histogram histogram = metric.accumulate();
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("count", histogram.getTotalCount());
+            summary.put("meanMs", histogram.getMean() / 1000.0);
+            summary.put("p50Ms", histogram.getValueAtPercentile(50) / 1000.0);
+            summary.put("p90Ms", histogram.getValueAtPercentile(90) / 1000.0);
+            summary.put("p99Ms", histogram.getValueAtPercentile(99) / 1000.0);
+            summary.put("p999Ms", histogram.getValueAtPercentile(99.9) / 1000.0);
+            summary.put("maxMs", histogram.getMaxValue() / 1000.0);
+            result.put(name, summary);
+        });
+        return result;
+    }
+
+    public void reset() {
+        metrics.values().forEach(Metric::reset);
+    }
+
+    private static final class Metric {
+        private final Recorder recorder = new Recorder(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+        private final Histogram total = new Histogram(HIGHEST_TRACKABLE_MICROS, SIGNIFICANT_DIGITS);
+        private Histogram interval;
+
+        synchronized Histogram accumulate() {
+            interval = recorder.getIntervalHistogram(interval);
+            total.add(interval);
+            return total.copy();
+        }
+
+        synchronized void reset() {
+            interval = recorder.getIntervalHistogram(interval);
+            total.reset();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.tracing;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Headers;
+
+/**
+ * Трассировка одного этапа пайплайна.
+ * <p>
+ * Для каждой записи считает ожидание в очереди (от {@code trace.<upstream>.out} до начала
+ * обработки), время обработки этапом и полную задержку от приёма заказа
+ * ({@code trace.intake.in}); исходящие записи получают входящие заголовки плюс отметки этапа.
+ */
+public class StageTracer {
+
+    public static final String INTAKE = "intake";
+
+    private final String stageIn;
+    private final String stageOut;
+    private final String upstreamOut;
+    private final String originIn;
+
+    private final String queueWaitMetric;
+    private final String processingMetric;
+    private final String endToEndMetric;
+
+    private final LatencyMetrics metrics;
+
+    public StageTracer(String stage, String upstream, LatencyMetrics metrics) {
+        this.stageIn = TraceHeaders.in(stage);
+        this.stageOut = TraceHeaders.out(stage);
+        this.upstreamOut = upstream != null ? TraceHeaders.out(upstream) : null;
+        this.originIn = TraceHeaders.in(INTAKE);
+        this.queueWaitMetric = stage + ".queue-wait";
+        this.processingMetric = stage + ".processing";
+        this.endToEndMetric = stage + ".end-to-end";
+        this.metrics = metrics;
+    }
+
+    public LatencyMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Начало обработки записи, пришедшей с предыдущего этапа.
+     */
+    public Trace begin(ConsumerRecord<?, ?> record) {
+        long now = TraceHeaders.nowMicros();
+        Headers incoming = record.headers();
+
+        long upstreamSent = upstreamOut != null ? TraceHeaders.get(incoming, upstreamOut) : -1;
+        if (upstreamSent < 0 && record.timestamp() > 0) {
+            // Запись от продюсера без трассировки - берём CreateTime
+            upstreamSent = record.timestamp() * 1000;
+        }
+        if (upstreamSent >= 0) {
+            metrics.record(queueWaitMetric, now - upstreamSent);
+        }
+        long origin = TraceHeaders.get(incoming, originIn);
+        if (origin >= 0) {
+            metrics.record(endToEndMetric, now - origin);
+        }
+        return new Trace(TraceHeaders.copyTrace(incoming), now);
+    }
+
+    /**
+     * Начало обработки на первом этапе (приём заказа), входящих заголовков нет.
+     */
+    public Trace start() {
+        return new Trace(TraceHeaders.copyTrace(null), TraceHeaders.nowMicros());
+    }
+
+    public final class Trace {
+        private final Headers incoming;
+        private final long startedMicros;
+
+        private Trace(Headers incoming, long startedMicros) {
+            this.incoming = incoming;
+            this.startedMicros = startedMicros;
+        }
+
+        /**
+         * Заголовки для исходящей записи: входящие плюс отметки начала и отправки этапа.
+         */
+        public Headers outgoing() {
+            Headers headers = TraceHeaders.copyTrace(incoming);
+            TraceHeaders.put(headers, stageIn, startedMicros);
+            TraceHeaders.put(headers, stageOut, TraceHeaders.nowMicros());
+            return headers;
+        }
+
+        public void end() {
+            metrics.record(processingMetric, TraceHeaders.nowMicros() - startedMicros);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.tracing;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+
+/**
+ * Заголовки трассировки: {@code trace.<stage>.in} / {@code trace.<stage>.out} - время
+ * в микросекундах от эпохи (8 байт big-endian), когда этап взял заказ в работу и когда
+ * отправил результат. Каждый этап копирует заголовки входящей записи и добавляет свои.
+ */
+public final class TraceHeaders {
+
+    public static final String PREFIX = "trace.";
+
+    private TraceHeaders() {
+    }
+
+    public static String in(String stage) {
+        return PREFIX + stage + ".in";
+    }
+
+    public static String out(String stage) {
+        return PREFIX + stage + ".out";
+    }
+
+    public static long nowMicros() {
+        Instant now = Instant.now();
+        return now.getEpochSecond() * 1_000_000L + now.getNano() / 1_000;
+    }
+
+    public static void put(Headers headers, String key, long micros) {
+        headers.remove(key);
+        headers.add(key, ByteBuffer.allocate(Long.BYTES).putLong(micros).array());
+    }
+
+    public static long get(Headers headers, String key) {
+        if (headers == null) {
+            return -1;
+        }
+        Header header = headers.lastHeader(key);
+        if (header == null || header.value() == null || header.value().length != Long.BYTES) {
+            return -1;
+        }
+        return ByteBuffer.wrap(header.value()).getLong();
+    }
+
+    public static Headers copyTrace(Headers source) {
+        RecordHeaders copy = new RecordHeaders();
+        if (source != null) {
+            for (Header header : source) {
+                if (header.key().startsWith(PREFIX)) {
+                    copy.add(header.key(), header.value());
+                }
+            }
+        }
+        return copy;
+    }
+}
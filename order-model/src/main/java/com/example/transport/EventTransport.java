@@ -0,0 +1,22 @@
+package com.example.transport;
+
+import org.apache.kafka.common.header.Headers;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Отправка событий между сервисами: Kafka ({@link KafkaEventTransport}) или очереди внутри
+ * одной JVM ({@link InMemoryTransport}). Порядок сохраняется для записей с одним ключом.
+ */
+public interface EventTransport {
+
+    /**
+     * Будущее завершается, когда запись принята транспортом: брокером или очередью получателя.
+     */
+    CompletableFuture<Void> send(String topic, String key, Object value, Headers headers);
+
+    /**
+     * Отправляет накопленные записи, не дожидаясь linger.
+     */
+    void flush();
+}
@@ -0,0 +1,96 @@
+package com.example.transport;
+
+import com.example.processing.BatchSender;
+import com.example.processing.DelayedRetryListener;
+import com.example.processing.EventDeduplicator;
+import com.example.processing.RecordHandler;
+import com.example.processing.RetryTopicRouter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Подписки сервиса на {@link InMemoryTransport} вместо контейнеров {@code @KafkaListener}:
+ * регистрируются при создании бина, а подписываются при старте контекста, как и контейнеры.
+ */
+@Slf4j
+public class InMemoryListeners implements SmartLifecycle {
+
+    private final InMemoryTransport transport;
+    private final int concurrency;
+    private final int maxBatch;
+    private final List<Registration<?>> registrations = new ArrayList<>();
+    private final List<InMemoryTransport.Subscription> subscriptions = new ArrayList<>();
+    private volatile boolean running;
+
+    public InMemoryListeners(InMemoryTransport transport, int concurrency, int maxBatch) {
+        this.transport = transport;
+        this.concurrency = concurrency;
+        this.maxBatch = maxBatch;
+    }
+
+    public <V> InMemoryListeners listen(String group, List<String> topics, InMemoryTransport.Listener<V> listener) {
+        registrations.add(new Registration<>(group, topics, concurrency, listener));
+        return this;
+    }
+
+    /**
+     * Топики задержки, по одной подписке на уровень - как {@link com.example.processing.RetryListenerContainers}.
+     */
+    public <V> InMemoryListeners listenRetries(RetryTopicRouter router, String baseTopic, String group,
+                                               BatchSender batchSender, EventDeduplicator deduplicator,
+                                               Function<V, String> eventIdOf, RecordHandler<V> handler) {
+        for (Duration delay : router.getDelays()) {
+            DelayedRetryListener<V> listener = new DelayedRetryListener<>(handler, router, batchSender,
+                    deduplicator, eventIdOf, delay);
+            InMemoryTransport.Listener<V> adapter = listener::onMessage;
+            registrations.add(new Registration<>(group, List.of(router.retryTopic(baseTopic, delay)), 1, adapter));
+        }
+        return this;
+    }
+
+    @Override
+    public synchronized void start() {
+        for (Registration<?> registration : registrations) {
+            subscriptions.add(registration.subscribe());
+        }
+        running = true;
+    }
+
+    @Override
+    public synchronized void stop() {
+        for (InMemoryTransport.Subscription subscription : subscriptions) {
+            subscription.close();
+        }
+        subscriptions.clear();
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private final class Registration<V> {
+
+        private final String group;
+        private final List<String> topics;
+        private final int concurrency;
+        private final InMemoryTransport.Listener<V> listener;
+
+        Registration(String group, List<String> topics, int concurrency, InMemoryTransport.Listener<V> listener) {
+            this.group = group;
+            this.topics = topics;
+            this.concurrency = concurrency;
+            this.listener = listener;
+        }
+
+        InMemoryTransport.Subscription subscribe() {
+            return transport.subscribe(group, topics, concurrency, maxBatch, listener);
+        }
+    }
+}
@@ -0,0 +1,645 @@
+package com.example.transport;
+
+import com.example.codec.OrderEventBinaryCodec;
+import com.example.model.OrderEvent;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.apache.kafka.common.utils.Utils;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Транспорт внутри одной JVM для конвейера без брокера.
+ * <p>
+ * Модель та же, что у Kafka: топик из {@code partitions} партиций (партиция - murmur2 от ключа,
+ * как у продюсера Kafka), каждая группа получает свою копию каждой записи, партицию группы
+ * читает один поток - порядок записей с одним ключом сохраняется. Очередь партиции -
+ * {@link PartitionQueue} на {@code queueCapacity} записей; при переполнении отправитель ждёт
+ * не дольше {@code maxBlock} (как {@code max.block.ms}), затем отправка завершается ошибкой.
+ * Запись попадает либо в очереди всех групп, либо ни в одну, так что повтор неудачной
+ * отправки не доставляет её дважды.
+ * <p>
+ * Листенеры получают {@link ConsumerRecord} и {@link Delivery} вместо {@link Acknowledgment},
+ * поэтому методы {@code @KafkaListener} сервисов подписываются без изменений. Исключение
+ * листенера - повтор той же пачки (до {@value #MAX_DELIVERY_ATTEMPTS} раз, как обработчик
+ * ошибок контейнера по умолчанию), {@code nack} - повтор хвоста пачки после паузы.
+ * <p>
+ * Значение {@link OrderEvent} передаётся каждой группе отдельной копией через бинарный кодек:
+ * сервисы меняют полученный заказ, а между процессами объекты и так не разделялись. Записи
+ * топика без подписчиков отбрасываются - хранения, как у брокера, нет.
+ */
+@Slf4j
+public class InMemoryTransport implements EventTransport {
+
+    static final int MAX_DELIVERY_ATTEMPTS = 10;
+
+    private static final Duration RETRY_BACKOFF = Duration.ofMillis(100);
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long FULL_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final int FULL_SPINS = 100;
+
+    private static InMemoryTransport shared;
+
+    @Value
+    public static class Settings {
+        int partitions;
+        int queueCapacity;
+        Duration maxBlock;
+    }
+
+    /**
+     * Листенер пачки; сигнатура совпадает с batch-методами {@code @KafkaListener} сервисов.
+     */
+    public interface Listener<V> {
+        void onBatch(List<ConsumerRecord<String, V>> records, Delivery delivery);
+    }
+
+    private final Settings settings;
+    private final long maxBlockNanos;
+    private final ConcurrentMap<String, Topic> topics = new ConcurrentHashMap<>();
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final ConcurrentMap<String, AtomicInteger> pausedGroups = new ConcurrentHashMap<>();
+
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder blockedSends = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+
+    public InMemoryTransport(Settings settings) {
+        if (settings.getPartitions() <= 0) {
+            throw new IllegalArgumentException("Partitions must be positive: " + settings);
+        }
+        this.settings = settings;
+        this.maxBlockNanos = settings.getMaxBlock().toNanos();
+    }
+
+    /**
+     * Общий экземпляр JVM: через него обмениваются сервисы, запущенные в одном процессе.
+     * Настройки берутся у первого вызова.
+     */
+    public static synchronized InMemoryTransport shared(Settings settings) {
+        if (shared == null) {
+            shared = new InMemoryTransport(settings);
+            log.info("In-memory transport created: {}", settings);
+        } else if (!shared.settings.equals(settings)) {
+            log.warn("In-memory transport already created with {}, ignoring {}", shared.settings, settings);
+        }
+        return shared;
+    }
+
+    public Settings getSettings() {
+        return settings;
+    }
+
+    @Override
+    public CompletableFuture<Void> send(String topicName, String key, Object value, Headers headers) {
+        sent.increment();
+        Topic topic = topic(topicName);
+        GroupQueues[] groups = topic.groups;
+        if (groups.length == 0) {
+            dropped.increment();
+            return CompletableFuture.completedFuture(null);
+        }
+
+        int partition = topic.partition(key);
+        byte[] encoded = value instanceof OrderEvent ? OrderEventBinaryCodec.encode((OrderEvent) value) : null;
+        // Места ждём во всех группах до постановки в очереди: отказ одной группы после того, как
+        // другие запись уже получили, превратил бы повтор отправки в двойную доставку этим группам.
+        // Отправители партиции упорядочены, поэтому освободившееся место никто не займёт
+        synchronized (topic.sendLocks[partition]) {
+            long deadline = System.nanoTime() + maxBlockNanos;
+            for (GroupQueues group : groups) {
+                if (!group.awaitRoom(partition, deadline)) {
+                    timedOut.increment();
+                    return CompletableFuture.failedFuture(new TimeoutException("Queue of group " + group.group
+                            + " for " + topicName + "-" + partition + " full for " + settings.getMaxBlock()));
+                }
+            }
+            long offset = topic.offsets.getAndIncrement(partition);
+            long timestamp = System.currentTimeMillis();
+            for (GroupQueues group : groups) {
+                Object copy = encoded != null ? OrderEventBinaryCodec.decode(encoded) : value;
+                Headers headersCopy = headers != null ? new RecordHeaders(headers.toArray()) : new RecordHeaders();
+                group.put(partition, new ConsumerRecord<>(topicName, partition, offset, timestamp,
+                        TimestampType.CREATE_TIME, -1, -1, key, copy, headersCopy, Optional.empty()));
+            }
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    // Отправка завершается сразу при постановке в очередь
+    @Override
+    public void flush() {
+    }
+
+    /**
+     * Подписывает группу на топики: {@code concurrency} потоков делят партиции между собой,
+     * пачка - не больше {@code maxBatch} записей.
+     */
+    public synchronized <V> Subscription subscribe(String group, Collection<String> topicNames,
+                                                   int concurrency, int maxBatch, Listener<V> listener) {
+        for (Subscription existing : subscriptions) {
+            if (existing.group.equals(group) && existing.topicNames.stream().anyMatch(topicNames::contains)) {
+                throw new IllegalStateException("Group " + group + " is already subscribed to " + existing.topicNames);
+            }
+        }
+        @SuppressWarnings("unchecked")
+        Listener<Object> untyped = (Listener<Object>) (Listener<?>) listener;
+        Subscription subscription = new Subscription(group, new ArrayList<>(topicNames),
+                Math.max(1, Math.min(concurrency, settings.getPartitions() * topicNames.size())),
+                Math.max(1, maxBatch), untyped);
+        subscriptions.add(subscription);
+        subscription.start();
+        log.info("Group '{}' subscribed to {} with {} consumer thread(s)", group, topicNames, subscription.workers.length);
+        return subscription;
+    }
+
+    /**
+     * Приостанавливает выборку новых записей группой; вызовы считаются, как у backpressure.
+     */
+    public void pause(String group) {
+        if (pausedGroups.computeIfAbsent(group, g -> new AtomicInteger()).incrementAndGet() == 1) {
+            log.info("Group '{}' paused", group);
+        }
+    }
+
+    public void resume(String group) {
+        AtomicInteger paused = pausedGroups.get(group);
+        if (paused != null && paused.decrementAndGet() == 0) {
+            log.info("Group '{}' resumed", group);
+            for (Subscription subscription : subscriptions) {
+                if (subscription.group.equals(group)) {
+                    subscription.wakeAll();
+                }
+            }
+        }
+    }
+
+    /**
+     * Записи, ещё не переданные листенерам группы, включая ожидающие повтора.
+     */
+    public long lag(String group) {
+        long lag = 0;
+        for (Subscription subscription : subscriptions) {
+            if (subscription.group.equals(group)) {
+                lag += subscription.lag();
+            }
+        }
+        return lag;
+    }
+
+    public void stats(String prefix, Map<String, Object> stats) {
+        stats.put(prefix + ".partitions", settings.getPartitions());
+        stats.put(prefix + ".queueCapacity", settings.getQueueCapacity());
+        stats.put(prefix + ".sent", sent.sum());
+        stats.put(prefix + ".dropped", dropped.sum());
+        stats.put(prefix + ".blockedSends", blockedSends.sum());
+        stats.put(prefix + ".timedOut", timedOut.sum());
+        Map<String, Map<String, Object>> groups = new TreeMap<>();
+        for (Subscription subscription : subscriptions) {
+            Map<String, Object> group = groups.computeIfAbsent(subscription.group, g -> new LinkedHashMap<>());
+            group.merge("lag", subscription.lag(), (a, b) -> (Long) a + (Long) b);
+            group.merge("delivered", subscription.delivered.sum(), (a, b) -> (Long) a + (Long) b);
+            group.merge("redelivered", subscription.redelivered.sum(), (a, b) -> (Long) a + (Long) b);
+            group.merge("failedBatches", subscription.failedBatches.sum(), (a, b) -> (Long) a + (Long) b);
+            group.put("paused", isPaused(subscription.group));
+        }
+        stats.put(prefix + ".groups", groups);
+    }
+
+    private boolean isPaused(String group) {
+        AtomicInteger paused = pausedGroups.get(group);
+        return paused != null && paused.get() > 0;
+    }
+
+    private Topic topic(String name) {
+        Topic topic = topics.get(name);
+        return topic != null ? topic : topics.computeIfAbsent(name, n -> new Topic(settings.getPartitions()));
+    }
+
+    private static final class Topic {
+
+        final AtomicLongArray offsets;
+        final Object[] sendLocks;
+        private final AtomicInteger roundRobin = new AtomicInteger();
+        // Копия при записи: отправка читает массив без блокировок
+        volatile GroupQueues[] groups = new GroupQueues[0];
+
+        Topic(int partitions) {
+            this.offsets = new AtomicLongArray(partitions);
+            this.sendLocks = new Object[partitions];
+            for (int i = 0; i < partitions; i++) {
+                sendLocks[i] = new Object();
+            }
+        }
+
+        int partition(String key) {
+            int partitions = offsets.length();
+            if (key == null) {
+                return Utils.toPositive(roundRobin.getAndIncrement()) % partitions;
+            }
+            return Utils.toPositive(Utils.murmur2(key.getBytes(StandardCharsets.UTF_8))) % partitions;
+        }
+
+        synchronized void add(GroupQueues group) {
+            GroupQueues[] updated = Arrays.copyOf(groups, groups.length + 1);
+            updated[groups.length] = group;
+            groups = updated;
+        }
+
+        synchronized void remove(GroupQueues group) {
+            groups = Arrays.stream(groups).filter(g -> g != group).toArray(GroupQueues[]::new);
+        }
+    }
+
+    // Очереди одной группы на одном топике: по одной на партицию
+    private final class GroupQueues {
+
+        final String group;
+        final PartitionQueue<ConsumerRecord<String, Object>>[] queues;
+        final Worker[] owners;
+        volatile boolean closed;
+
+        @SuppressWarnings("unchecked")
+        GroupQueues(String group, int partitions) {
+            this.group = group;
+            this.queues = new PartitionQueue[partitions];
+            this.owners = new Worker[partitions];
+            for (int i = 0; i < partitions; i++) {
+                queues[i] = new PartitionQueue<>(settings.getQueueCapacity());
+            }
+        }
+
+        /**
+         * Ждёт места в очереди партиции; вызывается под блокировкой отправителей партиции.
+         * Закрытая подписка места не требует: запись ей не доставляется.
+         */
+        boolean awaitRoom(int partition, long deadline) {
+            PartitionQueue<ConsumerRecord<String, Object>> queue = queues[partition];
+            if (queue.hasRoom()) {
+                return true;
+            }
+            blockedSends.increment();
+            Worker owner = owners[partition];
+            int spins = 0;
+            do {
+                if (closed) {
+                    return true;
+                }
+                if (System.nanoTime() - deadline >= 0) {
+                    return false;
+                }
+                owner.wake();
+                if (++spins < FULL_SPINS) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(FULL_PARK_NANOS);
+                }
+            } while (!queue.hasRoom());
+            return true;
+        }
+
+        // После awaitRoom место есть, не принять запись может только закрытая подписка
+        void put(int partition, ConsumerRecord<String, Object> record) {
+            if (!queues[partition].offer(record)) {
+                dropped.increment();
+                return;
+            }
+            owners[partition].wake();
+        }
+
+        long size() {
+            long size = 0;
+            for (PartitionQueue<ConsumerRecord<String, Object>> queue : queues) {
+                size += queue.size();
+            }
+            return size;
+        }
+    }
+
+    /**
+     * Подписка группы на топики; закрытие останавливает её потоки, непрочитанные записи теряются.
+     */
+    public final class Subscription implements AutoCloseable {
+
+        private final String group;
+        private final List<String> topicNames;
+        private final Listener<Object> listener;
+        private final int maxBatch;
+        private final Worker[] workers;
+        private final List<GroupQueues> queues = new ArrayList<>();
+
+        private final LongAdder delivered = new LongAdder();
+        private final LongAdder redelivered = new LongAdder();
+        private final LongAdder failedBatches = new LongAdder();
+
+        private Subscription(String group, List<String> topicNames, int concurrency, int maxBatch,
+                             Listener<Object> listener) {
+            this.group = group;
+            this.topicNames = topicNames;
+            this.listener = listener;
+            this.maxBatch = maxBatch;
+            this.workers = new Worker[concurrency];
+            for (int i = 0; i < concurrency; i++) {
+                workers[i] = new Worker(this, group + "-consumer-" + i);
+            }
+            // Партиции всех топиков делятся между потоками по кругу
+            int next = 0;
+            for (String topicName : topicNames) {
+                GroupQueues groupQueues = new GroupQueues(group, settings.getPartitions());
+                for (int partition = 0; partition < settings.getPartitions(); partition++) {
+                    Worker worker = workers[next++ % concurrency];
+                    groupQueues.owners[partition] = worker;
+                    worker.queues.add(groupQueues.queues[partition]);
+                }
+                queues.add(groupQueues);
+            }
+        }
+
+        public String getGroup() {
+            return group;
+        }
+
+        private void start() {
+            for (int i = 0; i < topicNames.size(); i++) {
+                topic(topicNames.get(i)).add(queues.get(i));
+            }
+            for (Worker worker : workers) {
+                worker.thread.start();
+            }
+        }
+
+        private void wakeAll() {
+            for (Worker worker : workers) {
+                worker.wake();
+            }
+        }
+
+        private long lag() {
+            long lag = 0;
+            for (GroupQueues groupQueues : queues) {
+                lag += groupQueues.size();
+            }
+            for (Worker worker : workers) {
+                lag += worker.pendingRedelivery;
+            }
+            return lag;
+        }
+
+        @Override
+        public void close() {
+            for (int i = 0; i < topicNames.size(); i++) {
+                queues.get(i).closed = true;
+                topic(topicNames.get(i)).remove(queues.get(i));
+            }
+            for (Worker worker : workers) {
+                worker.running = false;
+                LockSupport.unpark(worker.thread);
+            }
+            for (Worker worker : workers) {
+                try {
+                    worker.thread.join(TimeUnit.SECONDS.toMillis(30));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            subscriptions.remove(this);
+            long unread = lag();
+            if (unread > 0) {
+                log.warn("Group '{}' unsubscribed from {} with {} unread record(s)", group, topicNames, unread);
+            }
+        }
+    }
+
+    private final class Worker implements Runnable {
+
+        private final Subscription subscription;
+        private final Thread thread;
+        private final List<PartitionQueue<ConsumerRecord<String, Object>>> queues = new ArrayList<>();
+
+        // Состояние ниже - только поток консьюмера, кроме флагов
+        private final Deque<ConsumerRecord<String, Object>> redelivery = new ArrayDeque<>();
+        private final Deque<Delivery> unacknowledged = new ArrayDeque<>();
+        private long resumeAt;
+        private int nextQueue;
+
+        private volatile boolean running = true;
+        private volatile boolean sleeping;
+        private volatile int pendingRedelivery;
+
+        Worker(Subscription subscription, String name) {
+            this.subscription = subscription;
+            this.thread = new Thread(this, name);
+            this.thread.setDaemon(true);
+        }
+
+        void wake() {
+            if (sleeping) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                pruneAcknowledged();
+                List<ConsumerRecord<String, Object>> batch = nextBatch();
+                if (batch.isEmpty()) {
+                    idle();
+                } else {
+                    deliver(batch);
+                }
+            }
+        }
+
+        private List<ConsumerRecord<String, Object>> nextBatch() {
+            List<ConsumerRecord<String, Object>> batch = new ArrayList<>();
+            // Как poll приостановленного консьюмера: ни новых записей, ни перемотанных
+            if (isPaused(subscription.group)) {
+                return batch;
+            }
+            if (!redelivery.isEmpty()) {
+                // Как после nack в Kafka: пока хвост ждёт повтора, новые записи не выбираются
+                if (System.nanoTime() - resumeAt >= 0) {
+                    while (batch.size() < subscription.maxBatch && !redelivery.isEmpty()) {
+                        batch.add(redelivery.pollFirst());
+                    }
+                    pendingRedelivery = redelivery.size();
+                    subscription.redelivered.add(batch.size());
+                }
+                return batch;
+            }
+            int count = queues.size();
+            for (int i = 0; i < count && batch.size() < subscription.maxBatch; i++) {
+                queues.get((nextQueue + i) % count).drainTo(batch, subscription.maxBatch - batch.size());
+            }
+            nextQueue = (nextQueue + 1) % count;
+            return batch;
+        }
+
+        private void idle() {
+            sleeping = true;
+            try {
+                if (!hasWork()) {
+                    long parkNanos = redelivery.isEmpty()
+                            ? IDLE_PARK_NANOS
+                            : Math.min(IDLE_PARK_NANOS, resumeAt - System.nanoTime());
+                    LockSupport.parkNanos(this, Math.max(1, parkNanos));
+                }
+            } finally {
+                sleeping = false;
+            }
+        }
+
+        private boolean hasWork() {
+            if (!running) {
+                return true;
+            }
+            if (isPaused(subscription.group)) {
+                return false;
+            }
+            if (!redelivery.isEmpty()) {
+                return System.nanoTime() - resumeAt >= 0;
+            }
+            for (PartitionQueue<ConsumerRecord<String, Object>> queue : queues) {
+                if (!queue.isEmpty()) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void deliver(List<ConsumerRecord<String, Object>> batch) {
+            Delivery delivery = new Delivery(this, batch);
+            unacknowledged.addLast(delivery);
+            for (int attempt = 1; running; attempt++) {
+                try {
+                    subscription.listener.onBatch(batch, delivery);
+                    subscription.delivered.add(batch.size());
+                    return;
+                } catch (RuntimeException e) {
+                    subscription.failedBatches.increment();
+                    if (attempt >= MAX_DELIVERY_ATTEMPTS) {
+                        log.error("Group '{}': batch of {} record(s) failed {} times, skipping: {}",
+                                subscription.group, batch.size(), attempt, e.getMessage());
+                        delivery.acknowledge();
+                        return;
+                    }
+                    log.warn("Group '{}': batch of {} record(s) failed on attempt {}, redelivering: {}",
+                            subscription.group, batch.size(), attempt, e.getMessage());
+                    LockSupport.parkNanos(RETRY_BACKOFF.toNanos());
+                }
+            }
+        }
+
+        // Подтверждение пачки подтверждает и все предыдущие, как коммит смещения
+        private void pruneAcknowledged() {
+            Delivery last = null;
+            for (Delivery delivery : unacknowledged) {
+                if (delivery.acknowledged) {
+                    last = delivery;
+                }
+            }
+            if (last != null) {
+                while (unacknowledged.pollFirst() != last) {
+                    // удаляем всё до последней подтверждённой включительно
+                }
+            }
+        }
+
+        private void redeliver(List<ConsumerRecord<String, Object>> records, Duration sleep) {
+            for (int i = records.size() - 1; i >= 0; i--) {
+                redelivery.addFirst(records.get(i));
+            }
+            pendingRedelivery = redelivery.size();
+            resumeAt = System.nanoTime() + sleep.toNanos();
+        }
+
+        private void rewind() {
+            List<ConsumerRecord<String, Object>> records = new ArrayList<>();
+            for (Delivery delivery : unacknowledged) {
+                if (!delivery.acknowledged) {
+                    records.addAll(delivery.records);
+                }
+            }
+            unacknowledged.clear();
+            redeliver(records, Duration.ZERO);
+            log.warn("Group '{}': rewound {} unacknowledged record(s)", subscription.group, records.size());
+        }
+
+        private void checkConsumerThread() {
+            if (Thread.currentThread() != thread) {
+                throw new IllegalStateException("nack and rewind must be called on the consumer thread");
+            }
+        }
+    }
+
+    /**
+     * Подтверждение пачки. {@code acknowledge()} можно вызывать из любого потока,
+     * {@code nack} и {@link #rewind()} - только из листенера, как у контейнера Kafka.
+     */
+    public final class Delivery implements Acknowledgment {
+
+        private final Worker worker;
+        private final List<ConsumerRecord<String, Object>> records;
+        private volatile boolean acknowledged;
+
+        private Delivery(Worker worker, List<ConsumerRecord<String, Object>> records) {
+            this.worker = worker;
+            this.records = records;
+        }
+
+        @Override
+        public void acknowledge() {
+            acknowledged = true;
+        }
+
+        @Override
+        public void nack(Duration sleep) {
+            nack(0, sleep);
+        }
+
+        @Override
+        public void nack(int index, Duration sleep) {
+            worker.checkConsumerThread();
+            worker.redeliver(records.subList(index, records.size()), sleep);
+            acknowledged = true;
+        }
+
+        /**
+         * Повторно доставляет все неподтверждённые пачки этого потока, начиная с самой старой, -
+         * аналог перемотки консьюмера к закоммиченным смещениям.
+         */
+        public void rewind() {
+            worker.checkConsumerThread();
+            worker.rewind();
+        }
+    }
+}
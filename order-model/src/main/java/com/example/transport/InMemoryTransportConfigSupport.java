@@ -0,0 +1,40 @@
+package com.example.transport;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+
+import java.time.Duration;
+
+/**
+ * Профиль in-memory: сервис работает в одной JVM с остальными (order-pipeline),
+ * события идут через общий {@link InMemoryTransport}, контейнеры Kafka не запускаются.
+ * Сервис наследует класс в своей {@code @Configuration @Profile("in-memory")} и подписывает
+ * обработчики на топики через {@link #listeners()}.
+ */
+public abstract class InMemoryTransportConfigSupport {
+
+    @Value("${kafka.consumer.concurrency:3}")
+    private int concurrency;
+
+    @Value("${transport.in-memory.partitions:3}")
+    private int partitions;
+
+    @Value("${transport.in-memory.queue-capacity:1024}")
+    private int queueCapacity;
+
+    @Value("${transport.in-memory.max-block:60s}")
+    private Duration maxBlock;
+
+    @Value("${transport.in-memory.max-batch:500}")
+    private int maxBatch;
+
+    // Общий для всех сервисов процесса, поэтому контекст его не закрывает
+    @Bean(destroyMethod = "")
+    public InMemoryTransport inMemoryTransport() {
+        return InMemoryTransport.shared(new InMemoryTransport.Settings(partitions, queueCapacity, maxBlock));
+    }
+
+    protected InMemoryListeners listeners() {
+        return new InMemoryListeners(inMemoryTransport(), concurrency, maxBatch);
+    }
+}
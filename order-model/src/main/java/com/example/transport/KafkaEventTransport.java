@@ -0,0 +1,32 @@
+package com.example.transport;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Headers;
+import org.springframework.kafka.core.KafkaTemplate;
+
+import java.util.concurrent.CompletableFuture;
+
+public class KafkaEventTransport implements EventTransport {
+
+    private final KafkaTemplate<String, Object> kafkaTemplate;
+
+    public KafkaEventTransport(KafkaTemplate<String, Object> kafkaTemplate) {
+        this.kafkaTemplate = kafkaTemplate;
+    }
+
+    // Транзакции и прочее, чего нет в EventTransport
+    public KafkaTemplate<String, Object> getKafkaTemplate() {
+        return kafkaTemplate;
+    }
+
+    @Override
+    public CompletableFuture<Void> send(String topic, String key, Object value, Headers headers) {
+        return kafkaTemplate.send(new ProducerRecord<>(topic, null, key, value, headers))
+                .thenApply(result -> null);
+    }
+
+    @Override
+    public void flush() {
+        kafkaTemplate.flush();
+    }
+}
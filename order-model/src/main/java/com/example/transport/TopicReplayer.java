@@ -0,0 +1,235 @@
+package com.example.transport;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.RecordDeserializationException;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.apache.kafka.common.errors.WakeupException;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.listener.AbstractMessageListenerContainer;
+import org.springframework.kafka.listener.BatchAcknowledgingMessageListener;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Чтение топиков целиком в локальное состояние экземпляра (кеш снимков, модель чтения).
+ * Разделы назначаются вручную и читаются с начала, группы нет: ни ребалансов, ни
+ * закоммиченных оффсетов, ни брошенных групп после рестарта.
+ * <p>
+ * Стартует раньше контейнеров листенеров и, если задан {@code warmupTimeout}, не отпускает
+ * их старт, пока не дочитает до концов разделов, снятых при запуске.
+ */
+@Slf4j
+public class TopicReplayer<V> implements SmartLifecycle {
+
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(500);
+    // Разделы, добавленные в топик после старта, подхватываются с таким интервалом
+    private static final long PARTITION_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final int MAX_POLL_RECORDS = 500;
+
+    // Оффсеты не коммитятся: после рестарта чтение всё равно начинается с начала
+    private static final Acknowledgment NO_ACK = () -> { };
+
+    private final String name;
+    private final List<String> topics;
+    private final Map<String, Object> consumerProperties;
+    private final ConsumerFactory<String, V> consumerFactory;
+    private final BatchAcknowledgingMessageListener<String, V> listener;
+    private final Duration warmupTimeout;
+    private final boolean autoStartup;
+    private final CountDownLatch caughtUp = new CountDownLatch(1);
+
+    private volatile boolean running;
+    private volatile KafkaConsumer<String, V> consumer;
+    private Thread thread;
+
+    public TopicReplayer(String name, List<String> topics, ConsumerFactory<String, V> consumerFactory,
+                         BatchAcknowledgingMessageListener<String, V> listener,
+                         Duration warmupTimeout, boolean autoStartup) {
+        this.name = name;
+        this.topics = List.copyOf(topics);
+        this.consumerFactory = consumerFactory;
+        this.listener = listener;
+        this.warmupTimeout = warmupTimeout;
+        this.autoStartup = autoStartup;
+
+        Map<String, Object> properties = new HashMap<>(consumerFactory.getConfigurationProperties());
+        properties.remove(ConsumerConfig.GROUP_ID_CONFIG);
+        properties.remove(ConsumerConfig.GROUP_INSTANCE_ID_CONFIG);
+        properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        properties.put(ConsumerConfig.ALLOW_AUTO_CREATE_TOPICS_CONFIG, false);
+        properties.put(ConsumerConfig.CLIENT_ID_CONFIG, name);
+        // max.poll.records сервиса подобран под обработку, а здесь только запись в память
+        properties.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, MAX_POLL_RECORDS);
+        this.consumerProperties = properties;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        consumer = new KafkaConsumer<>(consumerProperties,
+                consumerFactory.getKeyDeserializer(), consumerFactory.getValueDeserializer());
+        running = true;
+        thread = new Thread(this::run, name + "-replay");
+        thread.setDaemon(true);
+        thread.start();
+
+        if (warmupTimeout.isZero()) {
+            return;
+        }
+        long started = System.nanoTime();
+        try {
+            if (caughtUp.await(warmupTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                log.info("{}: caught up with {} in {} ms", name, topics,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            } else {
+                log.warn("{}: not caught up with {} after {}, starting listeners anyway", name, topics, warmupTimeout);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void stop() {
+        Thread replayThread;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            replayThread = thread;
+        }
+        consumer.wakeup();
+        try {
+            replayThread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public boolean isAutoStartup() {
+        return autoStartup;
+    }
+
+    // Раньше контейнеров листенеров: они стартуют, когда состояние уже прочитано
+    @Override
+    public int getPhase() {
+        return AbstractMessageListenerContainer.DEFAULT_PHASE - 100;
+    }
+
+    /**
+     * Дочитано ли до концов разделов, снятых при старте.
+     */
+    public boolean isCaughtUp() {
+        return caughtUp.getCount() == 0;
+    }
+
+    private void run() {
+        try (KafkaConsumer<String, V> kafkaConsumer = consumer) {
+            Set<TopicPartition> assigned = new HashSet<>();
+            Map<TopicPartition, Long> pending = null;
+            long refreshAt = System.nanoTime();
+
+            while (running) {
+                try {
+                    if (System.nanoTime() - refreshAt >= 0) {
+                        assignNewPartitions(kafkaConsumer, assigned);
+                        refreshAt = System.nanoTime() + PARTITION_REFRESH_NANOS;
+                    }
+                    if (pending == null) {
+                        // Граница прогрева: всё, что было в топиках к моменту старта
+                        pending = new HashMap<>(kafkaConsumer.endOffsets(assigned));
+                    }
+                    if (assigned.isEmpty()) {
+                        // Топиков ещё нет - ждать нечего, poll без назначения не разрешён
+                        caughtUp.countDown();
+                        Thread.sleep(POLL_TIMEOUT.toMillis());
+                        continue;
+                    }
+                    poll(kafkaConsumer);
+                    if (caughtUp.getCount() > 0) {
+                        pending.entrySet().removeIf(end -> kafkaConsumer.position(end.getKey()) >= end.getValue());
+                        if (pending.isEmpty()) {
+                            caughtUp.countDown();
+                        }
+                    }
+                } catch (TimeoutException e) {
+                    // Брокер недоступен: метаданные и оффсеты запрашиваются снова на следующем круге
+                    log.warn("{}: timed out reading {}: {}", name, topics, e.getMessage());
+                }
+            }
+        } catch (WakeupException e) {
+            if (running) {
+                log.error("{}: unexpected wakeup, replay of {} stopped", name, topics, e);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("{}: replay of {} failed", name, topics, e);
+        }
+    }
+
+    private void poll(KafkaConsumer<String, V> kafkaConsumer) {
+        ConsumerRecords<String, V> records;
+        try {
+            records = kafkaConsumer.poll(POLL_TIMEOUT);
+        } catch (RecordDeserializationException e) {
+            // Битая запись не должна останавливать чтение всего топика
+            log.warn("{}: skipping undeserializable record {}@{}", name, e.topicPartition(), e.offset(), e);
+            kafkaConsumer.seek(e.topicPartition(), e.offset() + 1);
+            return;
+        }
+        if (records.isEmpty()) {
+            return;
+        }
+        List<ConsumerRecord<String, V>> batch = new ArrayList<>(records.count());
+        records.forEach(batch::add);
+        listener.onMessage(batch, NO_ACK);
+    }
+
+    private void assignNewPartitions(KafkaConsumer<String, V> kafkaConsumer, Set<TopicPartition> assigned) {
+        List<TopicPartition> added = new ArrayList<>();
+        for (String topic : topics) {
+            List<PartitionInfo> partitions = kafkaConsumer.partitionsFor(topic);
+            if (partitions == null) {
+                continue;
+            }
+            for (PartitionInfo partition : partitions) {
+                TopicPartition topicPartition = new TopicPartition(partition.topic(), partition.partition());
+                if (assigned.add(topicPartition)) {
+                    added.add(topicPartition);
+                }
+            }
+        }
+        if (added.isEmpty()) {
+            return;
+        }
+        kafkaConsumer.assign(assigned);
+        kafkaConsumer.seekToBeginning(added);
+        log.info("{}: replaying {} from the beginning", name, added);
+    }
+}
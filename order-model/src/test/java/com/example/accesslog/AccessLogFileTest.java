@@ -0,0 +1,73 @@
+package com.example.accesslog;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AccessLogFileTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void writesHeaderAndRecordsIntoSegment() throws IOException {
+        try (AccessLogFile file = new AccessLogFile(dir, AccessLogFile.HEADER_SIZE + 4L * AccessLogRecord.SIZE, 4)) {
+            file.append(record("/orders/1", 201));
+            file.append(record("/orders/2", 500));
+        }
+
+        List<Path> segments = AccessLogFile.segments(dir);
+        assertThat(segments).hasSize(1);
+        ByteBuffer content = ByteBuffer.wrap(Files.readAllBytes(segments.get(0)));
+        assertThat(content.limit()).isEqualTo(AccessLogFile.HEADER_SIZE + 4 * AccessLogRecord.SIZE);
+        assertThat(content.getInt(0)).isEqualTo(AccessLogFile.MAGIC);
+        assertThat(content.getShort(4)).isEqualTo(AccessLogFile.VERSION);
+        assertThat(content.getShort(6)).isEqualTo((short) AccessLogRecord.SIZE);
+
+        AccessLogRecord.Entry first = AccessLogRecord.decode(content, AccessLogFile.HEADER_SIZE);
+        AccessLogRecord.Entry second = AccessLogRecord.decode(content, AccessLogFile.HEADER_SIZE + AccessLogRecord.SIZE);
+        assertThat(first.getPath()).isEqualTo("/orders/1");
+        assertThat(second.getStatus()).isEqualTo(500);
+        // Незаписанный хвост сегмента - нули, чтение на нём останавливается
+        assertThat(AccessLogRecord.decode(content, AccessLogFile.HEADER_SIZE + 2 * AccessLogRecord.SIZE)).isNull();
+    }
+
+    @Test
+    void rollsFullSegmentsAndKeepsOnlyNewest() throws IOException {
+        try (AccessLogFile file = new AccessLogFile(dir, AccessLogFile.HEADER_SIZE + 2L * AccessLogRecord.SIZE, 2)) {
+            for (int i = 1; i <= 5; i++) {
+                file.append(record("/orders/" + i, 200));
+            }
+            assertThat(file.currentSegment()).isEqualTo(AccessLogFile.segments(dir).get(1));
+        }
+
+        // Пять записей по две в сегменте - три сегмента, самый старый удалён
+        List<Path> segments = AccessLogFile.segments(dir);
+        assertThat(segments).hasSize(2);
+        ByteBuffer oldest = ByteBuffer.wrap(Files.readAllBytes(segments.get(0)));
+        assertThat(AccessLogRecord.decode(oldest, AccessLogFile.HEADER_SIZE).getPath()).isEqualTo("/orders/3");
+        ByteBuffer newest = ByteBuffer.wrap(Files.readAllBytes(segments.get(1)));
+        assertThat(AccessLogRecord.decode(newest, AccessLogFile.HEADER_SIZE).getPath()).isEqualTo("/orders/5");
+    }
+
+    @Test
+    void rejectsSegmentSmallerThanOneRecord() {
+        assertThatThrownBy(() -> new AccessLogFile(dir, AccessLogFile.HEADER_SIZE + 1, 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static ByteBuffer record(String path, int status) {
+        ByteBuffer record = ByteBuffer.allocate(AccessLogRecord.SIZE);
+        AccessLogRecord.encode(record, 0, System.currentTimeMillis(), 2_000_000, "GET", path, status,
+                "127.0.0.1", -1, 0);
+        return record;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.accesslog;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AccessLogRingTest {
+
+    @Test
+    void rejectsRecordsWhenFullAndDrainsInOrder() {
+        AccessLogRing ring = new AccessLogRing(4);
+        for (int i = 1; i <= 4; i++) {
+            assertThat(offer(ring, i)).isTrue();
+        }
+        // Поток запроса не ждёт: переполненное кольцо запись отбрасывает
+        assertThat(offer(ring, 5)).isFalse();
+        assertThat(ring.size()).isEqualTo(4);
+
+        List<AccessLogRecord.Entry> entries = new ArrayList<>();
+        assertThat(ring.drainTo(record -> entries.add(AccessLogRecord.decode(record, record.position())), 3))
+                .isEqualTo(3);
+        assertThat(entries).extracting(AccessLogRecord.Entry::getPath).containsExactly("/orders/1", "/orders/2", "/orders/3");
+        assertThat(entries.get(0).getMethod()).isEqualTo("POST");
+        assertThat(entries.get(0).getStatus()).isEqualTo(201);
+
+        // Освободившиеся ячейки снова принимают записи
+        assertThat(offer(ring, 6)).isTrue();
+        entries.clear();
+        ring.drainTo(record -> entries.add(AccessLogRecord.decode(record, record.position())), 10);
+        assertThat(entries).extracting(AccessLogRecord.Entry::getPath).containsExactly("/orders/4", "/orders/6");
+        assertThat(ring.size()).isZero();
+    }
+
+    @Test
+    void concurrentProducersLoseNothingThatWasAccepted() {
+        AccessLogRing ring = new AccessLogRing(1 << 14);
+        int producers = 4;
+        int perProducer = 2_000;
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[producers];
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            futures[p] = CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    assertThat(offer(ring, base + i)).isTrue();
+                }
+            });
+        }
+        CompletableFuture.allOf(futures).join();
+
+        Set<String> paths = new HashSet<>();
+        ring.drainTo(record -> paths.add(AccessLogRecord.decode(record, record.position()).getPath()), Integer.MAX_VALUE);
+        assertThat(paths).hasSize(producers * perProducer);
+    }
+
+    @Test
+    void capacityMustBePowerOfTwo() {
+        assertThatThrownBy(() -> new AccessLogRing(3)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static boolean offer(AccessLogRing ring, int id) {
+        return ring.offer(1_700_000_000_000L + id, 1_500_000, "POST", "/orders/" + id, 201, "10.0.0.1", 42, 0);
+    }
+}
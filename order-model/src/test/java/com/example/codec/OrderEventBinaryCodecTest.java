@@ -0,0 +1,126 @@
+package com.example.codec;
+
+import com.example.model.EventType;
+import com.example.model.Order;
+import com.example.model.OrderEvent;
+import com.example.model.OrderLines;
+import org.apache.kafka.common.errors.SerializationException;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OrderEventBinaryCodecTest {
+
+    @Test
+    void roundTripsOrderLines() {
+        Order order = new Order();
+        order.setId(UUID.randomUUID().toString());
+        order.setCustomerId("customer-1");
+        OrderLines lines = new OrderLines();
+        lines.add("sku-1", 2, 1999);
+        lines.add("sku-2", 1, 0);
+        order.setLines(lines);
+        order.setTotalMinor(lines.totalMinor());
+
+        OrderEvent decoded = OrderEventBinaryCodec.decode(OrderEventBinaryCodec.encode(
+                new OrderEvent(order.getId(), EventType.ORDER_CREATED, order)));
+
+        OrderLines decodedLines = decoded.getPayload().getLines();
+        assertThat(decodedLines.size()).isEqualTo(2);
+        assertThat(decodedLines.quantity(0)).isEqualTo(2);
+        assertThat(decodedLines.unitPrice(0)).isEqualTo(1999);
+        assertThat(decoded.getPayload().getTotalMinor()).isEqualTo(3998);
+    }
+
+    @Test
+    void rejectsLineCountBeyondInput() {
+        BinaryOutput out = orderHeader(OrderEventBinaryCodec.SCHEMA_VERSION);
+        out.writeVarLong(Integer.MAX_VALUE);
+
+        assertThatThrownBy(() -> OrderEventBinaryCodec.decode(out.toByteArray()))
+                .isInstanceOf(SerializationException.class)
+                .hasMessageContaining("exceeds the remaining");
+    }
+
+    @Test
+    void rejectsLegacyItemCountBeyondInput() {
+        BinaryOutput out = orderHeader(2);
+        out.writeVarLong(1_000_000);
+        out.writeByte(0);
+
+        assertThatThrownBy(() -> OrderEventBinaryCodec.decode(out.toByteArray()))
+                .isInstanceOf(SerializationException.class);
+    }
+
+    @Test
+    void rejectsNegativeQuantityAndPrice() {
+        BinaryOutput negativeQuantity = orderHeader(OrderEventBinaryCodec.SCHEMA_VERSION);
+        negativeQuantity.writeVarLong(2);
+        negativeQuantity.writeByte(0);
+        negativeQuantity.writeZigZagLong(-1);
+        negativeQuantity.writeZigZagLong(100);
+        negativeQuantity.writeZigZagLong(0);
+
+        BinaryOutput negativePrice = orderHeader(OrderEventBinaryCodec.SCHEMA_VERSION);
+        negativePrice.writeVarLong(2);
+        negativePrice.writeByte(0);
+        negativePrice.writeZigZagLong(1);
+        negativePrice.writeZigZagLong(-100);
+        negativePrice.writeZigZagLong(0);
+
+        assertThatThrownBy(() -> OrderEventBinaryCodec.decode(negativeQuantity.toByteArray()))
+                .isInstanceOf(SerializationException.class);
+        assertThatThrownBy(() -> OrderEventBinaryCodec.decode(negativePrice.toByteArray()))
+                .isInstanceOf(SerializationException.class);
+    }
+
+    @Test
+    void rejectsEnumCodeOutOfRange() {
+        BinaryOutput unknownType = new BinaryOutput(16);
+        unknownType.writeByte(OrderEventBinaryCodec.MAGIC);
+        unknownType.writeByte(OrderEventBinaryCodec.SCHEMA_VERSION);
+        unknownType.writeByte(0);
+        unknownType.writeByte(0);
+        unknownType.writeVarLong(EventType.values().length + 1);
+
+        BinaryOutput negativeType = new BinaryOutput(16);
+        negativeType.writeByte(OrderEventBinaryCodec.MAGIC);
+        negativeType.writeByte(OrderEventBinaryCodec.SCHEMA_VERSION);
+        negativeType.writeByte(0);
+        negativeType.writeByte(0);
+        negativeType.writeVarLong(-1);
+
+        assertThatThrownBy(() -> OrderEventBinaryCodec.decode(unknownType.toByteArray()))
+                .isInstanceOf(SerializationException.class)
+                .hasMessageContaining("Unknown EventType");
+        assertThatThrownBy(() -> OrderEventBinaryCodec.decode(negativeType.toByteArray()))
+                .isInstanceOf(SerializationException.class);
+    }
+
+    // Событие без полей и заказ без идентификаторов - дальше идёт счётчик позиций
+    private static BinaryOutput orderHeader(int version) {
+        BinaryOutput out = new BinaryOutput(64);
+        out.writeByte(OrderEventBinaryCodec.MAGIC);
+        out.writeByte(version);
+        out.writeByte(0);
+        out.writeByte(0);
+        out.writeVarLong(0);
+        out.writeByte(0);
+        if (version >= 2) {
+            out.writeVarLong(0);
+            out.writeByte(0);
+        }
+        out.writeByte(1);
+        out.writeByte(0);
+        out.writeByte(0);
+        out.writeByte(0);
+        out.writeVarLong(0);
+        if (version >= OrderEventBinaryCodec.SCHEMA_VERSION) {
+            out.writeByte(0);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.model;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MoneyTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void convertsToMinorUnits() {
+        assertThat(Money.toMinor(19.99, "RUB")).isEqualTo(1999);
+        assertThat(Money.toMinor(0, "RUB")).isZero();
+    }
+
+    @Test
+    void scaleFollowsCurrency() {
+        assertThat(Money.fractionDigits("JPY")).isZero();
+        assertThat(Money.fractionDigits("KWD")).isEqualTo(3);
+        assertThat(Money.toMinor(1500, "JPY")).isEqualTo(1500);
+        assertThat(Money.toMinor(1.234, "KWD")).isEqualTo(1234);
+        assertThat(Money.toMajor(1234, "KWD")).isEqualTo(1.234);
+        assertThatThrownBy(() -> Money.fractionDigits("XYZ")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsNegativeNonFiniteAndOverflowingAmounts() {
+        assertThatThrownBy(() -> Money.toMinor(-0.01, "RUB")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Money.toMinor(Double.NaN, "RUB")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Money.toMinor(Double.POSITIVE_INFINITY, "RUB"))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> Money.toMinor(1e17, "RUB")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void orderLinesRejectNegativeQuantityAndPrice() {
+        OrderLines lines = new OrderLines();
+        assertThatThrownBy(() -> lines.add("sku", -1, 100)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> lines.add("sku", 1, -100)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(lines.size()).isZero();
+    }
+
+    @Test
+    void jsonPricesFollowCurrencyReadAfterLines() throws Exception {
+        Order kwd = objectMapper.readValue("{\"items\":[{\"productId\":\"a\",\"quantity\":2,\"price\":1.234}],"
+                + "\"totalAmount\":2.468,\"currency\":\"KWD\"}", Order.class);
+        assertThat(kwd.getLines().unitPrice(0)).isEqualTo(1234);
+        assertThat(kwd.getLines().totalMinor()).isEqualTo(2468);
+        assertThat(kwd.getTotalMinor()).isEqualTo(2468);
+
+        Order jpy = objectMapper.readValue("{\"currency\":\"JPY\","
+                + "\"items\":[{\"productId\":\"a\",\"quantity\":3,\"price\":1500}]}", Order.class);
+        assertThat(jpy.getLines().unitPrice(0)).isEqualTo(1500);
+        assertThat(jpy.getTotalAmount()).isZero();
+    }
+
+    @Test
+    void jsonRejectsQuantityOutsideIntAndUnknownCurrency() {
+        assertThatThrownBy(() -> objectMapper.readValue(
+                "{\"items\":[{\"productId\":\"a\",\"quantity\":4294967297,\"price\":1}]}", Order.class))
+                .isInstanceOf(JsonMappingException.class);
+        assertThatThrownBy(() -> objectMapper.readValue(
+                "{\"items\":[{\"productId\":\"a\",\"quantity\":1.5,\"price\":1}]}", Order.class))
+                .isInstanceOf(JsonMappingException.class);
+        assertThatThrownBy(() -> objectMapper.readValue("{\"currency\":\"XYZ\"}", Order.class))
+                .isInstanceOf(JsonMappingException.class);
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderStatusTest {
+
+    @Test
+    void advancesAlongLifecycleSkippingMissedSteps() {
+        assertThat(OrderStatus.CREATED.canAdvanceTo(OrderStatus.PAYMENT_PENDING)).isTrue();
+        assertThat(OrderStatus.CREATED.canAdvanceTo(OrderStatus.SHIPPED)).isTrue();
+        assertThat(OrderStatus.PAYMENT_PENDING.canAdvanceTo(OrderStatus.DELIVERED)).isTrue();
+        assertThat(OrderStatus.PAYMENT_COMPLETED.canAdvanceTo(OrderStatus.CANCELLED)).isTrue();
+    }
+
+    @Test
+    void rejectsBackwardAndCrossBranchTransitions() {
+        // Больший ordinal - ещё не продвижение: оплата не может «провалиться» после успеха
+        assertThat(OrderStatus.PAYMENT_COMPLETED.canAdvanceTo(OrderStatus.PAYMENT_FAILED)).isFalse();
+        assertThat(OrderStatus.PAYMENT_FAILED.canAdvanceTo(OrderStatus.SHIPPED)).isFalse();
+        assertThat(OrderStatus.SHIPPED.canAdvanceTo(OrderStatus.CANCELLED)).isFalse();
+        assertThat(OrderStatus.SHIPPED.canAdvanceTo(OrderStatus.CREATED)).isFalse();
+        for (OrderStatus status : OrderStatus.values()) {
+            assertThat(OrderStatus.CANCELLED.canAdvanceTo(status)).isFalse();
+            assertThat(OrderStatus.DELIVERED.canAdvanceTo(status)).isFalse();
+            assertThat(status.canAdvanceTo(status)).isFalse();
+        }
+    }
+}
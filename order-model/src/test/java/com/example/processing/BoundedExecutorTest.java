@@ -0,0 +1,98 @@
+package com.example.processing;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BoundedExecutorTest {
+
+    @Test
+    void abortRejectsTasksOverLimits() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        try (BoundedExecutor executor = executor(BoundedExecutor.Rejection.ABORT, Duration.ZERO)) {
+            // Одна задача выполняется, одна ждёт - третьей места нет
+            executor.execute(() -> await(release));
+            executor.execute(() -> { });
+
+            assertThatThrownBy(() -> executor.execute(() -> { })).isInstanceOf(RejectedExecutionException.class);
+            assertThat(stats(executor)).containsEntry("test.rejected", 1L).containsEntry("test.queued", 1);
+
+            release.countDown();
+            assertThat(executor.awaitIdle(Duration.ofSeconds(5))).isTrue();
+            assertThat(stats(executor)).containsEntry("test.completed", 2L);
+        }
+    }
+
+    @Test
+    void callerRunsTaskOverLimits() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        try (BoundedExecutor executor = executor(BoundedExecutor.Rejection.CALLER_RUNS, Duration.ZERO)) {
+            executor.execute(() -> await(release));
+            executor.execute(() -> { });
+
+            AtomicReference<Thread> ranOn = new AtomicReference<>();
+            executor.execute(() -> ranOn.set(Thread.currentThread()));
+            assertThat(ranOn.get()).isSameAs(Thread.currentThread());
+            assertThat(stats(executor)).containsEntry("test.callerRuns", 1L);
+            release.countDown();
+        }
+    }
+
+    @Test
+    void blockWaitsForRoomAndGivesUpAfterTimeout() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        try (BoundedExecutor executor = executor(BoundedExecutor.Rejection.BLOCK, Duration.ofMillis(200))) {
+            executor.execute(() -> await(release));
+            executor.execute(() -> { });
+
+            long started = System.nanoTime();
+            assertThatThrownBy(() -> executor.execute(() -> { })).isInstanceOf(RejectedExecutionException.class);
+            assertThat(System.nanoTime() - started).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(200));
+
+            // Место освобождается раньше таймаута - задача принимается
+            CompletableFuture.runAsync(release::countDown, CompletableFuture.delayedExecutor(20, TimeUnit.MILLISECONDS));
+            CountDownLatch done = new CountDownLatch(1);
+            executor.execute(done::countDown);
+
+            assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(stats(executor)).containsEntry("test.blocked", 2L).containsEntry("test.rejected", 1L);
+        }
+    }
+
+    @Test
+    void closedExecutorRejectsTasks() {
+        BoundedExecutor executor = executor(BoundedExecutor.Rejection.CALLER_RUNS, Duration.ZERO);
+        executor.close();
+        assertThatThrownBy(() -> executor.execute(() -> { })).isInstanceOf(RejectedExecutionException.class);
+    }
+
+    private static BoundedExecutor executor(BoundedExecutor.Rejection rejection, Duration blockTimeout) {
+        return new BoundedExecutor("test", Executors.newCachedThreadPool(),
+                new BoundedExecutor.Limits(1, 1, rejection, blockTimeout));
+    }
+
+    private static Map<String, Object> stats(BoundedExecutor executor) {
+        Map<String, Object> stats = new HashMap<>();
+        executor.stats("test", stats);
+        return stats;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.processing;
+
+import com.example.transport.EventTransport;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Headers;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.KafkaHeaders;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DelayedRetryListenerTest {
+
+    private static final Duration DELAY = Duration.ofSeconds(10);
+
+    private final List<String> sentTopics = new ArrayList<>();
+    private final List<String> handled = new ArrayList<>();
+    private final RetryTopicRouter router = new RetryTopicRouter(List.of(Duration.ofSeconds(1), DELAY), 3);
+    private final BatchSender batchSender = new BatchSender(new EventTransport() {
+        @Override
+        public CompletableFuture<Void> send(String topic, String key, Object value, Headers headers) {
+            sentTopics.add(topic);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public void flush() {
+        }
+    }, 1, Duration.ofSeconds(1));
+
+    @Test
+    void unavailableDependencyNacksWithoutSpendingAttempt() {
+        DelayedRetryListener<String> listener = listener(value -> {
+            if (value.equals("unavailable")) {
+                throw new DependencyUnavailableException("circuit is OPEN");
+            }
+        });
+        RecordingAck ack = new RecordingAck();
+
+        listener.onMessage(List.of(record(0, "ok"), record(1, "unavailable"), record(2, "later")), ack);
+
+        assertThat(handled).containsExactly("ok", "unavailable");
+        assertThat(sentTopics).isEmpty();
+        assertThat(ack.nackIndex).isEqualTo(1);
+        assertThat(ack.nackSleep).isEqualTo(DELAY);
+        assertThat(ack.acknowledged).isFalse();
+    }
+
+    @Test
+    void recordFailureMovesToNextLevel() {
+        DelayedRetryListener<String> listener = listener(value -> {
+            throw new IllegalStateException("bad record");
+        });
+        RecordingAck ack = new RecordingAck();
+
+        listener.onMessage(List.of(record(0, "broken")), ack);
+
+        assertThat(sentTopics).containsExactly("orders.retry-10s");
+        assertThat(ack.acknowledged).isTrue();
+        assertThat(ack.nackIndex).isEqualTo(-1);
+    }
+
+    private DelayedRetryListener<String> listener(Consumer<String> body) {
+        RecordHandler<String> handler = (record, sends) -> {
+            handled.add(record.value());
+            body.accept(record.value());
+        };
+        return new DelayedRetryListener<>(handler, router, batchSender,
+                new EventDeduplicator(64, Duration.ofHours(1)), value -> value, DELAY);
+    }
+
+    // Первый повтор: запись из топика уровня 1s, срок уже наступил
+    private static ConsumerRecord<String, String> record(long offset, String value) {
+        ConsumerRecord<String, String> record = new ConsumerRecord<>("orders.retry-1s", 0, offset, "key", value);
+        record.headers().add(RetryTopicRouter.ATTEMPT_HEADER, new byte[] {0, 0, 0, 1});
+        record.headers().add(KafkaHeaders.DLT_ORIGINAL_TOPIC, "orders".getBytes(StandardCharsets.UTF_8));
+        return record;
+    }
+
+    private static final class RecordingAck implements Acknowledgment {
+        boolean acknowledged;
+        int nackIndex = -1;
+        Duration nackSleep;
+
+        @Override
+        public void acknowledge() {
+            acknowledged = true;
+        }
+
+        @Override
+        public void nack(int index, Duration sleep) {
+            nackIndex = index;
+            nackSleep = sleep;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.processing;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DeliveryTrackerTest {
+
+    private final DeliveryTracker tracker = new DeliveryTracker();
+    private final List<String> acknowledged = new CopyOnWriteArrayList<>();
+
+    @Test
+    void acknowledgesBatchesStrictlyInOrder() {
+        DeliveryTracker.Batch first = tracker.begin(ack("first"));
+        DeliveryCallback firstRecord = first.track();
+        first.seal();
+        DeliveryTracker.Batch second = tracker.begin(ack("second"));
+        DeliveryCallback secondRecord = second.track();
+        second.seal();
+        DeliveryTracker.Batch empty = tracker.begin(ack("empty"));
+        empty.seal();
+
+        // Вторая пачка и пустая третья готовы раньше первой, но ждут её
+        CompletableFuture.runAsync(secondRecord::delivered).join();
+        assertThat(acknowledged).isEmpty();
+        assertThat(tracker.pendingBatches()).isEqualTo(3);
+
+        CompletableFuture.runAsync(firstRecord::delivered).join();
+        assertThat(acknowledged).containsExactly("first", "second", "empty");
+        assertThat(tracker.pendingBatches()).isZero();
+    }
+
+    @Test
+    void batchIsNotAcknowledgedBeforeSeal() {
+        DeliveryTracker.Batch batch = tracker.begin(ack("batch"));
+        batch.track().delivered();
+        assertThat(acknowledged).isEmpty();
+
+        batch.seal();
+        assertThat(acknowledged).containsExactly("batch");
+    }
+
+    @Test
+    void failedRecordStopsAcknowledgmentsUntilRewind() {
+        DeliveryTracker.Batch first = tracker.begin(ack("first"));
+        first.track().delivered();
+        first.seal();
+        DeliveryTracker.Batch failed = tracker.begin(ack("failed"));
+        DeliveryCallback record = failed.track();
+        failed.seal();
+        DeliveryTracker.Batch later = tracker.begin(ack("later"));
+        later.seal();
+
+        record.failed(new IllegalStateException("not shipped"));
+        assertThat(acknowledged).containsExactly("first");
+
+        AtomicInteger rewinds = new AtomicInteger();
+        assertThat(tracker.rewindIfFailed(rewinds::incrementAndGet)).isTrue();
+        assertThat(rewinds).hasValue(1);
+        assertThat(tracker.pendingBatches()).isZero();
+        assertThat(tracker.rewindIfFailed(rewinds::incrementAndGet)).isFalse();
+
+        // После перемотки подтверждения идут снова
+        tracker.begin(ack("redelivered")).seal();
+        assertThat(acknowledged).containsExactly("first", "redelivered");
+    }
+
+    @Test
+    void failedBatchStopsAcknowledgments() {
+        DeliveryTracker.Batch batch = tracker.begin(ack("batch"));
+        batch.track().delivered();
+        batch.fail();
+        tracker.begin(ack("next")).seal();
+
+        assertThat(acknowledged).isEmpty();
+        assertThat(tracker.rewindIfFailed(() -> { })).isTrue();
+    }
+
+    private Acknowledgment ack(String name) {
+        return () -> acknowledged.add(name);
+    }
+}
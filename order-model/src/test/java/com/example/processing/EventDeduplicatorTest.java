@@ -0,0 +1,151 @@
+package com.example.processing;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class EventDeduplicatorTest {
+
+    // 16 сегментов: в каждом кольцо на 4 идентификатора и фильтр Блума на 16
+    private static final int CAPACITY = 64;
+    private static final int RING = 4;
+    private static final int BLOOM_CAPACITY = 16;
+
+    private final Random random = new Random(42);
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void exactHitAfterMarkProcessed() {
+        EventDeduplicator deduplicator = new EventDeduplicator(CAPACITY, Duration.ofHours(1));
+        String uuid = nextId();
+        String custom = "evt-" + uuid;
+
+        assertThat(deduplicator.isDuplicate(uuid)).isFalse();
+        deduplicator.markProcessed(uuid);
+        deduplicator.markProcessed(custom);
+        deduplicator.markProcessed(uuid);
+
+        assertThat(deduplicator.isDuplicate(uuid)).isTrue();
+        assertThat(deduplicator.isDuplicate(custom)).isTrue();
+        assertThat(deduplicator.isDuplicate(nextId())).isFalse();
+        assertThat(deduplicator.isDuplicate(null)).isFalse();
+        assertThat(deduplicator.size()).isEqualTo(2);
+        assertThat(deduplicator.stats()).containsEntry("hits", 2L);
+    }
+
+    @Test
+    void evictsOldestAtCapacityAndKeepsIndexConsistent() {
+        EventDeduplicator deduplicator = new EventDeduplicator(CAPACITY, Duration.ofHours(1));
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            String id = nextId();
+            ids.add(id);
+            deduplicator.markProcessed(id);
+        }
+
+        assertThat(deduplicator.size()).isEqualTo(CAPACITY);
+        // Последние RING событий заведомо последние и в своих сегментах
+        for (String id : ids.subList(ids.size() - RING, ids.size())) {
+            assertThat(deduplicator.isDuplicate(id)).isTrue();
+        }
+        // Индекс после тысяч удалений со сдвигом находит ровно то, что лежит в кольцах
+        long found = ids.stream().filter(deduplicator::isDuplicate).count();
+        assertThat(found).isEqualTo(CAPACITY);
+        assertThat(deduplicator.stats()).containsEntry("evictions", (long) ids.size() - CAPACITY);
+    }
+
+    @Test
+    void evictedIdStaysLateHitUntilBloomRotatesTwice() {
+        EventDeduplicator deduplicator = new EventDeduplicator(CAPACITY, Duration.ofHours(1));
+        List<String> sameStripe = idsInStripe(0, 100);
+        String first = sameStripe.get(0);
+        deduplicator.markProcessed(first);
+
+        // Вытеснено из кольца, но ещё в текущей генерации фильтра
+        sameStripe.subList(1, 1 + RING).forEach(deduplicator::markProcessed);
+        assertThat(deduplicator.isDuplicate(first)).isFalse();
+        assertThat(deduplicator.stats()).containsEntry("lateHits", 1L);
+
+        // Одна ротация: идентификатор в предыдущей генерации
+        sameStripe.subList(1 + RING, 1 + BLOOM_CAPACITY + 12).forEach(deduplicator::markProcessed);
+        assertThat(deduplicator.isDuplicate(first)).isFalse();
+        assertThat(deduplicator.stats()).containsEntry("lateHits", 2L);
+
+        // Две ротации: фильтр его забыл
+        sameStripe.subList(1 + BLOOM_CAPACITY + 12, sameStripe.size()).forEach(deduplicator::markProcessed);
+        assertThat(deduplicator.isDuplicate(first)).isFalse();
+        assertThat(deduplicator.stats()).containsEntry("lateHits", 2L).containsEntry("misses", 1L);
+    }
+
+    @Test
+    void batchCommitWaitsForTransactionCommit() {
+        EventDeduplicator deduplicator = new EventDeduplicator(CAPACITY, Duration.ofHours(1));
+        String committed = nextId();
+        String rolledBack = nextId();
+
+        TransactionSynchronizationManager.initSynchronization();
+        EventDeduplicator.Batch batch = deduplicator.newBatch();
+        batch.processed(committed);
+        batch.commit();
+        assertThat(deduplicator.isDuplicate(committed)).isFalse();
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+        }
+        assertThat(deduplicator.isDuplicate(committed)).isTrue();
+        TransactionSynchronizationManager.clearSynchronization();
+
+        // Откат: afterCommit не вызывается, пачка будет перечитана
+        TransactionSynchronizationManager.initSynchronization();
+        EventDeduplicator.Batch rolledBackBatch = deduplicator.newBatch();
+        rolledBackBatch.processed(rolledBack);
+        rolledBackBatch.commit();
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+        TransactionSynchronizationManager.clearSynchronization();
+        assertThat(deduplicator.isDuplicate(rolledBack)).isFalse();
+    }
+
+    @Test
+    void batchCommitAppliesImmediatelyWithoutTransaction() {
+        EventDeduplicator deduplicator = new EventDeduplicator(CAPACITY, Duration.ofHours(1));
+        String id = nextId();
+        EventDeduplicator.Batch batch = deduplicator.newBatch();
+        batch.processed(id);
+        assertThat(deduplicator.isDuplicate(id)).isFalse();
+
+        batch.commit();
+        assertThat(deduplicator.isDuplicate(id)).isTrue();
+    }
+
+    private List<String> idsInStripe(int stripe, int count) {
+        List<String> ids = new ArrayList<>();
+        while (ids.size() < count) {
+            String id = nextId();
+            if (EventDeduplicator.stripeOf(id) == stripe) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    private String nextId() {
+        return new UUID(random.nextLong(), random.nextLong()).toString();
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.processing;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KeyOrderedBatchExecutorTest {
+
+    private final ExecutorService threads = Executors.newCachedThreadPool();
+
+    @AfterEach
+    void shutdown() {
+        threads.shutdownNow();
+    }
+
+    @Test
+    void keepsRecordOrderWithinKey() {
+        List<ConsumerRecord<String, Integer>> records = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            // Ключ всегда в одной партиции, как у партиционера продюсера
+            records.add(record(i % 7 % 2, "key-" + i % 7, i));
+        }
+        Map<String, List<Integer>> seen = new ConcurrentHashMap<>();
+
+        new KeyOrderedBatchExecutor(4, threads).execute(records, record -> {
+            // Случайные задержки перемешивают дорожки, но не записи внутри дорожки
+            LockSupport.parkNanos(ThreadLocalRandom.current().nextInt(100_000));
+            seen.computeIfAbsent(record.key(), k -> new CopyOnWriteArrayList<>()).add(record.value());
+        });
+
+        assertThat(seen).hasSize(7);
+        seen.forEach((key, values) -> assertThat(values).isSorted().hasSizeBetween(28, 29));
+    }
+
+    @Test
+    void skipsRestOfKeyAfterFailure() {
+        List<ConsumerRecord<String, Integer>> records = List.of(
+                record(0, "a", 1), record(0, "b", 2), record(0, "a", 3),
+                record(0, "b", 4), record(0, "a", 5));
+        List<Integer> handled = new CopyOnWriteArrayList<>();
+
+        assertThatThrownBy(() -> new KeyOrderedBatchExecutor(2, threads).execute(records, record -> {
+            if (record.value() == 3) {
+                throw new IllegalStateException("boom");
+            }
+            handled.add(record.value());
+        }))
+                .isInstanceOfSatisfying(BatchProcessingException.class,
+                        e -> assertThat(e.getFailedRecords()).isEqualTo(2))
+                .hasRootCauseMessage("boom");
+
+        // Дорожка "b" доработала, в дорожке "a" после упавшей записи ничего не выполнялось
+        assertThat(handled).containsExactlyInAnyOrder(1, 2, 4);
+    }
+
+    @Test
+    void limitsWorkersPerPartition() {
+        List<ConsumerRecord<String, Integer>> records = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            records.add(record(i % 2, "key-" + i, i));
+        }
+        AtomicInteger[] active = {new AtomicInteger(), new AtomicInteger()};
+        AtomicInteger[] peak = {new AtomicInteger(), new AtomicInteger()};
+
+        new KeyOrderedBatchExecutor(3, threads).execute(records, record -> {
+            int now = active[record.partition()].incrementAndGet();
+            peak[record.partition()].accumulateAndGet(now, Math::max);
+            LockSupport.parkNanos(2_000_000);
+            active[record.partition()].decrementAndGet();
+        });
+
+        assertThat(peak[0].get()).isBetween(1, 3);
+        assertThat(peak[1].get()).isBetween(1, 3);
+    }
+
+    @Test
+    void finishesBatchOnCallerThreadWhenExecutorRejects() {
+        List<ConsumerRecord<String, Integer>> records = List.of(
+                record(0, "a", 1), record(0, "b", 2), record(1, "c", 3));
+        List<Integer> handled = new CopyOnWriteArrayList<>();
+        Thread caller = Thread.currentThread();
+
+        new KeyOrderedBatchExecutor(2, task -> {
+            throw new RejectedExecutionException("saturated");
+        }).execute(records, record -> {
+            assertThat(Thread.currentThread()).isSameAs(caller);
+            handled.add(record.value());
+        });
+
+        assertThat(handled).containsExactlyInAnyOrder(1, 2, 3);
+    }
+
+    private static ConsumerRecord<String, Integer> record(int partition, String key, int value) {
+        return new ConsumerRecord<>("orders", partition, value, key, value);
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.processing;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TimerWheelTest {
+
+    @Test
+    void runsTaskNotBeforeItsDelay() throws InterruptedException {
+        try (TimerWheel wheel = new TimerWheel("test-timer", Duration.ofMillis(5), 8)) {
+            CountDownLatch fired = new CountDownLatch(1);
+            AtomicLong firedAt = new AtomicLong();
+            long scheduledAt = System.nanoTime();
+            // 100 мс - больше оборота колеса (8 x 5 мс): задача ждёт нужное число оборотов
+            wheel.schedule(() -> {
+                firedAt.set(System.nanoTime());
+                fired.countDown();
+            }, Duration.ofMillis(100));
+
+            assertThat(fired.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(firedAt.get() - scheduledAt).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(100));
+        }
+    }
+
+    @Test
+    void cancelledTaskDoesNotRun() throws InterruptedException {
+        try (TimerWheel wheel = new TimerWheel("test-timer", Duration.ofMillis(5), 8)) {
+            AtomicInteger runs = new AtomicInteger();
+            CountDownLatch later = new CountDownLatch(1);
+            wheel.schedule(runs::incrementAndGet, Duration.ofMillis(20)).cancel();
+            wheel.schedule(later::countDown, Duration.ofMillis(60));
+
+            assertThat(later.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(runs).hasValue(0);
+        }
+    }
+
+    @Test
+    void failingTaskDoesNotStopWheel() throws InterruptedException {
+        try (TimerWheel wheel = new TimerWheel("test-timer", Duration.ofMillis(5), 8)) {
+            CountDownLatch next = new CountDownLatch(1);
+            wheel.schedule(() -> {
+                throw new IllegalStateException("boom");
+            }, Duration.ofMillis(5));
+            wheel.schedule(next::countDown, Duration.ofMillis(30));
+
+            assertThat(next.await(5, TimeUnit.SECONDS)).isTrue();
+        }
+    }
+
+    @Test
+    void rejectsInvalidGeometry() {
+        assertThatThrownBy(() -> new TimerWheel("test-timer", Duration.ZERO, 8))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new TimerWheel("test-timer", Duration.ofMillis(5), 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.transport;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InMemoryTransportTest {
+
+    @Test
+    void everyGroupGetsEveryRecordInKeyOrder() throws Exception {
+        InMemoryTransport transport = new InMemoryTransport(new InMemoryTransport.Settings(4, 1024, Duration.ofSeconds(1)));
+        Map<String, List<String>> first = new ConcurrentHashMap<>();
+        Map<String, List<String>> second = new ConcurrentHashMap<>();
+        try (InMemoryTransport.Subscription a = transport.subscribe("first", List.of("orders"), 2, 10, collect(first));
+             InMemoryTransport.Subscription b = transport.subscribe("second", List.of("orders"), 3, 7, collect(second))) {
+            for (int i = 0; i < 300; i++) {
+                transport.send("orders", "customer-" + i % 5, "event-" + i, null).get();
+            }
+
+            await(() -> count(first) == 300 && count(second) == 300);
+            for (Map<String, List<String>> received : List.of(first, second)) {
+                assertThat(received).hasSize(5);
+                received.forEach((key, values) -> assertThat(values)
+                        .isSortedAccordingTo((x, y) -> Integer.compare(number(x), number(y))));
+            }
+        }
+    }
+
+    @Test
+    void failedBatchIsRedeliveredUntilListenerSucceeds() throws Exception {
+        InMemoryTransport transport = new InMemoryTransport(new InMemoryTransport.Settings(1, 16, Duration.ofSeconds(1)));
+        AtomicInteger attempts = new AtomicInteger();
+        List<Object> delivered = new CopyOnWriteArrayList<>();
+        try (InMemoryTransport.Subscription ignored = transport.subscribe("group", List.of("orders"), 1, 10,
+                (List<ConsumerRecord<String, Object>> records, InMemoryTransport.Delivery delivery) -> {
+                    if (attempts.incrementAndGet() < 3) {
+                        throw new IllegalStateException("not yet");
+                    }
+                    records.forEach(record -> delivered.add(record.value()));
+                    delivery.acknowledge();
+                })) {
+            transport.send("orders", "k", "event", null).get();
+
+            await(() -> delivered.size() == 1);
+            assertThat(attempts).hasValue(3);
+            assertThat(delivered).containsExactly("event");
+        }
+    }
+
+    @Test
+    void recordIsQueuedForAllGroupsOrNone() throws Exception {
+        InMemoryTransport transport = new InMemoryTransport(new InMemoryTransport.Settings(1, 2, Duration.ofMillis(50)));
+        CountDownLatch release = new CountDownLatch(1);
+        List<Object> slow = new CopyOnWriteArrayList<>();
+        List<Object> fast = new CopyOnWriteArrayList<>();
+        try (InMemoryTransport.Subscription s = transport.subscribe("slow", List.of("orders"), 1, 1,
+                (List<ConsumerRecord<String, Object>> records, InMemoryTransport.Delivery delivery) -> {
+                    awaitQuietly(release);
+                    records.forEach(record -> slow.add(record.value()));
+                    delivery.acknowledge();
+                });
+             InMemoryTransport.Subscription f = transport.subscribe("fast", List.of("orders"), 1, 1,
+                (List<ConsumerRecord<String, Object>> records, InMemoryTransport.Delivery delivery) -> {
+                    records.forEach(record -> fast.add(record.value()));
+                    delivery.acknowledge();
+                })) {
+            // Медленная группа держит одну запись в листенере и две в очереди - дальше отправка упирается в неё
+            List<Object> accepted = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                CompletableFuture<Void> sent = transport.send("orders", "k", "event-" + i, null);
+                if (sent.isCompletedExceptionally()) {
+                    assertThat(sent).failsWithin(Duration.ZERO).withThrowableOfType(Exception.class)
+                            .withCauseInstanceOf(TimeoutException.class);
+                    continue;
+                }
+                accepted.add("event-" + i);
+            }
+            assertThat(accepted).hasSizeBetween(1, 9);
+
+            release.countDown();
+            await(() -> slow.size() == accepted.size() && fast.size() == accepted.size());
+            // Отклонённые записи не попали ни в одну группу, так что их повтор не задвоит доставку
+            assertThat(fast).containsExactlyElementsOf(accepted);
+            assertThat(slow).containsExactlyElementsOf(accepted);
+        }
+    }
+
+    @Test
+    void recordsOfTopicWithoutSubscribersAreDropped() throws Exception {
+        InMemoryTransport transport = new InMemoryTransport(new InMemoryTransport.Settings(2, 4, Duration.ofMillis(10)));
+        for (int i = 0; i < 10; i++) {
+            transport.send("nobody", "k", "event-" + i, null).get();
+        }
+        Map<String, Object> stats = new ConcurrentHashMap<>();
+        transport.stats("transport", stats);
+        assertThat(stats).containsEntry("transport.sent", 10L).containsEntry("transport.dropped", 10L);
+    }
+
+    private static InMemoryTransport.Listener<Object> collect(Map<String, List<String>> received) {
+        return (records, delivery) -> {
+            for (ConsumerRecord<String, Object> record : records) {
+                received.computeIfAbsent(record.key(), k -> new CopyOnWriteArrayList<>()).add((String) record.value());
+            }
+            delivery.acknowledge();
+        };
+    }
+
+    private static int count(Map<String, List<String>> received) {
+        return received.values().stream().mapToInt(List::size).sum();
+    }
+
+    private static int number(String event) {
+        return Integer.parseInt(event.substring(event.indexOf('-') + 1));
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime() - deadline).as("condition not met in time").isNegative();
+            Thread.sleep(10);
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
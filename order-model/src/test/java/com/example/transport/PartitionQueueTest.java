@@ -0,0 +1,81 @@
+package com.example.transport;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PartitionQueueTest {
+
+    @Test
+    void boundedFifo() {
+        PartitionQueue<Integer> queue = new PartitionQueue<>(4);
+        for (int i = 1; i <= 4; i++) {
+            assertThat(queue.hasRoom()).isTrue();
+            assertThat(queue.offer(i)).isTrue();
+        }
+        assertThat(queue.hasRoom()).isFalse();
+        assertThat(queue.offer(5)).isFalse();
+        assertThat(queue.size()).isEqualTo(4);
+
+        assertThat(queue.poll()).isEqualTo(1);
+        assertThat(queue.hasRoom()).isTrue();
+        assertThat(queue.offer(5)).isTrue();
+
+        List<Integer> drained = new ArrayList<>();
+        assertThat(queue.drainTo(drained, 3)).isEqualTo(3);
+        assertThat(drained).containsExactly(2, 3, 4);
+        assertThat(queue.poll()).isEqualTo(5);
+        assertThat(queue.poll()).isNull();
+        assertThat(queue.isEmpty()).isTrue();
+    }
+
+    @Test
+    void concurrentProducersWithSingleConsumer() {
+        PartitionQueue<Integer> queue = new PartitionQueue<>(64);
+        int producers = 4;
+        int perProducer = 2_000;
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[producers];
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            futures[p] = CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    // Переполненная очередь запись не берёт - ждать приходится самому
+                    while (!queue.offer(base + i)) {
+                        Thread.yield();
+                    }
+                }
+            });
+        }
+
+        Set<Integer> received = new HashSet<>();
+        int[] lastByProducer = new int[producers];
+        Arrays.fill(lastByProducer, -1);
+        while (received.size() < producers * perProducer) {
+            Integer value = queue.poll();
+            if (value == null) {
+                Thread.yield();
+                continue;
+            }
+            assertThat(received.add(value)).isTrue();
+            // Записи одного производителя приходят в порядке отправки
+            assertThat(value).isGreaterThan(lastByProducer[value / perProducer]);
+            lastByProducer[value / perProducer] = value;
+        }
+        CompletableFuture.allOf(futures).join();
+        assertThat(queue.poll()).isNull();
+    }
+
+    @Test
+    void capacityMustBePowerOfTwo() {
+        assertThatThrownBy(() -> new PartitionQueue<>(6)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new PartitionQueue<>(1)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.pipeline;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Сервисы конвейера и модель чтения order-query в текущей JVM.
+ * <p>
+ * Классы сервисов называются одинаково, поэтому каждый сервис грузится своим загрузчиком
+ * из {@code stages/<service>.jar}; общие зависимости (Spring, order-model) берутся из
+ * classpath процесса и загружаются один раз. Получатели стартуют раньше отправителей,
+ * {@link #close()} останавливает сервисы в обратном порядке.
+ */
+@Slf4j
+public final class Pipeline implements AutoCloseable {
+
+    // Порядок запуска: каждый сервис подписывается раньше, чем ему начнут отправлять
+    public static final Map<String, String> STAGES;
+
+    static {
+        Map<String, String> stages = new LinkedHashMap<>();
+        stages.put("order-query", "com.example.OrderQueryApplication");
+        stages.put("notification-service", "com.example.NotificationServiceApplication");
+        stages.put("shipping-service", "com.example.ShippingServiceApplication");
+        stages.put("payment-service", "com.example.PaymentServiceApplication");
+        stages.put("order-service", "com.example.OrderServiceApplication");
+        STAGES = Collections.unmodifiableMap(stages);
+    }
+
+    private final List<ConfigurableApplicationContext> contexts = new ArrayList<>();
+
+    private Pipeline() {
+    }
+
+    /**
+     * Запускает все сервисы; если какой-то не стартовал, уже запущенные останавливаются.
+     * Аргументы передаются каждому сервису.
+     */
+    public static Pipeline start(Path stagesDir, List<String> profiles, String[] args) throws Exception {
+        Pipeline pipeline = new Pipeline();
+        long startNanos = System.nanoTime();
+        try {
+            for (Map.Entry<String, String> stage : STAGES.entrySet()) {
+                pipeline.add(startStage(stage.getKey(), stage.getValue(), stagesDir, profiles, args));
+            }
+        } catch (Exception e) {
+            log.error("Pipeline failed to start: {}", e.getMessage());
+            pipeline.close();
+            throw e;
+        }
+        log.info("Pipeline started in {} ms: {}", (System.nanoTime() - startNanos) / 1_000_000, STAGES.keySet());
+        return pipeline;
+    }
+
+    /**
+     * {@code stages/} рядом с jar, из которого загружен {@code anchor}
+     * (или с target/classes при запуске из IDE).
+     */
+    public static Path stagesDir(Class<?> anchor) throws IOException, URISyntaxException {
+        Path codeSource = Paths.get(anchor.getProtectionDomain().getCodeSource().getLocation().toURI());
+        Path dir = codeSource.getParent().resolve("stages");
+        if (!Files.isDirectory(dir)) {
+            throw new IOException("Stages directory not found: " + dir + ", build with mvn package");
+        }
+        return dir;
+    }
+
+    private synchronized void add(ConfigurableApplicationContext context) {
+        contexts.add(context);
+    }
+
+    @Override
+    public synchronized void close() {
+        for (int i = contexts.size() - 1; i >= 0; i--) {
+            ConfigurableApplicationContext context = contexts.get(i);
+            try {
+                context.close();
+            } catch (RuntimeException e) {
+                log.warn("Failed to stop {}: {}", context.getId(), e.getMessage());
+            }
+        }
+        contexts.clear();
+    }
+
+    private static ConfigurableApplicationContext startStage(String name, String mainClass, Path stagesDir,
+                                                             List<String> profiles, String[] args) throws Exception {
+        Path jar = stagesDir.resolve(name + ".jar");
+        if (!Files.isRegularFile(jar)) {
+            throw new IllegalStateException("Stage jar not found: " + jar);
+        }
+        // Загрузчик не закрывается: классы сервиса нужны до конца процесса
+        ClassLoader loader = new URLClassLoader(name, new URL[]{jar.toUri().toURL()},
+                Pipeline.class.getClassLoader());
+        Thread current = Thread.currentThread();
+        ClassLoader previous = current.getContextClassLoader();
+        current.setContextClassLoader(loader);
+        try {
+            SpringApplication application = new SpringApplication(new DefaultResourceLoader(loader),
+                    loader.loadClass(mainClass));
+            application.setAdditionalProfiles(profiles.toArray(new String[0]));
+            // Останавливает close(), в обратном порядке запуска
+            application.setRegisterShutdownHook(false);
+            // Имя приложения в логе общее для процесса - его задаёт первый сервис, поэтому не выводим
+            application.setDefaultProperties(Map.of(
+                    "spring.main.banner-mode", "off",
+                    "logging.include-application-name", "false"));
+            log.info("Starting {}", name);
+            return application.run(args);
+        } finally {
+            current.setContextClassLoader(previous);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.pipeline;
+
+import java.util.List;
+
+/**
+ * Весь конвейер в одной JVM: order, payment, shipping, notification-service и order-query с профилем
+ * in-memory обмениваются событиями через общий InMemoryTransport, брокер не нужен.
+ * Аргументы передаются всем сервисам:
+ * <pre>
+ * java -jar order-pipeline/target/order-pipeline.jar --spring.mail.host=localhost
+ * </pre>
+ */
+public class PipelineLauncher {
+
+    private static final String PROFILE = "in-memory";
+
+    public static void main(String[] args) throws Exception {
+        Pipeline pipeline = Pipeline.start(Pipeline.stagesDir(PipelineLauncher.class), List.of(PROFILE), args);
+        Runtime.getRuntime().addShutdownHook(new Thread(pipeline::close, "pipeline-shutdown"));
+    }
+}
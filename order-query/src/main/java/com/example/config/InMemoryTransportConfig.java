@@ -0,0 +1,21 @@
+package com.example.config;
+
+import com.example.model.OrderEvent;
+import com.example.query.OrderReadModel;
+import com.example.transport.InMemoryListeners;
+import com.example.transport.InMemoryTransportConfigSupport;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+@Configuration
+@Profile("in-memory")
+public class InMemoryTransportConfig extends InMemoryTransportConfigSupport {
+
+    @Bean
+    public InMemoryListeners queryInMemoryListeners(OrderReadModel orderReadModel,
+                                                    ReadModelConfig readModelConfig) {
+        return listeners()
+                .<OrderEvent>listen("order-query-group", readModelConfig.topics(), orderReadModel::onMessage);
+    }
+}
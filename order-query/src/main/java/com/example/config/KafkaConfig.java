@@ -0,0 +1,60 @@
+package com.example.config;
+
+import com.example.codec.OrderEventDeserializer;
+import com.example.model.OrderEvent;
+import com.example.query.OrderReadModel;
+import com.example.transport.TopicReplayer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+@Configuration
+public class KafkaConfig {
+
+    @Value("${spring.kafka.bootstrap-servers}")
+    private String bootstrapServers;
+
+    @Value("${kafka.consumer.max-poll-records:500}")
+    private int maxPollRecords;
+
+    // Сколько старт контекста ждёт, пока модель дочитает топики; 0 - не ждать
+    @Value("${query.warmup-timeout:0s}")
+    private Duration warmupTimeout;
+
+    // false в профиле in-memory: записи доставляет InMemoryTransport
+    @Value("${kafka.listeners.auto-startup:true}")
+    private boolean autoStartup;
+
+    @Bean
+    public ConsumerFactory<String, OrderEvent> consumerFactory() {
+        Map<String, Object> configProps = new HashMap<>();
+        configProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configProps.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        configProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, OrderEventDeserializer.class);
+        configProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        configProps.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        configProps.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+        configProps.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+        configProps.put(JsonDeserializer.TRUSTED_PACKAGES, "com.example.model");
+
+        return new DefaultKafkaConsumerFactory<>(configProps);
+    }
+
+    // Модель живёт в памяти, поэтому каждый экземпляр при старте перечитывает топики с начала:
+    // разделы назначаются вручную, без группы и коммитов. История в модели ограничена retention топиков
+    @Bean
+    public TopicReplayer<OrderEvent> orderReadModelReplayer(OrderReadModel orderReadModel,
+                                                            ReadModelConfig readModelConfig) {
+        return new TopicReplayer<>("order-query", readModelConfig.topics(), consumerFactory(), orderReadModel,
+                warmupTimeout, autoStartup);
+    }
+}
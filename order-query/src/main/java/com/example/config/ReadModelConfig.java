@@ -0,0 +1,47 @@
+package com.example.config;
+
+import com.example.query.OrderReadModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.List;
+
+@Configuration
+public class ReadModelConfig {
+
+    @Value("${kafka.topics.new-orders}")
+    private String newOrdersTopic;
+
+    @Value("${kafka.topics.payed-orders}")
+    private String payedOrdersTopic;
+
+    @Value("${kafka.topics.sent-orders}")
+    private String sentOrdersTopic;
+
+    @Value("${kafka.topics.failed-payments}")
+    private String failedPaymentsTopic;
+
+    @Value("${kafka.topics.failed-shipments}")
+    private String failedShipmentsTopic;
+
+    @Value("${kafka.topics.order-snapshots}")
+    private String orderSnapshotsTopic;
+
+    @Value("${query.max-orders:10000000}")
+    private int maxOrders;
+
+    @Value("${query.max-scan:50000}")
+    private int maxScan;
+
+    @Bean
+    public OrderReadModel orderReadModel() {
+        return new OrderReadModel(maxOrders, maxScan);
+    }
+
+    // Снимки нужны для тонких событий: только в них тело заказа с клиентом и суммой
+    public List<String> topics() {
+        return List.of(newOrdersTopic, payedOrdersTopic, sentOrdersTopic, failedPaymentsTopic,
+                failedShipmentsTopic, orderSnapshotsTopic);
+    }
+}
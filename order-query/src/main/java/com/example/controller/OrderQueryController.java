@@ -0,0 +1,81 @@
+package com.example.controller;
+
+import com.example.model.OrderStatus;
+import com.example.query.OrderPage;
+import com.example.query.OrderQuery;
+import com.example.query.OrderReadModel;
+import com.example.query.OrderView;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Map;
+
+// Запросы к модели чтения: заказ по id и постраничные выборки по клиенту, статусу и времени создания
+@RestController
+@RequestMapping("/api/query")
+@RequiredArgsConstructor
+public class OrderQueryController {
+
+    private final OrderReadModel orderReadModel;
+
+    @Value("${query.max-limit:1000}")
+    private int maxLimit;
+
+    @GetMapping("/orders/{orderId}")
+    public ResponseEntity<Object> getOrder(@PathVariable String orderId) {
+        OrderView order = orderReadModel.get(orderId);
+        if (order == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "Order not found", "orderId", orderId));
+        }
+        return ResponseEntity.ok(order);
+    }
+
+    // from/to - ISO-8601 (2024-05-01T00:00:00Z), cursor - nextCursor предыдущей страницы
+    @GetMapping("/orders")
+    public ResponseEntity<Object> findOrders(@RequestParam(required = false) String customerId,
+                                             @RequestParam(required = false) String status,
+                                             @RequestParam(required = false) String from,
+                                             @RequestParam(required = false) String to,
+                                             @RequestParam(required = false) Integer cursor,
+                                             @RequestParam(defaultValue = "50") int limit) {
+        if (limit <= 0 || limit > maxLimit) {
+            return badRequest("limit must be between 1 and " + maxLimit);
+        }
+        OrderStatus wanted;
+        try {
+            wanted = status == null ? null : OrderStatus.valueOf(status);
+        } catch (IllegalArgumentException e) {
+            return badRequest("Unknown status " + status);
+        }
+        Instant fromTime;
+        Instant toTime;
+        try {
+            fromTime = from == null ? null : Instant.parse(from);
+            toTime = to == null ? null : Instant.parse(to);
+        } catch (DateTimeParseException e) {
+            return badRequest("Invalid time: " + e.getParsedString());
+        }
+        OrderPage page = orderReadModel.query(new OrderQuery(customerId, wanted, fromTime, toTime, cursor, limit));
+        return ResponseEntity.ok(page);
+    }
+
+    // Размер модели, заказы по статусам и оценка занятой памяти
+    @GetMapping("/stats")
+    public ResponseEntity<Map<String, Object>> getStats() {
+        return ResponseEntity.ok(orderReadModel.stats());
+    }
+
+    private static ResponseEntity<Object> badRequest(String message) {
+        return ResponseEntity.badRequest().body(Map.of("error", message));
+    }
+}
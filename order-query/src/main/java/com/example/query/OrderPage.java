@@ -0,0 +1,18 @@
+package com.example.query;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Страница выборки. {@code nextCursor} передаётся в следующий запрос; страница бывает короче
+ * limit и при непустом продолжении, если выборка упёрлась в лимит просмотренных заказов.
+ * {@code total} заполняется, только когда он известен без просмотра (один фильтр или без фильтров).
+ */
+@Value
+public class OrderPage {
+    List<OrderView> orders;
+    Integer nextCursor;
+    Long total;
+    int scanned;
+}
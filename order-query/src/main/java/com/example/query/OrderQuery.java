@@ -0,0 +1,21 @@
+package com.example.query;
+
+import com.example.model.OrderStatus;
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * Фильтры выборки (любые могут быть {@code null}) и страница: не больше {@code limit} заказов
+ * с ordinal меньше {@code cursor}, новые сначала.
+ */
+@Value
+public class OrderQuery {
+    String customerId;
+    OrderStatus status;
+    // createdAt в [from, to)
+    Instant from;
+    Instant to;
+    Integer cursor;
+    int limit;
+}
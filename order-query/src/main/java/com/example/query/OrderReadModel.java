@@ -0,0 +1,527 @@
+package com.example.query;
+
+import com.example.codec.CanonicalUuid;
+import com.example.model.Order;
+import com.example.model.OrderEvent;
+import com.example.model.OrderStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.kafka.listener.BatchAcknowledgingMessageListener;
+import org.springframework.kafka.support.Acknowledgment;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Модель чтения заказов (CQRS): состояние собирается из событий всех этапов конвейера и
+ * снимков order_snapshots, запросы обслуживаются из памяти. Сама является листенером этих топиков.
+ * <p>
+ * Заказу при первом событии выдаётся плотный ordinal; поля лежат в колонках примитивов
+ * страницами по 65536 (~60 байт на заказ вместе с индексами), объектов на заказ нет, а
+ * число заказов ограничено {@code maxOrders} - сверх него новые заказы отбрасываются.
+ * Индексы:
+ * <ul>
+ * <li>по id - открытая адресация по UUID двумя long, ключи берутся из колонок;</li>
+ * <li>по клиенту - словарь customerId -> int и цепочка заказов клиента по убыванию ordinal
+ * (4 байта на заказ);</li>
+ * <li>по статусу - сжатая битовая карта ordinal'ов на статус ({@link OrdinalBitmap});</li>
+ * <li>по времени - min/max createdAt на блок из 4096 ordinal'ов: блоки вне диапазона пропускаются.</li>
+ * </ul>
+ * Выдача - по убыванию ordinal (порядок поступления), курсор - ordinal, поэтому страницы
+ * стабильны при новых заказах. События применяются пачкой под блокировкой записи; статус,
+ * как и в сервисе заказов, только продвигается вперёд, поэтому порядок топиков не важен.
+ */
+@Slf4j
+public class OrderReadModel implements BatchAcknowledgingMessageListener<String, OrderEvent> {
+
+    private static final int PAGE_BITS = 16;
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final int BLOCK_BITS = 12;
+    // Байт колонок на заказ: 5 long, 2 int, 2 byte
+    private static final int ROW_BYTES = 5 * 8 + 2 * 4 + 2;
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+
+    private final int maxOrders;
+    private final int maxScan;
+    private final StampedLock lock = new StampedLock();
+
+    // Колонки по ordinal. В int/byte-колонках хранится значение + 1: 0 - "неизвестно"
+    private final long[][] idHigh;
+    private final long[][] idLow;
+    private final long[][] createdAt;
+    private final long[][] updatedAt;
+    private final long[][] totalMinor;
+    private final int[][] customer;
+    private final int[][] previousOfCustomer;
+    private final byte[][] status;
+    private final byte[][] currency;
+    private int size;
+
+    // ordinal + 1 по хешу UUID; заполняется не больше чем на 3/4
+    private final int[] idTable;
+    // Id не в формате UUID - редкость, для них обычные map
+    private final Map<String, Integer> namedIds = new HashMap<>();
+    private final Map<Integer, String> namedOrders = new HashMap<>();
+
+    private final Map<String, Integer> customerIds = new HashMap<>();
+    private final List<String> customerNames = new ArrayList<>();
+    // Самый новый заказ клиента (ordinal + 1) и число его заказов
+    private int[] customerHead = new int[1024];
+    private int[] customerCount = new int[1024];
+
+    private final List<String> currencies = new ArrayList<>();
+    private final OrdinalBitmap[] byStatus = new OrdinalBitmap[STATUSES.length];
+    private final long[] blockMinCreated;
+    private final long[] blockMaxCreated;
+
+    private long events;
+    private long dropped;
+
+    public OrderReadModel(int maxOrders, int maxScan) {
+        if (maxOrders <= 0 || maxScan <= 0) {
+            throw new IllegalArgumentException("Invalid read model limits: max-orders " + maxOrders
+                    + ", max-scan " + maxScan);
+        }
+        this.maxOrders = maxOrders;
+        this.maxScan = maxScan;
+        int pages = (maxOrders + PAGE_SIZE - 1) >>> PAGE_BITS;
+        idHigh = new long[pages][];
+        idLow = new long[pages][];
+        createdAt = new long[pages][];
+        updatedAt = new long[pages][];
+        totalMinor = new long[pages][];
+        customer = new int[pages][];
+        previousOfCustomer = new int[pages][];
+        status = new byte[pages][];
+        currency = new byte[pages][];
+        // Таблица id выделяется сразу под maxOrders: перестройка под блокировкой остановила бы запросы
+        idTable = new int[Integer.highestOneBit((int) Math.min(1L << 30, maxOrders * 4L / 3) * 2 - 1)];
+        for (int i = 0; i < byStatus.length; i++) {
+            byStatus[i] = new OrdinalBitmap();
+        }
+        int blocks = ((maxOrders - 1) >>> BLOCK_BITS) + 1;
+        blockMinCreated = new long[blocks];
+        blockMaxCreated = new long[blocks];
+        Arrays.fill(blockMinCreated, Long.MAX_VALUE);
+        Arrays.fill(blockMaxCreated, Long.MIN_VALUE);
+    }
+
+    @Override
+    public void onMessage(List<ConsumerRecord<String, OrderEvent>> records, Acknowledgment ack) {
+        long stamp = lock.writeLock();
+        try {
+            for (ConsumerRecord<String, OrderEvent> record : records) {
+                // Tombstone'ы order_snapshots заказ не удаляют: история остаётся в модели
+                if (record.value() != null) {
+                    apply(record.value());
+                }
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        ack.acknowledge();
+    }
+
+    public OrderView get(String orderId) {
+        long stamp = lock.readLock();
+        try {
+            int ordinal = find(orderId);
+            return ordinal < 0 ? null : view(ordinal);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Страница выборки. Просматривается не больше {@code maxScan} заказов, поэтому время
+     * запроса ограничено и для редких сочетаний фильтров: продолжение - по {@code nextCursor}.
+     */
+    public OrderPage query(OrderQuery query) {
+        long from = query.getFrom() != null ? query.getFrom().toEpochMilli() : Long.MIN_VALUE;
+        long to = query.getTo() != null ? query.getTo().toEpochMilli() : Long.MAX_VALUE;
+        boolean timed = query.getFrom() != null || query.getTo() != null;
+        OrderStatus wanted = query.getStatus();
+        List<OrderView> orders = new ArrayList<>(Math.min(query.getLimit(), 1024));
+        int scanned = 0;
+        Long total = null;
+
+        long stamp = lock.readLock();
+        try {
+            int start = query.getCursor() == null ? size - 1 : Math.min(query.getCursor() - 1, size - 1);
+            int position;
+            if (query.getCustomerId() != null) {
+                Integer id = customerIds.get(query.getCustomerId());
+                position = id == null ? -1 : firstOfCustomer(id, start);
+                while (position >= 0 && orders.size() < query.getLimit() && scanned < maxScan) {
+                    scanned++;
+                    if ((wanted == null || statusOf(position) == wanted) && createdIn(position, from, to)) {
+                        orders.add(view(position));
+                    }
+                    position = column(previousOfCustomer, position) - 1;
+                }
+                if (wanted == null && !timed) {
+                    total = id == null ? 0L : customerCount[id];
+                }
+            } else if (wanted != null) {
+                OrdinalBitmap bitmap = byStatus[wanted.ordinal()];
+                position = bitmap.previous(start);
+                while (position >= 0 && orders.size() < query.getLimit() && scanned < maxScan) {
+                    scanned++;
+                    if (timed && !blockOverlaps(position, from, to)) {
+                        position = bitmap.previous(blockStart(position) - 1);
+                        continue;
+                    }
+                    if (createdIn(position, from, to)) {
+                        orders.add(view(position));
+                    }
+                    position = bitmap.previous(position - 1);
+                }
+                if (!timed) {
+                    total = bitmap.cardinality();
+                }
+            } else {
+                position = start;
+                while (position >= 0 && orders.size() < query.getLimit() && scanned < maxScan) {
+                    scanned++;
+                    if (timed && !blockOverlaps(position, from, to)) {
+                        position = blockStart(position) - 1;
+                        continue;
+                    }
+                    if (createdIn(position, from, to)) {
+                        orders.add(view(position));
+                    }
+                    position--;
+                }
+                if (!timed) {
+                    total = (long) size;
+                }
+            }
+            // position - следующий непросмотренный кандидат
+            return new OrderPage(orders, position >= 0 ? position + 1 : null, total, scanned);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long stamp = lock.readLock();
+        try {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            stats.put("orders", size);
+            stats.put("maxOrders", maxOrders);
+            stats.put("dropped", dropped);
+            stats.put("events", events);
+            stats.put("customers", customerNames.size());
+            Map<String, Long> statuses = new LinkedHashMap<>();
+            long bitmapBytes = 0;
+            for (OrderStatus value : STATUSES) {
+                statuses.put(value.name(), byStatus[value.ordinal()].cardinality());
+                bitmapBytes += byStatus[value.ordinal()].memoryBytes();
+            }
+            stats.put("byStatus", statuses);
+
+            long columnBytes = 0;
+            for (long[] page : idHigh) {
+                if (page != null) {
+                    columnBytes += (long) ROW_BYTES * PAGE_SIZE;
+                }
+            }
+            // Словарь клиентов - оценка: HashMap.Node, Integer и строка id длиной ~36 символов
+            long customerBytes = customerNames.size() * 150L + 8L * (customerHead.length + customerCount.length);
+            stats.put("columnBytes", columnBytes);
+            stats.put("idIndexBytes", 4L * idTable.length);
+            stats.put("statusIndexBytes", bitmapBytes);
+            stats.put("timeIndexBytes", 16L * blockMinCreated.length);
+            stats.put("customerIndexBytes", customerBytes);
+            stats.put("estimatedHeapBytes", columnBytes + 4L * idTable.length + bitmapBytes
+                    + 16L * blockMinCreated.length + customerBytes);
+            return stats;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private void apply(OrderEvent event) {
+        events++;
+        if (event.getOrderId() == null) {
+            return;
+        }
+        int ordinal = findOrAdd(event.getOrderId());
+        if (ordinal < 0) {
+            if (dropped++ == 0) {
+                log.warn("Read model is full ({} orders), new orders are dropped", maxOrders);
+            }
+            return;
+        }
+
+        // Время создания - самое раннее из событий заказа: ORDER_CREATED может прийти позже оплаты
+        if (event.getTimestamp() != null) {
+            long millis = event.getTimestamp().toEpochMilli();
+            long created = column(createdAt, ordinal);
+            if (created == 0 || millis < created) {
+                set(createdAt, ordinal, millis);
+                int block = ordinal >>> BLOCK_BITS;
+                blockMinCreated[block] = Math.min(blockMinCreated[block], millis);
+                blockMaxCreated[block] = Math.max(blockMaxCreated[block], millis);
+            }
+            if (millis > column(updatedAt, ordinal)) {
+                set(updatedAt, ordinal, millis);
+            }
+        }
+
+        // Тело заказа есть в толстых событиях и в снимках; тонкие несут только статус
+        Order order = event.getPayload();
+        if (order != null) {
+            if (column(customer, ordinal) == 0 && order.getCustomerId() != null) {
+                linkCustomer(ordinal, customerId(order.getCustomerId()));
+            }
+            set(totalMinor, ordinal, order.getTotalMinor());
+            if (order.getCurrency() != null) {
+                set(currency, ordinal, currencyCode(order.getCurrency()));
+            }
+        }
+
+        OrderStatus next = statusOf(event);
+        if (next != null) {
+            int current = column(status, ordinal) - 1;
+            if (current < 0 || STATUSES[current].canAdvanceTo(next)) {
+                if (current >= 0) {
+                    byStatus[current].remove(ordinal);
+                }
+                byStatus[next.ordinal()].add(ordinal);
+                set(status, ordinal, (byte) (next.ordinal() + 1));
+            }
+        }
+    }
+
+    // Те же правила, что у OrderStatusListener сервиса заказов
+    private static OrderStatus statusOf(OrderEvent event) {
+        if (event.getEventType() != null) {
+            switch (event.getEventType()) {
+                case PAYMENT_SUCCESS:
+                    return OrderStatus.PAYMENT_COMPLETED;
+                case PAYMENT_FAILED:
+                    return OrderStatus.PAYMENT_FAILED;
+                case SHIPMENT_SUCCESS:
+                    return OrderStatus.SHIPPED;
+                case SHIPMENT_FAILED:
+                    return OrderStatus.CANCELLED;
+                default:
+                    break;
+            }
+        }
+        if (event.getStatus() != null) {
+            return event.getStatus();
+        }
+        return event.getPayload() != null ? event.getPayload().getStatus() : null;
+    }
+
+    private int find(String orderId) {
+        if (!CanonicalUuid.matches(orderId)) {
+            Integer ordinal = namedIds.get(orderId);
+            return ordinal == null ? -1 : ordinal;
+        }
+        long high = CanonicalUuid.mostSignificantBits(orderId);
+        long low = CanonicalUuid.leastSignificantBits(orderId);
+        int mask = idTable.length - 1;
+        for (int i = hash(high, low) & mask; ; i = (i + 1) & mask) {
+            int ordinal = idTable[i] - 1;
+            if (ordinal < 0) {
+                return -1;
+            }
+            if (column(idHigh, ordinal) == high && column(idLow, ordinal) == low) {
+                return ordinal;
+            }
+        }
+    }
+
+    private int findOrAdd(String orderId) {
+        if (!CanonicalUuid.matches(orderId)) {
+            Integer ordinal = namedIds.get(orderId);
+            if (ordinal != null) {
+                return ordinal;
+            }
+            int added = allocate();
+            if (added >= 0) {
+                namedIds.put(orderId, added);
+                namedOrders.put(added, orderId);
+            }
+            return added;
+        }
+        long high = CanonicalUuid.mostSignificantBits(orderId);
+        long low = CanonicalUuid.leastSignificantBits(orderId);
+        int mask = idTable.length - 1;
+        for (int i = hash(high, low) & mask; ; i = (i + 1) & mask) {
+            int ordinal = idTable[i] - 1;
+            if (ordinal < 0) {
+                int added = allocate();
+                if (added >= 0) {
+                    set(idHigh, added, high);
+                    set(idLow, added, low);
+                    idTable[i] = added + 1;
+                }
+                return added;
+            }
+            if (column(idHigh, ordinal) == high && column(idLow, ordinal) == low) {
+                return ordinal;
+            }
+        }
+    }
+
+    private int allocate() {
+        if (size >= maxOrders) {
+            return -1;
+        }
+        int ordinal = size++;
+        int page = ordinal >>> PAGE_BITS;
+        if (idHigh[page] == null) {
+            idHigh[page] = new long[PAGE_SIZE];
+            idLow[page] = new long[PAGE_SIZE];
+            createdAt[page] = new long[PAGE_SIZE];
+            updatedAt[page] = new long[PAGE_SIZE];
+            totalMinor[page] = new long[PAGE_SIZE];
+            customer[page] = new int[PAGE_SIZE];
+            previousOfCustomer[page] = new int[PAGE_SIZE];
+            status[page] = new byte[PAGE_SIZE];
+            currency[page] = new byte[PAGE_SIZE];
+        }
+        return ordinal;
+    }
+
+    private int customerId(String customerId) {
+        Integer id = customerIds.get(customerId);
+        if (id != null) {
+            return id;
+        }
+        id = customerNames.size();
+        customerIds.put(customerId, id);
+        customerNames.add(customerId);
+        if (id == customerHead.length) {
+            customerHead = Arrays.copyOf(customerHead, id * 2);
+            customerCount = Arrays.copyOf(customerCount, id * 2);
+        }
+        return id;
+    }
+
+    /**
+     * Добавляет заказ в цепочку клиента, сохраняя убывание ordinal. Обычно заказ новее всех
+     * в цепочке; в тонком режиме клиент узнаётся из снимка, который может прийти позже событий
+     * следующих заказов, - тогда заказ вставляется на своё место.
+     */
+    private void linkCustomer(int ordinal, int id) {
+        set(customer, ordinal, id + 1);
+        customerCount[id]++;
+        int head = customerHead[id] - 1;
+        if (head < ordinal) {
+            set(previousOfCustomer, ordinal, head + 1);
+            customerHead[id] = ordinal + 1;
+            return;
+        }
+        for (int at = head; ; ) {
+            int previous = column(previousOfCustomer, at) - 1;
+            if (previous < ordinal) {
+                set(previousOfCustomer, ordinal, previous + 1);
+                set(previousOfCustomer, at, ordinal + 1);
+                return;
+            }
+            at = previous;
+        }
+    }
+
+    // Первый заказ клиента с ordinal не больше start; курсор прошлой страницы указывает прямо в цепочку
+    private int firstOfCustomer(int id, int start) {
+        if (start < 0 || column(customer, start) == id + 1) {
+            return start;
+        }
+        int position = customerHead[id] - 1;
+        while (position > start) {
+            position = column(previousOfCustomer, position) - 1;
+        }
+        return position;
+    }
+
+    private byte currencyCode(String code) {
+        int index = currencies.indexOf(code);
+        if (index < 0 && currencies.size() < 255) {
+            currencies.add(code);
+            index = currencies.size() - 1;
+        }
+        return (byte) (index + 1);
+    }
+
+    private OrderStatus statusOf(int ordinal) {
+        int code = column(status, ordinal);
+        return code == 0 ? null : STATUSES[code - 1];
+    }
+
+    private boolean createdIn(int ordinal, long from, long to) {
+        long created = column(createdAt, ordinal);
+        return created >= from && created < to;
+    }
+
+    private boolean blockOverlaps(int ordinal, long from, long to) {
+        int block = ordinal >>> BLOCK_BITS;
+        return blockMaxCreated[block] >= from && blockMinCreated[block] < to;
+    }
+
+    private static int blockStart(int ordinal) {
+        return ordinal & -(1 << BLOCK_BITS);
+    }
+
+    private OrderView view(int ordinal) {
+        String orderId = namedOrders.isEmpty() ? null : namedOrders.get(ordinal);
+        if (orderId == null) {
+            orderId = CanonicalUuid.toString(column(idHigh, ordinal), column(idLow, ordinal));
+        }
+        int customerCode = column(customer, ordinal);
+        int currencyCode = column(currency, ordinal) & 0xFF;
+        long created = column(createdAt, ordinal);
+        long updated = column(updatedAt, ordinal);
+        return new OrderView(orderId,
+                customerCode == 0 ? null : customerNames.get(customerCode - 1),
+                statusOf(ordinal),
+                created == 0 ? null : Instant.ofEpochMilli(created),
+                updated == 0 ? null : Instant.ofEpochMilli(updated),
+                column(totalMinor, ordinal),
+                currencyCode == 0 ? null : currencies.get(currencyCode - 1));
+    }
+
+    private static long column(long[][] pages, int ordinal) {
+        return pages[ordinal >>> PAGE_BITS][ordinal & PAGE_MASK];
+    }
+
+    private static int column(int[][] pages, int ordinal) {
+        return pages[ordinal >>> PAGE_BITS][ordinal & PAGE_MASK];
+    }
+
+    private static int column(byte[][] pages, int ordinal) {
+        return pages[ordinal >>> PAGE_BITS][ordinal & PAGE_MASK];
+    }
+
+    private static void set(long[][] pages, int ordinal, long value) {
+        pages[ordinal >>> PAGE_BITS][ordinal & PAGE_MASK] = value;
+    }
+
+    private static void set(int[][] pages, int ordinal, int value) {
+        pages[ordinal >>> PAGE_BITS][ordinal & PAGE_MASK] = value;
+    }
+
+    private static void set(byte[][] pages, int ordinal, byte value) {
+        pages[ordinal >>> PAGE_BITS][ordinal & PAGE_MASK] = value;
+    }
+
+    private static int hash(long high, long low) {
+        long h = high * 0x9E3779B97F4A7C15L ^ low;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
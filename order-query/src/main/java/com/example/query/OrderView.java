@@ -0,0 +1,20 @@
+package com.example.query;
+
+import com.example.model.OrderStatus;
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * Заказ в модели чтения. customerId и сумма неизвестны, пока не пришло событие или снимок с телом заказа.
+ */
+@Value
+public class OrderView {
+    String orderId;
+    String customerId;
+    OrderStatus status;
+    Instant createdAt;
+    Instant updatedAt;
+    long totalMinor;
+    String currency;
+}
@@ -0,0 +1,246 @@
+package com.example.query;
+
+import java.util.Arrays;
+
+/**
+ * Сжатое множество ordinal'ов заказов в духе Roaring: диапазон делится на блоки по 65536,
+ * блок хранится отсортированным массивом младших 16 бит (до 4096 значений, 2 байта на
+ * значение) или битовой картой на 8 КБ - что компактнее. Ordinal'ы плотные, поэтому блоки
+ * адресуются напрямую по старшим 16 битам, без поиска по ключам.
+ * <p>
+ * Не потокобезопасно: синхронизацию даёт {@link OrderReadModel}.
+ */
+final class OrdinalBitmap {
+
+    private static final int ARRAY_MAX = 4096;
+    // Обратный переход с запасом, чтобы заказы на границе не конвертировали блок туда-обратно
+    private static final int ARRAY_SHRINK = 2048;
+
+    private Container[] containers = new Container[0];
+    private long cardinality;
+
+    boolean add(int ordinal) {
+        int high = ordinal >>> 16;
+        if (high >= containers.length) {
+            containers = Arrays.copyOf(containers, Math.max(high + 1, containers.length * 2));
+        }
+        Container container = containers[high];
+        if (container == null) {
+            container = new ArrayContainer();
+            containers[high] = container;
+        }
+        if (!container.add(ordinal & 0xFFFF)) {
+            return false;
+        }
+        cardinality++;
+        if (container instanceof ArrayContainer && container.cardinality > ARRAY_MAX) {
+            containers[high] = ((ArrayContainer) container).toBitmap();
+        }
+        return true;
+    }
+
+    boolean remove(int ordinal) {
+        int high = ordinal >>> 16;
+        Container container = high < containers.length ? containers[high] : null;
+        if (container == null || !container.remove(ordinal & 0xFFFF)) {
+            return false;
+        }
+        cardinality--;
+        if (container.cardinality == 0) {
+            containers[high] = null;
+        } else if (container instanceof BitmapContainer && container.cardinality <= ARRAY_SHRINK) {
+            containers[high] = ((BitmapContainer) container).toArray();
+        }
+        return true;
+    }
+
+    boolean contains(int ordinal) {
+        int high = ordinal >>> 16;
+        Container container = high < containers.length ? containers[high] : null;
+        return container != null && container.contains(ordinal & 0xFFFF);
+    }
+
+    /**
+     * Наибольший элемент не больше {@code ordinal} или -1: обход по убыванию для постраничной выдачи.
+     */
+    int previous(int ordinal) {
+        if (ordinal < 0) {
+            return -1;
+        }
+        int high = ordinal >>> 16;
+        int low = ordinal & 0xFFFF;
+        if (high >= containers.length) {
+            high = containers.length - 1;
+            low = 0xFFFF;
+        }
+        for (; high >= 0; high--, low = 0xFFFF) {
+            Container container = containers[high];
+            if (container != null) {
+                int found = container.previous(low);
+                if (found >= 0) {
+                    return high << 16 | found;
+                }
+            }
+        }
+        return -1;
+    }
+
+    long cardinality() {
+        return cardinality;
+    }
+
+    long memoryBytes() {
+        long bytes = 16 + 8L * containers.length;
+        for (Container container : containers) {
+            if (container != null) {
+                bytes += container.memoryBytes();
+            }
+        }
+        return bytes;
+    }
+
+    private abstract static class Container {
+
+        int cardinality;
+
+        abstract boolean add(int low);
+
+        abstract boolean remove(int low);
+
+        abstract boolean contains(int low);
+
+        abstract int previous(int low);
+
+        abstract long memoryBytes();
+    }
+
+    private static final class ArrayContainer extends Container {
+
+        char[] values = new char[4];
+
+        @Override
+        boolean add(int low) {
+            // Ordinal'ы новых заказов растут, поэтому чаще всего значение дописывается в конец
+            int at = cardinality > 0 && values[cardinality - 1] < low ? -cardinality - 1 : search(low);
+            if (at >= 0) {
+                return false;
+            }
+            at = -at - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(values.length * 2, ARRAY_MAX + 1));
+            }
+            System.arraycopy(values, at, values, at + 1, cardinality - at);
+            values[at] = (char) low;
+            cardinality++;
+            return true;
+        }
+
+        @Override
+        boolean remove(int low) {
+            int at = search(low);
+            if (at < 0) {
+                return false;
+            }
+            System.arraycopy(values, at + 1, values, at, cardinality - at - 1);
+            cardinality--;
+            return true;
+        }
+
+        @Override
+        boolean contains(int low) {
+            return search(low) >= 0;
+        }
+
+        @Override
+        int previous(int low) {
+            int at = search(low);
+            if (at >= 0) {
+                return low;
+            }
+            int insertion = -at - 1;
+            return insertion > 0 ? values[insertion - 1] : -1;
+        }
+
+        @Override
+        long memoryBytes() {
+            return 32 + 16 + 2L * values.length;
+        }
+
+        BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (int i = 0; i < cardinality; i++) {
+                bitmap.add(values[i]);
+            }
+            return bitmap;
+        }
+
+        private int search(int low) {
+            return Arrays.binarySearch(values, 0, cardinality, (char) low);
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+
+        final long[] words = new long[1024];
+
+        @Override
+        boolean add(int low) {
+            long bit = 1L << low;
+            long word = words[low >>> 6];
+            if ((word & bit) != 0) {
+                return false;
+            }
+            words[low >>> 6] = word | bit;
+            cardinality++;
+            return true;
+        }
+
+        @Override
+        boolean remove(int low) {
+            long bit = 1L << low;
+            long word = words[low >>> 6];
+            if ((word & bit) == 0) {
+                return false;
+            }
+            words[low >>> 6] = word & ~bit;
+            cardinality--;
+            return true;
+        }
+
+        @Override
+        boolean contains(int low) {
+            return (words[low >>> 6] & 1L << low) != 0;
+        }
+
+        @Override
+        int previous(int low) {
+            int index = low >>> 6;
+            long word = words[index] & -1L >>> (63 - (low & 63));
+            while (word == 0) {
+                if (--index < 0) {
+                    return -1;
+                }
+                word = words[index];
+            }
+            return index * 64 + 63 - Long.numberOfLeadingZeros(word);
+        }
+
+        @Override
+        long memoryBytes() {
+            return 32 + 16 + 8L * words.length;
+        }
+
+        ArrayContainer toArray() {
+            ArrayContainer array = new ArrayContainer();
+            array.values = new char[Math.max(4, cardinality)];
+            for (int index = 0; index < words.length; index++) {
+                long word = words[index];
+                while (word != 0) {
+                    array.values[array.cardinality++] = (char) (index * 64 + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return array;
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.query;
+
+import com.example.model.EventType;
+import com.example.model.Order;
+import com.example.model.OrderEvent;
+import com.example.model.OrderStatus;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderReadModelTest {
+
+    private static final int ORDERS = 10_000;
+    private static final int CUSTOMERS = 7;
+    private static final Instant BASE = Instant.parse("2025-01-01T00:00:00Z");
+
+    private final Random random = new Random(11);
+    private final List<Ref> refs = new ArrayList<>();
+
+    @Test
+    void pagesMatchFullScanForEveryFilterCombination() {
+        for (int maxScan : new int[] {50_000, 37}) {
+            refs.clear();
+            OrderReadModel model = populate(new OrderReadModel(ORDERS, maxScan));
+            Instant from = created(2_000);
+            Instant to = created(7_000);
+            Instant[][] windows = {{null, null}, {from, to}, {from, null}, {null, to}};
+            OrderStatus[] statuses = {null, OrderStatus.CREATED, OrderStatus.PAYMENT_COMPLETED, OrderStatus.SHIPPED};
+
+            for (String customer : Arrays.asList(null, "customer-3")) {
+                for (OrderStatus status : statuses) {
+                    for (Instant[] window : windows) {
+                        List<String> expected = expected(ref -> (customer == null || customer.equals(ref.customer))
+                                && (status == null || status == ref.status)
+                                && (window[0] == null || !ref.created.isBefore(window[0]))
+                                && (window[1] == null || ref.created.isBefore(window[1])));
+                        assertThat(collect(model, customer, status, window[0], window[1], 50))
+                                .as("maxScan %d, customer %s, status %s, from %s, to %s",
+                                        maxScan, customer, status, window[0], window[1])
+                                .isEqualTo(expected);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void totalsComeFromIndexes() {
+        OrderReadModel model = populate(new OrderReadModel(ORDERS, 50_000));
+
+        assertThat(model.query(query(null, null, null, null, null, 10)).getTotal()).isEqualTo(ORDERS);
+        assertThat(model.query(query("customer-3", null, null, null, null, 10)).getTotal())
+                .isEqualTo(expected(ref -> ref.customer.equals("customer-3")).size());
+        assertThat(model.query(query(null, OrderStatus.SHIPPED, null, null, null, 10)).getTotal())
+                .isEqualTo(expected(ref -> ref.status == OrderStatus.SHIPPED).size());
+        assertThat(model.query(query(null, null, created(10), null, null, 10)).getTotal()).isNull();
+    }
+
+    @Test
+    void timeWindowSkipsBlocksOutsideRange() {
+        OrderReadModel model = populate(new OrderReadModel(ORDERS, 50_000));
+
+        // Окно в первом блоке из 4096: два более новых блока пропускаются целиком
+        OrderPage page = model.query(query(null, null, created(100), created(200), null, 1_000));
+        assertThat(page.getOrders()).hasSize(100);
+        assertThat(page.getScanned()).isLessThanOrEqualTo(2 + 4096);
+        assertThat(page.getOrders().get(0).getOrderId()).isEqualTo(refs.get(199).id);
+
+        OrderPage byStatus = model.query(query(null, OrderStatus.CREATED, created(100), created(200), null, 1_000));
+        assertThat(byStatus.getScanned()).isLessThan(4096);
+        assertThat(byStatus.getOrders()).extracting(OrderView::getOrderId)
+                .isEqualTo(expected(ref -> ref.status == OrderStatus.CREATED
+                        && !ref.created.isBefore(created(100)) && ref.created.isBefore(created(200))));
+    }
+
+    @Test
+    void customerLearnedFromLateSnapshotKeepsChainOrdered() {
+        OrderReadModel model = new OrderReadModel(100, 1_000);
+        String early = UUID.randomUUID().toString();
+        String late = UUID.randomUUID().toString();
+        String latest = UUID.randomUUID().toString();
+
+        // Тонкое событие раньше снимка: клиент заказа early узнаётся после более новых заказов
+        apply(model, OrderEvent.slim(early, EventType.ORDER_CREATED, OrderStatus.CREATED, 1L));
+        apply(model, event(late, "customer-1", EventType.ORDER_CREATED, 1));
+        apply(model, event(latest, "customer-1", EventType.ORDER_CREATED, 2));
+        apply(model, event(early, "customer-1", EventType.ORDER_CREATED, 0));
+
+        OrderPage page = model.query(query("customer-1", null, null, null, null, 10));
+        assertThat(page.getOrders()).extracting(OrderView::getOrderId).containsExactly(latest, late, early);
+        assertThat(page.getTotal()).isEqualTo(3);
+
+        List<String> paged = new ArrayList<>();
+        Integer cursor = null;
+        do {
+            OrderPage next = model.query(query("customer-1", null, null, null, cursor, 1));
+            next.getOrders().forEach(view -> paged.add(view.getOrderId()));
+            cursor = next.getNextCursor();
+        } while (cursor != null);
+        assertThat(paged).containsExactly(latest, late, early);
+    }
+
+    @Test
+    void findsNamedAndUuidOrdersAndDropsOverCapacity() {
+        OrderReadModel model = new OrderReadModel(3, 1_000);
+        String uuid = UUID.randomUUID().toString();
+        apply(model, event(uuid, "customer-1", EventType.ORDER_CREATED, 0));
+        apply(model, event("legacy-42", "customer-2", EventType.ORDER_CREATED, 1));
+        apply(model, event(uuid, "customer-1", EventType.PAYMENT_SUCCESS, 2));
+        apply(model, event("legacy-42", "customer-2", EventType.PAYMENT_FAILED, 3));
+        // Статус только продвигается вперёд
+        apply(model, event(uuid, "customer-1", EventType.ORDER_CREATED, 4));
+
+        assertThat(model.get(uuid).getStatus()).isEqualTo(OrderStatus.PAYMENT_COMPLETED);
+        assertThat(model.get(uuid).getCustomerId()).isEqualTo("customer-1");
+        assertThat(model.get(uuid).getCreatedAt()).isEqualTo(created(0));
+        assertThat(model.get(uuid).getUpdatedAt()).isEqualTo(created(4));
+        assertThat(model.get("legacy-42").getStatus()).isEqualTo(OrderStatus.PAYMENT_FAILED);
+        assertThat(model.get("legacy-43")).isNull();
+        assertThat(model.get(UUID.randomUUID().toString())).isNull();
+
+        apply(model, event("legacy-43", "customer-3", EventType.ORDER_CREATED, 5));
+        apply(model, event(UUID.randomUUID().toString(), "customer-3", EventType.ORDER_CREATED, 6));
+        apply(model, event("legacy-44", "customer-3", EventType.ORDER_CREATED, 7));
+        assertThat(model.stats()).containsEntry("orders", 3).containsEntry("dropped", 2L);
+        assertThat(model.get("legacy-43").getCustomerId()).isEqualTo("customer-3");
+        assertThat(model.get("legacy-44")).isNull();
+    }
+
+    private OrderReadModel populate(OrderReadModel model) {
+        List<OrderEvent> lateSnapshots = new ArrayList<>();
+        for (int i = 0; i < ORDERS; i++) {
+            Ref ref = new Ref(new UUID(random.nextLong(), random.nextLong()).toString(),
+                    "customer-" + (i % CUSTOMERS), created(i));
+            refs.add(ref);
+            if (i % 11 == 0) {
+                // Тонкий режим: тело заказа со снимком придёт после событий следующих заказов
+                OrderEvent slim = OrderEvent.slim(ref.id, EventType.ORDER_CREATED, OrderStatus.CREATED, 1L);
+                slim.setTimestamp(ref.created);
+                apply(model, slim);
+                lateSnapshots.add(event(ref.id, ref.customer, EventType.ORDER_CREATED, i + 5_000));
+            } else {
+                apply(model, event(ref.id, ref.customer, EventType.ORDER_CREATED, i));
+            }
+            if (i % 3 == 0) {
+                ref.status = OrderStatus.PAYMENT_COMPLETED;
+                apply(model, event(ref.id, null, EventType.PAYMENT_SUCCESS, i + 1));
+            }
+            if (i % 15 == 0) {
+                ref.status = OrderStatus.SHIPPED;
+                apply(model, event(ref.id, null, EventType.SHIPMENT_SUCCESS, i + 2));
+            }
+        }
+        lateSnapshots.forEach(snapshot -> apply(model, snapshot));
+        return model;
+    }
+
+    private List<String> expected(Predicate<Ref> filter) {
+        List<String> ids = new ArrayList<>();
+        for (int i = refs.size() - 1; i >= 0; i--) {
+            if (filter.test(refs.get(i))) {
+                ids.add(refs.get(i).id);
+            }
+        }
+        return ids;
+    }
+
+    private static List<String> collect(OrderReadModel model, String customer, OrderStatus status,
+                                        Instant from, Instant to, int limit) {
+        List<String> ids = new ArrayList<>();
+        Integer cursor = null;
+        int pages = 0;
+        do {
+            OrderPage page = model.query(query(customer, status, from, to, cursor, limit));
+            assertThat(page.getOrders()).hasSizeLessThanOrEqualTo(limit);
+            page.getOrders().forEach(view -> ids.add(view.getOrderId()));
+            if (page.getNextCursor() != null && cursor != null) {
+                assertThat(page.getNextCursor()).isLessThan(cursor);
+            }
+            cursor = page.getNextCursor();
+            assertThat(++pages).isLessThanOrEqualTo(ORDERS + 1);
+        } while (cursor != null);
+        return ids;
+    }
+
+    private static OrderQuery query(String customer, OrderStatus status, Instant from, Instant to,
+                                    Integer cursor, int limit) {
+        return new OrderQuery(customer, status, from, to, cursor, limit);
+    }
+
+    private static OrderEvent event(String orderId, String customerId, EventType type, int second) {
+        Order order = null;
+        if (customerId != null) {
+            order = new Order();
+            order.setId(orderId);
+            order.setCustomerId(customerId);
+            order.setTotalMinor(1_000L + second);
+        }
+        OrderEvent event = new OrderEvent(orderId, type, order);
+        event.setTimestamp(created(second));
+        return event;
+    }
+
+    private static void apply(OrderReadModel model, OrderEvent event) {
+        model.onMessage(List.of(new ConsumerRecord<>("orders", 0, 0L, event.getOrderId(), event)), () -> { });
+    }
+
+    private static Instant created(int second) {
+        return BASE.plusSeconds(second);
+    }
+
+    private static final class Ref {
+        final String id;
+        final String customer;
+        final Instant created;
+        OrderStatus status = OrderStatus.CREATED;
+
+        Ref(String id, String customer, Instant created) {
+            this.id = id;
+            this.customer = customer;
+            this.created = created;
+        }
+    }
+}
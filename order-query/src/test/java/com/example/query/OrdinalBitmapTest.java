@@ -0,0 +1,110 @@
+package com.example.query;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrdinalBitmapTest {
+
+    private static final int BLOCK = 1 << 16;
+
+    @Test
+    void convertsArrayToBitmapAndBackKeepingValues() {
+        OrdinalBitmap bitmap = new OrdinalBitmap();
+        // Чётные значения блока 1: 4097 штук - на одно больше, чем вмещает массив
+        for (int i = 0; i <= 4096; i++) {
+            assertThat(bitmap.add(BLOCK + 2 * i)).isTrue();
+        }
+        assertThat(bitmap.add(BLOCK)).isFalse();
+        assertThat(bitmap.cardinality()).isEqualTo(4097);
+        assertThat(bitmap.memoryBytes()).isGreaterThan(8 * 1024);
+        assertThat(bitmap.contains(BLOCK + 8192)).isTrue();
+        assertThat(bitmap.contains(BLOCK + 8193)).isFalse();
+        assertThat(bitmap.previous(BLOCK + 8191)).isEqualTo(BLOCK + 8190);
+
+        // Обратно в массив - только ниже порога 2048, а не сразу под 4096
+        for (int i = 4096; i >= 2049; i--) {
+            assertThat(bitmap.remove(BLOCK + 2 * i)).isTrue();
+        }
+        assertThat(bitmap.memoryBytes()).isGreaterThan(8 * 1024);
+        assertThat(bitmap.remove(BLOCK + 2 * 2048)).isTrue();
+        assertThat(bitmap.remove(BLOCK + 2 * 2048)).isFalse();
+        assertThat(bitmap.cardinality()).isEqualTo(2048);
+        assertThat(bitmap.memoryBytes()).isLessThan(8 * 1024);
+
+        for (int i = 0; i < 2048; i++) {
+            assertThat(bitmap.contains(BLOCK + 2 * i)).isTrue();
+            assertThat(bitmap.contains(BLOCK + 2 * i + 1)).isFalse();
+        }
+        assertThat(bitmap.contains(BLOCK + 2 * 2048)).isFalse();
+        assertThat(bitmap.previous(BLOCK + 0xFFFF)).isEqualTo(BLOCK + 2 * 2047);
+        assertThat(bitmap.previous(BLOCK + 7)).isEqualTo(BLOCK + 6);
+        // После обратного перехода массив снова принимает значения
+        assertThat(bitmap.add(BLOCK + 1)).isTrue();
+        assertThat(bitmap.previous(BLOCK + 1)).isEqualTo(BLOCK + 1);
+    }
+
+    @Test
+    void previousCrossesContainerBoundaries() {
+        OrdinalBitmap bitmap = new OrdinalBitmap();
+        assertThat(bitmap.previous(10)).isEqualTo(-1);
+
+        bitmap.add(5);
+        bitmap.add(3 * BLOCK + 100);
+        // Блоки 1 и 2 пусты, в блоке 3 нет значений меньше 100
+        assertThat(bitmap.previous(3 * BLOCK + 99)).isEqualTo(5);
+        assertThat(bitmap.previous(3 * BLOCK)).isEqualTo(5);
+        assertThat(bitmap.previous(3 * BLOCK - 1)).isEqualTo(5);
+        assertThat(bitmap.previous(3 * BLOCK + 100)).isEqualTo(3 * BLOCK + 100);
+        // Дальше последнего блока - наибольший элемент
+        assertThat(bitmap.previous(Integer.MAX_VALUE)).isEqualTo(3 * BLOCK + 100);
+        assertThat(bitmap.previous(4)).isEqualTo(-1);
+        assertThat(bitmap.previous(-1)).isEqualTo(-1);
+
+        // Блок-битовая карта: поиск с начала слова уходит в предыдущий блок
+        for (int i = 0; i < 5000; i++) {
+            bitmap.add(2 * BLOCK + 64 + i);
+        }
+        assertThat(bitmap.previous(3 * BLOCK + 99)).isEqualTo(2 * BLOCK + 64 + 4999);
+        assertThat(bitmap.previous(2 * BLOCK + 63)).isEqualTo(5);
+
+        // Опустевший блок удаляется и больше не находится
+        bitmap.remove(3 * BLOCK + 100);
+        assertThat(bitmap.previous(Integer.MAX_VALUE)).isEqualTo(2 * BLOCK + 64 + 4999);
+    }
+
+    @Test
+    void matchesTreeSetUnderRandomUpdates() {
+        Random random = new Random(7);
+        OrdinalBitmap bitmap = new OrdinalBitmap();
+        TreeSet<Integer> expected = new TreeSet<>();
+        // Плотный блок 0 сначала наполняется до битовой карты, потом прореживается обратно в массив;
+        // блоки 1-3 остаются массивами
+        for (int step = 0; step < 200_000; step++) {
+            int ordinal = random.nextInt(4) == 0 ? random.nextInt(4 * BLOCK) : random.nextInt(7000);
+            if (random.nextInt(4) < (step < 100_000 ? 1 : 3)) {
+                assertThat(bitmap.remove(ordinal)).isEqualTo(expected.remove(ordinal));
+            } else {
+                assertThat(bitmap.add(ordinal)).isEqualTo(expected.add(ordinal));
+            }
+            if (step % 1000 == 0) {
+                int probe = random.nextInt(5 * BLOCK);
+                Integer floor = expected.floor(probe);
+                assertThat(bitmap.previous(probe)).isEqualTo(floor == null ? -1 : floor);
+            }
+        }
+        assertThat(bitmap.cardinality()).isEqualTo(expected.size());
+        for (int ordinal = 0; ordinal < 4 * BLOCK; ordinal += 17) {
+            assertThat(bitmap.contains(ordinal)).isEqualTo(expected.contains(ordinal));
+        }
+        int position = bitmap.previous(Integer.MAX_VALUE);
+        for (int value : expected.descendingSet()) {
+            assertThat(position).isEqualTo(value);
+            position = bitmap.previous(position - 1);
+        }
+        assertThat(position).isEqualTo(-1);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.admission;
+
+import com.example.transport.InMemoryTransport;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lag групп в профиле in-memory: записи в очередях транспорта, ещё не отданные листенерам.
+ * Считается на месте, поэтому фонового опроса и устаревания, как у {@link KafkaAdminLagSource}, нет.
+ */
+public class InMemoryLagSource implements LagSource {
+
+    private final InMemoryTransport transport;
+    private final List<String> groups;
+
+    public InMemoryLagSource(InMemoryTransport transport, List<String> groups) {
+        this.transport = transport;
+        this.groups = List.copyOf(groups);
+    }
+
+    @Override
+    public long currentLag() {
+        long max = 0;
+        for (String group : groups) {
+            max = Math.max(max, transport.lag(group));
+        }
+        return max;
+    }
+
+    @Override
+    public Map<String, Long> lagByGroup() {
+        Map<String, Long> lags = new LinkedHashMap<>();
+        for (String group : groups) {
+            lags.put(group, transport.lag(group));
+        }
+        return lags;
+    }
+}
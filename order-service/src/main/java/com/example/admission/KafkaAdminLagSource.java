@@ -0,0 +1,124 @@
+package com.example.admission;
+
+import com.example.processing.ListenerExecutors;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.admin.Admin;
+import org.apache.kafka.clients.admin.ListOffsetsResult;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.context.SmartLifecycle;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Lag групп консьюмеров по данным брокера: закоммиченные offset группы против конца партиций.
+ * Опрашивается в фоне раз в {@code refresh}; запрос на приём читает готовое значение.
+ * <p>
+ * Если брокер не отвечает дольше {@code staleAfter}, lag считается неизвестным и приём
+ * не дросселируется: admission control защищает конвейер, но не должен останавливать его сам.
+ */
+@Slf4j
+public class KafkaAdminLagSource implements LagSource, SmartLifecycle {
+
+    private final Map<String, Object> adminConfig;
+    private final List<String> groups;
+    private final Duration refresh;
+    private final Duration staleAfter;
+
+    private Admin admin;
+    private ScheduledExecutorService scheduler;
+    private volatile boolean running;
+
+    private volatile Map<String, Long> lagByGroup = Map.of();
+    private volatile long maxLag = -1;
+    private volatile long refreshedAt = System.nanoTime();
+
+    public KafkaAdminLagSource(Map<String, Object> adminConfig, List<String> groups,
+                               Duration refresh, Duration staleAfter) {
+        this.adminConfig = adminConfig;
+        this.groups = List.copyOf(groups);
+        this.refresh = refresh;
+        this.staleAfter = staleAfter;
+    }
+
+    @Override
+    public long currentLag() {
+        return System.nanoTime() - refreshedAt > staleAfter.toNanos() ? -1 : maxLag;
+    }
+
+    @Override
+    public Map<String, Long> lagByGroup() {
+        return lagByGroup;
+    }
+
+    @Override
+    public void start() {
+        admin = Admin.create(adminConfig);
+        scheduler = Executors.newSingleThreadScheduledExecutor(ListenerExecutors.namedDaemonThreads("consumer-lag"));
+        scheduler.scheduleWithFixedDelay(this::refresh, 0, refresh.toMillis(), TimeUnit.MILLISECONDS);
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        scheduler.shutdownNow();
+        admin.close(Duration.ofSeconds(5));
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    void refresh() {
+        try {
+            Map<String, Long> lags = new LinkedHashMap<>();
+            long max = -1;
+            for (String group : groups) {
+                long lag = groupLag(group);
+                lags.put(group, lag);
+                max = Math.max(max, lag);
+            }
+            lagByGroup = lags;
+            maxLag = max;
+            refreshedAt = System.nanoTime();
+        } catch (ExecutionException | TimeoutException e) {
+            log.warn("Failed to read consumer lag: {}", e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private long groupLag(String group) throws ExecutionException, InterruptedException, TimeoutException {
+        long timeout = refresh.toMillis();
+        Map<TopicPartition, OffsetAndMetadata> committed = admin.listConsumerGroupOffsets(group)
+                .partitionsToOffsetAndMetadata().get(timeout, TimeUnit.MILLISECONDS);
+        Map<TopicPartition, OffsetSpec> latest = new HashMap<>();
+        for (Map.Entry<TopicPartition, OffsetAndMetadata> entry : committed.entrySet()) {
+            if (entry.getValue() != null) {
+                latest.put(entry.getKey(), OffsetSpec.latest());
+            }
+        }
+        if (latest.isEmpty()) {
+            return 0;
+        }
+        Map<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> ends = admin.listOffsets(latest).all()
+                .get(timeout, TimeUnit.MILLISECONDS);
+        long lag = 0;
+        for (Map.Entry<TopicPartition, ListOffsetsResult.ListOffsetsResultInfo> end : ends.entrySet()) {
+            lag += Math.max(0, end.getValue().offset() - committed.get(end.getKey()).offset());
+        }
+        return lag;
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.admission;
+
+import java.util.Map;
+
+/**
+ * Отставание консьюмеров, по которому дросселируется приём заказов.
+ */
+public interface LagSource {
+
+    /**
+     * Наибольший lag среди отслеживаемых групп; {@code -1}, если он пока неизвестен.
+     */
+    long currentLag();
+
+    Map<String, Long> lagByGroup();
+}
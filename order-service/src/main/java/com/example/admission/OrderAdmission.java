@@ -0,0 +1,160 @@
+package com.example.admission;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Допуск заказов на приём: общий лимит сервиса и лимит на каждого customerId.
+ * <p>
+ * Оба лимита сужаются с ростом отставания консьюмеров: до {@code softLag} действует полная
+ * скорость, от {@code softLag} до {@code hardLag} она линейно падает до {@code minFactor},
+ * дальше держится на нём. Так в new_orders не копятся часы работы для payment и shipping.
+ * <p>
+ * Бакеты клиентов живут в map не больше {@code maxCustomers} штук; полные бакеты вычищаются,
+ * а если map всё равно заполнена, новые клиенты ограничиваются только общим лимитом.
+ */
+@Slf4j
+public class OrderAdmission {
+
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    private final LagSource lagSource;
+    private final double globalRate;
+    private final int globalBurst;
+    private final double customerRate;
+    private final int customerBurst;
+    private final long softLag;
+    private final long hardLag;
+    private final double minFactor;
+    private final int maxCustomers;
+
+    private final TokenBucket global = new TokenBucket();
+    private final Map<String, TokenBucket> customers = new ConcurrentHashMap<>();
+    private final ReentrantLock sweepLock = new ReentrantLock();
+    private volatile long lastSweepNanos = System.nanoTime();
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder shedGlobal = new LongAdder();
+    private final LongAdder shedCustomer = new LongAdder();
+    private final LongAdder untracked = new LongAdder();
+
+    public OrderAdmission(LagSource lagSource, double globalRate, int globalBurst,
+                          double customerRate, int customerBurst,
+                          long softLag, long hardLag, double minFactor, int maxCustomers) {
+        if (globalRate <= 0 || customerRate <= 0 || hardLag <= softLag || minFactor <= 0 || minFactor > 1) {
+            throw new IllegalArgumentException("Invalid admission limits");
+        }
+        this.lagSource = lagSource;
+        this.globalRate = globalRate;
+        this.globalBurst = Math.max(1, globalBurst);
+        this.customerRate = customerRate;
+        this.customerBurst = Math.max(1, customerBurst);
+        this.softLag = softLag;
+        this.hardLag = hardLag;
+        this.minFactor = minFactor;
+        this.maxCustomers = maxCustomers;
+    }
+
+    /**
+     * @return {@link Duration#ZERO}, если заказ принят, иначе через сколько повторить запрос
+     */
+    public Duration tryAdmit(String customerId) {
+        long now = System.nanoTime();
+        double factor = factor(lagSource.currentLag());
+        long globalInterval = interval(globalRate * factor);
+        long customerInterval = interval(customerRate * factor);
+
+        TokenBucket customer = customerId == null ? null : customerBucket(customerId, now);
+        if (customer != null) {
+            long wait = customer.tryAcquire(now, customerInterval, (customerBurst - 1) * customerInterval);
+            if (wait > 0) {
+                shedCustomer.increment();
+                return Duration.ofNanos(wait);
+            }
+        }
+        long wait = global.tryAcquire(now, globalInterval, (globalBurst - 1) * globalInterval);
+        if (wait > 0) {
+            if (customer != null) {
+                customer.refund(customerInterval);
+            }
+            shedGlobal.increment();
+            return Duration.ofNanos(wait);
+        }
+        admitted.increment();
+        return Duration.ZERO;
+    }
+
+    public Map<String, Object> stats() {
+        long lag = lagSource.currentLag();
+        double factor = factor(lag);
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("admitted", admitted.sum());
+        stats.put("shedGlobal", shedGlobal.sum());
+        stats.put("shedCustomer", shedCustomer.sum());
+        stats.put("untrackedCustomers", untracked.sum());
+        stats.put("lag", lag);
+        stats.put("lagByGroup", lagSource.lagByGroup());
+        stats.put("factor", factor);
+        stats.put("globalRate", globalRate * factor);
+        stats.put("customerRate", customerRate * factor);
+        stats.put("trackedCustomers", customers.size());
+        return stats;
+    }
+
+    double factor(long lag) {
+        if (lag <= softLag) {
+            return 1.0;
+        }
+        if (lag >= hardLag) {
+            return minFactor;
+        }
+        return 1.0 - (1.0 - minFactor) * (lag - softLag) / (double) (hardLag - softLag);
+    }
+
+    private static long interval(double rate) {
+        return (long) Math.max(1, TimeUnit.SECONDS.toNanos(1) / rate);
+    }
+
+    private TokenBucket customerBucket(String customerId, long now) {
+        TokenBucket bucket = customers.get(customerId);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (customers.size() >= maxCustomers) {
+            sweep(now);
+            if (customers.size() >= maxCustomers) {
+                untracked.increment();
+                return null;
+            }
+        }
+        return customers.computeIfAbsent(customerId, id -> new TokenBucket());
+    }
+
+    // Одновременно чистит один поток, остальные не ждут; при наплыве новых клиентов - не чаще раза в секунду
+    private void sweep(long now) {
+        if (now - lastSweepNanos < SWEEP_INTERVAL_NANOS || !sweepLock.tryLock()) {
+            return;
+        }
+        try {
+            lastSweepNanos = now;
+            int before = customers.size();
+            Iterator<TokenBucket> buckets = customers.values().iterator();
+            while (buckets.hasNext()) {
+                if (buckets.next().isIdle(now)) {
+                    buckets.remove();
+                }
+            }
+            log.debug("Admission buckets swept: {} -> {}", before, customers.size());
+        } finally {
+            sweepLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.admission;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket в форме GCRA: вместо счётчика токенов хранится одно число - теоретическое время
+ * прихода следующего запроса (TAT), и запрос пропускается, если TAT опережает текущий момент
+ * не больше чем на допуск всплеска. Одно CAS-обновление на запрос, без блокировок и таймеров.
+ * <p>
+ * Интервал и допуск передаются в каждый вызов, поэтому скорость можно менять на лету,
+ * а параметры одного лимита разделяются всеми бакетами клиентов.
+ */
+public final class TokenBucket {
+
+    private final AtomicLong theoreticalArrival = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * @param intervalNanos время на один токен (1 / rate)
+     * @param burstNanos    допуск всплеска: (burst - 1) * intervalNanos
+     * @return 0, если запрос пропущен, иначе сколько наносекунд ждать до следующего токена
+     */
+    public long tryAcquire(long nowNanos, long intervalNanos, long burstNanos) {
+        while (true) {
+            long current = theoreticalArrival.get();
+            long base = current == Long.MIN_VALUE || current - nowNanos < 0 ? nowNanos : current;
+            long wait = base - nowNanos - burstNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (theoreticalArrival.compareAndSet(current, base + intervalNanos)) {
+                return 0;
+            }
+        }
+    }
+
+    // Возврат токена, если запрос отклонил другой лимит
+    public void refund(long intervalNanos) {
+        theoreticalArrival.addAndGet(-intervalNanos);
+    }
+
+    // Бакет полон: удаление равносильно созданию нового
+    public boolean isIdle(long nowNanos) {
+        long current = theoreticalArrival.get();
+        return current == Long.MIN_VALUE || current - nowNanos <= 0;
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.config;
+
+import com.example.accesslog.AccessLogConfigSupport;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+// Фильтр журнала доступа - сервлетный, в профиле reactive журнал не ведётся
+@Configuration
+@Profile("!reactive")
+public class AccessLogConfig extends AccessLogConfigSupport {
+}
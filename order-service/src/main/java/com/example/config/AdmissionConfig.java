@@ -0,0 +1,63 @@
+package com.example.config;
+
+import com.example.admission.KafkaAdminLagSource;
+import com.example.admission.LagSource;
+import com.example.admission.OrderAdmission;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.kafka.core.KafkaAdmin;
+
+import java.time.Duration;
+import java.util.List;
+
+@Configuration
+public class AdmissionConfig {
+
+    @Value("${order.admission.lag.groups:payment-group,shipping-group}")
+    private List<String> lagGroups;
+
+    @Value("${order.admission.lag.refresh:5s}")
+    private Duration lagRefresh;
+
+    @Value("${order.admission.lag.stale-after:30s}")
+    private Duration lagStaleAfter;
+
+    @Value("${order.admission.lag.soft:10000}")
+    private long softLag;
+
+    @Value("${order.admission.lag.hard:200000}")
+    private long hardLag;
+
+    @Value("${order.admission.lag.min-factor:0.05}")
+    private double minFactor;
+
+    @Value("${order.admission.global.rate:5000}")
+    private double globalRate;
+
+    @Value("${order.admission.global.burst:10000}")
+    private int globalBurst;
+
+    @Value("${order.admission.customer.rate:5}")
+    private double customerRate;
+
+    @Value("${order.admission.customer.burst:20}")
+    private int customerBurst;
+
+    @Value("${order.admission.customer.max-tracked:1000000}")
+    private int maxTrackedCustomers;
+
+    // В профиле in-memory lag считает InMemoryLagSource из InMemoryTransportConfig
+    @Bean
+    @Profile("!in-memory")
+    public KafkaAdminLagSource consumerLagSource(KafkaAdmin kafkaAdmin) {
+        return new KafkaAdminLagSource(kafkaAdmin.getConfigurationProperties(), lagGroups, lagRefresh, lagStaleAfter);
+    }
+
+    @Bean
+    public OrderAdmission orderAdmission(LagSource consumerLagSource) {
+        return new OrderAdmission(consumerLagSource, globalRate, globalBurst, customerRate, customerBurst,
+                softLag, hardLag, minFactor, maxTrackedCustomers);
+    }
+}
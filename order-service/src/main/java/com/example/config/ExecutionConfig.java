@@ -0,0 +1,31 @@
+package com.example.config;
+
+import com.example.processing.BoundedExecutor;
+import com.example.processing.ExecutionConfigSupport;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.AsyncConfigurer;
+import org.springframework.scheduling.annotation.EnableAsync;
+
+import java.time.Duration;
+import java.util.concurrent.Executor;
+
+/**
+ * Исполнители запросов Tomcat и {@code @Async}: на JDK 21+ - виртуальные потоки, поверх них
+ * лимиты из {@code execution.*}.
+ */
+@Configuration
+@EnableAsync
+public class ExecutionConfig extends ExecutionConfigSupport implements AsyncConfigurer {
+
+    @Bean(destroyMethod = "close")
+    public BoundedExecutor asyncExecutor() {
+        return boundedExecutor("async", "async", new BoundedExecutor.Limits(256, 10000,
+                BoundedExecutor.Rejection.CALLER_RUNS, Duration.ofSeconds(1)));
+    }
+
+    @Override
+    public Executor getAsyncExecutor() {
+        return asyncExecutor();
+    }
+}
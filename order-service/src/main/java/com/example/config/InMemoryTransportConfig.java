@@ -0,0 +1,56 @@
+package com.example.config;
+
+import com.example.admission.InMemoryLagSource;
+import com.example.model.OrderEvent;
+import com.example.service.OrderStatusListener;
+import com.example.transport.InMemoryListeners;
+import com.example.transport.InMemoryTransport;
+import com.example.transport.InMemoryTransportConfigSupport;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * С профилем reactive не совмещается: reactor-kafka отправляет в брокер напрямую.
+ */
+@Configuration
+@Profile("in-memory")
+public class InMemoryTransportConfig extends InMemoryTransportConfigSupport {
+
+    @Value("${kafka.topics.payed-orders}")
+    private String payedOrdersTopic;
+
+    @Value("${kafka.topics.sent-orders}")
+    private String sentOrdersTopic;
+
+    @Value("${kafka.topics.failed-payments}")
+    private String failedPaymentsTopic;
+
+    @Value("${kafka.topics.failed-shipments}")
+    private String failedShipmentsTopic;
+
+    @Value("${order.admission.lag.groups:payment-group,shipping-group}")
+    private List<String> lagGroups;
+
+    @Bean
+    public InMemoryLagSource consumerLagSource() {
+        return new InMemoryLagSource(inMemoryTransport(), lagGroups);
+    }
+
+    @Bean
+    public InMemoryListeners orderInMemoryListeners(OrderStatusListener orderStatusListener) {
+        InMemoryTransport.Listener<OrderEvent> listener = (records, delivery) ->
+                orderStatusListener.processStatusEvents(records.stream()
+                        .map(ConsumerRecord::value)
+                        .collect(Collectors.toList()), delivery);
+        return listeners()
+                .listen("order-status-group",
+                        List.of(payedOrdersTopic, sentOrdersTopic, failedPaymentsTopic, failedShipmentsTopic),
+                        listener);
+    }
+}
@@ -1,15 +1,30 @@
 package com.example.config;
 
+import com.example.codec.OrderEventDeserializer;
+import com.example.codec.OrderEventSerializer;
+import com.example.model.OrderEvent;
+import com.example.service.OrderPartitioner;
+import com.example.tracing.LatencyMetrics;
+import com.example.tracing.StageTracer;
+import com.example.transport.EventTransport;
+import com.example.transport.KafkaEventTransport;
 import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.serialization.StringDeserializer;
 import org.apache.kafka.common.serialization.StringSerializer;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.TopicBuilder;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaProducerFactory;
 import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.core.ProducerFactory;
-import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.listener.ContainerProperties;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -20,29 +35,77 @@ public class KafkaConfig {
     @Value("${spring.kafka.bootstrap-servers}")
     private String bootstrapServers;
 
+    @Value("${kafka.wire-format:json}")
+    private String wireFormat;
+
     @Value("${kafka.topics.new-orders}")
     private String newOrdersTopic;
 
+    @Value("${kafka.topics.order-snapshots}")
+    private String orderSnapshotsTopic;
+
     @Value("${kafka.partitions.count:3}")
     private int partitionsCount;
 
     @Value("${kafka.replication.factor:1}")
     private short replicationFactor;
 
+    @Value("${kafka.producer.linger-ms:5}")
+    private int lingerMs;
+
+    @Value("${kafka.producer.batch-size:65536}")
+    private int batchSize;
+
+    @Value("${kafka.partitioner.hot-share:0.1}")
+    private double hotShare;
+
+    @Value("${kafka.partitioner.hot-spread:4}")
+    private int hotSpread;
+
+    @Value("${kafka.partitioner.window-ms:60000}")
+    private long partitionerWindowMs;
+
+    @Value("${kafka.consumer.concurrency:1}")
+    private int concurrency;
+
+    @Value("${kafka.consumer.max-poll-records:500}")
+    private int maxPollRecords;
+
+    // false в профиле in-memory: записи доставляет InMemoryTransport
+    @Value("${kafka.listeners.auto-startup:true}")
+    private boolean autoStartup;
+
     @Bean
     public NewTopic newOrdersTopic() {
         return new NewTopic(newOrdersTopic, partitionsCount, replicationFactor);
     }
 
+    // Тела заказов для тонких событий: по одному актуальному снимку на orderId
+    @Bean
+    public NewTopic orderSnapshotsTopic() {
+        return TopicBuilder.name(orderSnapshotsTopic)
+                .partitions(partitionsCount)
+                .replicas(replicationFactor)
+                .compact()
+                .build();
+    }
+
     @Bean
     public ProducerFactory<String, Object> producerFactory() {
         Map<String, Object> configProps = new HashMap<>();
         configProps.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         configProps.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
-        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, JsonSerializer.class);
+        configProps.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, OrderEventSerializer.class);
+        configProps.put(OrderEventSerializer.WIRE_FORMAT_CONFIG, wireFormat);
         configProps.put(ProducerConfig.ACKS_CONFIG, "all");
         configProps.put(ProducerConfig.RETRIES_CONFIG, 3);
         configProps.put(ProducerConfig.ENABLE_IDEMPOTENCE_CONFIG, true);
+        configProps.put(ProducerConfig.LINGER_MS_CONFIG, lingerMs);
+        configProps.put(ProducerConfig.BATCH_SIZE_CONFIG, batchSize);
+        configProps.put(ProducerConfig.PARTITIONER_CLASS_CONFIG, OrderPartitioner.class);
+        configProps.put(OrderPartitioner.HOT_SHARE_CONFIG, hotShare);
+        configProps.put(OrderPartitioner.HOT_SPREAD_CONFIG, hotSpread);
+        configProps.put(OrderPartitioner.WINDOW_MS_CONFIG, partitionerWindowMs);
 
         return new DefaultKafkaProducerFactory<>(configProps);
     }
@@ -51,4 +114,51 @@ public class KafkaConfig {
     public KafkaTemplate<String, Object> kafkaTemplate() {
         return new KafkaTemplate<>(producerFactory());
     }
-}
\ No newline at end of file
+
+    // В профиле in-memory транспорт даёт InMemoryTransportConfig
+    @Bean
+    @Profile("!in-memory")
+    public EventTransport eventTransport() {
+        return new KafkaEventTransport(kafkaTemplate());
+    }
+
+    // Консьюмер событий пайплайна для хранилища статусов заказов
+    @Bean
+    public ConsumerFactory<String, OrderEvent> consumerFactory() {
+        Map<String, Object> configProps = new HashMap<>();
+        configProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+        configProps.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
+        configProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, OrderEventDeserializer.class);
+        configProps.put(ConsumerConfig.GROUP_ID_CONFIG, "order-status-group");
+        configProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        configProps.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+        configProps.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+        // Записи из транзакций payment/shipping видны только после коммита
+        configProps.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+
+        return new DefaultKafkaConsumerFactory<>(configProps);
+    }
+
+    @Bean
+    public ConcurrentKafkaListenerContainerFactory<String, OrderEvent> kafkaListenerContainerFactory() {
+        ConcurrentKafkaListenerContainerFactory<String, OrderEvent> factory =
+                new ConcurrentKafkaListenerContainerFactory<>();
+        factory.setConsumerFactory(consumerFactory());
+        factory.setConcurrency(concurrency);
+        factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL_IMMEDIATE);
+        factory.setBatchListener(true);
+        factory.setAutoStartup(autoStartup);
+
+        return factory;
+    }
+
+    @Bean
+    public LatencyMetrics latencyMetrics() {
+        return new LatencyMetrics();
+    }
+
+    @Bean
+    public StageTracer stageTracer() {
+        return new StageTracer(StageTracer.INTAKE, null, latencyMetrics());
+    }
+}
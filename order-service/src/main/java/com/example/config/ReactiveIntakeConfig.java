@@ -0,0 +1,54 @@
+package com.example.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.kafka.core.ProducerFactory;
+import reactor.kafka.sender.KafkaSender;
+import reactor.kafka.sender.SenderOptions;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Профиль reactive: приём заказов на event loop Netty, отправка в Kafka через reactor-kafka
+ * с теми же настройками продюсера, что у {@link KafkaConfig#producerFactory()}.
+ */
+@Configuration
+@Profile("reactive")
+@Slf4j
+public class ReactiveIntakeConfig {
+
+    @Value("${kafka.topics.new-orders}")
+    private String newOrdersTopic;
+
+    @Value("${kafka.topics.order-snapshots}")
+    private String orderSnapshotsTopic;
+
+    // Tomcat тоже на classpath, а без явной фабрики Boot поднял бы WebFlux поверх сервлетов
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    @Bean(destroyMethod = "close")
+    public KafkaSender<String, Object> reactiveKafkaSender(ProducerFactory<String, Object> producerFactory) {
+        Map<String, Object> configProps = new HashMap<>(producerFactory.getConfigurationProperties());
+        // Метаданные прогреваются заранее, поэтому send() на event loop ждать их не должен
+        configProps.put(ProducerConfig.MAX_BLOCK_MS_CONFIG, 1000);
+
+        KafkaSender<String, Object> sender = KafkaSender.create(SenderOptions.create(configProps));
+        sender.doOnProducer(producer -> producer.partitionsFor(newOrdersTopic).size()
+                        + producer.partitionsFor(orderSnapshotsTopic).size())
+                .retryWhen(Retry.fixedDelay(30, Duration.ofSeconds(1)))
+                .subscribe(partitions -> log.info("Reactive sender ready, metadata for {} partitions", partitions),
+                        ex -> log.warn("Reactive sender metadata warm-up failed: {}", ex.getMessage()));
+        return sender;
+    }
+}
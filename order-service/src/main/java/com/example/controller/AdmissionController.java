@@ -0,0 +1,24 @@
+package com.example.controller;
+
+import com.example.admission.OrderAdmission;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+// Принятые и отклонённые заказы, текущий lag и действующие лимиты
+@RestController
+@RequestMapping("/api/admission")
+@RequiredArgsConstructor
+public class AdmissionController {
+
+    private final OrderAdmission orderAdmission;
+
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getStats() {
+        return ResponseEntity.ok(orderAdmission.stats());
+    }
+}
@@ -9,7 +9,6 @@ public class HealthController {
 
     @GetMapping("/health")
     public String health() {
-        System.out.println("HEALTH ENDPOINT CALLED - " + System.currentTimeMillis());
         return "Service is running: " + System.currentTimeMillis();
     }
 }
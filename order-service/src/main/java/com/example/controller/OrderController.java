@@ -1,14 +1,21 @@
 package com.example.controller;
 
+import com.example.admission.OrderAdmission;
 import com.example.model.Order;
+import com.example.service.OrderBatchResult;
+import com.example.service.InvalidOrderException;
+import com.example.service.OrderBatchService;
 import com.example.service.OrderService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -17,30 +24,48 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
+// В профиле reactive приём обслуживает ReactiveOrderController
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api/orders")
 @Slf4j
 @RequiredArgsConstructor(onConstructor_ = {@Autowired})
 public class OrderController {
 
     private final OrderService orderService;
+    private final OrderBatchService orderBatchService;
+    private final OrderAdmission orderAdmission;
 
     @PostMapping
     public CompletableFuture<ResponseEntity<Object>> createOrder(@RequestBody Order order) {
-        log.info("Received order creation request: {}", order);
+        // Отказ до логирования и отправки в Kafka. Тело к этому моменту уже разобрано: customerId
+        // для лимита клиента есть только в нём, поэтому отказ дешевле приёма, но не бесплатен
+        Duration retryAfter = orderAdmission.tryAdmit(order.getCustomerId());
+        if (!retryAfter.isZero()) {
+            return CompletableFuture.completedFuture(OrderResponses.tooManyRequests(retryAfter));
+        }
+        log.debug("Received order creation request from customer {}", order.getCustomerId());
 
         return orderService.createOrder(order)
                 .thenApply(orderEvent -> {
-                    log.info("Order created successfully: {}", orderEvent.getOrderId());
+                    log.debug("Order created successfully: {}", orderEvent.getOrderId());
                     return ResponseEntity.ok((Object) orderEvent);
                 })
                 .exceptionally(ex -> {
+                    // Отказ по содержимому заказа - не ошибка сервиса
+                    if (ex.getCause() instanceof InvalidOrderException) {
+                        log.warn("Invalid order rejected: {}", ex.getCause().getMessage());
+                        return OrderResponses.invalidOrder(ex.getCause().getMessage());
+                    }
                     log.error("Error creating order: {}", ex.getMessage(), ex);
 
                     if (ex.getCause() instanceof HttpMessageNotReadableException) {
@@ -71,21 +96,63 @@ public class OrderController {
                     }
 
                     log.error("Internal server error during order creation", ex);
-                    return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
-                            .body((Object) Map.of(
-                                    "error", "Internal server error",
-                                    "message", "Please try again later",
-                                    "timestamp", Instant.now()
-                            ));
+                    return OrderResponses.internalError();
                 });
     }
 
+    @PostMapping(value = "/batch", consumes = "application/x-ndjson")
+    public ResponseEntity<Object> createOrdersNdjson(InputStream body) {
+        return ingestBatch(() -> orderBatchService.ingestNdjson(body));
+    }
+
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Object> createOrdersJsonArray(InputStream body) {
+        return ingestBatch(() -> orderBatchService.ingestJsonArray(body));
+    }
+
+    @GetMapping("/{orderId}")
+    public ResponseEntity<Object> getOrder(@PathVariable String orderId) {
+        return orderService.getOrderStatus(orderId)
+                .map(status -> ResponseEntity.ok((Object) Map.of(
+                        "orderId", orderId,
+                        "status", status
+                )))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
     @PatchMapping("/{orderId}/status")
-    public ResponseEntity<Void> updateOrderStatus(
+    public ResponseEntity<Object> updateOrderStatus(
             @PathVariable String orderId,
             @RequestParam String status) {
         log.info("Updating order {} status to {}", orderId, status);
-        orderService.updateOrderStatus(orderId, status);
+        try {
+            orderService.updateOrderStatus(orderId, status);
+        } catch (IllegalArgumentException e) {
+            log.warn("Unknown order status: {}", status);
+            return OrderResponses.unknownStatus(status);
+        }
         return ResponseEntity.ok().build();
     }
-}
\ No newline at end of file
+
+    private ResponseEntity<Object> ingestBatch(BatchIngest ingest) {
+        try {
+            OrderBatchResult result = ingest.run();
+            return ResponseEntity.ok(result);
+        } catch (IOException e) {
+            log.warn("Failed to read order batch: {}", e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(Map.of(
+                            "error", "Failed to read request body",
+                            "message", String.valueOf(e.getMessage()),
+                            "timestamp", Instant.now()
+                    ));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    private interface BatchIngest {
+        OrderBatchResult run() throws IOException, InterruptedException;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.controller;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+
+// Ответы, общие для сервлетного и реактивного приёма заказов
+final class OrderResponses {
+
+    private OrderResponses() {
+    }
+
+    static ResponseEntity<Object> tooManyRequests(Duration retryAfter) {
+        long seconds = Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(seconds))
+                .body(Map.of(
+                        "error", "Too many requests",
+                        "message", "Order intake is throttled, retry after " + seconds + "s",
+                        "timestamp", Instant.now()
+                ));
+    }
+
+    static ResponseEntity<Object> unknownStatus(String status) {
+        return ResponseEntity.badRequest()
+                .body(Map.of(
+                        "error", "Unknown order status",
+                        "message", status,
+                        "timestamp", Instant.now()
+                ));
+    }
+
+    static ResponseEntity<Object> invalidOrder(String message) {
+        return ResponseEntity.badRequest()
+                .body(Map.of(
+                        "error", "Invalid order",
+                        "message", message,
+                        "timestamp", Instant.now()
+                ));
+    }
+
+    static ResponseEntity<Object> internalError() {
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of(
+                        "error", "Internal server error",
+                        "message", "Please try again later",
+                        "timestamp", Instant.now()
+                ));
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.controller;
+
+import com.example.admission.OrderAdmission;
+import com.example.model.Order;
+import com.example.service.InvalidOrderException;
+import com.example.service.OrderBatchResult;
+import com.example.service.OrderService;
+import com.example.service.ReactiveOrderService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.bind.support.WebExchangeBindException;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+
+// Приём заказов в профиле reactive; контракт запросов и ответов тот же, что у OrderController
+@RestController
+@Profile("reactive")
+@RequestMapping("/api/orders")
+@Slf4j
+@RequiredArgsConstructor
+public class ReactiveOrderController {
+
+    // Лимит неподтверждённых отправок исчерпан - клиенту предлагается повторить, как при дросселировании
+    private static final Duration SATURATED_RETRY_AFTER = Duration.ofSeconds(1);
+
+    private final ReactiveOrderService reactiveOrderService;
+    private final OrderService orderService;
+    private final OrderAdmission orderAdmission;
+
+    @PostMapping
+    public Mono<ResponseEntity<Object>> createOrder(@RequestBody Mono<Order> body) {
+        return body.flatMap(order -> {
+                    Duration retryAfter = orderAdmission.tryAdmit(order.getCustomerId());
+                    if (!retryAfter.isZero()) {
+                        return Mono.just(OrderResponses.tooManyRequests(retryAfter));
+                    }
+                    log.debug("Received order creation request from customer {}", order.getCustomerId());
+
+                    return reactiveOrderService.createOrder(order)
+                            .map(orderEvent -> {
+                                log.debug("Order created successfully: {}", orderEvent.getOrderId());
+                                return ResponseEntity.ok((Object) orderEvent);
+                            });
+                })
+                .onErrorResume(this::errorResponse);
+    }
+
+    @PostMapping(value = "/batch", consumes = "application/x-ndjson")
+    public Mono<ResponseEntity<OrderBatchResult>> createOrdersNdjson(@RequestBody Flux<String> lines) {
+        return reactiveOrderService.ingestNdjson(lines).map(ResponseEntity::ok);
+    }
+
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<OrderBatchResult>> createOrdersJsonArray(@RequestBody Flux<Order> orders) {
+        return reactiveOrderService.ingestJsonArray(orders).map(ResponseEntity::ok);
+    }
+
+    @GetMapping("/{orderId}")
+    public ResponseEntity<Object> getOrder(@PathVariable String orderId) {
+        return orderService.getOrderStatus(orderId)
+                .map(status -> ResponseEntity.ok((Object) Map.of(
+                        "orderId", orderId,
+                        "status", status
+                )))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @PatchMapping("/{orderId}/status")
+    public ResponseEntity<Object> updateOrderStatus(
+            @PathVariable String orderId,
+            @RequestParam String status) {
+        log.info("Updating order {} status to {}", orderId, status);
+        try {
+            orderService.updateOrderStatus(orderId, status);
+        } catch (IllegalArgumentException e) {
+            log.warn("Unknown order status: {}", status);
+            return OrderResponses.unknownStatus(status);
+        }
+        return ResponseEntity.ok().build();
+    }
+
+    private Mono<ResponseEntity<Object>> errorResponse(Throwable ex) {
+        if (ex instanceof RejectedExecutionException) {
+            log.warn("Order intake saturated: {}", ex.getMessage());
+            return Mono.just(OrderResponses.tooManyRequests(SATURATED_RETRY_AFTER));
+        }
+
+        if (ex instanceof WebExchangeBindException) {
+            List<String> errors = ((WebExchangeBindException) ex).getBindingResult()
+                    .getFieldErrors()
+                    .stream()
+                    .map(error -> error.getField() + ": " + error.getDefaultMessage())
+                    .collect(Collectors.toList());
+
+            log.warn("Validation errors: {}", errors);
+            return Mono.just(ResponseEntity.badRequest()
+                    .body(Map.of(
+                            "error", "Validation failed",
+                            "details", errors,
+                            "timestamp", Instant.now()
+                    )));
+        }
+
+        if (ex instanceof InvalidOrderException) {
+            log.warn("Invalid order rejected: {}", ex.getMessage());
+            return Mono.just(OrderResponses.invalidOrder(ex.getMessage()));
+        }
+
+        if (ex instanceof ServerWebInputException) {
+            log.warn("Invalid JSON format received");
+            return Mono.just(ResponseEntity.badRequest()
+                    .body(Map.of(
+                            "error", "Invalid JSON format",
+                            "message", String.valueOf(ex.getMessage()),
+                            "timestamp", Instant.now()
+                    )));
+        }
+
+        log.error("Internal server error during order creation", ex);
+        return Mono.just(OrderResponses.internalError());
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.controller;
+
+import com.example.transport.InMemoryTransport;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Очереди и lag групп транспорта в профиле in-memory
+@RestController
+@RequestMapping("/api/transport")
+@Profile("in-memory")
+@RequiredArgsConstructor
+public class TransportController {
+
+    private final InMemoryTransport inMemoryTransport;
+
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        inMemoryTransport.stats("transport", stats);
+        return ResponseEntity.ok(stats);
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.service;
+
+/**
+ * Заказ разобран, но принять его нельзя (сумма не помещается в long): ответ 400, а не 500,
+ * и без повторов приёма.
+ */
+public class InvalidOrderException extends RuntimeException {
+
+    public InvalidOrderException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
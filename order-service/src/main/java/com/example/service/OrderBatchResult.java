@@ -0,0 +1,66 @@
+package com.example.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Итог пакетной загрузки: {@code orderIds} по позициям входного потока ({@code null} для
+ * отклонённых), {@code errors} - только по отклонённым позициям.
+ * Заполняется из потока запроса и из колбэков продюсера.
+ */
+public class OrderBatchResult {
+
+    private final List<String> orderIds = new ArrayList<>();
+    private final List<Map<String, Object>> errors = new ArrayList<>();
+    private int accepted;
+
+    synchronized int register(String orderId) {
+        orderIds.add(orderId);
+        return orderIds.size() - 1;
+    }
+
+    synchronized void accept() {
+        accepted++;
+    }
+
+    synchronized void reject(int index, String error) {
+        if (index == orderIds.size()) {
+            orderIds.add(null);
+        } else {
+            orderIds.set(index, null);
+        }
+        errors.add(Map.of("index", index, "error", error));
+    }
+
+    synchronized int nextIndex() {
+        return orderIds.size();
+    }
+
+    public synchronized int getReceived() {
+        return orderIds.size();
+    }
+
+    public synchronized int getAccepted() {
+        return accepted;
+    }
+
+    public synchronized int getRejected() {
+        return errors.size();
+    }
+
+    // Отправки, не подтверждённые к моменту ответа
+    public synchronized int getPending() {
+        return orderIds.size() - accepted - errors.size();
+    }
+
+    public synchronized List<String> getOrderIds() {
+        return Collections.unmodifiableList(new ArrayList<>(orderIds));
+    }
+
+    public synchronized List<Map<String, Object>> getErrors() {
+        errors.sort((a, b) -> Integer.compare((Integer) a.get("index"), (Integer) b.get("index")));
+        return Collections.unmodifiableList(new ArrayList<>(errors));
+    }
+}
@@ -0,0 +1,142 @@
+package com.example.service;
+
+import com.example.admission.OrderAdmission;
+import com.example.model.Order;
+import com.example.model.OrderEvent;
+import com.example.model.OrderStatus;
+import com.example.store.OrderStatusStore;
+import com.example.tracing.StageTracer;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пакетный приём заказов: тело разбирается потоково (NDJSON построчно, JSON-массив через
+ * {@link MappingIterator}), отправки в new_orders идут конвейером с ограничением числа
+ * неподтверждённых записей.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderBatchService {
+
+    private final OrderEventPublisher orderEventPublisher;
+    private final OrderStatusStore orderStatusStore;
+    private final ObjectMapper objectMapper;
+    private final StageTracer stageTracer;
+    private final OrderAdmission orderAdmission;
+
+    @Value("${order.batch.max-in-flight:1000}")
+    private int maxInFlight;
+
+    @Value("${order.batch.send-timeout-ms:30000}")
+    private long sendTimeoutMs;
+
+    public OrderBatchResult ingestNdjson(InputStream body) throws IOException, InterruptedException {
+        ObjectReader reader = objectMapper.readerFor(Order.class);
+        OrderBatchResult result = new OrderBatchResult();
+        Semaphore inFlight = new Semaphore(maxInFlight);
+
+        BufferedReader lines = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String line;
+        while ((line = lines.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                submit(reader.readValue(line), result, inFlight);
+            } catch (JsonProcessingException e) {
+                // Битая строка не мешает остальным
+                result.reject(result.nextIndex(), "Invalid JSON: " + e.getOriginalMessage());
+            }
+        }
+        return awaitSends(result, inFlight);
+    }
+
+    public OrderBatchResult ingestJsonArray(InputStream body) throws IOException, InterruptedException {
+        OrderBatchResult result = new OrderBatchResult();
+        Semaphore inFlight = new Semaphore(maxInFlight);
+
+        try (MappingIterator<Order> orders = objectMapper.readerFor(Order.class).readValues(body)) {
+            while (orders.hasNextValue()) {
+                submit(orders.nextValue(), result, inFlight);
+            }
+        } catch (JsonProcessingException e) {
+            // В массиве после ошибки синтаксиса продолжить разбор нельзя
+            result.reject(result.nextIndex(), "Invalid JSON, rest of the batch skipped: " + e.getOriginalMessage());
+        }
+        return awaitSends(result, inFlight);
+    }
+
+    private void submit(Order order, OrderBatchResult result, Semaphore inFlight) throws InterruptedException {
+        if (order == null || order.getCustomerId() == null || order.getCustomerId().isBlank()) {
+            result.reject(result.nextIndex(), "customerId is required");
+            return;
+        }
+
+        try {
+            OrderTotals.apply(order);
+        } catch (InvalidOrderException e) {
+            result.reject(result.nextIndex(), e.getMessage());
+            return;
+        }
+
+        // Лимиты те же, что у одиночного приёма: пакет не обходит дросселирование
+        Duration retryAfter = orderAdmission.tryAdmit(order.getCustomerId());
+        if (!retryAfter.isZero()) {
+            result.reject(result.nextIndex(), "Rate limited, retry after "
+                    + Math.max(1, (retryAfter.toMillis() + 999) / 1000) + "s");
+            return;
+        }
+
+        int index = result.register(order.getId());
+        StageTracer.Trace trace = stageTracer.start();
+        OrderEvent event = orderEventPublisher.createdEvent(order);
+
+        inFlight.acquire();
+        try {
+            orderEventPublisher.publish(order, event, trace.outgoing())
+                    .whenComplete((sendResult, ex) -> {
+                        trace.end();
+                        try {
+                            if (ex != null) {
+                                result.reject(index, "Send failed: " + ex.getMessage());
+                            } else {
+                                orderStatusStore.advance(order.getId(),
+                                        order.getStatus() != null ? order.getStatus() : OrderStatus.CREATED);
+                                result.accept();
+                            }
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+        } catch (RuntimeException e) {
+            inFlight.release();
+            result.reject(index, "Send failed: " + e.getMessage());
+        }
+    }
+
+    private OrderBatchResult awaitSends(OrderBatchResult result, Semaphore inFlight) throws InterruptedException {
+        orderEventPublisher.flush();
+        if (!inFlight.tryAcquire(maxInFlight, sendTimeoutMs, TimeUnit.MILLISECONDS)) {
+            log.warn("Batch intake: {} sends still unconfirmed after {} ms", maxInFlight - inFlight.availablePermits(), sendTimeoutMs);
+        }
+        log.info("Batch intake: received {}, accepted {}, rejected {}",
+                result.getReceived(), result.getAccepted(), result.getRejected());
+        return result;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.service;
+
+import com.example.model.EventType;
+import com.example.model.Order;
+import com.example.model.OrderEvent;
+import com.example.snapshot.OrderSnapshotResolver;
+import com.example.transport.EventTransport;
+import lombok.RequiredArgsConstructor;
+import org.apache.kafka.common.header.Headers;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Публикация ORDER_CREATED. В режиме тонких событий тело заказа один раз уходит в компактный
+ * order_snapshots (ключ - orderId), а в new_orders - только ссылка на него по хешу содержимого.
+ * Когда заказ доходит до конечного статуса, снимок удаляется tombstone.
+ */
+@Component
+@RequiredArgsConstructor
+public class OrderEventPublisher {
+
+    private final EventTransport eventTransport;
+
+    @Value("${kafka.topics.new-orders}")
+    private String newOrdersTopic;
+
+    @Value("${kafka.topics.order-snapshots}")
+    private String orderSnapshotsTopic;
+
+    @Value("${kafka.events.slim:false}")
+    private boolean slim;
+
+    public OrderEvent createdEvent(Order order) {
+        if (!slim) {
+            return new OrderEvent(order.getId(), EventType.ORDER_CREATED, order);
+        }
+        return OrderEvent.slim(order.getId(), EventType.ORDER_CREATED, order.getStatus(),
+                OrderSnapshotResolver.contentHash(order));
+    }
+
+    /**
+     * Отправляет событие; будущее завершается, когда транспорт принял и событие, и снимок.
+     */
+    public CompletableFuture<Void> publish(Order order, OrderEvent event, Headers headers) {
+        if (event.getPayload() != null) {
+            return eventTransport.send(newOrdersTopic, order.getCustomerId(), event, headers);
+        }
+        // Снимок отправляется первым, чтобы обычно оказаться в кеше раньше события
+        CompletableFuture<Void> snapshotSent = eventTransport.send(orderSnapshotsTopic,
+                order.getId(), OrderSnapshotResolver.snapshot(order, event.getContentHash()), null);
+        CompletableFuture<Void> eventSent = eventTransport.send(newOrdersTopic, order.getCustomerId(), event, headers);
+        return CompletableFuture.allOf(snapshotSent, eventSent);
+    }
+
+    /**
+     * Tombstone снимка заказа, дошедшего до конечного статуса: компактный топик его вычистит,
+     * а кеши снимков в сервисах пайплайна удалят при реплее.
+     */
+    public CompletableFuture<Void> retireSnapshot(String orderId) {
+        if (!slim) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return eventTransport.send(orderSnapshotsTopic, orderId, null, null);
+    }
+
+    public void flush() {
+        eventTransport.flush();
+    }
+}
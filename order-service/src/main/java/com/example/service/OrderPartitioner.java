@@ -1,41 +1,206 @@
 package com.example.service;
 
-import lombok.RequiredArgsConstructor;
+import com.example.model.OrderEvent;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.kafka.clients.producer.Partitioner;
+import org.apache.kafka.clients.producer.ProducerConfig;
 import org.apache.kafka.common.Cluster;
-import org.apache.kafka.common.PartitionInfo;
 import org.apache.kafka.common.utils.Utils;
 
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
 
-@RequiredArgsConstructor
+/**
+ * Партиционирование заказов по customerId с учётом перекоса нагрузки.
+ * <p>
+ * Частота ключей оценивается count-min sketch по скользящему окну (две половины окна).
+ * Ключ, на который приходится не меньше {@code hot-share} трафика окна, считается горячим: его
+ * заказы раскладываются по {@code hot-spread} соседним партициям по orderId. Порядок событий
+ * одного заказа сохраняется, порядок между заказами горячего клиента - нет.
+ * <p>
+ * Записи без ключа пишутся в одну "липкую" партицию, пока не наберётся {@code batch.size} байт,
+ * чтобы продюсер собирал полные пачки. Число партиций кешируется до обновления метаданных.
+ */
 @Slf4j
 public class OrderPartitioner implements Partitioner {
 
+    public static final String HOT_SHARE_CONFIG = "order.partitioner.hot-share";
+    public static final String HOT_SPREAD_CONFIG = "order.partitioner.hot-spread";
+    public static final String WINDOW_MS_CONFIG = "order.partitioner.window-ms";
+    public static final String MIN_WINDOW_COUNT_CONFIG = "order.partitioner.min-window-count";
+
+    private static final int SKETCH_DEPTH = 4;
+    private static final int SKETCH_WIDTH = 2048;
+
+    private final Map<String, TopicState> topics = new ConcurrentHashMap<>();
+
+    private double hotShare = 0.1;
+    private int hotSpread = 4;
+    private long halfWindowMs = 30_000;
+    private long minWindowCount = 1_000;
+    private int stickyBatchBytes = 16_384;
+
+    @Override
+    public void configure(Map<String, ?> configs) {
+        hotShare = doubleConfig(configs, HOT_SHARE_CONFIG, hotShare);
+        hotSpread = (int) longConfig(configs, HOT_SPREAD_CONFIG, hotSpread);
+        halfWindowMs = Math.max(1, longConfig(configs, WINDOW_MS_CONFIG, halfWindowMs * 2) / 2);
+        minWindowCount = longConfig(configs, MIN_WINDOW_COUNT_CONFIG, minWindowCount);
+        stickyBatchBytes = (int) longConfig(configs, ProducerConfig.BATCH_SIZE_CONFIG, stickyBatchBytes);
+    }
 
     @Override
     public int partition(String topic, Object key, byte[] keyBytes,
                          Object value, byte[] valueBytes, Cluster cluster) {
-        List<PartitionInfo> partitions = cluster.partitionsForTopic(topic);
-        int numPartitions = partitions.size();
+        TopicState state = topics.computeIfAbsent(topic, TopicState::new);
+        int numPartitions = state.partitionCount(cluster);
 
         if (keyBytes == null) {
-            // Если ключ не указан, используем round-robin
-            return ThreadLocalRandom.current().nextInt(numPartitions);
+            return state.stickyPartition(numPartitions, valueBytes == null ? 0 : valueBytes.length);
+        }
+
+        int hash = Utils.murmur2(keyBytes);
+        int base = Utils.toPositive(hash) % numPartitions;
+        int spread = Math.min(hotSpread, numPartitions);
+        if (spread > 1 && state.recordAndCheckHot(hash) && value instanceof OrderEvent) {
+            String orderId = ((OrderEvent) value).getOrderId();
+            if (orderId != null) {
+                return (base + Utils.toPositive(mix(orderId.hashCode())) % spread) % numPartitions;
+            }
         }
+        return base;
+    }
 
-        // Хэшируем ключ для определения партиции
-        return Utils.toPositive(Utils.murmur2(keyBytes)) % numPartitions;
+    public boolean isHot(String topic, byte[] keyBytes) {
+        TopicState state = topics.get(topic);
+        return state != null && state.isHot(Utils.murmur2(keyBytes));
     }
 
     @Override
     public void close() {
+        topics.clear();
     }
 
-    @Override
-    public void configure(Map<String, ?> configs) {
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static long longConfig(Map<String, ?> configs, String key, long defaultValue) {
+        Object value = configs.get(key);
+        return value == null ? defaultValue : Long.parseLong(value.toString());
+    }
+
+    private static double doubleConfig(Map<String, ?> configs, String key, double defaultValue) {
+        Object value = configs.get(key);
+        return value == null ? defaultValue : Double.parseDouble(value.toString());
+    }
+
+    private final class TopicState {
+
+        private final String topic;
+
+        // Метаданные меняются редко, Cluster при этом заменяется новым объектом
+        private volatile Cluster cluster;
+        private volatile int partitionCount;
+
+        private final AtomicInteger stickyPartition = new AtomicInteger(-1);
+        private final AtomicLong stickyBytes = new AtomicLong();
+
+        // Две половины окна: текущая и предыдущая
+        private volatile AtomicLongArray currentSketch = new AtomicLongArray(SKETCH_DEPTH * SKETCH_WIDTH);
+        private volatile AtomicLongArray previousSketch = new AtomicLongArray(SKETCH_DEPTH * SKETCH_WIDTH);
+        private final AtomicLong currentTotal = new AtomicLong();
+        private volatile long previousTotal;
+        private volatile long rotatedAt = System.currentTimeMillis();
+
+        TopicState(String topic) {
+            this.topic = topic;
+        }
+
+        int partitionCount(Cluster current) {
+            if (current != cluster) {
+                Integer count = current.partitionCountForTopic(topic);
+                if (count == null || count == 0) {
+                    throw new IllegalStateException("No partition metadata for topic " + topic);
+                }
+                partitionCount = count;
+                cluster = current;
+            }
+            return partitionCount;
+        }
+
+        int stickyPartition(int numPartitions, int recordBytes) {
+            int partition = stickyPartition.get();
+            if (partition < 0 || partition >= numPartitions || stickyBytes.addAndGet(recordBytes) >= stickyBatchBytes) {
+                int next = nextPartition(partition, numPartitions);
+                if (stickyPartition.compareAndSet(partition, next)) {
+                    stickyBytes.set(recordBytes);
+                }
+                partition = stickyPartition.get();
+            }
+            return partition;
+        }
+
+        boolean recordAndCheckHot(int hash) {
+            rotateIfNeeded();
+            AtomicLongArray sketch = currentSketch;
+            long estimate = Long.MAX_VALUE;
+            int h2 = mix(hash) | 1;
+            for (int row = 0; row < SKETCH_DEPTH; row++) {
+                int index = row * SKETCH_WIDTH + ((hash + row * h2) & (SKETCH_WIDTH - 1));
+                estimate = Math.min(estimate, sketch.incrementAndGet(index) + previousSketch.get(index));
+            }
+            long total = currentTotal.incrementAndGet() + previousTotal;
+            return total >= minWindowCount && estimate >= hotShare * total;
+        }
+
+        boolean isHot(int hash) {
+            long estimate = Long.MAX_VALUE;
+            int h2 = mix(hash) | 1;
+            for (int row = 0; row < SKETCH_DEPTH; row++) {
+                int index = row * SKETCH_WIDTH + ((hash + row * h2) & (SKETCH_WIDTH - 1));
+                estimate = Math.min(estimate, currentSketch.get(index) + previousSketch.get(index));
+            }
+            long total = currentTotal.get() + previousTotal;
+            return total >= minWindowCount && estimate >= hotShare * total;
+        }
+
+        private void rotateIfNeeded() {
+            long now = System.currentTimeMillis();
+            if (now - rotatedAt < halfWindowMs) {
+                return;
+            }
+            synchronized (this) {
+                if (now - rotatedAt < halfWindowMs) {
+                    return;
+                }
+                // Старую половину обнуляем и переиспользуем как новую текущую
+                AtomicLongArray cleared = previousSketch;
+                for (int i = 0; i < cleared.length(); i++) {
+                    cleared.set(i, 0);
+                }
+                previousSketch = currentSketch;
+                previousTotal = currentTotal.getAndSet(0);
+                currentSketch = cleared;
+                rotatedAt = now;
+            }
+        }
+
+        private int nextPartition(int previous, int numPartitions) {
+            if (numPartitions == 1) {
+                return 0;
+            }
+            int next = ThreadLocalRandom.current().nextInt(numPartitions - 1);
+            return previous >= 0 && next >= previous ? next + 1 : next;
+        }
     }
-}
\ No newline at end of file
+}
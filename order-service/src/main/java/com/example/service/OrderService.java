@@ -1,18 +1,19 @@
 package com.example.service;
 
-import com.example.model.EventType;
 import com.example.model.Order;
 import com.example.model.OrderEvent;
+import com.example.model.OrderStatus;
+import com.example.store.OrderStatusStore;
+import com.example.tracing.StageTracer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.kafka.core.KafkaTemplate;
-import org.springframework.kafka.support.SendResult;
 import org.springframework.retry.annotation.Backoff;
 import org.springframework.retry.annotation.Retryable;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
+import java.util.Locale;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 
 @Service
@@ -20,45 +21,46 @@ import java.util.concurrent.CompletableFuture;
 @Slf4j
 public class OrderService {
 
-    private final KafkaTemplate<String, Object> kafkaTemplate;
-
-    @Value("${kafka.topics.new-orders}")
-    private String newOrdersTopic;
+    private final OrderEventPublisher orderEventPublisher;
+    private final OrderStatusStore orderStatusStore;
+    private final StageTracer stageTracer;
 
     @Retryable(
             value = {Exception.class},
+            exclude = {InvalidOrderException.class},
             maxAttempts = 3,
             backoff = @Backoff(delay = 1000, multiplier = 2)
     )
     @Async
     public CompletableFuture<OrderEvent> createOrder(Order order) {
-        log.info("Creating order: {}", order);
-
-        OrderEvent event = new OrderEvent(
-                order.getId(),
-                EventType.ORDER_CREATED,
-                order
-        );
+        StageTracer.Trace trace = stageTracer.start();
+        log.debug("Creating order {} for customer {}", order.getId(), order.getCustomerId());
 
-        // Используем customerId в качестве ключа для гарантии порядка обработки
-        String key = order.getCustomerId();
+        OrderTotals.apply(order);
+        OrderEvent event = orderEventPublisher.createdEvent(order);
 
-        CompletableFuture<SendResult<String, Object>> future =
-                kafkaTemplate.send(newOrdersTopic, key, event);
+        // Ключ - customerId, для гарантии порядка обработки
+        CompletableFuture<Void> future = orderEventPublisher.publish(order, event, trace.outgoing());
 
         return future.handle((result, ex) -> {
+            trace.end();
             if (ex != null) {
                 log.error("Unable to send message to Kafka: {}", ex.getMessage());
                 throw new RuntimeException("Failed to send order event", ex);
             }
 
-            log.info("Order event sent successfully: {}", event);
+            orderStatusStore.advance(order.getId(), order.getStatus() != null ? order.getStatus() : OrderStatus.CREATED);
+            log.debug("Order event sent: {}", event.getOrderId());
             return event;
         });
     }
 
     public void updateOrderStatus(String orderId, String status) {
-        // Реализация обновления статуса заказа в БД
-        log.info("Updating order {} status to {}", orderId, status);
+        OrderStatus orderStatus = OrderStatus.valueOf(status.trim().toUpperCase(Locale.ROOT));
+        orderStatusStore.put(orderId, orderStatus);
+    }
+
+    public Optional<OrderStatus> getOrderStatus(String orderId) {
+        return orderStatusStore.get(orderId);
     }
 }
@@ -0,0 +1,83 @@
+package com.example.service;
+
+import com.example.model.OrderEvent;
+import com.example.model.OrderStatus;
+import com.example.store.OrderStatusStore;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class OrderStatusListener {
+
+    private static final Duration REDELIVERY_DELAY = Duration.ofSeconds(1);
+
+    private final OrderStatusStore orderStatusStore;
+    private final OrderEventPublisher orderEventPublisher;
+
+    @KafkaListener(
+            topics = {
+                    "${kafka.topics.payed-orders}",
+                    "${kafka.topics.sent-orders}",
+                    "${kafka.topics.failed-payments}",
+                    "${kafka.topics.failed-shipments}"
+            },
+            groupId = "order-status-group",
+            containerFactory = "kafkaListenerContainerFactory"
+    )
+    public void processStatusEvents(@Payload List<OrderEvent> events, Acknowledgment ack) {
+        try {
+            List<CompletableFuture<Void>> tombstones = new ArrayList<>();
+            for (OrderEvent event : events) {
+                OrderStatus status = statusOf(event);
+                if (status != null) {
+                    orderStatusStore.advance(event.getOrderId(), status);
+                    if (status.isTerminal()) {
+                        tombstones.add(orderEventPublisher.retireSnapshot(event.getOrderId()));
+                    }
+                }
+            }
+            // Оффсеты коммитятся только после того, как статусы попали в журнал,
+            // а tombstone снимков - в топик: иначе снимок остался бы навсегда
+            orderStatusStore.sync();
+            CompletableFuture.allOf(tombstones.toArray(new CompletableFuture[0])).join();
+            ack.acknowledge();
+        } catch (Exception e) {
+            // Статусы продвигаются идемпотентно, пачка перечитывается целиком
+            log.error("Error processing order status batch, batch of {} will be redelivered: {}",
+                    events.size(), e.getMessage());
+            ack.nack(0, REDELIVERY_DELAY);
+        }
+    }
+
+    static OrderStatus statusOf(OrderEvent event) {
+        if (event.getEventType() != null) {
+            switch (event.getEventType()) {
+                case PAYMENT_SUCCESS:
+                    return OrderStatus.PAYMENT_COMPLETED;
+                case PAYMENT_FAILED:
+                    return OrderStatus.PAYMENT_FAILED;
+                case SHIPMENT_SUCCESS:
+                    return OrderStatus.SHIPPED;
+                case SHIPMENT_FAILED:
+                    return OrderStatus.CANCELLED;
+                default:
+                    break;
+            }
+        }
+        if (event.getStatus() != null) {
+            return event.getStatus();
+        }
+        return event.getPayload() != null ? event.getPayload().getStatus() : null;
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.service;
+
+import com.example.model.Money;
+import com.example.model.Order;
+import com.example.model.OrderLines;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Пересчёт суммы заказа на приёме: totalAmount клиента не принимается на веру,
+ * сумма считается по позициям в минимальных единицах валюты заказа без аллокаций.
+ */
+@Slf4j
+final class OrderTotals {
+
+    private OrderTotals() {
+    }
+
+    static void apply(Order order) {
+        if (order.getCurrency() == null) {
+            order.setCurrency(Money.DEFAULT_CURRENCY);
+        }
+        long computed;
+        long clientTotal;
+        try {
+            OrderLines lines = order.getLines();
+            computed = lines == null ? 0 : lines.totalMinor();
+            clientTotal = order.getTotalMinor();
+        } catch (ArithmeticException e) {
+            throw new InvalidOrderException("Order total overflows", e);
+        }
+        if (clientTotal != 0 && clientTotal != computed) {
+            log.warn("Order {}: client total {} differs from computed {}, using computed", order.getId(),
+                    Money.toMajor(clientTotal, order.getCurrency()), Money.toMajor(computed, order.getCurrency()));
+        }
+        order.setTotalMinor(computed);
+    }
+}
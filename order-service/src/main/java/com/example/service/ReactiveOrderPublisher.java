@@ -0,0 +1,77 @@
+package com.example.service;
+
+import com.example.model.Order;
+import com.example.model.OrderEvent;
+import com.example.snapshot.OrderSnapshotResolver;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Headers;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.kafka.sender.KafkaSender;
+import reactor.kafka.sender.SenderRecord;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Неблокирующий вариант {@link OrderEventPublisher#publish} для профиля reactive.
+ * <p>
+ * Число неподтверждённых заказов ограничено {@code order.reactive.max-in-flight}: буфер продюсера
+ * при этом не заполняется, и send() на event loop не ждёт места в нём. Сверх лимита публикация
+ * сразу завершается {@link RejectedExecutionException}.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveOrderPublisher {
+
+    private final KafkaSender<String, Object> sender;
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    @Value("${kafka.topics.new-orders}")
+    private String newOrdersTopic;
+
+    @Value("${kafka.topics.order-snapshots}")
+    private String orderSnapshotsTopic;
+
+    @Value("${order.reactive.max-in-flight:10000}")
+    private int maxInFlight;
+
+    public ReactiveOrderPublisher(KafkaSender<String, Object> reactiveKafkaSender) {
+        this.sender = reactiveKafkaSender;
+    }
+
+    /**
+     * Завершается, когда брокер подтвердил и событие, и снимок (для тонких событий).
+     */
+    public Mono<Void> publish(Order order, OrderEvent event, Headers headers) {
+        return Mono.defer(() -> {
+            if (inFlight.incrementAndGet() > maxInFlight) {
+                inFlight.decrementAndGet();
+                return Mono.error(new RejectedExecutionException("Too many unconfirmed orders: " + maxInFlight));
+            }
+            return sender.send(records(order, event, headers))
+                    .then()
+                    .doFinally(signal -> inFlight.decrementAndGet());
+        });
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private Flux<SenderRecord<String, Object, Void>> records(Order order, OrderEvent event, Headers headers) {
+        SenderRecord<String, Object, Void> eventRecord = SenderRecord.create(
+                new ProducerRecord<>(newOrdersTopic, null, order.getCustomerId(), event, headers), null);
+        if (event.getPayload() != null) {
+            return Flux.just(eventRecord);
+        }
+        // Снимок отправляется первым, как и в OrderEventPublisher
+        SenderRecord<String, Object, Void> snapshotRecord = SenderRecord.create(
+                new ProducerRecord<>(orderSnapshotsTopic, order.getId(),
+                        OrderSnapshotResolver.snapshot(order, event.getContentHash())), null);
+        return Flux.just(snapshotRecord, eventRecord);
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.service;
+
+import com.example.admission.OrderAdmission;
+import com.example.model.Order;
+import com.example.model.OrderEvent;
+import com.example.model.OrderStatus;
+import com.example.store.OrderStatusStore;
+import com.example.tracing.StageTracer;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Приём заказов в профиле reactive: та же логика, что у {@link OrderService} и
+ * {@link OrderBatchService}, без блокирующих вызовов. Пакет читается по мере подтверждения
+ * отправок: flatMap держит не больше {@code order.batch.max-in-flight} заказов в полёте и
+ * только тогда запрашивает следующие у декодера тела запроса.
+ */
+@Service
+@Profile("reactive")
+@RequiredArgsConstructor
+@Slf4j
+public class ReactiveOrderService {
+
+    private final ReactiveOrderPublisher publisher;
+    private final OrderEventPublisher orderEventPublisher;
+    private final OrderStatusStore orderStatusStore;
+    private final ObjectMapper objectMapper;
+    private final StageTracer stageTracer;
+    private final OrderAdmission orderAdmission;
+
+    @Value("${order.batch.max-in-flight:1000}")
+    private int maxInFlight;
+
+    @Value("${order.batch.send-timeout-ms:30000}")
+    private long sendTimeoutMs;
+
+    public Mono<OrderEvent> createOrder(Order order) {
+        return Mono.defer(() -> {
+            StageTracer.Trace trace = stageTracer.start();
+            log.debug("Creating order {} for customer {}", order.getId(), order.getCustomerId());
+
+            OrderTotals.apply(order);
+            OrderEvent event = orderEventPublisher.createdEvent(order);
+
+            return publisher.publish(order, event, trace.outgoing())
+                    .doFinally(signal -> trace.end())
+                    .onErrorMap(ex -> !(ex instanceof RejectedExecutionException), ex -> {
+                        log.error("Unable to send message to Kafka: {}", ex.getMessage());
+                        return new RuntimeException("Failed to send order event", ex);
+                    })
+                    .then(Mono.fromSupplier(() -> {
+                        orderStatusStore.advance(order.getId(), order.getStatus() != null ? order.getStatus() : OrderStatus.CREATED);
+                        log.debug("Order event sent: {}", event.getOrderId());
+                        return event;
+                    }));
+        });
+    }
+
+    public Mono<OrderBatchResult> ingestNdjson(Flux<String> lines) {
+        ObjectReader reader = objectMapper.readerFor(Order.class);
+        OrderBatchResult result = new OrderBatchResult();
+        return ingest(lines.filter(line -> !line.isBlank())
+                .handle((line, sink) -> {
+                    try {
+                        sink.next(reader.<Order>readValue(line));
+                    } catch (JsonProcessingException e) {
+                        // Битая строка не мешает остальным
+                        result.reject(result.nextIndex(), "Invalid JSON: " + e.getOriginalMessage());
+                    }
+                }), result);
+    }
+
+    public Mono<OrderBatchResult> ingestJsonArray(Flux<Order> orders) {
+        OrderBatchResult result = new OrderBatchResult();
+        // В массиве после ошибки синтаксиса продолжить разбор нельзя
+        return ingest(orders.onErrorResume(e -> {
+            Throwable cause = NestedExceptionUtils.getMostSpecificCause(e);
+            result.reject(result.nextIndex(), "Invalid JSON, rest of the batch skipped: " + (cause instanceof JsonProcessingException
+                    ? ((JsonProcessingException) cause).getOriginalMessage() : cause.getMessage()));
+            return Flux.empty();
+        }), result);
+    }
+
+    private Mono<OrderBatchResult> ingest(Flux<Order> orders, OrderBatchResult result) {
+        return orders.flatMap(order -> submit(order, result), maxInFlight)
+                .then(Mono.fromSupplier(() -> {
+                    log.info("Batch intake: received {}, accepted {}, rejected {}",
+                            result.getReceived(), result.getAccepted(), result.getRejected());
+                    return result;
+                }));
+    }
+
+    private Mono<Void> submit(Order order, OrderBatchResult result) {
+        if (order.getCustomerId() == null || order.getCustomerId().isBlank()) {
+            result.reject(result.nextIndex(), "customerId is required");
+            return Mono.empty();
+        }
+
+        try {
+            OrderTotals.apply(order);
+        } catch (InvalidOrderException e) {
+            result.reject(result.nextIndex(), e.getMessage());
+            return Mono.empty();
+        }
+
+        // Лимиты те же, что у одиночного приёма: пакет не обходит дросселирование
+        Duration retryAfter = orderAdmission.tryAdmit(order.getCustomerId());
+        if (!retryAfter.isZero()) {
+            result.reject(result.nextIndex(), "Rate limited, retry after "
+                    + Math.max(1, (retryAfter.toMillis() + 999) / 1000) + "s");
+            return Mono.empty();
+        }
+
+        int index = result.register(order.getId());
+        StageTracer.Trace trace = stageTracer.start();
+        OrderEvent event = orderEventPublisher.createdEvent(order);
+
+        return publisher.publish(order, event, trace.outgoing())
+                .timeout(Duration.ofMillis(sendTimeoutMs))
+                .doFinally(signal -> trace.end())
+                .doOnSuccess(done -> {
+                    orderStatusStore.advance(order.getId(),
+                            order.getStatus() != null ? order.getStatus() : OrderStatus.CREATED);
+                    result.accept();
+                })
+                .onErrorResume(ex -> {
+                    // Неподтверждённая вовремя отправка остаётся в pending, как в OrderBatchService
+                    if (!(ex instanceof TimeoutException)) {
+                        result.reject(index, "Send failed: " + ex.getMessage());
+                    }
+                    return Mono.empty();
+                });
+    }
+}
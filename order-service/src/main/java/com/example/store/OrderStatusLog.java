@@ -0,0 +1,292 @@
+package com.example.store;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Журнал статусов на диске: сегменты {@code status-<gen>.log} только на дозапись и
+ * периодический снапшот {@code snapshot.bin}.
+ * <p>
+ * Снапшот делается "на ходу": сначала журнал переключается на новый сегмент, затем
+ * в снапшот пишется текущая таблица, после чего старые сегменты удаляются. При восстановлении
+ * читается снапшот и поверх него проигрываются сегменты начиная с его поколения - записи хранят
+ * итоговый статус, поэтому повторное применение безопасно.
+ */
+@Slf4j
+final class OrderStatusLog implements Closeable {
+
+    private static final int SNAPSHOT_MAGIC = 0x4F535331; // "OSS1"
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+    private static final Pattern SEGMENT_NAME = Pattern.compile("status-(\\d+)\\.log");
+
+    static final int RECORD_END = 0;
+    static final int RECORD_UUID = 1;
+    static final int RECORD_NAMED = 2;
+
+    private final Path dir;
+    private final ByteBuffer buffer;
+
+    private FileChannel segment;
+    private long generation;
+    private long unflushed;
+    // Записи, дописанные в сегмент, но ещё не прошедшие fsync
+    private long unsynced;
+    private long appendedSinceSnapshot;
+
+    OrderStatusLog(Path dir, int bufferSize) {
+        this.dir = dir;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * Загружает снапшот и сегменты в таблицу и открывает новый сегмент для дозаписи.
+     */
+    long recover(OrderStatusTable table, Map<String, Byte> named) throws IOException {
+        Files.createDirectories(dir);
+
+        long snapshotGeneration = 0;
+        long records = 0;
+        Path snapshot = dir.resolve(SNAPSHOT_FILE);
+        if (Files.exists(snapshot)) {
+            try (DataInputStream in = open(snapshot)) {
+                if (in.readInt() != SNAPSHOT_MAGIC) {
+                    throw new IOException("Not an order status snapshot: " + snapshot);
+                }
+                snapshotGeneration = in.readLong();
+                records += replay(in, table, named);
+            }
+        }
+
+        long lastGeneration = snapshotGeneration;
+        long segmentRecords = 0;
+        for (long gen : segmentGenerations()) {
+            Path path = segmentPath(gen);
+            // Сегменты до снапшота остаются, если процесс упал между записью снапшота и их удалением;
+            // пустые сегменты оставляет каждый перезапуск без изменений
+            if (gen < snapshotGeneration || Files.size(path) == 0) {
+                Files.delete(path);
+                continue;
+            }
+            try (DataInputStream in = open(path)) {
+                segmentRecords += replay(in, table, named);
+            }
+            lastGeneration = Math.max(lastGeneration, gen);
+        }
+
+        // Хвост последнего сегмента мог оборваться при падении - пишем в новый.
+        // Записи из сегментов ещё не покрыты снапшотом: следующий снапшот их свернёт
+        openSegment(lastGeneration + 1);
+        appendedSinceSnapshot = segmentRecords;
+        return records + segmentRecords;
+    }
+
+    synchronized void appendUuid(long msb, long lsb, int status) {
+        ensureCapacity(18);
+        buffer.put((byte) RECORD_UUID).putLong(msb).putLong(lsb).put((byte) status);
+        appended();
+    }
+
+    synchronized void appendNamed(String orderId, int status) {
+        byte[] id = orderId.getBytes(StandardCharsets.UTF_8);
+        if (id.length > 0xFFFF) {
+            throw new IllegalArgumentException("Order id is too long: " + id.length + " bytes");
+        }
+        ensureCapacity(4 + id.length);
+        buffer.put((byte) RECORD_NAMED).putShort((short) id.length).put(id).put((byte) status);
+        appended();
+    }
+
+    /**
+     * Дописывает буфер в сегмент и делает fsync: без force данные остаются в page cache
+     * и теряются при падении машины. Если с прошлого вызова ничего не записано, fsync не нужен.
+     */
+    synchronized void flush() throws IOException {
+        if (unflushed == 0 && unsynced == 0) {
+            return;
+        }
+        drain();
+        segment.force(false);
+        unsynced = 0;
+    }
+
+    synchronized boolean hasChangesSinceSnapshot() {
+        return appendedSinceSnapshot > 0;
+    }
+
+    /**
+     * Переключает журнал на новый сегмент, пишет снапшот и удаляет покрытые им сегменты.
+     * Вызывается из одного потока.
+     */
+    void snapshot(OrderStatusTable table, Map<String, Byte> named) throws IOException {
+        long snapshotGeneration;
+        synchronized (this) {
+            drain();
+            segment.force(false);
+            segment.close();
+            unsynced = 0;
+            openSegment(generation + 1);
+            snapshotGeneration = generation;
+            appendedSinceSnapshot = 0;
+        }
+
+        Path tmp = dir.resolve(SNAPSHOT_FILE + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(tmp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING),
+                1 << 16))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeLong(snapshotGeneration);
+            try {
+                table.forEach((msb, lsb, status) -> {
+                    try {
+                        out.writeByte(RECORD_UUID);
+                        out.writeLong(msb);
+                        out.writeLong(lsb);
+                        out.writeByte(status);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            for (Map.Entry<String, Byte> entry : named.entrySet()) {
+                byte[] id = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                out.writeByte(RECORD_NAMED);
+                out.writeShort(id.length);
+                out.write(id);
+                out.writeByte(entry.getValue());
+            }
+            out.writeByte(RECORD_END);
+        }
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(tmp, dir.resolve(SNAPSHOT_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        for (long gen : segmentGenerations()) {
+            if (gen < snapshotGeneration) {
+                Files.deleteIfExists(segmentPath(gen));
+            }
+        }
+        log.info("Order status snapshot written: generation {}, {} orders", snapshotGeneration, table.size() + named.size());
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (segment != null) {
+            drain();
+            segment.force(false);
+            segment.close();
+            segment = null;
+            unsynced = 0;
+        }
+    }
+
+    private void appended() {
+        unflushed++;
+        appendedSinceSnapshot++;
+    }
+
+    private void ensureCapacity(int bytes) {
+        if (buffer.remaining() < bytes) {
+            try {
+                drain();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void drain() throws IOException {
+        if (unflushed == 0) {
+            return;
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            segment.write(buffer);
+        }
+        buffer.clear();
+        unsynced += unflushed;
+        unflushed = 0;
+    }
+
+    private void openSegment(long gen) throws IOException {
+        generation = gen;
+        segment = FileChannel.open(segmentPath(gen),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private Path segmentPath(long gen) {
+        return dir.resolve("status-" + gen + ".log");
+    }
+
+    private List<Long> segmentGenerations() throws IOException {
+        List<Long> generations = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            files.forEach(file -> {
+                Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    generations.add(Long.parseLong(matcher.group(1)));
+                }
+            });
+        }
+        generations.sort(null);
+        return generations;
+    }
+
+    private static DataInputStream open(Path file) throws IOException {
+        InputStream in = Files.newInputStream(file);
+        return new DataInputStream(new BufferedInputStream(in, 1 << 16));
+    }
+
+    private static long replay(DataInputStream in, OrderStatusTable table, Map<String, Byte> named) throws IOException {
+        long records = 0;
+        try {
+            while (true) {
+                int type = in.read();
+                if (type == -1 || type == RECORD_END) {
+                    return records;
+                }
+                if (type == RECORD_UUID) {
+                    long msb = in.readLong();
+                    long lsb = in.readLong();
+                    int status = in.readUnsignedByte();
+                    table.update(msb, lsb, current -> status, (m, l, s) -> { });
+                } else if (type == RECORD_NAMED) {
+                    byte[] id = new byte[in.readUnsignedShort()];
+                    in.readFully(id);
+                    named.put(new String(id, StandardCharsets.UTF_8), (byte) in.readUnsignedByte());
+                } else {
+                    log.warn("Unknown order status record type {}, stopping replay", type);
+                    return records;
+                }
+                records++;
+            }
+        } catch (EOFException e) {
+            log.warn("Truncated order status record after {} records, ignoring the tail", records);
+            return records;
+        }
+    }
+}
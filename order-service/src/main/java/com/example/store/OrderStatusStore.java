@@ -0,0 +1,143 @@
+package com.example.store;
+
+import com.example.codec.CanonicalUuid;
+import com.example.model.OrderStatus;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Встроенное хранилище статусов заказов: таблица в памяти плюс журнал на диске.
+ * <p>
+ * Идентификаторы в виде UUID живут в компактной {@link OrderStatusTable}; прочие
+ * (клиент может прислать свой id) - в обычной ConcurrentHashMap.
+ */
+@Component
+@Slf4j
+public class OrderStatusStore {
+
+    private static final OrderStatus[] STATUSES = OrderStatus.values();
+
+    @Value("${order.store.dir:data/order-status}")
+    private String storeDir;
+
+    @Value("${order.store.initial-capacity:1048576}")
+    private int initialCapacity;
+
+    @Value("${order.store.log-buffer-bytes:65536}")
+    private int logBufferBytes;
+
+    private OrderStatusTable table;
+    private final ConcurrentMap<String, Byte> named = new ConcurrentHashMap<>();
+    private OrderStatusLog journal;
+    private OrderStatusTable.Journal uuidJournal;
+
+    @PostConstruct
+    public void open() throws IOException {
+        table = new OrderStatusTable(initialCapacity);
+        journal = new OrderStatusLog(Paths.get(storeDir), logBufferBytes);
+        uuidJournal = journal::appendUuid;
+
+        long started = System.nanoTime();
+        long records = journal.recover(table, named);
+        log.info("Order status store recovered {} orders from {} records in {} ms",
+                table.size() + named.size(), records, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    public Optional<OrderStatus> get(String orderId) {
+        int status;
+        if (CanonicalUuid.matches(orderId)) {
+            status = table.get(CanonicalUuid.mostSignificantBits(orderId), CanonicalUuid.leastSignificantBits(orderId));
+        } else {
+            Byte code = named.get(orderId);
+            status = code == null ? OrderStatusTable.ABSENT : code;
+        }
+        return status == OrderStatusTable.ABSENT ? Optional.empty() : Optional.of(STATUSES[status]);
+    }
+
+    /**
+     * Безусловная запись статуса (ручное изменение через API).
+     */
+    public void put(String orderId, OrderStatus status) {
+        int target = status.ordinal();
+        update(orderId, current -> target);
+    }
+
+    /**
+     * Запись статуса при создании заказа и из событий пайплайна: статус меняется только по
+     * переходам жизненного цикла ({@link OrderStatus#canAdvanceTo}), поэтому подтверждение
+     * отправки и события из разных топиков можно применять в любом порядке.
+     */
+    public void advance(String orderId, OrderStatus status) {
+        int target = status.ordinal();
+        update(orderId, current -> current == OrderStatusTable.ABSENT || STATUSES[current].canAdvanceTo(status)
+                ? target : current);
+    }
+
+    public long size() {
+        return table.size() + named.size();
+    }
+
+    @Scheduled(fixedDelayString = "${order.store.flush-interval-ms:200}")
+    public void flush() {
+        try {
+            sync();
+        } catch (IOException e) {
+            log.error("Failed to flush order status log: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Сбрасывает буфер журнала в файл сегмента и дожидается записи на диск. Вызывается перед
+     * коммитом оффсетов, чтобы ни падение процесса, ни падение машины не теряли статусы уже
+     * подтверждённых записей.
+     */
+    public void sync() throws IOException {
+        journal.flush();
+    }
+
+    @Scheduled(fixedDelayString = "${order.store.snapshot-interval-ms:60000}",
+            initialDelayString = "${order.store.snapshot-interval-ms:60000}")
+    public void snapshot() {
+        if (!journal.hasChangesSinceSnapshot()) {
+            return;
+        }
+        try {
+            journal.snapshot(table, named);
+        } catch (IOException e) {
+            log.error("Failed to write order status snapshot: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        journal.close();
+    }
+
+    private void update(String orderId, IntUnaryOperator next) {
+        if (CanonicalUuid.matches(orderId)) {
+            table.update(CanonicalUuid.mostSignificantBits(orderId), CanonicalUuid.leastSignificantBits(orderId),
+                    next, uuidJournal);
+        } else {
+            named.compute(orderId, (id, code) -> {
+                int current = code == null ? OrderStatusTable.ABSENT : code;
+                int status = next.applyAsInt(current);
+                if (status == OrderStatusTable.ABSENT || status == current) {
+                    return code;
+                }
+                journal.appendNamed(id, status);
+                return (byte) status;
+            });
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.store;
+
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Хэш-таблица "UUID заказа -> ordinal статуса" с открытой адресацией, разбитая на сегменты.
+ * <p>
+ * Ключ хранится двумя long, статус - одним байтом (ordinal + 1, 0 - пустая ячейка), поэтому
+ * запись занимает ~17 байт против ~150 у ConcurrentHashMap со строковыми ключами.
+ * Чтение идёт оптимистично через {@link StampedLock}, запись блокирует только свой сегмент.
+ */
+final class OrderStatusTable {
+
+    static final int ABSENT = -1;
+
+    private static final int STRIPE_BITS = 6;
+    private static final int STRIPES = 1 << STRIPE_BITS;
+
+    /**
+     * Вызывается под блокировкой сегмента при каждом изменении, чтобы порядок записей
+     * в журнале совпадал с порядком изменений в таблице.
+     */
+    interface Journal {
+        void record(long msb, long lsb, int status);
+    }
+
+    interface Visitor {
+        void visit(long msb, long lsb, int status);
+    }
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    OrderStatusTable(int initialCapacity) {
+        int perStripe = Integer.highestOneBit(Math.max(16, initialCapacity / STRIPES) * 2 - 1);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(perStripe);
+        }
+    }
+
+    int get(long msb, long lsb) {
+        int h = hash(msb, lsb);
+        return stripes[h & (STRIPES - 1)].get(msb, lsb, h >>> STRIPE_BITS);
+    }
+
+    /**
+     * Применяет {@code next} к текущему статусу ({@link #ABSENT}, если ключа нет).
+     * Возврат {@link #ABSENT} из {@code next} означает "не менять".
+     */
+    int update(long msb, long lsb, IntUnaryOperator next, Journal journal) {
+        int h = hash(msb, lsb);
+        return stripes[h & (STRIPES - 1)].update(msb, lsb, h >>> STRIPE_BITS, next, journal);
+    }
+
+    long size() {
+        long size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    void forEach(Visitor visitor) {
+        for (Stripe stripe : stripes) {
+            stripe.forEach(visitor);
+        }
+    }
+
+    private static int hash(long msb, long lsb) {
+        long h = msb * 0x9E3779B97F4A7C15L ^ lsb;
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    private static final class Slots {
+        final long[] keys;
+        final byte[] codes;
+
+        Slots(int capacity) {
+            this.keys = new long[capacity * 2];
+            this.codes = new byte[capacity];
+        }
+    }
+
+    private static final class Stripe {
+
+        private final StampedLock lock = new StampedLock();
+        private Slots slots;
+        private int size;
+
+        Stripe(int capacity) {
+            this.slots = new Slots(capacity);
+        }
+
+        int get(long msb, long lsb, int h) {
+            long stamp = lock.tryOptimisticRead();
+            int status = find(slots, msb, lsb, h);
+            if (!lock.validate(stamp)) {
+                stamp = lock.readLock();
+                try {
+                    status = find(slots, msb, lsb, h);
+                } finally {
+                    lock.unlockRead(stamp);
+                }
+            }
+            return status;
+        }
+
+        int update(long msb, long lsb, int h, IntUnaryOperator next, Journal journal) {
+            long stamp = lock.writeLock();
+            try {
+                Slots s = slots;
+                int mask = s.codes.length - 1;
+                for (int i = h & mask; ; i = (i + 1) & mask) {
+                    int code = s.codes[i];
+                    if (code == 0) {
+                        int status = next.applyAsInt(ABSENT);
+                        if (status == ABSENT) {
+                            return ABSENT;
+                        }
+                        s.keys[2 * i] = msb;
+                        s.keys[2 * i + 1] = lsb;
+                        s.codes[i] = (byte) (status + 1);
+                        journal.record(msb, lsb, status);
+                        if (++size * 4 >= s.codes.length * 3) {
+                            resize();
+                        }
+                        return status;
+                    }
+                    if (s.keys[2 * i] == msb && s.keys[2 * i + 1] == lsb) {
+                        int current = code - 1;
+                        int status = next.applyAsInt(current);
+                        if (status == ABSENT || status == current) {
+                            return current;
+                        }
+                        s.codes[i] = (byte) (status + 1);
+                        journal.record(msb, lsb, status);
+                        return status;
+                    }
+                }
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        int size() {
+            long stamp = lock.readLock();
+            try {
+                return size;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        void forEach(Visitor visitor) {
+            // Копируем сегмент, чтобы не держать блокировку на время записи снапшота
+            Slots copy;
+            long stamp = lock.readLock();
+            try {
+                copy = new Slots(slots.codes.length);
+                System.arraycopy(slots.keys, 0, copy.keys, 0, copy.keys.length);
+                System.arraycopy(slots.codes, 0, copy.codes, 0, copy.codes.length);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+            for (int i = 0; i < copy.codes.length; i++) {
+                if (copy.codes[i] != 0) {
+                    visitor.visit(copy.keys[2 * i], copy.keys[2 * i + 1], copy.codes[i] - 1);
+                }
+            }
+        }
+
+        private void resize() {
+            Slots old = slots;
+            Slots grown = new Slots(old.codes.length * 2);
+            int mask = grown.codes.length - 1;
+            for (int i = 0; i < old.codes.length; i++) {
+                if (old.codes[i] == 0) {
+                    continue;
+                }
+                long msb = old.keys[2 * i];
+                long lsb = old.keys[2 * i + 1];
+                int j = (hash(msb, lsb) >>> STRIPE_BITS) & mask;
+                while (grown.codes[j] != 0) {
+                    j = (j + 1) & mask;
+                }
+                grown.keys[2 * j] = msb;
+                grown.keys[2 * j + 1] = lsb;
+                grown.codes[j] = old.codes[i];
+            }
+            slots = grown;
+        }
+
+        // Без блокировки может увидеть полузаписанное состояние - результат проверяется через validate
+        private static int find(Slots s, long msb, long lsb, int h) {
+            int mask = s.codes.length - 1;
+            int i = h & mask;
+            for (int probes = 0; probes <= mask; probes++, i = (i + 1) & mask) {
+                int code = s.codes[i];
+                if (code == 0) {
+                    return ABSENT;
+                }
+                if (s.keys[2 * i] == msb && s.keys[2 * i + 1] == lsb) {
+                    return code - 1;
+                }
+            }
+            return ABSENT;
+        }
+    }
+}
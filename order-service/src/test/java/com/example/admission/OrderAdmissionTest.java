@@ -0,0 +1,94 @@
+package com.example.admission;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class OrderAdmissionTest {
+
+    private final AtomicLong lag = new AtomicLong();
+
+    @Test
+    void limitsEachCustomerSeparately() {
+        // Скорость - один заказ в минуту: за время теста бакеты не пополняются
+        OrderAdmission admission = admission(1000, 100, 1.0 / 60, 2, 100);
+
+        assertThat(admission.tryAdmit("alice")).isZero();
+        assertThat(admission.tryAdmit("alice")).isZero();
+        assertThat(admission.tryAdmit("alice")).isPositive().isLessThanOrEqualTo(Duration.ofMinutes(1));
+        assertThat(admission.tryAdmit("bob")).isZero();
+
+        Map<String, Object> stats = admission.stats();
+        assertThat(stats).containsEntry("admitted", 3L).containsEntry("shedCustomer", 1L)
+                .containsEntry("trackedCustomers", 2);
+    }
+
+    @Test
+    void globalLimitRefundsCustomerToken() {
+        OrderAdmission admission = admission(1.0 / 60, 2, 1.0 / 60, 1, 100);
+
+        assertThat(admission.tryAdmit("alice")).isZero();
+        assertThat(admission.tryAdmit("bob")).isZero();
+        // Общий лимит исчерпан: carol отклонена им, а не своим бакетом
+        assertThat(admission.tryAdmit("carol")).isPositive();
+        assertThat(admission.stats()).containsEntry("shedGlobal", 1L).containsEntry("shedCustomer", 0L);
+    }
+
+    @Test
+    void customersBeyondLimitAreOnlyGloballyLimited() {
+        OrderAdmission admission = admission(1000, 100, 1.0 / 60, 1, 1);
+
+        assertThat(admission.tryAdmit("alice")).isZero();
+        assertThat(admission.tryAdmit("bob")).isZero();
+        assertThat(admission.tryAdmit("bob")).isZero();
+        assertThat(admission.stats()).containsEntry("trackedCustomers", 1).containsEntry("untrackedCustomers", 2L);
+    }
+
+    @Test
+    void rateShrinksLinearlyWithLag() {
+        OrderAdmission admission = admission(100, 10, 10, 1, 100);
+
+        assertThat(admission.factor(-1)).isEqualTo(1.0);
+        assertThat(admission.factor(1_000)).isEqualTo(1.0);
+        assertThat(admission.factor(5_500)).isCloseTo(0.55, within(1e-9));
+        assertThat(admission.factor(10_000)).isEqualTo(0.1);
+        assertThat(admission.factor(1_000_000)).isEqualTo(0.1);
+
+        lag.set(10_000);
+        assertThat(admission.stats()).containsEntry("globalRate", 100 * 0.1);
+    }
+
+    @Test
+    void rejectsInvalidLimits() {
+        assertThatThrownBy(() -> new OrderAdmission(lagSource(), 0, 1, 1, 1, 0, 1, 0.5, 1))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new OrderAdmission(lagSource(), 1, 1, 1, 1, 10, 10, 0.5, 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private OrderAdmission admission(double globalRate, int globalBurst, double customerRate, int customerBurst,
+                                     int maxCustomers) {
+        return new OrderAdmission(lagSource(), globalRate, globalBurst, customerRate, customerBurst,
+                1_000, 10_000, 0.1, maxCustomers);
+    }
+
+    private LagSource lagSource() {
+        return new LagSource() {
+            @Override
+            public long currentLag() {
+                return lag.get();
+            }
+
+            @Override
+            public Map<String, Long> lagByGroup() {
+                return Map.of("payment-group", lag.get());
+            }
+        };
+    }
+}
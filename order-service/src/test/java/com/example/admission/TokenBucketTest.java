@@ -0,0 +1,66 @@
+package com.example.admission;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenBucketTest {
+
+    private static final long INTERVAL = 1_000;
+    private static final long BURST = 2 * INTERVAL; // всплеск в три запроса
+
+    @Test
+    void admitsBurstThenPacesRequests() {
+        TokenBucket bucket = new TokenBucket();
+        long now = 1_000_000;
+        assertThat(bucket.tryAcquire(now, INTERVAL, BURST)).isZero();
+        assertThat(bucket.tryAcquire(now, INTERVAL, BURST)).isZero();
+        assertThat(bucket.tryAcquire(now, INTERVAL, BURST)).isZero();
+
+        // Четвёртому запросу в тот же момент нужно ждать ровно один интервал
+        assertThat(bucket.tryAcquire(now, INTERVAL, BURST)).isEqualTo(INTERVAL);
+        assertThat(bucket.tryAcquire(now + INTERVAL - 1, INTERVAL, BURST)).isEqualTo(1);
+        assertThat(bucket.tryAcquire(now + INTERVAL, INTERVAL, BURST)).isZero();
+    }
+
+    @Test
+    void idleBucketRefillsToFullBurst() {
+        TokenBucket bucket = new TokenBucket();
+        long now = 1_000_000;
+        assertThat(bucket.isIdle(now)).isTrue();
+        for (int i = 0; i < 3; i++) {
+            bucket.tryAcquire(now, INTERVAL, BURST);
+        }
+        assertThat(bucket.isIdle(now)).isFalse();
+
+        long later = now + 10 * INTERVAL;
+        assertThat(bucket.isIdle(later)).isTrue();
+        for (int i = 0; i < 3; i++) {
+            assertThat(bucket.tryAcquire(later, INTERVAL, BURST)).isZero();
+        }
+        assertThat(bucket.tryAcquire(later, INTERVAL, BURST)).isPositive();
+    }
+
+    @Test
+    void refundReturnsToken() {
+        TokenBucket bucket = new TokenBucket();
+        long now = 1_000_000;
+        for (int i = 0; i < 3; i++) {
+            bucket.tryAcquire(now, INTERVAL, BURST);
+        }
+        assertThat(bucket.tryAcquire(now, INTERVAL, BURST)).isPositive();
+
+        bucket.refund(INTERVAL);
+        assertThat(bucket.tryAcquire(now, INTERVAL, BURST)).isZero();
+    }
+
+    @Test
+    void rateChangesTakeEffectImmediately() {
+        TokenBucket bucket = new TokenBucket();
+        long now = 1_000_000;
+        assertThat(bucket.tryAcquire(now, INTERVAL, 0)).isZero();
+        // Скорость упала вдесятеро: следующий токен - через новый интервал от прошлого
+        assertThat(bucket.tryAcquire(now + INTERVAL, 10 * INTERVAL, 0)).isZero();
+        assertThat(bucket.tryAcquire(now + 2 * INTERVAL, 10 * INTERVAL, 0)).isEqualTo(9 * INTERVAL);
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.service;
+
+import com.example.model.EventType;
+import com.example.model.OrderEvent;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.common.Cluster;
+import org.apache.kafka.common.Node;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.utils.Utils;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderPartitionerTest {
+
+    private static final String TOPIC = "new_orders";
+    private static final int PARTITIONS = 8;
+
+    private final Cluster cluster = cluster();
+
+    @Test
+    void spreadsOrdersOfHotCustomerOverNeighbourPartitions() {
+        OrderPartitioner partitioner = partitioner();
+        byte[] hot = bytes("hot-customer");
+        int base = Utils.toPositive(Utils.murmur2(hot)) % PARTITIONS;
+
+        Set<Integer> partitions = new HashSet<>();
+        for (int i = 0; i < 200; i++) {
+            partitions.add(partition(partitioner, hot, UUID.randomUUID().toString()));
+        }
+
+        assertThat(partitioner.isHot(TOPIC, hot)).isTrue();
+        assertThat(partitions).hasSizeGreaterThan(1)
+                .allMatch(p -> (p - base + PARTITIONS) % PARTITIONS < 4);
+    }
+
+    @Test
+    void keepsColdCustomersAndEventsOfOneOrderOnOnePartition() {
+        OrderPartitioner partitioner = partitioner();
+        byte[] hot = bytes("hot-customer");
+        String orderId = UUID.randomUUID().toString();
+        for (int i = 0; i < 100; i++) {
+            partition(partitioner, hot, UUID.randomUUID().toString());
+        }
+
+        // События одного заказа горячего клиента не разъезжаются
+        int first = partition(partitioner, hot, orderId);
+        assertThat(partition(partitioner, hot, orderId)).isEqualTo(first);
+
+        for (int i = 0; i < 50; i++) {
+            byte[] cold = bytes("cold-" + i);
+            assertThat(partition(partitioner, cold, UUID.randomUUID().toString()))
+                    .isEqualTo(Utils.toPositive(Utils.murmur2(cold)) % PARTITIONS);
+        }
+    }
+
+    @Test
+    void nullKeysStickToPartitionUntilBatchIsFull() {
+        OrderPartitioner partitioner = partitioner();
+        byte[] value = new byte[100];
+
+        List<Integer> partitions = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            partitions.add(partitioner.partition(TOPIC, null, null, null, value, cluster));
+        }
+
+        // batch.size 1000: девять записей по 100 байт в одну пачку, десятая уходит в другую партицию
+        assertThat(partitions.subList(0, 9)).containsOnly(partitions.get(0));
+        assertThat(partitions.get(9)).isNotEqualTo(partitions.get(0));
+    }
+
+    private OrderPartitioner partitioner() {
+        OrderPartitioner partitioner = new OrderPartitioner();
+        partitioner.configure(Map.of(
+                OrderPartitioner.HOT_SHARE_CONFIG, "0.5",
+                OrderPartitioner.HOT_SPREAD_CONFIG, "4",
+                OrderPartitioner.MIN_WINDOW_COUNT_CONFIG, "10",
+                ProducerConfig.BATCH_SIZE_CONFIG, "1000"));
+        return partitioner;
+    }
+
+    private int partition(OrderPartitioner partitioner, byte[] key, String orderId) {
+        OrderEvent event = new OrderEvent(orderId, EventType.ORDER_CREATED, null);
+        return partitioner.partition(TOPIC, new String(key, StandardCharsets.UTF_8), key, event, null, cluster);
+    }
+
+    private static byte[] bytes(String key) {
+        return key.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static Cluster cluster() {
+        Node node = new Node(0, "localhost", 9092);
+        List<PartitionInfo> partitions = new ArrayList<>();
+        for (int i = 0; i < PARTITIONS; i++) {
+            partitions.add(new PartitionInfo(TOPIC, i, node, new Node[]{node}, new Node[]{node}));
+        }
+        return new Cluster("test", List.of(node), partitions, Set.of(), Set.of());
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.store;
+
+import com.example.model.OrderStatus;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OrderStatusLogTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void recoversSnapshotAndTailAfterRestart() throws IOException {
+        UUID snapshotted = UUID.randomUUID();
+        UUID advanced = UUID.randomUUID();
+        UUID afterSnapshot = UUID.randomUUID();
+
+        Store store = Store.open(dir);
+        store.put(snapshotted, OrderStatus.PAYMENT_COMPLETED);
+        store.put(advanced, OrderStatus.CREATED);
+        store.named.put("custom-1", (byte) OrderStatus.CREATED.ordinal());
+        store.log.appendNamed("custom-1", OrderStatus.CREATED.ordinal());
+        store.log.snapshot(store.table, store.named);
+
+        store.put(advanced, OrderStatus.SHIPPED);
+        store.put(afterSnapshot, OrderStatus.PAYMENT_FAILED);
+        store.log.close();
+
+        Store restarted = Store.open(dir);
+        assertThat(restarted.get(snapshotted)).isEqualTo(OrderStatus.PAYMENT_COMPLETED.ordinal());
+        assertThat(restarted.get(advanced)).isEqualTo(OrderStatus.SHIPPED.ordinal());
+        assertThat(restarted.get(afterSnapshot)).isEqualTo(OrderStatus.PAYMENT_FAILED.ordinal());
+        assertThat(restarted.named).containsEntry("custom-1", (byte) OrderStatus.CREATED.ordinal());
+        assertThat(restarted.table.size()).isEqualTo(3);
+        restarted.log.close();
+    }
+
+    @Test
+    void replayedTailIsCompactedByNextSnapshot() throws IOException {
+        UUID id = UUID.randomUUID();
+        Store store = Store.open(dir);
+        store.put(id, OrderStatus.CREATED);
+        store.log.close();
+
+        Store restarted = Store.open(dir);
+        assertThat(restarted.log.hasChangesSinceSnapshot()).isTrue();
+        restarted.log.snapshot(restarted.table, restarted.named);
+        restarted.log.close();
+
+        assertThat(segments()).isEqualTo(1);
+        Store again = Store.open(dir);
+        assertThat(again.get(id)).isEqualTo(OrderStatus.CREATED.ordinal());
+        assertThat(again.log.hasChangesSinceSnapshot()).isFalse();
+        again.log.close();
+    }
+
+    @Test
+    void restartsWithoutChangesDoNotAccumulateSegments() throws IOException {
+        for (int i = 0; i < 5; i++) {
+            Store.open(dir).log.close();
+        }
+        assertThat(segments()).isEqualTo(1);
+    }
+
+    @Test
+    void tableKeepsEntriesAcrossResize() {
+        OrderStatusTable table = new OrderStatusTable(16);
+        UUID[] ids = new UUID[10_000];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = UUID.randomUUID();
+            int status = i % OrderStatus.values().length;
+            table.update(ids[i].getMostSignificantBits(), ids[i].getLeastSignificantBits(), current -> status,
+                    (msb, lsb, s) -> { });
+        }
+        assertThat(table.size()).isEqualTo(ids.length);
+        for (int i = 0; i < ids.length; i++) {
+            assertThat(table.get(ids[i].getMostSignificantBits(), ids[i].getLeastSignificantBits()))
+                    .isEqualTo(i % OrderStatus.values().length);
+        }
+        assertThat(table.get(1L, 2L)).isEqualTo(OrderStatusTable.ABSENT);
+    }
+
+    private long segments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".log")).count();
+        }
+    }
+
+    private static final class Store {
+        final OrderStatusTable table = new OrderStatusTable(64);
+        final Map<String, Byte> named = new ConcurrentHashMap<>();
+        final OrderStatusLog log;
+
+        private Store(Path dir) {
+            this.log = new OrderStatusLog(dir, 256);
+        }
+
+        static Store open(Path dir) throws IOException {
+            Store store = new Store(dir);
+            store.log.recover(store.table, store.named);
+            return store;
+        }
+
+        void put(UUID id, OrderStatus status) {
+            table.update(id.getMostSignificantBits(), id.getLeastSignificantBits(), current -> status.ordinal(),
+                    log::appendUuid);
+        }
+
+        int get(UUID id) {
+            return table.get(id.getMostSignificantBits(), id.getLeastSignificantBits());
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.config;
+
+import com.example.processing.ConsumerTuningConfigSupport;
+import com.example.service.PaymentService;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class ConsumerTuningConfig extends ConsumerTuningConfigSupport {
+
+    public ConsumerTuningConfig() {
+        super(PaymentService.LISTENER_ID);
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.config;
+
+import com.example.processing.BoundedExecutor;
+import com.example.processing.ExecutionConfigSupport;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Исполнители запросов Tomcat и обработки записей листенера: на JDK 21+ - виртуальные потоки,
+ * поверх них лимиты из {@code execution.*}.
+ */
+@Configuration
+public class ExecutionConfig extends ExecutionConfigSupport {
+
+    // block: поток листенера ждёт места, то есть poll сам притормаживает
+    @Bean(destroyMethod = "close")
+    public BoundedExecutor listenerExecutor() {
+        return boundedExecutor("payment-worker", "listener", new BoundedExecutor.Limits(32, 1000,
+                BoundedExecutor.Rejection.BLOCK, Duration.ofSeconds(30)));
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.config;
+
+import com.example.model.OrderEvent;
+import com.example.processing.Backpressure;
+import com.example.processing.BatchSender;
+import com.example.processing.EventDeduplicator;
+import com.example.processing.InMemoryBackpressure;
+import com.example.processing.RetryTopicRouter;
+import com.example.service.PaymentService;
+import com.example.snapshot.OrderSnapshotCache;
+import com.example.transport.InMemoryListeners;
+import com.example.transport.InMemoryTransportConfigSupport;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.util.List;
+
+@Configuration
+@Profile("in-memory")
+public class InMemoryTransportConfig extends InMemoryTransportConfigSupport {
+
+    @Value("${kafka.topics.new-orders}")
+    private String newOrdersTopic;
+
+    @Value("${kafka.topics.order-snapshots}")
+    private String orderSnapshotsTopic;
+
+    @Bean
+    public Backpressure paymentBackpressure() {
+        return new InMemoryBackpressure(inMemoryTransport(), "payment-group");
+    }
+
+    @Bean
+    public InMemoryListeners paymentInMemoryListeners(PaymentService paymentService,
+                                                      RetryTopicRouter retryTopicRouter,
+                                                      BatchSender batchSender,
+                                                      EventDeduplicator eventDeduplicator,
+                                                      OrderSnapshotCache orderSnapshotCache) {
+        return listeners()
+                .<OrderEvent>listen("payment-group", List.of(newOrdersTopic),
+                        (records, delivery) -> paymentService.processBatch(records, delivery, delivery::rewind))
+                .listenRetries(retryTopicRouter, newOrdersTopic, "payment-group-retry", batchSender,
+                        eventDeduplicator, OrderEvent::getEventId, paymentService::handleRecord)
+                .<OrderEvent>listen("payment-snapshots", List.of(orderSnapshotsTopic), orderSnapshotCache::onMessage);
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.config;
+
+import com.example.payment.CircuitBreaker;
+import com.example.payment.CircuitBreakingPaymentGateway;
+import com.example.payment.HttpPaymentGateway;
+import com.example.payment.PaymentGateway;
+import com.example.processing.Backpressure;
+import com.example.processing.ContainerBackpressure;
+import com.example.service.PaymentService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * Клиент платёжного шлюза ({@code payment.gateway.*}): HTTP/2, хеджирование медленных
+ * запросов, размыкатель цепи, приостанавливающий листенер. По умолчанию шлюз - заглушка
+ * этого же сервиса, PaymentGatewayStubController. Статистика - GET /api/payment-gateway.
+ */
+@Configuration
+public class PaymentGatewayConfig {
+
+    @Value("${payment.gateway.url:http://localhost:${server.port}/stub/payment-gateway}")
+    private URI url;
+
+    @Value("${payment.gateway.connect-timeout:1s}")
+    private Duration connectTimeout;
+
+    @Value("${payment.gateway.request-timeout:2s}")
+    private Duration requestTimeout;
+
+    @Value("${payment.gateway.hedge.enabled:true}")
+    private boolean hedgeEnabled;
+
+    @Value("${payment.gateway.hedge.percentile:95}")
+    private double hedgePercentile;
+
+    @Value("${payment.gateway.hedge.min-delay:5ms}")
+    private Duration hedgeMinDelay;
+
+    @Value("${payment.gateway.hedge.max-delay:1s}")
+    private Duration hedgeMaxDelay;
+
+    @Value("${payment.gateway.breaker.window:20}")
+    private int breakerWindow;
+
+    @Value("${payment.gateway.breaker.minimum-calls:10}")
+    private int breakerMinimumCalls;
+
+    @Value("${payment.gateway.breaker.failure-rate:0.5}")
+    private double breakerFailureRate;
+
+    @Value("${payment.gateway.breaker.open-duration:10s}")
+    private Duration breakerOpenDuration;
+
+    @Bean
+    public PaymentGateway paymentGateway(Backpressure paymentBackpressure) {
+        HttpPaymentGateway gateway = new HttpPaymentGateway(new HttpPaymentGateway.Settings(url, connectTimeout,
+                requestTimeout, hedgeEnabled, hedgePercentile, hedgeMinDelay, hedgeMaxDelay));
+        CircuitBreaker breaker = new CircuitBreaker("payment-gateway", new CircuitBreaker.Settings(breakerWindow,
+                breakerMinimumCalls, breakerFailureRate, breakerOpenDuration), paymentBackpressure);
+        return new CircuitBreakingPaymentGateway(gateway, breaker);
+    }
+
+    // Разомкнутая цепь приостанавливает основной листенер; в профиле in-memory - InMemoryBackpressure
+    // из InMemoryTransportConfig
+    @Bean
+    @Profile("!in-memory")
+    public Backpressure paymentBackpressure(KafkaListenerEndpointRegistry registry) {
+        return new ContainerBackpressure(registry, PaymentService.LISTENER_ID);
+    }
+}
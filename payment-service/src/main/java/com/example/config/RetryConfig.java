@@ -0,0 +1,30 @@
+package com.example.config;
+
+import com.example.model.OrderEvent;
+import com.example.processing.BatchSender;
+import com.example.processing.EventDeduplicator;
+import com.example.processing.RetryConfigSupport;
+import com.example.processing.RetryListenerContainers;
+import com.example.service.PaymentService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+
+@Configuration
+public class RetryConfig extends RetryConfigSupport {
+
+    public RetryConfig(@Value("${kafka.topics.new-orders}") String newOrdersTopic) {
+        super("payment", newOrdersTopic);
+    }
+
+    @Bean
+    public RetryListenerContainers<OrderEvent> paymentRetryContainers(
+            ConcurrentKafkaListenerContainerFactory<String, OrderEvent> kafkaListenerContainerFactory,
+            BatchSender batchSender,
+            EventDeduplicator eventDeduplicator,
+            PaymentService paymentService) {
+        return retryContainers(kafkaListenerContainerFactory, batchSender, eventDeduplicator,
+                paymentService::handleRecord);
+    }
+}
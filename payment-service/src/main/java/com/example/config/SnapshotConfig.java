@@ -0,0 +1,12 @@
+package com.example.config;
+
+import com.example.snapshot.SnapshotConfigSupport;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class SnapshotConfig extends SnapshotConfigSupport {
+
+    public SnapshotConfig() {
+        super("payment");
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.controller;
+
+import com.example.payment.PaymentGateway;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Вызовы шлюза, хеджирование и состояние размыкателя цепи
+@RestController
+@RequestMapping("/api/payment-gateway")
+@RequiredArgsConstructor
+public class PaymentGatewayController {
+
+    private final PaymentGateway paymentGateway;
+
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        paymentGateway.stats("gateway", stats);
+        return ResponseEntity.ok(stats);
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Заглушка платёжного шлюза (payment.gateway.stub.*): пакетная авторизация с настраиваемыми задержкой и ошибками.
+// Помнит idempotencyKey последних авторизаций: повтор с тем же ключом возвращает прежний ответ,
+// а заказ, пришедший с другим ключом, считается повторным списанием - GET /stub/payment-gateway/idempotency
+@RestController
+@RequestMapping("/stub/payment-gateway")
+public class PaymentGatewayStubController {
+
+    @Value("${payment.gateway.stub.enabled:true}")
+    private boolean enabled;
+
+    @Value("${payment.gateway.stub.approve-rate:0.9}")
+    private double approveRate;
+
+    @Value("${payment.gateway.stub.latency:5ms}")
+    private Duration latency;
+
+    @Value("${payment.gateway.stub.slow-latency:300ms}")
+    private Duration slowLatency;
+
+    @Value("${payment.gateway.stub.slow-rate:0.02}")
+    private volatile double slowRate;
+
+    @Value("${payment.gateway.stub.error-rate:0}")
+    private volatile double errorRate;
+
+    @Value("${payment.gateway.stub.idempotency-capacity:100000}")
+    private int idempotencyCapacity;
+
+    // Последняя авторизация по заказу, вытесняются давно не использованные
+    private final Map<String, Charge> charges = new LinkedHashMap<>(1024, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Charge> eldest) {
+            return size() > idempotencyCapacity;
+        }
+    };
+    private final LongAdder charged = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder duplicateCharges = new LongAdder();
+
+    @PostMapping("/authorizations")
+    public CompletableFuture<ResponseEntity<Object>> authorize(
+            @RequestHeader(value = "Idempotency-Key", required = false) String requestKey,
+            @RequestBody JsonNode body) {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(ResponseEntity.notFound().build());
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        ResponseEntity<Object> response;
+        if (random.nextDouble() < errorRate) {
+            response = ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Map.of("error", "Gateway unavailable", "timestamp", Instant.now()));
+        } else {
+            List<Map<String, Object>> results = new ArrayList<>();
+            JsonNode authorizations = body.path("authorizations");
+            for (JsonNode authorization : authorizations) {
+                String orderId = authorization.path("orderId").asText();
+                // Без ключа у авторизации - ключ запроса, если в нём один заказ
+                String key = authorization.hasNonNull("idempotencyKey") ? authorization.get("idempotencyKey").asText()
+                        : authorizations.size() == 1 ? requestKey : null;
+                boolean approved = charge(orderId, key);
+                Map<String, Object> result = new LinkedHashMap<>();
+                result.put("orderId", orderId);
+                result.put("approved", approved);
+                result.put("reason", approved ? null : "Declined by issuer");
+                results.add(result);
+            }
+            response = ResponseEntity.ok(Map.of("results", results));
+        }
+        // Задержка без занятого потока запроса
+        long delayMillis = (random.nextDouble() < slowRate ? slowLatency : latency).toMillis();
+        return CompletableFuture.supplyAsync(() -> response,
+                CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS));
+    }
+
+    // Включение сбоев на ходу: проверка хеджирования и размыкателя цепи
+    @PatchMapping("/faults")
+    public ResponseEntity<Object> setFaults(@RequestParam(required = false) Double errorRate,
+                                            @RequestParam(required = false) Double slowRate) {
+        if (errorRate != null) {
+            this.errorRate = errorRate;
+        }
+        if (slowRate != null) {
+            this.slowRate = slowRate;
+        }
+        return ResponseEntity.ok(Map.of("errorRate", this.errorRate, "slowRate", this.slowRate));
+    }
+
+    @GetMapping("/idempotency")
+    public Map<String, Object> getIdempotency() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("charged", charged.sum());
+        stats.put("replayed", replayed.sum());
+        // Заказ авторизован повторно с другим ключом или без него - настоящий шлюз списал бы деньги дважды
+        stats.put("duplicateCharges", duplicateCharges.sum());
+        synchronized (charges) {
+            stats.put("remembered", charges.size());
+        }
+        return stats;
+    }
+
+    private boolean charge(String orderId, String key) {
+        synchronized (charges) {
+            Charge previous = charges.get(orderId);
+            if (previous != null && key != null && key.equals(previous.key)) {
+                replayed.increment();
+                return previous.approved;
+            }
+            if (previous != null) {
+                duplicateCharges.increment();
+            }
+            boolean approved = approved(orderId);
+            charges.put(orderId, new Charge(key, approved));
+            charged.increment();
+            return approved;
+        }
+    }
+
+    // Решение зависит только от заказа: и повторное списание получило бы тот же ответ
+    private boolean approved(String orderId) {
+        return Math.floorMod(orderId.hashCode(), 1000) < approveRate * 1000;
+    }
+
+    private static final class Charge {
+        final String key;
+        final boolean approved;
+
+        Charge(String key, boolean approved) {
+            this.key = key;
+            this.approved = approved;
+        }
+    }
+}
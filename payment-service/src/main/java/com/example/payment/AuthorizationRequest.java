@@ -0,0 +1,16 @@
+package com.example.payment;
+
+import com.example.model.Order;
+import lombok.Value;
+
+@Value
+public class AuthorizationRequest {
+    String orderId;
+    String customerId;
+    long amountMinor;
+    String currency;
+
+    public static AuthorizationRequest of(Order order) {
+        return new AuthorizationRequest(order.getId(), order.getCustomerId(), order.getTotalMinor(), order.getCurrency());
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.payment;
+
+import lombok.Value;
+
+@Value
+public class AuthorizationResult {
+    String orderId;
+    boolean approved;
+    // Причина отказа от шлюза, у одобренных - null
+    String reason;
+}
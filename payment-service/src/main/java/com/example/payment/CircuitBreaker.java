@@ -0,0 +1,152 @@
+package com.example.payment;
+
+import com.example.processing.Backpressure;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Размыкатель цепи по доле ошибок среди последних {@code window} вызовов (не меньше
+ * {@code minimumCalls}). Разомкнутая цепь отказывает сразу и приостанавливает листенер через
+ * {@link Backpressure}; через {@code openDuration} листенер возобновляется и пропускается один
+ * пробный вызов: успех замыкает цепь, ошибка снова размыкает.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    @Value
+    public static class Settings {
+        int window;
+        int minimumCalls;
+        double failureRateThreshold;
+        Duration openDuration;
+    }
+
+    private final String name;
+    private final Settings settings;
+    private final Backpressure backpressure;
+
+    // Кольцо исходов последних вызовов, true - ошибка
+    private final boolean[] outcomes;
+    private int next;
+    private int calls;
+    private int failures;
+
+    private State state = State.CLOSED;
+    private boolean trialInFlight;
+    private long opened;
+
+    public CircuitBreaker(String name, Settings settings, Backpressure backpressure) {
+        if (settings.getWindow() <= 0 || settings.getMinimumCalls() > settings.getWindow()) {
+            throw new IllegalArgumentException("Invalid circuit breaker window: " + settings);
+        }
+        this.name = name;
+        this.settings = settings;
+        this.backpressure = backpressure;
+        this.outcomes = new boolean[settings.getWindow()];
+    }
+
+    /**
+     * Можно ли вызывать; после true обязателен {@link #onSuccess()} или {@link #onFailure()}.
+     */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                if (trialInFlight) {
+                    return false;
+                }
+                trialInFlight = true;
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    public synchronized void onSuccess() {
+        // Вызовы, начатые до размыкания, на окно уже не влияют
+        if (state == State.OPEN) {
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            state = State.CLOSED;
+            trialInFlight = false;
+            log.info("Circuit '{}' closed", name);
+            return;
+        }
+        record(false);
+    }
+
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            open();
+            return;
+        }
+        if (state == State.OPEN) {
+            return;
+        }
+        record(true);
+        if (calls >= settings.getMinimumCalls()
+                && failures >= settings.getFailureRateThreshold() * calls) {
+            open();
+        }
+    }
+
+    public synchronized State state() {
+        return state;
+    }
+
+    public synchronized void stats(String prefix, Map<String, Object> stats) {
+        stats.put(prefix + ".state", state.name());
+        stats.put(prefix + ".opened", opened);
+        stats.put(prefix + ".windowCalls", calls);
+        stats.put(prefix + ".windowFailures", failures);
+    }
+
+    private void record(boolean failure) {
+        if (calls == outcomes.length) {
+            if (outcomes[next]) {
+                failures--;
+            }
+        } else {
+            calls++;
+        }
+        outcomes[next] = failure;
+        if (failure) {
+            failures++;
+        }
+        next = (next + 1) % outcomes.length;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        trialInFlight = false;
+        opened++;
+        // После замыкания окно набирается заново
+        calls = 0;
+        failures = 0;
+        next = 0;
+        backpressure.pause();
+        log.warn("Circuit '{}' opened for {}", name, settings.getOpenDuration());
+        CompletableFuture.delayedExecutor(settings.getOpenDuration().toMillis(), TimeUnit.MILLISECONDS)
+                .execute(this::halfOpen);
+    }
+
+    private synchronized void halfOpen() {
+        if (state != State.OPEN) {
+            return;
+        }
+        state = State.HALF_OPEN;
+        backpressure.resume();
+        log.info("Circuit '{}' half-open, next call is a trial", name);
+    }
+}
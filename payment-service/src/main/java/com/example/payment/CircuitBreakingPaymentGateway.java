@@ -0,0 +1,43 @@
+package com.example.payment;
+
+import lombok.RequiredArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Шлюз за размыкателем цепи: при разомкнутой цепи вызов отклоняется без обращения к шлюзу.
+ * Отказ - {@link PaymentGatewayException}: основной листенер перечитывает пачку, листенеры
+ * топиков задержки делают nack, так что попытки повторов на время отказа не расходуются.
+ */
+@RequiredArgsConstructor
+public class CircuitBreakingPaymentGateway implements PaymentGateway {
+
+    private final PaymentGateway delegate;
+    private final CircuitBreaker breaker;
+
+    @Override
+    public List<AuthorizationResult> authorize(List<AuthorizationRequest> requests) {
+        if (requests.isEmpty()) {
+            return List.of();
+        }
+        if (!breaker.tryAcquire()) {
+            throw new PaymentGatewayException("Payment gateway circuit is " + breaker.state());
+        }
+        List<AuthorizationResult> results;
+        try {
+            results = delegate.authorize(requests);
+        } catch (RuntimeException e) {
+            breaker.onFailure();
+            throw e;
+        }
+        breaker.onSuccess();
+        return results;
+    }
+
+    @Override
+    public void stats(String prefix, Map<String, Object> stats) {
+        delegate.stats(prefix, stats);
+        breaker.stats(prefix + ".circuit", stats);
+    }
+}
@@ -0,0 +1,263 @@
+package com.example.payment;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Клиент шлюза по HTTP/2: все вызовы идут потоками одного соединения {@link HttpClient}
+ * (для http:// - через upgrade h2c при первом запросе).
+ * <p>
+ * Хеджирование: если ответа нет дольше {@code percentile}-го перцентиля недавних задержек
+ * (в пределах {@code hedgeMinDelay..hedgeMaxDelay}), тот же запрос отправляется ещё раз
+ * и берётся первый успешный ответ. Оба запроса несут один {@code Idempotency-Key}, поэтому
+ * шлюз авторизует пачку один раз. При ошибке первого запроса до хеджа второй не отправляется:
+ * дублировать нагрузку на отказывающий шлюз незачем.
+ * <p>
+ * Ключи выводятся из заказов, а не генерируются на вызов: перечитанная пачка, повтор из топика
+ * задержки и авторизация заказа по одному приходят к шлюзу с теми же ключами. У каждой
+ * авторизации свой {@code idempotencyKey} по id заказа - он защищает и тогда, когда при
+ * перечитывании пачка собралась в другом составе; {@code Idempotency-Key} запроса - хеш
+ * отсортированных id его заказов.
+ */
+@Slf4j
+public class HttpPaymentGateway implements PaymentGateway {
+
+    private static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(1);
+    // Перцентиль пересчитывается не чаще раза в секунду и не меньше чем по стольким ответам
+    private static final int HEDGE_MIN_SAMPLES = 20;
+    private static final long HEDGE_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    @Value
+    public static class Settings {
+        URI url;
+        Duration connectTimeout;
+        Duration requestTimeout;
+        boolean hedgeEnabled;
+        double hedgePercentile;
+        Duration hedgeMinDelay;
+        Duration hedgeMaxDelay;
+    }
+
+    private final Settings settings;
+    private final HttpClient client;
+    private final URI authorizeUri;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final Recorder latency = new Recorder(HIGHEST_TRACKABLE_MICROS, 2);
+    private final Histogram window = new Histogram(HIGHEST_TRACKABLE_MICROS, 2);
+    private Histogram interval;
+    private long nextRefreshNanos;
+    private volatile long hedgeDelayNanos;
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder hedged = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    public HttpPaymentGateway(Settings settings) {
+        this.settings = settings;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(settings.getConnectTimeout())
+                .build();
+        this.authorizeUri = URI.create(settings.getUrl() + "/authorizations");
+        // До первых замеров хеджируем только очень медленные ответы
+        this.hedgeDelayNanos = settings.getHedgeMaxDelay().toNanos();
+    }
+
+    @Override
+    public List<AuthorizationResult> authorize(List<AuthorizationRequest> requests) {
+        if (requests.isEmpty()) {
+            return List.of();
+        }
+        calls.increment();
+        refreshHedgeDelay();
+        HttpRequest request = HttpRequest.newBuilder(authorizeUri)
+                .timeout(settings.getRequestTimeout())
+                .header("Content-Type", "application/json")
+                .header("Idempotency-Key", idempotencyKey(requests))
+                .POST(HttpRequest.BodyPublishers.ofByteArray(encode(requests)))
+                .build();
+
+        Call call = new Call(request);
+        try {
+            // Хедж стартует не позже hedgeMaxDelay и ограничен тем же таймаутом
+            long waitMillis = settings.getRequestTimeout().plus(settings.getHedgeMaxDelay()).toMillis();
+            return decode(call.result.get(waitMillis, TimeUnit.MILLISECONDS), requests);
+        } catch (ExecutionException e) {
+            failures.increment();
+            throw new PaymentGatewayException("Payment gateway call failed: " + e.getCause().getMessage(), e.getCause());
+        } catch (TimeoutException e) {
+            failures.increment();
+            throw new PaymentGatewayException("Payment gateway call timed out", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PaymentGatewayException("Interrupted while waiting for payment gateway", e);
+        }
+    }
+
+    @Override
+    public void stats(String prefix, Map<String, Object> stats) {
+        stats.put(prefix + ".url", settings.getUrl().toString());
+        stats.put(prefix + ".calls", calls.sum());
+        stats.put(prefix + ".failures", failures.sum());
+        stats.put(prefix + ".hedged", hedged.sum());
+        stats.put(prefix + ".hedgeWins", hedgeWins.sum());
+        stats.put(prefix + ".hedgeDelayMs", hedgeDelayNanos / 1e6);
+    }
+
+    private synchronized void refreshHedgeDelay() {
+        long now = System.nanoTime();
+        if (now - nextRefreshNanos < 0) {
+            return;
+        }
+        nextRefreshNanos = now + HEDGE_REFRESH_NANOS;
+        interval = latency.getIntervalHistogram(interval);
+        window.add(interval);
+        if (window.getTotalCount() < HEDGE_MIN_SAMPLES) {
+            return;
+        }
+        long delayNanos = TimeUnit.MICROSECONDS.toNanos(window.getValueAtPercentile(settings.getHedgePercentile()));
+        hedgeDelayNanos = Math.max(settings.getHedgeMinDelay().toNanos(),
+                Math.min(settings.getHedgeMaxDelay().toNanos(), delayNanos));
+        window.reset();
+    }
+
+    static String idempotencyKey(String orderId) {
+        return UUID.nameUUIDFromBytes(("authorization:" + orderId).getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    static String idempotencyKey(List<AuthorizationRequest> requests) {
+        if (requests.size() == 1) {
+            return idempotencyKey(requests.get(0).getOrderId());
+        }
+        String[] orderIds = new String[requests.size()];
+        for (int i = 0; i < orderIds.length; i++) {
+            orderIds[i] = requests.get(i).getOrderId();
+        }
+        Arrays.sort(orderIds);
+        return UUID.nameUUIDFromBytes(String.join("\n", orderIds).getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    private byte[] encode(List<AuthorizationRequest> requests) {
+        List<Map<String, Object>> authorizations = new ArrayList<>(requests.size());
+        for (AuthorizationRequest request : requests) {
+            Map<String, Object> authorization = new LinkedHashMap<>();
+            authorization.put("orderId", request.getOrderId());
+            authorization.put("idempotencyKey", idempotencyKey(request.getOrderId()));
+            authorization.put("customerId", request.getCustomerId());
+            authorization.put("amountMinor", request.getAmountMinor());
+            authorization.put("currency", request.getCurrency());
+            authorizations.add(authorization);
+        }
+        try {
+            return mapper.writeValueAsBytes(Map.of("authorizations", authorizations));
+        } catch (IOException e) {
+            throw new IllegalStateException("Cannot encode authorization request", e);
+        }
+    }
+
+    private List<AuthorizationResult> decode(HttpResponse<byte[]> response, List<AuthorizationRequest> requests) {
+        Map<String, AuthorizationResult> byOrder = new HashMap<>();
+        try {
+            for (JsonNode result : mapper.readTree(response.body()).path("results")) {
+                String orderId = result.path("orderId").asText();
+                byOrder.put(orderId, new AuthorizationResult(orderId, result.path("approved").asBoolean(),
+                        result.hasNonNull("reason") ? result.get("reason").asText() : null));
+            }
+        } catch (IOException e) {
+            failures.increment();
+            throw new PaymentGatewayException("Malformed payment gateway response: " + e.getMessage(), e);
+        }
+        List<AuthorizationResult> results = new ArrayList<>(requests.size());
+        for (AuthorizationRequest request : requests) {
+            AuthorizationResult result = byOrder.get(request.getOrderId());
+            if (result == null) {
+                failures.increment();
+                throw new PaymentGatewayException("Payment gateway returned no result for order " + request.getOrderId());
+            }
+            results.add(result);
+        }
+        return results;
+    }
+
+    /**
+     * Основной запрос и, возможно, хедж; {@code result} - первый успешный ответ.
+     */
+    private final class Call {
+
+        final CompletableFuture<HttpResponse<byte[]>> result = new CompletableFuture<>();
+        private final HttpRequest request;
+        private int outstanding = 1;
+        private boolean hedgePending;
+
+        Call(HttpRequest request) {
+            this.request = request;
+            if (settings.isHedgeEnabled()) {
+                hedgePending = true;
+                CompletableFuture.delayedExecutor(hedgeDelayNanos, TimeUnit.NANOSECONDS).execute(this::hedge);
+            }
+            send(false);
+        }
+
+        private void hedge() {
+            synchronized (this) {
+                if (!hedgePending || result.isDone()) {
+                    return;
+                }
+                hedgePending = false;
+                outstanding++;
+            }
+            hedged.increment();
+            send(true);
+        }
+
+        private void send(boolean hedge) {
+            long startNanos = System.nanoTime();
+            client.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                    .whenComplete((response, ex) -> finished(response, ex, hedge, startNanos));
+        }
+
+        private synchronized void finished(HttpResponse<byte[]> response, Throwable ex, boolean hedge, long startNanos) {
+            outstanding--;
+            if (ex == null && response.statusCode() == 200) {
+                // Задержку пишет и проигравший запрос: без медленных ответов перцентиль занижался бы
+                latency.recordValue(Math.min(HIGHEST_TRACKABLE_MICROS,
+                        TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos)));
+                if (result.complete(response) && hedge) {
+                    hedgeWins.increment();
+                }
+                return;
+            }
+            if (outstanding == 0) {
+                hedgePending = false;
+                result.completeExceptionally(ex != null ? ex
+                        : new PaymentGatewayException("Payment gateway responded with HTTP " + response.statusCode()));
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.payment;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Платёжный шлюз: авторизация пачки заказов одним вызовом.
+ */
+public interface PaymentGateway {
+
+    /**
+     * Результат по каждому заказу запроса. Недоступность шлюза или ответ без части заказов -
+     * {@link PaymentGatewayException} на всю пачку.
+     */
+    List<AuthorizationResult> authorize(List<AuthorizationRequest> requests);
+
+    default void stats(String prefix, Map<String, Object> stats) {
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.payment;
+
+import com.example.processing.DependencyUnavailableException;
+
+/**
+ * Шлюз не дал ответа по пачке: ошибка сети или HTTP, таймаут, разомкнутая цепь.
+ * Решения по заказам нет, пачку нужно повторить целиком, не расходуя повторы.
+ */
+public class PaymentGatewayException extends DependencyUnavailableException {
+
+    public PaymentGatewayException(String message) {
+        super(message);
+    }
+
+    public PaymentGatewayException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
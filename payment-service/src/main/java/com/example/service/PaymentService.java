@@ -4,81 +4,180 @@ import com.example.model.EventType;
 import com.example.model.Order;
 import com.example.model.OrderEvent;
 import com.example.model.OrderStatus;
+import com.example.payment.AuthorizationRequest;
+import com.example.payment.AuthorizationResult;
+import com.example.payment.PaymentGateway;
+import com.example.payment.PaymentGatewayException;
+import com.example.processing.BatchProcessingException;
+import com.example.processing.BatchSendException;
+import com.example.processing.BatchSender;
+import com.example.processing.EventDeduplicator;
+import com.example.processing.KeyOrderedBatchExecutor;
+import com.example.processing.RetryTopicRouter;
+import com.example.snapshot.OrderSnapshotResolver;
+import com.example.tracing.StageTracer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.Acknowledgment;
-import org.springframework.messaging.handler.annotation.Payload;
-import org.springframework.retry.annotation.Backoff;
-import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
 
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class PaymentService {
 
-    private final KafkaTemplate<String, Object> kafkaTemplate;
+    public static final String LISTENER_ID = "payment-listener";
+
+    private final BatchSender batchSender;
+    private final KeyOrderedBatchExecutor batchExecutor;
+    private final StageTracer stageTracer;
+    private final RetryTopicRouter retryRouter;
+    private final EventDeduplicator deduplicator;
+    private final OrderSnapshotResolver snapshotResolver;
+    private final PaymentGateway paymentGateway;
 
     @Value("${kafka.topics.payed-orders}")
     private String payedOrdersTopic;
 
     @KafkaListener(
+            id = LISTENER_ID,
             topics = "${kafka.topics.new-orders}",
             groupId = "payment-group",
             containerFactory = "kafkaListenerContainerFactory"
     )
-    public void processOrders(@Payload List<OrderEvent> events, Acknowledgment ack) {
+    public void processOrders(List<ConsumerRecord<String, OrderEvent>> records, Acknowledgment ack,
+                              Consumer<?, ?> consumer) {
+        processBatch(records, ack, () -> seekToBatchStart(records, consumer));
+    }
+
+    /**
+     * Обработка пачки независимо от транспорта: {@code rewind} возвращает чтение к началу пачки.
+     */
+    public void processBatch(List<ConsumerRecord<String, OrderEvent>> records, Acknowledgment ack, Runnable rewind) {
+        BatchSender.Batch sends = batchSender.newBatch();
+        EventDeduplicator.Batch seen = deduplicator.newBatch();
+        Map<String, AuthorizationResult> authorizations;
         try {
-            for (OrderEvent event : events) {
-                processOrder(event);
-            }
+            authorizations = authorizeBatch(records, seen);
+        } catch (PaymentGatewayException e) {
+            // Решений нет ни по одному заказу: пачка перечитывается целиком, не расходуя повторы.
+            // При разомкнутой цепи листенер к этому моменту уже на паузе
+            log.warn("Payment gateway unavailable, batch of {} will be redelivered: {}", records.size(), e.getMessage());
+            rewind.run();
+            return;
+        }
+        try {
+            // Упавшие записи уходят в топики повторов, не задерживая партицию
+            batchExecutor.execute(records, record -> {
+                // Повторно доставленное событие уже обработано - пропускаем
+                String eventId = record.value().getEventId();
+                if (!seen.isDuplicate(eventId) && retryRouter.process(record, sends,
+                        (r, s) -> handleRecord(r, s, authorizations))) {
+                    seen.processed(eventId);
+                }
+            });
+            // Подтверждаем пачку только после того, как брокер принял все результаты
+            sends.complete();
+            seen.commit();
             ack.acknowledge();
+        } catch (BatchSendException e) {
+            log.error("Payment results not confirmed by Kafka, batch will be redelivered: {}", e.getMessage());
+            throw e;
         } catch (Exception e) {
-            log.error("Error processing orders batch: {}", e.getMessage());
-            // Можно реализовать dead letter queue
+            if (gatewayUnavailable(e)) {
+                // Шлюз отказал на авторизации заказа по одному: как и для всей пачки, повторы не расходуются
+                log.warn("Payment gateway unavailable mid-batch, batch of {} will be redelivered: {}",
+                        records.size(), e.getMessage());
+            } else {
+                log.error("Error processing orders batch, batch of {} will be redelivered: {}",
+                        records.size(), e.getMessage());
+            }
+            // Обработанные записи отмечены и при перечитывании пропускаются, остальные придут с теми же ключами
+            sends.complete();
+            seen.commit();
+            rewind.run();
         }
     }
 
-    @Retryable(
-            value = {Exception.class},
-            maxAttempts = 3,
-            backoff = @Backoff(delay = 1000, multiplier = 2)
-    )
-    private void processOrder(OrderEvent event) {
+    // KeyOrderedBatchExecutor при параллельной обработке заворачивает ошибку записи
+    private static boolean gatewayUnavailable(Exception e) {
+        return e instanceof PaymentGatewayException
+                || e instanceof BatchProcessingException && e.getCause() instanceof PaymentGatewayException;
+    }
+
+    // Повторы из топиков задержки авторизуются по одному
+    public void handleRecord(ConsumerRecord<String, OrderEvent> record, BatchSender.Batch sends) {
+        handleRecord(record, sends, Map.of());
+    }
+
+    private void handleRecord(ConsumerRecord<String, OrderEvent> record, BatchSender.Batch sends,
+                              Map<String, AuthorizationResult> authorizations) {
+        StageTracer.Trace trace = stageTracer.begin(record);
+        processOrder(record.value(), sends, trace, authorizations);
+        trace.end();
+    }
+
+    /**
+     * Все новые заказы пачки - одним запросом к шлюзу. Заказ без тела в кеше снимков сюда
+     * не попадает: его запись уйдёт в повтор из {@link #processOrder}.
+     */
+    private Map<String, AuthorizationResult> authorizeBatch(List<ConsumerRecord<String, OrderEvent>> records,
+                                                            EventDeduplicator.Batch seen) {
+        Map<String, AuthorizationRequest> requests = new LinkedHashMap<>();
+        for (ConsumerRecord<String, OrderEvent> record : records) {
+            if (seen.isDuplicate(record.value().getEventId())) {
+                continue;
+            }
+            try {
+                Order order = snapshotResolver.resolve(record.value());
+                requests.putIfAbsent(order.getId(), AuthorizationRequest.of(order));
+            } catch (RuntimeException e) {
+                log.debug("Order {} left out of the batch authorization: {}", record.value().getOrderId(), e.getMessage());
+            }
+        }
+        Map<String, AuthorizationResult> authorizations = new HashMap<>();
+        for (AuthorizationResult result : paymentGateway.authorize(List.copyOf(requests.values()))) {
+            authorizations.put(result.getOrderId(), result);
+        }
+        return authorizations;
+    }
+
+    private void processOrder(OrderEvent event, BatchSender.Batch sends, StageTracer.Trace trace,
+                              Map<String, AuthorizationResult> authorizations) {
         log.info("Processing payment for order: {}", event.getOrderId());
 
-        Order order = event.getPayload();
+        // В тонком событии тела заказа нет - берём из кеша order_snapshots
+        Order order = snapshotResolver.resolve(event);
 
         try {
-            // Имитация обработки платежа
-            boolean paymentSuccess = processPayment(order);
+            AuthorizationResult authorization = authorizations.get(order.getId());
+            if (authorization == null) {
+                authorization = paymentGateway.authorize(List.of(AuthorizationRequest.of(order))).get(0);
+            }
 
-            if (paymentSuccess) {
+            if (authorization.isApproved()) {
                 order.setStatus(OrderStatus.PAYMENT_COMPLETED);
-                OrderEvent paidEvent = new OrderEvent(
-                        order.getId(),
-                        EventType.PAYMENT_SUCCESS,
-                        order
-                );
+                OrderEvent paidEvent = snapshotResolver.next(event, order, EventType.PAYMENT_SUCCESS);
 
-                kafkaTemplate.send(payedOrdersTopic, order.getCustomerId(), paidEvent);
+                sends.send(payedOrdersTopic, order.getCustomerId(), paidEvent, trace.outgoing());
                 log.info("Payment successful for order: {}", order.getId());
             } else {
                 order.setStatus(OrderStatus.PAYMENT_FAILED);
-                OrderEvent failedEvent = new OrderEvent(
-                        order.getId(),
-                        EventType.PAYMENT_FAILED,
-                        order
-                );
+                OrderEvent failedEvent = snapshotResolver.next(event, order, EventType.PAYMENT_FAILED);
 
                 // Отправка в топик для неудачных платежей
-                kafkaTemplate.send("failed_payments", order.getCustomerId(), failedEvent);
-                log.warn("Payment failed for order: {}", order.getId());
+                sends.send("failed_payments", order.getCustomerId(), failedEvent, trace.outgoing());
+                log.warn("Payment failed for order {}: {}", order.getId(), authorization.getReason());
             }
         } catch (Exception e) {
             log.error("Error processing payment for order {}: {}",
@@ -87,9 +186,12 @@ public class PaymentService {
         }
     }
 
-    private boolean processPayment(Order order) {
-        // Имитация логики обработки платежа
-        // В реальном приложении здесь будет интеграция с платежным шлюзом
-        return Math.random() > 0.1; // 90% успешных платежей
+    // Каждая партиция пачки - к её первой записи; смещения пачки не подтверждены
+    private static void seekToBatchStart(List<ConsumerRecord<String, OrderEvent>> records, Consumer<?, ?> consumer) {
+        Map<TopicPartition, Long> first = new HashMap<>();
+        for (ConsumerRecord<String, OrderEvent> record : records) {
+            first.merge(new TopicPartition(record.topic(), record.partition()), record.offset(), Math::min);
+        }
+        first.forEach(consumer::seek);
     }
 }
@@ -0,0 +1,59 @@
+package com.example.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PaymentGatewayStubControllerTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void remembersKeysAndCountsDuplicateCharges() throws Exception {
+        PaymentGatewayStubController stub = stub(2);
+
+        authorize(stub, "batch-1", Map.of("orderId", "order-1", "idempotencyKey", "key-1"),
+                Map.of("orderId", "order-2", "idempotencyKey", "key-2"));
+        // Пачка перечитана в другом составе, заказ 1 - с прежним ключом
+        authorize(stub, "batch-2", Map.of("orderId", "order-1", "idempotencyKey", "key-1"));
+        assertThat(stub.getIdempotency()).containsEntry("charged", 2L).containsEntry("replayed", 1L)
+                .containsEntry("duplicateCharges", 0L);
+
+        // Без ключа у авторизации берётся ключ запроса из одного заказа
+        authorize(stub, "key-2", Map.of("orderId", "order-2"));
+        assertThat(stub.getIdempotency()).containsEntry("replayed", 2L).containsEntry("duplicateCharges", 0L);
+
+        authorize(stub, "batch-3", Map.of("orderId", "order-2", "idempotencyKey", "other-key"));
+        assertThat(stub.getIdempotency()).containsEntry("charged", 3L).containsEntry("duplicateCharges", 1L);
+
+        // Старые заказы вытесняются по idempotency-capacity
+        authorize(stub, "batch-4", Map.of("orderId", "order-3", "idempotencyKey", "key-3"));
+        assertThat(stub.getIdempotency()).containsEntry("remembered", 2);
+    }
+
+    private PaymentGatewayStubController stub(int capacity) {
+        PaymentGatewayStubController stub = new PaymentGatewayStubController();
+        ReflectionTestUtils.setField(stub, "enabled", true);
+        ReflectionTestUtils.setField(stub, "approveRate", 0.9);
+        ReflectionTestUtils.setField(stub, "latency", Duration.ZERO);
+        ReflectionTestUtils.setField(stub, "slowLatency", Duration.ZERO);
+        ReflectionTestUtils.setField(stub, "idempotencyCapacity", capacity);
+        return stub;
+    }
+
+    @SafeVarargs
+    private void authorize(PaymentGatewayStubController stub, String requestKey,
+                           Map<String, Object>... authorizations) throws Exception {
+        JsonNode body = mapper.valueToTree(Map.of("authorizations", List.of(authorizations)));
+        ResponseEntity<Object> response = stub.authorize(requestKey, body).get();
+        assertThat(response.getStatusCode().value()).isEqualTo(200);
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.payment;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HttpPaymentGatewayTest {
+
+    @Test
+    void idempotencyKeysDependOnlyOnOrders() {
+        AuthorizationRequest first = new AuthorizationRequest("order-1", "customer-1", 1_000, "USD");
+        AuthorizationRequest second = new AuthorizationRequest("order-2", "customer-2", 2_000, "USD");
+
+        // Перечитанная пачка в другом порядке - тот же ключ запроса
+        assertThat(HttpPaymentGateway.idempotencyKey(List.of(first, second)))
+                .isEqualTo(HttpPaymentGateway.idempotencyKey(List.of(second, first)))
+                .isNotEqualTo(HttpPaymentGateway.idempotencyKey(List.of(first)));
+        // Авторизация заказа по одному - с ключом его авторизации из пачки
+        assertThat(HttpPaymentGateway.idempotencyKey(List.of(first)))
+                .isEqualTo(HttpPaymentGateway.idempotencyKey("order-1"))
+                .isEqualTo(HttpPaymentGateway.idempotencyKey("order-1"))
+                .isNotEqualTo(HttpPaymentGateway.idempotencyKey("order-2"));
+    }
+}
@@ -0,0 +1,8 @@
+package com.example.config;
+
+import com.example.accesslog.AccessLogConfigSupport;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class AccessLogConfig extends AccessLogConfigSupport {
+}
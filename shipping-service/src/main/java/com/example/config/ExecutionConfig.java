@@ -0,0 +1,30 @@
+package com.example.config;
+
+import com.example.processing.BoundedExecutor;
+import com.example.processing.ExecutionConfigSupport;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Исполнители запросов Tomcat, обработки записей листенера и упаковки посылок: на JDK 21+ -
+ * виртуальные потоки, поверх них лимиты из {@code execution.*}.
+ */
+@Configuration
+public class ExecutionConfig extends ExecutionConfigSupport {
+
+    // block: поток листенера ждёт места, то есть poll сам притормаживает
+    @Bean(destroyMethod = "close")
+    public BoundedExecutor listenerExecutor() {
+        return boundedExecutor("shipping-worker", "listener", new BoundedExecutor.Limits(32, 1000,
+                BoundedExecutor.Rejection.BLOCK, Duration.ofSeconds(30)));
+    }
+
+    // Упаковка консолидированных посылок; block: при заполнении ждут и листенер, и колесо таймеров
+    @Bean(destroyMethod = "close")
+    public BoundedExecutor packerExecutor() {
+        return boundedExecutor("shipping-packer", "packer", new BoundedExecutor.Limits(32, 1000,
+                BoundedExecutor.Rejection.BLOCK, Duration.ofSeconds(30)));
+    }
+}
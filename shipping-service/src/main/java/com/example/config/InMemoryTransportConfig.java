@@ -0,0 +1,41 @@
+package com.example.config;
+
+import com.example.model.OrderEvent;
+import com.example.processing.BatchSender;
+import com.example.processing.EventDeduplicator;
+import com.example.processing.RetryTopicRouter;
+import com.example.service.ShippingService;
+import com.example.snapshot.OrderSnapshotCache;
+import com.example.transport.InMemoryListeners;
+import com.example.transport.InMemoryTransportConfigSupport;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import java.util.List;
+
+@Configuration
+@Profile("in-memory")
+public class InMemoryTransportConfig extends InMemoryTransportConfigSupport {
+
+    @Value("${kafka.topics.payed-orders}")
+    private String payedOrdersTopic;
+
+    @Value("${kafka.topics.order-snapshots}")
+    private String orderSnapshotsTopic;
+
+    @Bean
+    public InMemoryListeners shippingInMemoryListeners(ShippingService shippingService,
+                                                       RetryTopicRouter retryTopicRouter,
+                                                       BatchSender batchSender,
+                                                       EventDeduplicator eventDeduplicator,
+                                                       OrderSnapshotCache orderSnapshotCache) {
+        return listeners()
+                .<OrderEvent>listen("shipping-group", List.of(payedOrdersTopic),
+                        (records, delivery) -> shippingService.processBatch(records, delivery, delivery::rewind))
+                .listenRetries(retryTopicRouter, payedOrdersTopic, "shipping-group-retry", batchSender,
+                        eventDeduplicator, OrderEvent::getEventId, shippingService::handleRecord)
+                .<OrderEvent>listen("shipping-snapshots", List.of(orderSnapshotsTopic), orderSnapshotCache::onMessage);
+    }
+}
@@ -1,18 +1,37 @@
 package com.example.config;
 
 
+import com.example.codec.OrderEventDeserializer;
 import com.example.model.OrderEvent;
+import com.example.processing.BatchSender;
+import com.example.processing.BatchTimings;
+import com.example.processing.BoundedExecutor;
+import com.example.processing.EventDeduplicator;
+import com.example.processing.KeyOrderedBatchExecutor;
+import com.example.service.ShippingService;
+import com.example.tracing.LatencyMetrics;
+import com.example.tracing.StageTracer;
+import com.example.transport.EventTransport;
+import com.example.transport.KafkaEventTransport;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.common.serialization.StringDeserializer;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaProducerFactoryCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
 import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
 import org.springframework.kafka.listener.ContainerProperties;
 import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.transaction.KafkaTransactionManager;
 
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -25,30 +44,134 @@ public class KafkaConfig {
     @Value("${kafka.consumer.concurrency:3}")
     private int concurrency;
 
+    // Стартовое значение; дальше его подстраивает AdaptiveConsumerController
+    @Value("${kafka.consumer.max-poll-records:10}")
+    private int maxPollRecords;
+
+    @Value("${kafka.consumer.parallel.enabled:true}")
+    private boolean parallelEnabled;
+
+    @Value("${kafka.consumer.parallel.max-in-flight-per-partition:10}")
+    private int maxInFlightPerPartition;
+
+    @Value("${kafka.dedup.capacity:1048576}")
+    private int dedupCapacity;
+
+    @Value("${kafka.dedup.window:10m}")
+    private Duration dedupWindow;
+
+    @Value("${kafka.producer.send-attempts:3}")
+    private int sendAttempts;
+
+    @Value("${kafka.producer.send-timeout-ms:30000}")
+    private long sendTimeoutMs;
+
+    @Value("${kafka.transactions.enabled:false}")
+    private boolean transactionsEnabled;
+
+    @Value("${kafka.transactions.id-prefix:shipping-tx-}")
+    private String transactionIdPrefix;
+
+    // false в профиле in-memory: записи доставляет InMemoryTransport
+    @Value("${kafka.listeners.auto-startup:true}")
+    private boolean autoStartup;
+
     @Bean
     public ConsumerFactory<String, OrderEvent> consumerFactory() {
         Map<String, Object> configProps = new HashMap<>();
         configProps.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
         configProps.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class);
-        configProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, JsonDeserializer.class);
+        configProps.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, OrderEventDeserializer.class);
         configProps.put(ConsumerConfig.GROUP_ID_CONFIG, "shipping-group");
         configProps.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
         configProps.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
-        configProps.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, 10);
+        configProps.put(ConsumerConfig.MAX_POLL_RECORDS_CONFIG, maxPollRecords);
+        // Записи из транзакций видны только после коммита; для нетранзакционных продюсеров ничего не меняет
+        configProps.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
         configProps.put(JsonDeserializer.TRUSTED_PACKAGES, "com.example.model");
 
         return new DefaultKafkaConsumerFactory<>(configProps);
     }
 
     @Bean
-    public ConcurrentKafkaListenerContainerFactory<String, OrderEvent> kafkaListenerContainerFactory() {
+    public ConcurrentKafkaListenerContainerFactory<String, OrderEvent> kafkaListenerContainerFactory(
+            ProducerFactory<String, Object> producerFactory,
+            ConsumerAwareRebalanceListener shipmentRebalanceListener) {
         ConcurrentKafkaListenerContainerFactory<String, OrderEvent> factory =
                 new ConcurrentKafkaListenerContainerFactory<>();
         factory.setConsumerFactory(consumerFactory());
         factory.setConcurrency(concurrency);
         factory.getContainerProperties().setAckMode(ContainerProperties.AckMode.MANUAL_IMMEDIATE);
         factory.setBatchListener(true);
+        factory.setBatchInterceptor(batchTimings());
+        factory.setAutoStartup(autoStartup);
+
+        // Результаты пачки и её смещения коммитятся одной транзакцией. Только у основного
+        // листенера: топики повторов и снимки остаются at-least-once с дедупликацией.
+        // Без транзакций основной листенер при отзыве партиций отгружает их открытые окна консолидации
+        KafkaTransactionManager<String, Object> transactionManager = transactionsEnabled
+                ? new KafkaTransactionManager<>(producerFactory) : null;
+        factory.setContainerCustomizer(container -> {
+            if (!ShippingService.LISTENER_ID.equals(container.getListenerId())) {
+                return;
+            }
+            if (transactionManager != null) {
+                container.getContainerProperties().setKafkaAwareTransactionManager(transactionManager);
+            } else {
+                container.getContainerProperties().setConsumerRebalanceListener(shipmentRebalanceListener);
+            }
+        });
 
         return factory;
     }
+
+    // Продюсер настраивается Spring Boot из spring.kafka.producer, транзакционность - из kafka.transactions
+    @Bean
+    public DefaultKafkaProducerFactoryCustomizer transactionalProducerCustomizer() {
+        return producerFactory -> {
+            if (transactionsEnabled) {
+                producerFactory.setTransactionIdPrefix(transactionIdPrefix);
+            }
+        };
+    }
+
+    // В профиле in-memory транспорт даёт InMemoryTransportConfig
+    @Bean
+    @Profile("!in-memory")
+    public EventTransport eventTransport(KafkaTemplate<String, Object> kafkaTemplate) {
+        return new KafkaEventTransport(kafkaTemplate);
+    }
+
+    @Bean
+    public BatchSender batchSender(EventTransport eventTransport) {
+        return new BatchSender(eventTransport, sendAttempts, Duration.ofMillis(sendTimeoutMs));
+    }
+
+    @Bean(destroyMethod = "close")
+    public KeyOrderedBatchExecutor batchExecutor(@Qualifier("listenerExecutor") BoundedExecutor listenerExecutor) {
+        if (!parallelEnabled) {
+            return KeyOrderedBatchExecutor.sequential();
+        }
+        return new KeyOrderedBatchExecutor(maxInFlightPerPartition, listenerExecutor);
+    }
+
+    @Bean
+    public EventDeduplicator eventDeduplicator() {
+        return new EventDeduplicator(dedupCapacity, dedupWindow);
+    }
+
+    @Bean
+    public BatchTimings<String, OrderEvent> batchTimings() {
+        return new BatchTimings<>();
+    }
+
+    @Bean
+    public LatencyMetrics latencyMetrics() {
+        return new LatencyMetrics();
+    }
+
+    @Bean
+    public StageTracer stageTracer() {
+        return new StageTracer("shipping", "payment", latencyMetrics());
+    }
 }
@@ -0,0 +1,103 @@
+package com.example.config;
+
+import com.example.processing.BatchSender;
+import com.example.processing.BoundedExecutor;
+import com.example.processing.DeliveryTracker;
+import com.example.processing.TimerWheel;
+import com.example.shipping.ShipmentConsolidator;
+import com.example.shipping.ShipmentPacker;
+import com.example.snapshot.OrderSnapshotResolver;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.listener.ConsumerAwareRebalanceListener;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+@Configuration
+@Slf4j
+public class ShippingConfig {
+
+    @Value("${kafka.topics.sent-orders}")
+    private String sentOrdersTopic;
+
+    @Value("${shipping.packing.parcel-time:500ms}")
+    private Duration parcelTime;
+
+    @Value("${shipping.packing.order-time:50ms}")
+    private Duration orderTime;
+
+    @Value("${shipping.consolidation.enabled:true}")
+    private boolean consolidationEnabled;
+
+    @Value("${shipping.consolidation.window:30s}")
+    private Duration window;
+
+    @Value("${shipping.consolidation.max-orders:10}")
+    private int maxOrders;
+
+    @Value("${shipping.consolidation.max-customers:10000}")
+    private int maxCustomers;
+
+    @Value("${shipping.consolidation.max-held-orders:5000}")
+    private int maxHeldOrders;
+
+    @Value("${shipping.consolidation.tick:100ms}")
+    private Duration tick;
+
+    @Value("${shipping.consolidation.wheel-size:1024}")
+    private int wheelSize;
+
+    @Value("${shipping.consolidation.drain-timeout:30s}")
+    private Duration drainTimeout;
+
+    @Value("${kafka.transactions.enabled:false}")
+    private boolean transactionsEnabled;
+
+    @Bean
+    public ShipmentPacker shipmentPacker(BatchSender batchSender, OrderSnapshotResolver orderSnapshotResolver) {
+        return new ShipmentPacker(batchSender, orderSnapshotResolver, sentOrdersTopic, parcelTime, orderTime);
+    }
+
+    @Bean(destroyMethod = "close")
+    public TimerWheel shippingTimerWheel() {
+        return new TimerWheel("shipping-timer", tick, wheelSize);
+    }
+
+    // Останавливается раньше контейнеров: открытые окна успевают уйти, а их смещения - подтвердиться
+    @Bean(destroyMethod = "close")
+    public ShipmentConsolidator shipmentConsolidator(ShipmentPacker shipmentPacker,
+                                                     @Qualifier("packerExecutor") BoundedExecutor packerExecutor) {
+        if (consolidationEnabled && transactionsEnabled) {
+            log.warn("Shipment consolidation is disabled in transactional mode, orders are shipped one by one");
+        }
+        return new ShipmentConsolidator(shipmentPacker, packerExecutor, shippingTimerWheel(), window, maxOrders,
+                maxCustomers, maxHeldOrders, drainTimeout);
+    }
+
+    // Пачки потока подтверждаются по порядку и несут смещения всех его партиций, поэтому при
+    // отзыве отгружаются окна всех партиций консьюмера, а не только отозванных
+    @Bean
+    public ConsumerAwareRebalanceListener shipmentRebalanceListener(ShipmentConsolidator shipmentConsolidator) {
+        return new ConsumerAwareRebalanceListener() {
+            @Override
+            public void onPartitionsRevokedBeforeCommit(Consumer<?, ?> consumer, Collection<TopicPartition> partitions) {
+                Set<TopicPartition> owned = new HashSet<>(consumer.assignment());
+                owned.addAll(partitions);
+                shipmentConsolidator.flush(owned, drainTimeout);
+            }
+        };
+    }
+
+    @Bean
+    public DeliveryTracker deliveryTracker() {
+        return new DeliveryTracker();
+    }
+}
@@ -1,20 +1,30 @@
 package com.example.controller;
 
 import com.example.service.ShippingService;
+import com.example.shipping.ShipmentConsolidator;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Map;
+
 @RestController
 @RequestMapping("/api/shipping")
 @RequiredArgsConstructor
 public class ShippingController {
 
     private final ShippingService shippingService;
+    private final ShipmentConsolidator shipmentConsolidator;
 
     @GetMapping("/status/{orderId}")
     public ResponseEntity<String> getShippingStatus(@PathVariable String orderId) {
         String status = shippingService.getShippingStatus(orderId);
         return ResponseEntity.ok(status);
     }
+
+    // Консолидация отгрузок: заказов на посылку, открытые окна, упаковка
+    @GetMapping("/consolidation")
+    public ResponseEntity<Map<String, Object>> getConsolidationStats() {
+        return ResponseEntity.ok(shipmentConsolidator.stats());
+    }
 }
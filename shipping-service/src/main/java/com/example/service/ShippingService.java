@@ -1,20 +1,29 @@
 package com.example.service;
 
 
-import com.example.model.EventType;
 import com.example.model.Order;
 import com.example.model.OrderEvent;
-import com.example.model.OrderStatus;
+import com.example.processing.BatchSendException;
+import com.example.processing.BatchSender;
+import com.example.processing.DeliveryCallback;
+import com.example.processing.DeliveryTracker;
+import com.example.processing.EventDeduplicator;
+import com.example.processing.KeyOrderedBatchExecutor;
+import com.example.processing.RetryTopicRouter;
+import com.example.shipping.Shipment;
+import com.example.shipping.ShipmentConsolidator;
+import com.example.shipping.ShipmentPacker;
+import com.example.snapshot.OrderSnapshotResolver;
+import com.example.tracing.StageTracer;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.kafka.annotation.KafkaListener;
-import org.springframework.kafka.core.KafkaTemplate;
 import org.springframework.kafka.support.Acknowledgment;
-import org.springframework.messaging.handler.annotation.Payload;
-import org.springframework.retry.annotation.Backoff;
-import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -24,62 +33,121 @@ import java.util.List;
 @RequiredArgsConstructor(onConstructor_ = {@Autowired})
 public class ShippingService {
 
-    private final KafkaTemplate<String, Object> kafkaTemplate;
+    public static final String LISTENER_ID = "shipping-listener";
 
-    @Value("${kafka.topics.sent-orders}")
-    private String sentOrdersTopic;
+    private final BatchSender batchSender;
+    private final KeyOrderedBatchExecutor batchExecutor;
+    private final StageTracer stageTracer;
+    private final RetryTopicRouter retryRouter;
+    private final EventDeduplicator deduplicator;
+    private final OrderSnapshotResolver snapshotResolver;
+    private final ShipmentConsolidator consolidator;
+    private final ShipmentPacker packer;
+    private final DeliveryTracker deliveryTracker;
+
+    @Value("${shipping.consolidation.enabled:true}")
+    private boolean consolidationEnabled;
+
+    @Value("${kafka.transactions.enabled:false}")
+    private boolean transactionsEnabled;
 
     @KafkaListener(
+            id = LISTENER_ID,
             topics = "${kafka.topics.payed-orders}",
             groupId = "shipping-group",
             containerFactory = "kafkaListenerContainerFactory"
     )
-    public void processPaidOrders(@Payload List<OrderEvent> events, Acknowledgment ack) {
+    public void processPaidOrders(List<ConsumerRecord<String, OrderEvent>> records, Acknowledgment ack,
+                                  Consumer<?, ?> consumer) {
+        processBatch(records, ack, DeliveryTracker.seekToCommitted(consumer));
+    }
+
+    /**
+     * Обработка пачки независимо от транспорта: {@code rewind} возвращает к чтению
+     * с первой неподтверждённой пачки этого потока.
+     */
+    public void processBatch(List<ConsumerRecord<String, OrderEvent>> records, Acknowledgment ack, Runnable rewind) {
+        // Консолидированные посылки отгружаются вне транзакции пачки: в exactly-once заказы идут по одному
+        if (!consolidationEnabled || transactionsEnabled) {
+            shipIndividually(records, ack, rewind);
+            return;
+        }
+        if (deliveryTracker.rewindIfFailed(rewind)) {
+            // Эта пачка будет перечитана после перемотки вместе с неотгруженными
+            return;
+        }
+        // Пачка подтверждается, когда отгружены все её заказы и подтверждены предыдущие пачки
+        DeliveryTracker.Batch delivery = deliveryTracker.begin(ack);
+        BatchSender.Batch sends = batchSender.newBatch();
         try {
-            for (OrderEvent event : events) {
-                processOrderShipping(event);
-            }
+            batchExecutor.execute(records, record -> {
+                // Повторно доставленное событие уже обработано - пропускаем
+                if (deduplicator.isDuplicate(record.value().getEventId())) {
+                    return;
+                }
+                DeliveryCallback callback = delivery.track();
+                if (!retryRouter.process(record, sends, (r, s) -> consolidate(r, callback))) {
+                    // Запись передана в топик повтора - дальше она не ждёт отгрузки
+                    callback.delivered();
+                }
+            });
+            sends.complete();
+            delivery.seal();
+        } catch (BatchSendException e) {
+            delivery.fail();
+            log.error("Shipping retries not confirmed by Kafka, batch will be redelivered: {}", e.getMessage());
+            throw e;
+        } catch (Exception e) {
+            delivery.fail();
+            log.error("Error processing paid orders batch, rewinding to committed offsets: {}", e.getMessage());
+            deliveryTracker.rewind(rewind);
+        }
+    }
+
+    private void shipIndividually(List<ConsumerRecord<String, OrderEvent>> records, Acknowledgment ack,
+                                  Runnable rewind) {
+        BatchSender.Batch sends = batchSender.newBatch();
+        EventDeduplicator.Batch seen = deduplicator.newBatch();
+        try {
+            // Заказы разных клиентов упаковываются параллельно, одного клиента - по порядку
+            batchExecutor.execute(records, record -> {
+                // Повторно доставленное событие уже обработано - пропускаем
+                String eventId = record.value().getEventId();
+                if (!seen.isDuplicate(eventId) && retryRouter.process(record, sends, this::handleRecord)) {
+                    seen.processed(eventId);
+                }
+            });
+            sends.complete();
+            seen.commit();
             ack.acknowledge();
+        } catch (BatchSendException e) {
+            log.error("Shipping results not confirmed by Kafka, batch will be redelivered: {}", e.getMessage());
+            throw e;
         } catch (Exception e) {
-            log.error("Error processing paid orders batch: {}", e.getMessage());
+            log.error("Error processing paid orders batch, batch of {} will be redelivered: {}",
+                    records.size(), e.getMessage());
+            // Обработанные записи отмечены и при перечитывании пропускаются
+            sends.complete();
+            seen.commit();
+            rewind.run();
         }
     }
 
-    @Retryable(
-            value = {Exception.class},
-            maxAttempts = 3,
-            backoff = @Backoff(delay = 1000, multiplier = 2)
-    )
-    public void processOrderShipping(OrderEvent event) {
+    // Повторы идут в обход консолидации: заказ упаковывается отдельной посылкой
+    public void handleRecord(ConsumerRecord<String, OrderEvent> record, BatchSender.Batch sends) {
+        StageTracer.Trace trace = stageTracer.begin(record);
+        processOrderShipping(record.value(), sends, trace);
+        trace.end();
+    }
+
+    public void processOrderShipping(OrderEvent event, BatchSender.Batch sends, StageTracer.Trace trace) {
         log.info("Processing shipping for order: {}", event.getOrderId());
 
-        Order order = event.getPayload();
+        // В тонком событии тела заказа нет - берём из кеша order_snapshots
+        Order order = snapshotResolver.resolve(event);
 
         try {
-            // Имитация процесса упаковки и отправки
-            boolean shippingSuccess = processShipping(order);
-
-            if (shippingSuccess) {
-                order.setStatus(OrderStatus.SHIPPED);
-                OrderEvent shippedEvent = new OrderEvent(
-                        order.getId(),
-                        EventType.SHIPMENT_SUCCESS,
-                        order
-                );
-
-                kafkaTemplate.send(sentOrdersTopic, order.getCustomerId(), shippedEvent);
-                log.info("Order {} shipped successfully", order.getId());
-            } else {
-                order.setStatus(OrderStatus.CANCELLED);
-                OrderEvent failedEvent = new OrderEvent(
-                        order.getId(),
-                        EventType.SHIPMENT_FAILED,
-                        order
-                );
-
-                kafkaTemplate.send("failed_shipments", order.getCustomerId(), failedEvent);
-                log.warn("Shipping failed for order: {}", order.getId());
-            }
+            packer.pack(Shipment.of(new Shipment.Item(event, order, trace, DeliveryCallback.NONE)), sends);
         } catch (Exception e) {
             log.error("Error processing shipping for order {}: {}",
                     order.getId(), e.getMessage());
@@ -87,20 +155,14 @@ public class ShippingService {
         }
     }
 
-    private boolean processShipping(Order order) {
-        // Имитация логики обработки отгрузки
-        // В реальном приложении здесь будет интеграция с логистическими службами
-        log.info("Packaging order {} for customer {}", order.getId(), order.getCustomerId());
-
-        // Симуляция процесса упаковки
-        try {
-            Thread.sleep(500); // Имитация времени на упаковку
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
+    private void consolidate(ConsumerRecord<String, OrderEvent> record, DeliveryCallback delivery) {
+        StageTracer.Trace trace = stageTracer.begin(record);
+        log.debug("Consolidating shipment for order: {}", record.value().getOrderId());
 
-        // 95% успешных отгрузок
-        return Math.random() > 0.05;
+        Order order = snapshotResolver.resolve(record.value());
+        // Заказ уйдёт посылкой при закрытии окна клиента
+        consolidator.add(new TopicPartition(record.topic(), record.partition()),
+                new Shipment.Item(record.value(), order, trace, new RecordDelivery(record, delivery)));
     }
 
     // REST endpoint для проверки статуса отгрузки
@@ -108,4 +170,35 @@ public class ShippingService {
         // В реальном приложении здесь будет запрос к базе данных
         return "SHIPPED";
     }
+
+    private final class RecordDelivery implements DeliveryCallback {
+
+        private final ConsumerRecord<String, OrderEvent> record;
+        private final DeliveryCallback delivery;
+
+        RecordDelivery(ConsumerRecord<String, OrderEvent> record, DeliveryCallback delivery) {
+            this.record = record;
+            this.delivery = delivery;
+        }
+
+        @Override
+        public void delivered() {
+            deduplicator.markProcessed(record.value().getEventId());
+            delivery.delivered();
+        }
+
+        // Неотгруженный заказ уходит в топик повтора, как ошибка обработки в листенере
+        @Override
+        public void failed(Exception error) {
+            BatchSender.Batch sends = batchSender.newBatch();
+            try {
+                retryRouter.route(record, error, sends);
+                sends.complete();
+                delivery.delivered();
+            } catch (RuntimeException e) {
+                log.error("Failed to route unshipped order {}: {}", record.value().getOrderId(), e.getMessage());
+                delivery.failed(e);
+            }
+        }
+    }
 }
@@ -0,0 +1,32 @@
+package com.example.shipping;
+
+import com.example.model.Order;
+import com.example.model.OrderEvent;
+import com.example.processing.DeliveryCallback;
+import com.example.tracing.StageTracer;
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Посылка: оплаченные заказы одного клиента, которые упаковываются и отгружаются вместе.
+ */
+@Value
+public class Shipment {
+
+    String customerId;
+    List<Item> items;
+
+    public static Shipment of(Item item) {
+        return new Shipment(item.getOrder().getCustomerId(), List.of(item));
+    }
+
+    @Value
+    public static class Item {
+        OrderEvent event;
+        Order order;
+        StageTracer.Trace trace;
+        // Результат отгрузки заказа: подтверждение записи или её передача на повтор
+        DeliveryCallback callback;
+    }
+}
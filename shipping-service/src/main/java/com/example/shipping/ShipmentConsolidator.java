@@ -0,0 +1,286 @@
+package com.example.shipping;
+
+import com.example.processing.TimerWheel;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.context.SmartLifecycle;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Консолидация отгрузок по customerId: оплаченные заказы клиента копятся в окне и уходят
+ * одной посылкой по истечении {@code window} или при наборе {@code maxOrders}.
+ * <p>
+ * Память ограничена: не больше {@code maxCustomers} открытых окон и {@code maxHeldOrders}
+ * заказов в них. Если лимит окон исчерпан, заказ отгружается сразу отдельной посылкой; если
+ * исчерпан лимит заказов, окно клиента уходит сразу вместе с новым заказом. Истечение окон
+ * обслуживает одно колесо таймеров, упаковка идёт в исполнителе упаковщиков.
+ * <p>
+ * Окно привязано к партиции своих записей. {@link #flush} при отзыве партиций отгружает
+ * их окна и ждёт упаковки, чтобы смещения подтвердились до перехода партиций к другому
+ * консьюмеру. Остановка (раньше контейнеров Kafka) так же отгружает все открытые окна.
+ */
+@Slf4j
+public class ShipmentConsolidator implements SmartLifecycle, AutoCloseable {
+
+    private final ShipmentPacker packer;
+    private final Executor packers;
+    private final TimerWheel timerWheel;
+    private final Duration window;
+    private final int maxOrders;
+    private final int maxCustomers;
+    private final int maxHeldOrders;
+    private final Duration drainTimeout;
+
+    private final Map<Key, Window> windows = new ConcurrentHashMap<>();
+    private final Set<Packing> packing = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger openWindows = new AtomicInteger();
+    private final AtomicInteger heldOrders = new AtomicInteger();
+    private volatile boolean closed;
+    private volatile boolean running;
+
+    private final LongAdder orders = new LongAdder();
+    private final LongAdder shipments = new LongAdder();
+    private final LongAdder overflowed = new LongAdder();
+    private final LongAdder flushedOnRevoke = new LongAdder();
+
+    public ShipmentConsolidator(ShipmentPacker packer, Executor packers, TimerWheel timerWheel,
+                                Duration window, int maxOrders, int maxCustomers, int maxHeldOrders,
+                                Duration drainTimeout) {
+        if (maxOrders <= 0 || maxCustomers <= 0 || maxHeldOrders <= 0) {
+            throw new IllegalArgumentException("Invalid consolidation limits: max-orders " + maxOrders
+                    + ", max-customers " + maxCustomers + ", max-held-orders " + maxHeldOrders);
+        }
+        this.packer = packer;
+        this.packers = packers;
+        this.timerWheel = timerWheel;
+        this.window = window;
+        this.maxOrders = maxOrders;
+        this.maxCustomers = maxCustomers;
+        this.maxHeldOrders = maxHeldOrders;
+        this.drainTimeout = drainTimeout;
+    }
+
+    public void add(TopicPartition partition, Shipment.Item item) {
+        orders.increment();
+        Key key = new Key(partition, item.getOrder().getCustomerId());
+        if (closed) {
+            dispatch(key, List.of(item));
+            return;
+        }
+
+        // Окно, которое нужно отгрузить после выхода из compute: заполненное или не открытое из-за лимита
+        Window[] ready = new Window[1];
+        windows.compute(key, (k, current) -> {
+            if (current == null) {
+                boolean full = heldOrders.get() >= maxHeldOrders;
+                if (!full && openWindows.incrementAndGet() > maxCustomers) {
+                    openWindows.decrementAndGet();
+                    full = true;
+                }
+                if (full) {
+                    overflowed.increment();
+                    ready[0] = new Window(k);
+                    ready[0].items.add(item);
+                    return null;
+                }
+                current = new Window(k);
+                Window opened = current;
+                current.timeout = timerWheel.schedule(() -> expire(opened), window);
+            }
+            current.items.add(item);
+            if (heldOrders.incrementAndGet() > maxHeldOrders || current.items.size() >= maxOrders) {
+                current.timeout.cancel();
+                openWindows.decrementAndGet();
+                heldOrders.addAndGet(-current.items.size());
+                ready[0] = current;
+                return null;
+            }
+            return current;
+        });
+        if (ready[0] != null) {
+            dispatch(key, ready[0].items);
+        }
+    }
+
+    /**
+     * Отгружает окна перечисленных партиций и ждёт упаковки их посылок, включая начатые раньше.
+     */
+    public boolean flush(Collection<TopicPartition> partitions, Duration timeout) {
+        int flushed = 0;
+        for (Window open : new ArrayList<>(windows.values())) {
+            if (partitions.contains(open.key.partition) && expire(open)) {
+                flushed++;
+            }
+        }
+        flushedOnRevoke.add(flushed);
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        for (Packing shipment : packing) {
+            if (partitions.contains(shipment.partition)) {
+                pending.add(shipment.done);
+            }
+        }
+        log.info("Flushed {} open shipment window(s), waiting for {} parcel(s) of {} partition(s)",
+                flushed, pending.size(), partitions.size());
+        return await(pending, timeout);
+    }
+
+    public int openWindows() {
+        return openWindows.get();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long shipped = shipments.sum();
+        stats.put("orders", orders.sum());
+        stats.put("shipments", shipped);
+        stats.put("ordersPerShipment", shipped > 0 ? (double) (orders.sum() - heldOrders.get()) / shipped : 0.0);
+        stats.put("overflowed", overflowed.sum());
+        stats.put("flushedOnRevoke", flushedOnRevoke.sum());
+        stats.put("openWindows", openWindows.get());
+        stats.put("heldOrders", heldOrders.get());
+        stats.put("packing", packing.size());
+        packer.stats("packer", stats);
+        return stats;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    /**
+     * Отгружает все открытые окна и ждёт упаковки; заказы, пришедшие после остановки, уходят без склейки.
+     */
+    @Override
+    public void stop() {
+        running = false;
+        closed = true;
+        int flushed = 0;
+        for (Window open : new ArrayList<>(windows.values())) {
+            if (expire(open)) {
+                flushed++;
+            }
+        }
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        for (Packing shipment : packing) {
+            pending.add(shipment.done);
+        }
+        await(pending, drainTimeout);
+        log.info("Shipment consolidator stopped, {} open window(s) flushed", flushed);
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public void close() {
+        if (!closed) {
+            stop();
+        }
+    }
+
+    private boolean expire(Window open) {
+        if (!windows.remove(open.key, open)) {
+            // Окно уже отгружено по размеру, при отзыве партиции или при остановке
+            return false;
+        }
+        open.timeout.cancel();
+        openWindows.decrementAndGet();
+        heldOrders.addAndGet(-open.items.size());
+        dispatch(open.key, open.items);
+        return true;
+    }
+
+    // Упаковка идёт в исполнителе: колесо таймеров и поток листенера её не ждут
+    private void dispatch(Key key, List<Shipment.Item> items) {
+        shipments.increment();
+        Shipment shipment = new Shipment(key.customerId, List.copyOf(items));
+        Packing tracked = new Packing(key.partition);
+        packing.add(tracked);
+        try {
+            packers.execute(() -> {
+                try {
+                    packer.ship(shipment);
+                } finally {
+                    packing.remove(tracked);
+                    tracked.done.complete(null);
+                }
+            });
+        } catch (RuntimeException e) {
+            packing.remove(tracked);
+            tracked.done.complete(null);
+            log.error("Failed to queue shipment for customer {}: {}", key.customerId, e.getMessage());
+            for (Shipment.Item item : items) {
+                item.getCallback().failed(e);
+            }
+        }
+    }
+
+    private static boolean await(List<CompletableFuture<Void>> pending, Duration timeout) {
+        try {
+            CompletableFuture.allOf(pending.toArray(new CompletableFuture[0]))
+                    .get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            log.warn("{} parcel(s) still packing after {}", pending.stream().filter(f -> !f.isDone()).count(), timeout);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // Посылки завершаются только успешно: ошибки упаковки уходят в callback'и заказов
+            log.error("Unexpected shipment failure: {}", e.getMessage());
+        }
+        return false;
+    }
+
+    // Ключ клиента вместе с партицией: окно принадлежит одному консьюмеру
+    @Value
+    private static class Key {
+        TopicPartition partition;
+        String customerId;
+    }
+
+    private static final class Window {
+
+        final Key key;
+        // Меняется только внутри compute, после удаления из map - только читается
+        final List<Shipment.Item> items = new ArrayList<>();
+        TimerWheel.Timeout timeout;
+
+        Window(Key key) {
+            this.key = key;
+        }
+    }
+
+    private static final class Packing {
+
+        final TopicPartition partition;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        Packing(TopicPartition partition) {
+            this.partition = partition;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.shipping;
+
+import com.example.model.EventType;
+import com.example.model.Order;
+import com.example.model.OrderEvent;
+import com.example.model.OrderStatus;
+import com.example.processing.BatchSender;
+import com.example.snapshot.OrderSnapshotResolver;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Упаковка посылки и результаты отгрузки: одна упаковка на посылку, по событию
+ * SHIPMENT_SUCCESS или SHIPMENT_FAILED на каждый её заказ.
+ * <p>
+ * Время упаковки - {@code parcelTime} на посылку плюс {@code orderTime} на каждый следующий
+ * заказ в ней, поэтому склейка заказов клиента снижает работу на заказ.
+ */
+@Slf4j
+public class ShipmentPacker {
+
+    private final BatchSender batchSender;
+    private final OrderSnapshotResolver snapshotResolver;
+    private final String sentOrdersTopic;
+    private final Duration parcelTime;
+    private final Duration orderTime;
+
+    private final LongAdder parcels = new LongAdder();
+    private final LongAdder orders = new LongAdder();
+    private final LongAdder packingMillis = new LongAdder();
+
+    public ShipmentPacker(BatchSender batchSender, OrderSnapshotResolver snapshotResolver, String sentOrdersTopic,
+                          Duration parcelTime, Duration orderTime) {
+        this.batchSender = batchSender;
+        this.snapshotResolver = snapshotResolver;
+        this.sentOrdersTopic = sentOrdersTopic;
+        this.parcelTime = parcelTime;
+        this.orderTime = orderTime;
+    }
+
+    /**
+     * Упаковывает посылку и добавляет в {@code sends} событие на каждый заказ; callback'и заказов не вызываются.
+     */
+    public void pack(Shipment shipment, BatchSender.Batch sends) {
+        boolean shipped = packParcel(shipment);
+        for (Shipment.Item item : shipment.getItems()) {
+            OrderEvent event = item.getEvent();
+            Order order = item.getOrder();
+            if (shipped) {
+                order.setStatus(OrderStatus.SHIPPED);
+                OrderEvent shippedEvent = snapshotResolver.next(event, order, EventType.SHIPMENT_SUCCESS);
+
+                sends.send(sentOrdersTopic, order.getCustomerId(), shippedEvent, item.getTrace().outgoing());
+                log.info("Order {} shipped successfully", order.getId());
+            } else {
+                order.setStatus(OrderStatus.CANCELLED);
+                OrderEvent failedEvent = snapshotResolver.next(event, order, EventType.SHIPMENT_FAILED);
+
+                sends.send("failed_shipments", order.getCustomerId(), failedEvent, item.getTrace().outgoing());
+                log.warn("Shipping failed for order: {}", order.getId());
+            }
+        }
+    }
+
+    /**
+     * Отгрузка посылки из консолидатора, в потоке упаковщика: результаты отправляются сразу,
+     * callback каждого заказа узнаёт, подтвердил ли их брокер.
+     */
+    public void ship(Shipment shipment) {
+        BatchSender.Batch sends = batchSender.newBatch();
+        try {
+            pack(shipment, sends);
+            sends.complete();
+        } catch (RuntimeException e) {
+            log.error("Shipment of {} order(s) for customer {} failed: {}",
+                    shipment.getItems().size(), shipment.getCustomerId(), e.getMessage());
+            for (Shipment.Item item : shipment.getItems()) {
+                item.getCallback().failed(e);
+            }
+            return;
+        }
+        for (Shipment.Item item : shipment.getItems()) {
+            item.getTrace().end();
+            item.getCallback().delivered();
+        }
+    }
+
+    public void stats(String prefix, Map<String, Object> stats) {
+        long packed = parcels.sum();
+        stats.put(prefix + ".parcels", packed);
+        stats.put(prefix + ".orders", orders.sum());
+        stats.put(prefix + ".ordersPerParcel", packed > 0 ? (double) orders.sum() / packed : 0.0);
+        stats.put(prefix + ".packingMsPerOrder", orders.sum() > 0 ? (double) packingMillis.sum() / orders.sum() : 0.0);
+    }
+
+    private boolean packParcel(Shipment shipment) {
+        // Имитация упаковки; в реальном приложении здесь будет интеграция с логистическими службами
+        int size = shipment.getItems().size();
+        log.info("Packaging {} order(s) for customer {} into one parcel", size, shipment.getCustomerId());
+
+        long millis = parcelTime.toMillis() + orderTime.toMillis() * (size - 1);
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        parcels.increment();
+        orders.add(size);
+        packingMillis.add(millis);
+
+        // 95% успешных отгрузок
+        return Math.random() > 0.05;
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.shipping;
+
+import com.example.model.Order;
+import com.example.model.OrderEvent;
+import com.example.processing.DeliveryCallback;
+import com.example.processing.TimerWheel;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ShipmentConsolidatorTest {
+
+    private static final TopicPartition P0 = new TopicPartition("payed_orders", 0);
+    private static final TopicPartition P1 = new TopicPartition("payed_orders", 1);
+    private static final Duration LONG_WINDOW = Duration.ofHours(1);
+
+    private final TimerWheel timerWheel = new TimerWheel("test-shipment-windows", Duration.ofMillis(5), 64);
+    private final ExecutorService packers = Executors.newCachedThreadPool();
+    private final RecordingPacker packer = new RecordingPacker();
+
+    @AfterEach
+    void close() {
+        packer.release.countDown();
+        packers.shutdownNow();
+        timerWheel.close();
+    }
+
+    @Test
+    void shipsWindowWhenMaxOrdersReached() throws Exception {
+        packer.release.countDown();
+        ShipmentConsolidator consolidator = consolidator(LONG_WINDOW, 3, 10, 100);
+
+        consolidator.add(P0, item("customer-1"));
+        consolidator.add(P0, item("customer-1"));
+        assertThat(consolidator.openWindows()).isEqualTo(1);
+        consolidator.add(P0, item("customer-1"));
+
+        assertThat(consolidator.openWindows()).isZero();
+        assertThat(consolidator.stats()).containsEntry("heldOrders", 0).containsEntry("overflowed", 0L);
+        assertThat(packer.awaitShipments(1)).extracting(shipment -> shipment.getItems().size()).containsExactly(3);
+    }
+
+    @Test
+    void heldOrdersLimitShipsNewCustomerAloneAndFullWindowWithNewOrder() throws Exception {
+        packer.release.countDown();
+        ShipmentConsolidator consolidator = consolidator(LONG_WINDOW, 10, 10, 4);
+        consolidator.add(P0, item("customer-1"));
+        consolidator.add(P0, item("customer-1"));
+        consolidator.add(P0, item("customer-2"));
+        consolidator.add(P0, item("customer-2"));
+
+        // Лимит заказов исчерпан: окно новому клиенту не открывается
+        consolidator.add(P0, item("customer-3"));
+        assertThat(packer.awaitShipments(1)).extracting(Shipment::getCustomerId).containsExactly("customer-3");
+        assertThat(consolidator.stats()).containsEntry("overflowed", 1L).containsEntry("heldOrders", 4);
+
+        // Открытое окно уходит сразу вместе с новым заказом
+        consolidator.add(P0, item("customer-1"));
+        List<Shipment> shipments = packer.awaitShipments(2);
+        assertThat(shipments.get(1).getCustomerId()).isEqualTo("customer-1");
+        assertThat(shipments.get(1).getItems()).hasSize(3);
+        assertThat(consolidator.stats()).containsEntry("heldOrders", 2).containsEntry("openWindows", 1);
+    }
+
+    @Test
+    void customersLimitShipsOrderAloneWithoutOpeningWindow() throws Exception {
+        packer.release.countDown();
+        ShipmentConsolidator consolidator = consolidator(LONG_WINDOW, 10, 2, 100);
+        consolidator.add(P0, item("customer-1"));
+        consolidator.add(P1, item("customer-2"));
+
+        consolidator.add(P0, item("customer-3"));
+        consolidator.add(P0, item("customer-3"));
+
+        assertThat(packer.awaitShipments(2)).extracting(Shipment::getCustomerId)
+                .containsExactly("customer-3", "customer-3");
+        assertThat(consolidator.openWindows()).isEqualTo(2);
+        assertThat(consolidator.stats()).containsEntry("overflowed", 2L).containsEntry("heldOrders", 2);
+        // Окна уже открытых клиентов принимают заказы и при исчерпанном лимите
+        consolidator.add(P0, item("customer-1"));
+        assertThat(consolidator.stats()).containsEntry("heldOrders", 3).containsEntry("overflowed", 2L);
+    }
+
+    @Test
+    void windowExpiresOnTimer() throws Exception {
+        packer.release.countDown();
+        ShipmentConsolidator consolidator = consolidator(Duration.ofMillis(50), 10, 10, 100);
+        consolidator.add(P0, item("customer-1"));
+        consolidator.add(P0, item("customer-1"));
+
+        assertThat(packer.awaitShipments(1).get(0).getItems()).hasSize(2);
+        assertThat(consolidator.openWindows()).isZero();
+    }
+
+    @Test
+    void flushShipsRevokedPartitionsAndWaitsForPacking() throws Exception {
+        ShipmentConsolidator consolidator = consolidator(LONG_WINDOW, 2, 10, 100);
+        // Посылка, начатая до отзыва: окно ушло по размеру, упаковка ещё идёт
+        consolidator.add(P0, item("customer-1"));
+        consolidator.add(P0, item("customer-1"));
+        consolidator.add(P0, item("customer-2"));
+        consolidator.add(P1, item("customer-3"));
+        assertThat(packer.started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(consolidator.flush(List.of(P0), Duration.ofMillis(100))).isFalse();
+        assertThat(consolidator.openWindows()).isEqualTo(1);
+
+        CompletableFuture<Boolean> flushed = CompletableFuture.supplyAsync(
+                () -> consolidator.flush(List.of(P0), Duration.ofSeconds(5)));
+        Thread.sleep(100);
+        assertThat(flushed).isNotDone();
+
+        packer.release.countDown();
+        assertThat(flushed.get(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(packer.awaitShipments(2)).extracting(Shipment::getCustomerId)
+                .containsExactlyInAnyOrder("customer-1", "customer-2");
+        // Окно партиции, оставшейся у консьюмера, не тронуто
+        assertThat(consolidator.openWindows()).isEqualTo(1);
+        assertThat(consolidator.stats()).containsEntry("flushedOnRevoke", 1L);
+    }
+
+    @Test
+    void stopShipsOpenWindowsAndLaterOrdersAlone() throws Exception {
+        packer.release.countDown();
+        ShipmentConsolidator consolidator = consolidator(LONG_WINDOW, 10, 10, 100);
+        consolidator.add(P0, item("customer-1"));
+        consolidator.add(P1, item("customer-2"));
+
+        consolidator.stop();
+        assertThat(packer.shipments).hasSize(2);
+        assertThat(consolidator.openWindows()).isZero();
+
+        consolidator.add(P0, item("customer-1"));
+        consolidator.add(P0, item("customer-1"));
+        assertThat(packer.awaitShipments(4)).allSatisfy(shipment -> assertThat(shipment.getItems()).hasSize(1));
+    }
+
+    private ShipmentConsolidator consolidator(Duration window, int maxOrders, int maxCustomers, int maxHeldOrders) {
+        return new ShipmentConsolidator(packer, packers, timerWheel, window, maxOrders, maxCustomers, maxHeldOrders,
+                Duration.ofSeconds(5));
+    }
+
+    private static Shipment.Item item(String customerId) {
+        Order order = new Order();
+        order.setCustomerId(customerId);
+        return new Shipment.Item(new OrderEvent(order.getId(), null, order), order, null, DeliveryCallback.NONE);
+    }
+
+    // Упаковщик без отправки: запоминает посылки, упаковка ждёт release
+    private static final class RecordingPacker extends ShipmentPacker {
+
+        final List<Shipment> shipments = new CopyOnWriteArrayList<>();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        RecordingPacker() {
+            super(null, null, "sent_orders", Duration.ZERO, Duration.ZERO);
+        }
+
+        @Override
+        public void ship(Shipment shipment) {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            shipments.add(shipment);
+        }
+
+        List<Shipment> awaitShipments(int count) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (shipments.size() < count && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertThat(shipments).hasSize(count);
+            return shipments;
+        }
+    }
+}